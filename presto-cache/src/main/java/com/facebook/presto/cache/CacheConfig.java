@@ -15,24 +15,25 @@ package com.facebook.presto.cache;
 
 import com.facebook.airlift.configuration.Config;
 import com.facebook.airlift.configuration.ConfigDescription;
+import com.facebook.airlift.configuration.DefunctConfig;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import io.airlift.units.MinDuration;
 
-import javax.validation.constraints.Min;
-
 import java.net.URI;
 
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static java.util.concurrent.TimeUnit.DAYS;
 
+@DefunctConfig("cache.max-cached-entries")
 public class CacheConfig
 {
     private URI baseDirectory;
     private boolean validationEnabled;
     private DataSize maxInMemoryCacheSize = new DataSize(2, GIGABYTE);
-    private int maxCachedEntries = 1_000;
+    private DataSize maxCacheSize = new DataSize(100, GIGABYTE);
     private Duration cacheTtl = new Duration(2, DAYS);
+    private boolean persistenceEnabled;
 
     public URI getBaseDirectory()
     {
@@ -73,17 +74,16 @@ public class CacheConfig
         return this;
     }
 
-    @Min(1)
-    public int getMaxCachedEntries()
+    public DataSize getMaxCacheSize()
     {
-        return maxCachedEntries;
+        return maxCacheSize;
     }
 
-    @Config("cache.max-cached-entries")
-    @ConfigDescription("Number of entries allowed in the cache")
-    public CacheConfig setMaxCachedEntries(int maxCachedEntries)
+    @Config("cache.max-cache-size")
+    @ConfigDescription("The maximum size of the data cached on local disk")
+    public CacheConfig setMaxCacheSize(DataSize maxCacheSize)
     {
-        this.maxCachedEntries = maxCachedEntries;
+        this.maxCacheSize = maxCacheSize;
         return this;
     }
 
@@ -100,4 +100,17 @@ public class CacheConfig
         this.cacheTtl = cacheTtl;
         return this;
     }
+
+    public boolean isPersistenceEnabled()
+    {
+        return persistenceEnabled;
+    }
+
+    @Config("cache.persistence-enabled")
+    @ConfigDescription("Keep the cached data and its index on local disk across restarts")
+    public CacheConfig setPersistenceEnabled(boolean persistenceEnabled)
+    {
+        this.persistenceEnabled = persistenceEnabled;
+        return this;
+    }
 }
@@ -25,6 +25,11 @@ public class CacheStats
     private final AtomicLong inMemoryRetainedBytes = new AtomicLong();
     private final AtomicLong hit = new AtomicLong();
     private final AtomicLong miss = new AtomicLong();
+    private final AtomicLong hitBytes = new AtomicLong();
+    private final AtomicLong missBytes = new AtomicLong();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicLong eviction = new AtomicLong();
+    private final AtomicLong evictedBytes = new AtomicLong();
 
     public void incrementCacheHit()
     {
@@ -36,6 +41,27 @@ public class CacheStats
         miss.getAndIncrement();
     }
 
+    public void addCacheHitBytes(long bytes)
+    {
+        hitBytes.addAndGet(bytes);
+    }
+
+    public void addCacheMissBytes(long bytes)
+    {
+        missBytes.addAndGet(bytes);
+    }
+
+    public void addCachedBytes(long bytes)
+    {
+        cachedBytes.addAndGet(bytes);
+    }
+
+    public void recordCacheEviction(long bytes)
+    {
+        eviction.getAndIncrement();
+        evictedBytes.addAndGet(bytes);
+    }
+
     public void addInMemoryRetainedBytes(long bytes)
     {
         inMemoryRetainedBytes.addAndGet(bytes);
@@ -58,4 +84,34 @@ public class CacheStats
     {
         return miss.get();
     }
+
+    @Managed
+    public long getCacheHitBytes()
+    {
+        return hitBytes.get();
+    }
+
+    @Managed
+    public long getCacheMissBytes()
+    {
+        return missBytes.get();
+    }
+
+    @Managed
+    public long getCachedBytes()
+    {
+        return cachedBytes.get();
+    }
+
+    @Managed
+    public long getCacheEviction()
+    {
+        return eviction.get();
+    }
+
+    @Managed
+    public long getCacheEvictedBytes()
+    {
+        return evictedBytes.get();
+    }
 }
@@ -19,6 +19,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeMap;
@@ -29,13 +30,19 @@ import org.apache.hadoop.fs.Path;
 
 import javax.annotation.PreDestroy;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
@@ -50,18 +57,19 @@ import java.util.stream.Collectors;
 
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.cache.RemovalCause.REPLACED;
 import static com.google.common.collect.Iterators.getOnlyElement;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.Math.min;
 import static java.lang.StrictMath.toIntExact;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.nio.file.StandardOpenOption.APPEND;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
 import static java.util.Objects.requireNonNull;
 import static java.util.UUID.randomUUID;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-// 3 major TODOs for this class:
-// TODO: Make cache eviction based on cache size rather than file count; add evict count stats to CacheStats as well.
-// TODO: Make cache state persistent on disk so we do not need to wipe out cache every time we reboot a server.
 @SuppressWarnings("UnstableApiUsage")
 public class LocalRangeCacheManager
         implements CacheManager
@@ -69,6 +77,8 @@ public class LocalRangeCacheManager
     private static final Logger log = Logger.get(LocalRangeCacheManager.class);
 
     private static final String EXTENSION = ".cache";
+    private static final String INDEX_FILE_NAME = "index";
+    private static final int INDEX_VERSION = 1;
 
     private static final int FILE_MERGE_BUFFER_SIZE = toIntExact(new DataSize(8, MEGABYTE).toBytes());
 
@@ -79,8 +89,8 @@ public class LocalRangeCacheManager
 
     // a mapping from remote file `F` to a range map `M`; the corresponding local cache file for each range in `M` represents the cached chunk of `F`
     private final Map<Path, CacheRange> persistedRanges = new ConcurrentHashMap<>();
-    // a local cache only to control the lifecycle of persisted
-    private final Cache<Path, Boolean> cache;
+    // a local cache only to control the lifecycle of persisted ranges; the value is the number of bytes cached for the file
+    private final Cache<Path, Long> cache;
 
     // stats
     private final CacheStats stats;
@@ -88,6 +98,8 @@ public class LocalRangeCacheManager
     // config
     private final Path baseDirectory;
     private final long maxInflightBytes;
+    private final long cacheTtlMillis;
+    private final boolean persistenceEnabled;
 
     public LocalRangeCacheManager(CacheConfig cacheConfig, CacheStats stats, ExecutorService cacheFlushExecutor, ExecutorService cacheRemovalExecutor)
     {
@@ -95,7 +107,9 @@ public class LocalRangeCacheManager
         this.cacheFlushExecutor = cacheFlushExecutor;
         this.cacheRemovalExecutor = cacheRemovalExecutor;
         this.cache = CacheBuilder.newBuilder()
-                .maximumSize(cacheConfig.getMaxCachedEntries())
+                .maximumWeight(cacheConfig.getMaxCacheSize().toBytes())
+                // the weight of an entry is only updated when the entry is replaced after its ranges change
+                .weigher((Path path, Long bytes) -> toIntExact(min(bytes, Integer.MAX_VALUE)))
                 .expireAfterAccess(cacheConfig.getCacheTtl().toMillis(), MILLISECONDS)
                 .removalListener(new CacheRemovalListener())
                 .recordStats()
@@ -104,6 +118,8 @@ public class LocalRangeCacheManager
         this.baseDirectory = new Path(cacheConfig.getBaseDirectory());
         checkArgument(cacheConfig.getMaxInMemoryCacheSize().toBytes() >= 0, "maxInflightBytes is negative");
         this.maxInflightBytes = cacheConfig.getMaxInMemoryCacheSize().toBytes();
+        this.cacheTtlMillis = cacheConfig.getCacheTtl().toMillis();
+        this.persistenceEnabled = cacheConfig.isPersistenceEnabled();
 
         File target = new File(baseDirectory.toUri());
         if (!target.exists()) {
@@ -115,7 +131,10 @@ public class LocalRangeCacheManager
             }
         }
         else {
-            File[] files = target.listFiles();
+            Set<String> retainedFileNames = persistenceEnabled ? loadIndex(target) : ImmutableSet.of();
+
+            // remove the files that are not referenced by the index, including the ones written after it was persisted
+            File[] files = target.listFiles(file -> !retainedFileNames.contains(file.getName()));
             if (files == null) {
                 return;
             }
@@ -137,6 +156,9 @@ public class LocalRangeCacheManager
         cacheFlushExecutor.shutdownNow();
         cacheRemovalExecutor.shutdownNow();
         buffers.remove();
+        if (persistenceEnabled) {
+            writeIndex();
+        }
     }
 
     @Override
@@ -145,9 +167,11 @@ public class LocalRangeCacheManager
         boolean result = read(request, buffer, offset);
         if (result) {
             stats.incrementCacheHit();
+            stats.addCacheHitBytes(request.getLength());
         }
         else {
             stats.incrementCacheMiss();
+            stats.addCacheMissBytes(request.getLength());
         }
 
         return result;
@@ -183,7 +207,7 @@ public class LocalRangeCacheManager
 
         try {
             // hint the cache no matter what
-            cache.get(request.getPath(), () -> true);
+            cache.get(request.getPath(), () -> 0L);
         }
         catch (ExecutionException e) {
             // ignore
@@ -300,11 +324,13 @@ public class LocalRangeCacheManager
         // use a flag so that file deletion can be done outside the lock
         boolean updated;
         Set<Path> cacheFilesToDelete = new HashSet<>();
+        boolean removed;
+        long cachedBytes;
 
-        Lock writeLock = persistedRanges.get(targetFile).getLock().writeLock();
+        Lock writeLock = cacheRange.getLock().writeLock();
         writeLock.lock();
         try {
-            RangeMap<Long, LocalCacheFile> cache = persistedRanges.get(targetFile).getRange();
+            RangeMap<Long, LocalCacheFile> cache = cacheRange.getRange();
             // check again if the previous or following range has been updated by someone else
             LocalCacheFile newPreviousCacheFile = cache.get(key.getOffset() - 1);
             LocalCacheFile newFollowingCacheFile = cache.get(key.getOffset() + key.getLength());
@@ -324,12 +350,25 @@ public class LocalRangeCacheManager
                 Range<Long> newRange = Range.closedOpen(newFileOffset, newFileOffset + newFileLength);
                 cache.remove(newRange);
                 cache.put(newRange, new LocalCacheFile(newFileOffset, newFilePath));
+
+                long previousBytes = cacheRange.getBytes();
+                cacheRange.updateBytes();
+                if (!cacheRange.isRemoved()) {
+                    stats.addCachedBytes(cacheRange.getBytes() - previousBytes);
+                }
             }
+            removed = cacheRange.isRemoved();
+            cachedBytes = cacheRange.getBytes();
         }
         finally {
             writeLock.unlock();
         }
 
+        if (updated && !removed) {
+            // update the weight of the file, which may evict it or other files
+            cache.put(targetFile, cachedBytes);
+        }
+
         // no lock is needed for the following operation
         if (updated) {
             // remove the the previous or following file as well
@@ -377,6 +416,99 @@ public class LocalRangeCacheManager
         return totalBytesRead;
     }
 
+    private Set<String> loadIndex(File directory)
+    {
+        File indexFile = new File(directory, INDEX_FILE_NAME);
+        if (!indexFile.exists()) {
+            return ImmutableSet.of();
+        }
+
+        Map<Path, CacheRange> loadedRanges = new HashMap<>();
+        Set<String> cacheFileNames = new HashSet<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (input.readInt() != INDEX_VERSION || System.currentTimeMillis() - input.readLong() > cacheTtlMillis) {
+                return ImmutableSet.of();
+            }
+            int fileCount = input.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                Path path = new Path(input.readUTF());
+                CacheRange cacheRange = new CacheRange();
+                int rangeCount = input.readInt();
+                for (int j = 0; j < rangeCount; j++) {
+                    long start = input.readLong();
+                    long end = input.readLong();
+                    String cacheFileName = input.readUTF();
+
+                    // a range is only valid if its file is still on disk with the expected length
+                    File cacheFile = new File(directory, cacheFileName);
+                    if (cacheFile.isFile() && cacheFile.length() == end - start) {
+                        cacheRange.getRange().put(Range.closedOpen(start, end), new LocalCacheFile(start, new Path(baseDirectory.toUri() + "/" + cacheFileName)));
+                        cacheFileNames.add(cacheFileName);
+                    }
+                }
+                cacheRange.updateBytes();
+                if (cacheRange.getBytes() > 0) {
+                    loadedRanges.put(path, cacheRange);
+                }
+            }
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to load cache index %s, discarding the cached data", indexFile);
+            return ImmutableSet.of();
+        }
+
+        for (Map.Entry<Path, CacheRange> entry : loadedRanges.entrySet()) {
+            persistedRanges.put(entry.getKey(), entry.getValue());
+            stats.addCachedBytes(entry.getValue().getBytes());
+            cache.put(entry.getKey(), entry.getValue().getBytes());
+        }
+        log.info("Loaded %s cached files with %s bytes from %s", loadedRanges.size(), stats.getCachedBytes(), indexFile);
+        cacheFileNames.add(INDEX_FILE_NAME);
+        return cacheFileNames;
+    }
+
+    private void writeIndex()
+    {
+        File directory = new File(baseDirectory.toUri());
+        File indexFile = new File(directory, INDEX_FILE_NAME);
+        File temporaryIndexFile = new File(directory, INDEX_FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryIndexFile)))) {
+                Map<Path, Map<Range<Long>, LocalCacheFile>> ranges = new HashMap<>();
+                for (Map.Entry<Path, CacheRange> entry : persistedRanges.entrySet()) {
+                    Lock readLock = entry.getValue().getLock().readLock();
+                    readLock.lock();
+                    try {
+                        if (!entry.getValue().getRange().asMapOfRanges().isEmpty()) {
+                            ranges.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue().getRange().asMapOfRanges()));
+                        }
+                    }
+                    finally {
+                        readLock.unlock();
+                    }
+                }
+
+                output.writeInt(INDEX_VERSION);
+                output.writeLong(System.currentTimeMillis());
+                output.writeInt(ranges.size());
+                for (Map.Entry<Path, Map<Range<Long>, LocalCacheFile>> entry : ranges.entrySet()) {
+                    output.writeUTF(entry.getKey().toString());
+                    output.writeInt(entry.getValue().size());
+                    for (Map.Entry<Range<Long>, LocalCacheFile> range : entry.getValue().entrySet()) {
+                        output.writeLong(range.getKey().lowerEndpoint());
+                        output.writeLong(range.getKey().upperEndpoint());
+                        output.writeUTF(range.getValue().getPath().getName());
+                    }
+                }
+            }
+            Files.move(temporaryIndexFile.toPath(), indexFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to persist cache index %s", indexFile);
+            tryDeleteFile(new Path(temporaryIndexFile.toURI()));
+        }
+    }
+
     private static void tryDeleteFile(Path path)
     {
         try {
@@ -448,12 +580,38 @@ public class LocalRangeCacheManager
     {
         private final RangeMap<Long, LocalCacheFile> range = TreeRangeMap.create();
         private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // guarded by the write lock
+        private long bytes;
+        private boolean removed;
 
         public RangeMap<Long, LocalCacheFile> getRange()
         {
             return range;
         }
 
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public boolean isRemoved()
+        {
+            return removed;
+        }
+
+        public void markRemoved()
+        {
+            removed = true;
+        }
+
+        public void updateBytes()
+        {
+            bytes = 0;
+            for (Range<Long> cachedRange : range.asMapOfRanges().keySet()) {
+                bytes += cachedRange.upperEndpoint() - cachedRange.lowerEndpoint();
+            }
+        }
+
         public ReadWriteLock getLock()
         {
             return lock;
@@ -461,17 +619,36 @@ public class LocalRangeCacheManager
     }
 
     private class CacheRemovalListener
-            implements RemovalListener<Path, Boolean>
+            implements RemovalListener<Path, Long>
     {
         @Override
-        public void onRemoval(RemovalNotification<Path, Boolean> notification)
+        public void onRemoval(RemovalNotification<Path, Long> notification)
         {
+            if (notification.getCause() == REPLACED) {
+                // the weight of the file has been updated
+                return;
+            }
+
             Path path = notification.getKey();
             CacheRange cacheRange = persistedRanges.remove(path);
             if (cacheRange == null) {
                 return;
             }
 
+            long bytes;
+            cacheRange.getLock().writeLock().lock();
+            try {
+                cacheRange.markRemoved();
+                bytes = cacheRange.getBytes();
+            }
+            finally {
+                cacheRange.getLock().writeLock().unlock();
+            }
+            stats.addCachedBytes(-bytes);
+            if (notification.wasEvicted()) {
+                stats.recordCacheEviction(bytes);
+            }
+
             cacheRemovalExecutor.submit(() -> {
                 Collection<LocalCacheFile> files;
                 cacheRange.lock.readLock().lock();
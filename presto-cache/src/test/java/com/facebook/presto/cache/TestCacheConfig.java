@@ -37,8 +37,9 @@ public class TestCacheConfig
                 .setBaseDirectory(null)
                 .setValidationEnabled(false)
                 .setMaxInMemoryCacheSize(new DataSize(2, GIGABYTE))
-                .setMaxCachedEntries(1_000)
-                .setCacheTtl(new Duration(2, DAYS)));
+                .setMaxCacheSize(new DataSize(100, GIGABYTE))
+                .setCacheTtl(new Duration(2, DAYS))
+                .setPersistenceEnabled(false));
     }
 
     @Test
@@ -49,16 +50,18 @@ public class TestCacheConfig
                 .put("cache.base-directory", "tcp://abc")
                 .put("cache.validation-enabled", "true")
                 .put("cache.max-in-memory-cache-size", "42MB")
-                .put("cache.max-cached-entries", "10000")
+                .put("cache.max-cache-size", "10GB")
                 .put("cache.ttl", "20d")
+                .put("cache.persistence-enabled", "true")
                 .build();
 
         CacheConfig expected = new CacheConfig()
                 .setBaseDirectory(new URI("tcp://abc"))
                 .setValidationEnabled(true)
                 .setMaxInMemoryCacheSize(new DataSize(42, MEGABYTE))
-                .setMaxCachedEntries(10_000)
-                .setCacheTtl(new Duration(20, DAYS));
+                .setMaxCacheSize(new DataSize(10, GIGABYTE))
+                .setCacheTtl(new Duration(20, DAYS))
+                .setPersistenceEnabled(true);
 
         assertFullMapping(properties, expected);
     }
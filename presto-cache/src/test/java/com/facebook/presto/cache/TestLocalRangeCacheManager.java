@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.URI;
 import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -36,7 +37,10 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static io.airlift.slice.Slices.wrappedBuffer;
+import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static java.lang.Integer.max;
 import static java.lang.String.format;
@@ -151,6 +155,74 @@ public class TestLocalRangeCacheManager
         validateBuffer(40, buffer, 400, 200);
     }
 
+    @Test(timeOut = 30_000)
+    public void testEvictionBySize()
+            throws Exception
+    {
+        TestingCacheStats stats = new TestingCacheStats();
+        CacheManager cacheManager = new LocalRangeCacheManager(
+                new CacheConfig()
+                        .setBaseDirectory(cacheDirectory)
+                        .setMaxCacheSize(new DataSize(1, BYTE)),
+                stats,
+                flushExecutor,
+                removeExecutor);
+        byte[] buffer = new byte[1024];
+
+        // the range does not fit in the cache and is evicted as soon as it is persisted
+        assertFalse(readFully(cacheManager, 0, buffer, 0, 100));
+        stats.trigger();
+        assertEquals(stats.getCacheEviction(), 1);
+        assertEquals(stats.getCacheEvictedBytes(), 100);
+        assertEquals(stats.getCachedBytes(), 0);
+
+        assertFalse(readFully(cacheManager, 0, buffer, 0, 100));
+        assertEquals(stats.getCacheMiss(), 2);
+        assertEquals(stats.getCacheMissBytes(), 200);
+        stats.trigger();
+        validateBuffer(0, buffer, 0, 100);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testPersistence()
+            throws Exception
+    {
+        URI persistentCacheDirectory = createTempDirectory("persistent-cache").toUri();
+        CacheConfig cacheConfig = new CacheConfig()
+                .setBaseDirectory(persistentCacheDirectory)
+                .setPersistenceEnabled(true);
+        byte[] buffer = new byte[1024];
+
+        TestingCacheStats stats = new TestingCacheStats();
+        LocalRangeCacheManager cacheManager = new LocalRangeCacheManager(cacheConfig, stats, newScheduledThreadPool(1), newScheduledThreadPool(1));
+        assertFalse(readFully(cacheManager, 100, buffer, 0, 200));
+        stats.trigger();
+        assertEquals(stats.getCachedBytes(), 200);
+        cacheManager.destroy();
+
+        // the cached range is loaded from the index after a restart
+        stats = new TestingCacheStats();
+        cacheManager = new LocalRangeCacheManager(cacheConfig, stats, newScheduledThreadPool(1), newScheduledThreadPool(1));
+        assertEquals(stats.getCachedBytes(), 200);
+        assertTrue(readFully(cacheManager, 150, buffer, 0, 100));
+        assertEquals(stats.getCacheHitBytes(), 100);
+        validateBuffer(150, buffer, 0, 100);
+        cacheManager.destroy();
+
+        // ranges whose cache file is gone are dropped
+        File[] cacheFiles = new File(persistentCacheDirectory).listFiles((directory, name) -> name.endsWith(".cache"));
+        assertEquals(cacheFiles.length, 1);
+        Files.delete(cacheFiles[0].toPath());
+        stats = new TestingCacheStats();
+        cacheManager = new LocalRangeCacheManager(cacheConfig, stats, newScheduledThreadPool(1), newScheduledThreadPool(1));
+        assertEquals(stats.getCachedBytes(), 0);
+        assertFalse(readFully(cacheManager, 150, buffer, 0, 100));
+        stats.trigger();
+        cacheManager.destroy();
+
+        deleteRecursively(Paths.get(persistentCacheDirectory), ALLOW_INSECURE);
+    }
+
     @Test(invocationCount = 10)
     public void testStress()
             throws ExecutionException, InterruptedException
@@ -28,6 +28,7 @@ public class HiveFileInfo
     private final boolean isDirectory;
     private final BlockLocation[] blockLocations;
     private final long length;
+    private final long fileModifiedTime;
     private final Optional<byte[]> extraFileInfo;
 
     public static HiveFileInfo createHiveFileInfo(LocatedFileStatus locatedFileStatus, Optional<byte[]> extraFileContext)
@@ -37,15 +38,17 @@ public class HiveFileInfo
                 locatedFileStatus.isDirectory(),
                 locatedFileStatus.getBlockLocations(),
                 locatedFileStatus.getLen(),
+                locatedFileStatus.getModificationTime(),
                 extraFileContext);
     }
 
-    private HiveFileInfo(Path path, boolean isDirectory, BlockLocation[] blockLocations, long length, Optional<byte[]> extraFileInfo)
+    private HiveFileInfo(Path path, boolean isDirectory, BlockLocation[] blockLocations, long length, long fileModifiedTime, Optional<byte[]> extraFileInfo)
     {
         this.path = requireNonNull(path, "path is null");
         this.isDirectory = isDirectory;
         this.blockLocations = blockLocations;
         this.length = length;
+        this.fileModifiedTime = fileModifiedTime;
         this.extraFileInfo = requireNonNull(extraFileInfo, "extraFileInfo is null");
     }
 
@@ -69,6 +72,11 @@ public class HiveFileInfo
         return length;
     }
 
+    public long getFileModifiedTime()
+    {
+        return fileModifiedTime;
+    }
+
     public Optional<byte[]> getExtraFileInfo()
     {
         return extraFileInfo;
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.hive;
 
+import com.facebook.airlift.stats.CounterStat;
 import com.facebook.airlift.stats.DistributionStat;
 import com.facebook.airlift.stats.TimeStat;
 import org.weakref.jmx.Managed;
@@ -29,6 +30,9 @@ public class FileFormatDataSourceStats
     private final TimeStat time100KBto1MB = new TimeStat(MILLISECONDS);
     private final TimeStat time1MBto10MB = new TimeStat(MILLISECONDS);
     private final TimeStat time10MBPlus = new TimeStat(MILLISECONDS);
+    private final CounterStat skippedPages = new CounterStat();
+    private final DistributionStat concurrentReadCount = new DistributionStat();
+    private final TimeStat concurrentReadTime = new TimeStat(MILLISECONDS);
 
     @Managed
     @Nested
@@ -72,6 +76,27 @@ public class FileFormatDataSourceStats
         return time10MBPlus;
     }
 
+    @Managed
+    @Nested
+    public CounterStat getSkippedPages()
+    {
+        return skippedPages;
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getConcurrentReadCount()
+    {
+        return concurrentReadCount;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getConcurrentReadTime()
+    {
+        return concurrentReadTime;
+    }
+
     public void readDataBytesPerSecond(long bytes, long nanos)
     {
         readBytes.add(bytes);
@@ -93,4 +118,15 @@ public class FileFormatDataSourceStats
     {
         maxCombinedBytesPerRow.add(bytes);
     }
+
+    public void addSkippedPages(long pages)
+    {
+        skippedPages.update(pages);
+    }
+
+    public void addConcurrentReads(int readCount, long nanos)
+    {
+        concurrentReadCount.add(readCount);
+        concurrentReadTime.add(nanos, NANOSECONDS);
+    }
 }
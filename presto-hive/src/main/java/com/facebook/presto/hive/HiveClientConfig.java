@@ -65,6 +65,7 @@ public class HiveClientConfig
     private int maxInitialSplits = 200;
     private int splitLoaderConcurrency = 4;
     private DataSize maxInitialSplitSize;
+    private boolean morselTailSplitsEnabled;
     private int domainCompactionThreshold = 100;
     private DataSize writerSortBufferSize = new DataSize(64, MEGABYTE);
     private NodeSelectionStrategy nodeSelectionStrategy = NO_PREFERENCE;
@@ -100,6 +101,7 @@ public class HiveClientConfig
 
     private boolean useParquetColumnNames;
     private boolean failOnCorruptedParquetStatistics = true;
+    private boolean parquetColumnIndexFilterEnabled = true;
     private DataSize parquetMaxReadBlockSize = new DataSize(16, MEGABYTE);
 
     private boolean assumeCanonicalPartitionKeys;
@@ -113,6 +115,7 @@ public class HiveClientConfig
     private DataSize orcStreamBufferSize = new DataSize(8, MEGABYTE);
     private DataSize orcMaxReadBlockSize = new DataSize(16, MEGABYTE);
     private boolean orcLazyReadSmallRanges = true;
+    private int orcMaxConcurrentReads = 1;
     private boolean orcOptimizedWriterEnabled = true;
     private double orcWriterValidationPercentage;
     private OrcWriteValidationMode orcWriterValidationMode = OrcWriteValidationMode.BOTH;
@@ -195,6 +198,19 @@ public class HiveClientConfig
         return this;
     }
 
+    public boolean isMorselTailSplitsEnabled()
+    {
+        return morselTailSplitsEnabled;
+    }
+
+    @Config("hive.morsel-tail-splits-enabled")
+    @ConfigDescription("Once the queued splits no longer fill a split batch, hand them out in smaller pieces, down to max-initial-split-size, so that large files do not delay the end of the scan")
+    public HiveClientConfig setMorselTailSplitsEnabled(boolean morselTailSplitsEnabled)
+    {
+        this.morselTailSplitsEnabled = morselTailSplitsEnabled;
+        return this;
+    }
+
     @Min(1)
     public int getSplitLoaderConcurrency()
     {
@@ -737,6 +753,20 @@ public class HiveClientConfig
         return this;
     }
 
+    @Min(1)
+    public int getOrcMaxConcurrentReads()
+    {
+        return orcMaxConcurrentReads;
+    }
+
+    @Config("hive.orc.max-concurrent-reads")
+    @ConfigDescription("Maximum number of coalesced reads of the streams of an ORC stripe issued concurrently")
+    public HiveClientConfig setOrcMaxConcurrentReads(int orcMaxConcurrentReads)
+    {
+        this.orcMaxConcurrentReads = orcMaxConcurrentReads;
+        return this;
+    }
+
     public boolean isOrcBloomFiltersEnabled()
     {
         return orcBloomFiltersEnabled;
@@ -886,6 +916,19 @@ public class HiveClientConfig
         return this;
     }
 
+    public boolean isParquetColumnIndexFilterEnabled()
+    {
+        return parquetColumnIndexFilterEnabled;
+    }
+
+    @Config("hive.parquet.column-index-filter-enabled")
+    @ConfigDescription("Skip Parquet pages that do not match the predicate using the column index and offset index of the file")
+    public HiveClientConfig setParquetColumnIndexFilterEnabled(boolean parquetColumnIndexFilterEnabled)
+    {
+        this.parquetColumnIndexFilterEnabled = parquetColumnIndexFilterEnabled;
+        return this;
+    }
+
     @NotNull
     public DataSize getParquetMaxReadBlockSize()
     {
@@ -30,6 +30,7 @@ import com.facebook.presto.hive.orc.TupleDomainFilterCache;
 import com.facebook.presto.hive.pagefile.PageFilePageSourceFactory;
 import com.facebook.presto.hive.pagefile.PageFileWriterFactory;
 import com.facebook.presto.hive.parquet.ParquetPageSourceFactory;
+import com.facebook.presto.hive.parquet.ParquetSelectivePageSourceFactory;
 import com.facebook.presto.hive.rcfile.RcFilePageSourceFactory;
 import com.facebook.presto.hive.rule.HivePlanOptimizerProvider;
 import com.facebook.presto.hive.s3.PrestoS3ClientFactory;
@@ -166,6 +167,7 @@ public class HiveClientModule
         Multibinder<HiveSelectivePageSourceFactory> selectivePageSourceFactoryBinder = newSetBinder(binder, HiveSelectivePageSourceFactory.class);
         selectivePageSourceFactoryBinder.addBinding().to(OrcSelectivePageSourceFactory.class).in(Scopes.SINGLETON);
         selectivePageSourceFactoryBinder.addBinding().to(DwrfSelectivePageSourceFactory.class).in(Scopes.SINGLETON);
+        selectivePageSourceFactoryBinder.addBinding().to(ParquetSelectivePageSourceFactory.class).in(Scopes.SINGLETON);
 
         Multibinder<HiveFileWriterFactory> fileWriterFactoryBinder = newSetBinder(binder, HiveFileWriterFactory.class);
         binder.bind(OrcFileWriterFactory.class).in(Scopes.SINGLETON);
@@ -221,6 +223,14 @@ public class HiveClientModule
                                 hiveClientConfig.getMaxConcurrentZeroRowFileCreations())));
     }
 
+    @ForOrcReads
+    @Singleton
+    @Provides
+    public ExecutorService createOrcReadExecutor(HiveConnectorId hiveClientId)
+    {
+        return newCachedThreadPool(daemonThreadsNamed("hive-orc-read-" + hiveClientId + "-%s"));
+    }
+
     @Singleton
     @Provides
     public OrcFileTailSource createOrcFileTailSource(OrcCacheConfig orcCacheConfig, MBeanExporter exporter)
@@ -242,9 +252,13 @@ public class HiveClientModule
 
     @Singleton
     @Provides
-    public StripeMetadataSource createStripeMetadataSource(OrcCacheConfig orcCacheConfig, MBeanExporter exporter)
+    public StripeMetadataSource createStripeMetadataSource(
+            OrcCacheConfig orcCacheConfig,
+            HiveClientConfig hiveClientConfig,
+            @ForOrcReads ExecutorService orcReadExecutor,
+            MBeanExporter exporter)
     {
-        StripeMetadataSource stripeMetadataSource = new StorageStripeMetadataSource();
+        StripeMetadataSource stripeMetadataSource = new StorageStripeMetadataSource(orcReadExecutor, hiveClientConfig.getOrcMaxConcurrentReads());
         if (orcCacheConfig.isStripeMetadataCacheEnabled()) {
             Cache<StripeId, Slice> footerCache = CacheBuilder.newBuilder()
                     .maximumWeight(orcCacheConfig.getStripeFooterCacheSize().toBytes())
@@ -22,6 +22,7 @@ import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.ConnectorTableLayoutHandle;
+import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.RecordPageSource;
 import com.facebook.presto.spi.SchemaTableName;
@@ -29,6 +30,8 @@ import com.facebook.presto.spi.SplitContext;
 import com.facebook.presto.spi.Subfield;
 import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.NullableValue;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.relation.RowExpression;
 import com.facebook.presto.spi.relation.RowExpressionService;
@@ -60,6 +63,8 @@ import static com.facebook.presto.hive.HiveColumnHandle.ColumnType.REGULAR;
 import static com.facebook.presto.hive.HiveColumnHandle.ColumnType.SYNTHESIZED;
 import static com.facebook.presto.hive.HivePageSourceProvider.ColumnMapping.toColumnHandles;
 import static com.facebook.presto.hive.HiveUtil.getPrefilledColumnValue;
+import static com.facebook.presto.hive.HiveUtil.parsePartitionValue;
+import static com.facebook.presto.hive.metastore.MetastoreUtil.HIVE_DEFAULT_DYNAMIC_PARTITION;
 import static com.facebook.presto.hive.metastore.MetastoreUtil.getHiveSchema;
 import static com.facebook.presto.hive.metastore.MetastoreUtil.reconstructPartitionSchema;
 import static com.facebook.presto.spi.relation.ExpressionOptimizer.Level.OPTIMIZED;
@@ -127,6 +132,13 @@ public class HivePageSourceProvider
         HiveSplit hiveSplit = (HiveSplit) split;
         Path path = new Path(hiveSplit.getPath());
 
+        // the dynamic filter is derived from the build side of a join, rows outside of it cannot produce join matches
+        TupleDomain<HiveColumnHandle> dynamicFilter = splitContext.getDynamicFilterPredicate()
+                .transform(HiveColumnHandle.class::cast);
+        if (!matchesPartitionKeys(hiveSplit, dynamicFilter)) {
+            return new FixedPageSource(ImmutableList.of());
+        }
+
         Configuration configuration = hdfsEnvironment.getConfiguration(new HdfsContext(session, hiveSplit.getDatabase(), hiveSplit.getTable()), path);
 
         if (hiveLayout.isPushdownFilterEnabled()) {
@@ -140,7 +152,8 @@ public class HivePageSourceProvider
                     hiveStorageTimeZone,
                     typeManager,
                     optimizedRowExpressionCache,
-                    splitContext);
+                    splitContext,
+                    dynamicFilter);
             if (selectivePageSource.isPresent()) {
                 return selectivePageSource.get();
             }
@@ -159,7 +172,8 @@ public class HivePageSourceProvider
                 hiveSplit.getStorage(),
                 hiveLayout.getDomainPredicate()
                         .transform(Subfield::getRootName)
-                        .transform(hiveLayout.getPredicateColumns()::get),
+                        .transform(hiveLayout.getPredicateColumns()::get)
+                        .intersect(dynamicFilter),
                 selectedColumns,
                 hiveLayout.getPredicateColumns(),
                 hiveSplit.getPartitionKeys(),
@@ -183,6 +197,34 @@ public class HivePageSourceProvider
         throw new IllegalStateException("Could not find a file reader for split " + hiveSplit);
     }
 
+    private boolean matchesPartitionKeys(HiveSplit split, TupleDomain<HiveColumnHandle> dynamicFilter)
+    {
+        if (dynamicFilter.isAll()) {
+            return true;
+        }
+        if (dynamicFilter.isNone()) {
+            return false;
+        }
+
+        Map<String, HivePartitionKey> partitionKeys = uniqueIndex(split.getPartitionKeys(), HivePartitionKey::getName);
+        for (Map.Entry<HiveColumnHandle, Domain> entry : dynamicFilter.getDomains().get().entrySet()) {
+            HiveColumnHandle column = entry.getKey();
+            HivePartitionKey partitionKey = partitionKeys.get(column.getName());
+            if (!column.isPartitionKey() || partitionKey == null) {
+                continue;
+            }
+            NullableValue value = parsePartitionValue(
+                    split.getPartitionName(),
+                    partitionKey.getValue().equals("\\N") ? HIVE_DEFAULT_DYNAMIC_PARTITION : partitionKey.getValue(),
+                    typeManager.getType(column.getTypeSignature()),
+                    hiveStorageTimeZone);
+            if (!entry.getValue().includesNullableValue(value.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static Optional<ConnectorPageSource> createSelectivePageSource(
             Set<HiveSelectivePageSourceFactory> selectivePageSourceFactories,
             Configuration configuration,
@@ -193,7 +235,8 @@ public class HivePageSourceProvider
             DateTimeZone hiveStorageTimeZone,
             TypeManager typeManager,
             LoadingCache<RowExpressionCacheKey, RowExpression> rowExpressionCache,
-            SplitContext splitContext)
+            SplitContext splitContext,
+            TupleDomain<HiveColumnHandle> dynamicFilter)
     {
         Set<HiveColumnHandle> interimColumns = ImmutableSet.<HiveColumnHandle>builder()
                 .addAll(layout.getPredicateColumns().values())
@@ -234,6 +277,11 @@ public class HivePageSourceProvider
 
         RowExpression optimizedRemainingPredicate = rowExpressionCache.getUnchecked(new RowExpressionCacheKey(layout.getRemainingPredicate(), session));
 
+        // partition keys of the dynamic filter have already been checked against the split
+        Set<String> allColumnNames = allColumns.stream().map(HiveColumnHandle::getName).collect(toImmutableSet());
+        TupleDomain<Subfield> domainPredicate = layout.getDomainPredicate()
+                .intersect(dynamicFilter.transform(column -> !column.isPartitionKey() && allColumnNames.contains(column.getName()) ? new Subfield(column.getName()) : null));
+
         for (HiveSelectivePageSourceFactory pageSourceFactory : selectivePageSourceFactories) {
             Optional<? extends ConnectorPageSource> pageSource = pageSourceFactory.createPageSource(
                     configuration,
@@ -248,7 +296,7 @@ public class HivePageSourceProvider
                     coercers,
                     bucketAdaptation,
                     outputColumns,
-                    layout.getDomainPredicate(),
+                    domainPredicate,
                     optimizedRemainingPredicate,
                     hiveStorageTimeZone,
                     new HiveFileContext(splitContext.isCacheable(), split.getExtraFileInfo().map(BinaryExtraHiveFileInfo::new)));
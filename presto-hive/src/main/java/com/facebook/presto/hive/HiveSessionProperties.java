@@ -71,10 +71,12 @@ public final class HiveSessionProperties
     private static final String PARQUET_USE_COLUMN_NAME = "parquet_use_column_names";
     private static final String PARQUET_FAIL_WITH_CORRUPTED_STATISTICS = "parquet_fail_with_corrupted_statistics";
     private static final String PARQUET_MAX_READ_BLOCK_SIZE = "parquet_max_read_block_size";
+    private static final String PARQUET_COLUMN_INDEX_FILTER_ENABLED = "parquet_column_index_filter_enabled";
     private static final String PARQUET_WRITER_BLOCK_SIZE = "parquet_writer_block_size";
     private static final String PARQUET_WRITER_PAGE_SIZE = "parquet_writer_page_size";
     private static final String MAX_SPLIT_SIZE = "max_split_size";
     private static final String MAX_INITIAL_SPLIT_SIZE = "max_initial_split_size";
+    private static final String MORSEL_TAIL_SPLITS_ENABLED = "morsel_tail_splits_enabled";
     public static final String RCFILE_OPTIMIZED_WRITER_ENABLED = "rcfile_optimized_writer_enabled";
     private static final String RCFILE_OPTIMIZED_WRITER_VALIDATE = "rcfile_optimized_writer_validate";
     private static final String SORTED_WRITING_ENABLED = "sorted_writing_enabled";
@@ -287,6 +289,11 @@ public final class HiveSessionProperties
                         "Parquet: Fail when scanning Parquet files with corrupted statistics",
                         hiveClientConfig.isFailOnCorruptedParquetStatistics(),
                         false),
+                booleanProperty(
+                        PARQUET_COLUMN_INDEX_FILTER_ENABLED,
+                        "Parquet: Skip pages that do not match the predicate using the column index",
+                        hiveClientConfig.isParquetColumnIndexFilterEnabled(),
+                        false),
                 dataSizeSessionProperty(
                         PARQUET_MAX_READ_BLOCK_SIZE,
                         "Parquet: Maximum size of a block to read",
@@ -312,6 +319,11 @@ public final class HiveSessionProperties
                         "Max initial split size",
                         hiveClientConfig.getMaxInitialSplitSize(),
                         true),
+                booleanProperty(
+                        MORSEL_TAIL_SPLITS_ENABLED,
+                        "Once the queued splits no longer fill a split batch, hand them out in smaller pieces, down to max_initial_split_size",
+                        hiveClientConfig.isMorselTailSplitsEnabled(),
+                        false),
                 booleanProperty(
                         RCFILE_OPTIMIZED_WRITER_ENABLED,
                         "Experimental: RCFile: Enable optimized writer",
@@ -604,6 +616,11 @@ public final class HiveSessionProperties
         return session.getProperty(PARQUET_FAIL_WITH_CORRUPTED_STATISTICS, Boolean.class);
     }
 
+    public static boolean isParquetColumnIndexFilterEnabled(ConnectorSession session)
+    {
+        return session.getProperty(PARQUET_COLUMN_INDEX_FILTER_ENABLED, Boolean.class);
+    }
+
     public static DataSize getParquetMaxReadBlockSize(ConnectorSession session)
     {
         return session.getProperty(PARQUET_MAX_READ_BLOCK_SIZE, DataSize.class);
@@ -629,6 +646,11 @@ public final class HiveSessionProperties
         return session.getProperty(MAX_INITIAL_SPLIT_SIZE, DataSize.class);
     }
 
+    public static boolean isMorselTailSplitsEnabled(ConnectorSession session)
+    {
+        return session.getProperty(MORSEL_TAIL_SPLITS_ENABLED, Boolean.class);
+    }
+
     public static boolean isRcfileOptimizedWriterEnabled(ConnectorSession session)
     {
         return session.getProperty(RCFILE_OPTIMIZED_WRITER_ENABLED, Boolean.class);
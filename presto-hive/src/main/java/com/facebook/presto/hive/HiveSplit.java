@@ -34,6 +34,8 @@ import static com.facebook.presto.spi.StandardErrorCode.NO_NODES_AVAILABLE;
 import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.SOFT_AFFINITY;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.hash.Hashing.murmur3_128;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
 public class HiveSplit
@@ -43,6 +45,7 @@ public class HiveSplit
     private final long start;
     private final long length;
     private final long fileSize;
+    private final long fileModifiedTime;
     private final Storage storage;
     private final List<HivePartitionKey> partitionKeys;
     private final List<HostAddress> addresses;
@@ -67,6 +70,7 @@ public class HiveSplit
             @JsonProperty("start") long start,
             @JsonProperty("length") long length,
             @JsonProperty("fileSize") long fileSize,
+            @JsonProperty("fileModifiedTime") long fileModifiedTime,
             @JsonProperty("storage") Storage storage,
             @JsonProperty("partitionKeys") List<HivePartitionKey> partitionKeys,
             @JsonProperty("addresses") List<HostAddress> addresses,
@@ -103,6 +107,7 @@ public class HiveSplit
         this.start = start;
         this.length = length;
         this.fileSize = fileSize;
+        this.fileModifiedTime = fileModifiedTime;
         this.storage = storage;
         this.partitionKeys = ImmutableList.copyOf(partitionKeys);
         this.addresses = ImmutableList.copyOf(addresses);
@@ -158,6 +163,12 @@ public class HiveSplit
         return fileSize;
     }
 
+    @JsonProperty
+    public long getFileModifiedTime()
+    {
+        return fileModifiedTime;
+    }
+
     @JsonProperty
     public Storage getStorage()
     {
@@ -184,17 +195,58 @@ public class HiveSplit
         }
 
         if (getNodeSelectionStrategy() == SOFT_AFFINITY) {
-            // Use + 1 as secondary hash for now, would always get a different position from the first hash.
-            int size = sortedCandidates.size();
-            int mod = path.hashCode() % size;
-            int position = mod < 0 ? mod + size : mod;
-            return ImmutableList.of(
-                    sortedCandidates.get(position),
-                    sortedCandidates.get((position + 1) % size));
+            return getSoftAffinityNodes(sortedCandidates);
         }
         return addresses;
     }
 
+    /**
+     * Picks the two candidates with the highest rendezvous hash for this split's path and start offset,
+     * so that adding or removing a worker only moves the splits that were preferring that worker.
+     */
+    private List<HostAddress> getSoftAffinityNodes(List<HostAddress> sortedCandidates)
+    {
+        if (sortedCandidates.size() == 1) {
+            return ImmutableList.of(sortedCandidates.get(0));
+        }
+
+        long splitHash = murmur3_128().newHasher()
+                .putString(path, UTF_8)
+                .putLong(start)
+                .hash()
+                .asLong();
+
+        HostAddress primary = null;
+        HostAddress secondary = null;
+        long primaryWeight = Long.MIN_VALUE;
+        long secondaryWeight = Long.MIN_VALUE;
+        for (HostAddress candidate : sortedCandidates) {
+            long weight = mix(splitHash ^ mix(candidate.hashCode()));
+            if (primary == null || weight > primaryWeight) {
+                secondary = primary;
+                secondaryWeight = primaryWeight;
+                primary = candidate;
+                primaryWeight = weight;
+            }
+            else if (secondary == null || weight > secondaryWeight) {
+                secondary = candidate;
+                secondaryWeight = weight;
+            }
+        }
+        return ImmutableList.of(primary, secondary);
+    }
+
+    // 64-bit finalizer of MurmurHash3
+    private static long mix(long value)
+    {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
     @JsonProperty
     public OptionalInt getReadBucketNumber()
     {
@@ -244,6 +296,12 @@ public class HiveSplit
         return extraFileInfo;
     }
 
+    @Override
+    public Optional<Object> getSplitIdentifier()
+    {
+        return Optional.of(ImmutableList.of(path, start, length, fileSize, fileModifiedTime));
+    }
+
     @Override
     public Object getInfo()
     {
@@ -252,6 +310,7 @@ public class HiveSplit
                 .put("start", start)
                 .put("length", length)
                 .put("fileSize", fileSize)
+                .put("fileModifiedTime", fileModifiedTime)
                 .put("hosts", addresses)
                 .put("database", database)
                 .put("table", table)
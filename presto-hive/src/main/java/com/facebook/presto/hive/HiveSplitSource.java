@@ -55,6 +55,7 @@ import static com.facebook.presto.hive.HiveErrorCode.HIVE_FILE_NOT_FOUND;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_UNKNOWN_ERROR;
 import static com.facebook.presto.hive.HiveSessionProperties.getMaxInitialSplitSize;
 import static com.facebook.presto.hive.HiveSessionProperties.getMaxSplitSize;
+import static com.facebook.presto.hive.HiveSessionProperties.isMorselTailSplitsEnabled;
 import static com.facebook.presto.hive.HiveSplitSource.StateKind.CLOSED;
 import static com.facebook.presto.hive.HiveSplitSource.StateKind.FAILED;
 import static com.facebook.presto.hive.HiveSplitSource.StateKind.INITIAL;
@@ -66,6 +67,7 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.units.DataSize.succinctBytes;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
@@ -84,6 +86,7 @@ class HiveSplitSource
 
     private final DataSize maxSplitSize;
     private final DataSize maxInitialSplitSize;
+    private final boolean morselTailSplitsEnabled;
     private final boolean useRewindableSplitSource;
     private final AtomicInteger remainingInitialSplits;
 
@@ -117,6 +120,7 @@ class HiveSplitSource
 
         this.maxSplitSize = getMaxSplitSize(session);
         this.maxInitialSplitSize = getMaxInitialSplitSize(session);
+        this.morselTailSplitsEnabled = isMorselTailSplitsEnabled(session);
         this.useRewindableSplitSource = useRewindableSplitSource;
         this.remainingInitialSplits = new AtomicInteger(maxInitialSplits);
     }
@@ -449,8 +453,9 @@ class HiveSplitSource
             ImmutableList.Builder<InternalHiveSplit> splitsToInsertBuilder = ImmutableList.builder();
             ImmutableList.Builder<ConnectorSplit> resultBuilder = ImmutableList.builder();
             int removedEstimatedSizeInBytes = 0;
+            long maxTailSplitBytes = morselTailSplitsEnabled ? getMaxTailSplitBytes(internalSplits, maxSize) : maxSplitSize.toBytes();
             for (InternalHiveSplit internalSplit : internalSplits) {
-                long maxSplitBytes = maxSplitSize.toBytes();
+                long maxSplitBytes = maxTailSplitBytes;
                 if (remainingInitialSplits.get() > 0) {
                     if (remainingInitialSplits.getAndDecrement() > 0) {
                         maxSplitBytes = maxInitialSplitSize.toBytes();
@@ -473,6 +478,7 @@ class HiveSplitSource
                         internalSplit.getStart(),
                         splitBytes,
                         internalSplit.getFileSize(),
+                        internalSplit.getFileModifiedTime(),
                         internalSplit.getPartitionInfo().getStorage(),
                         internalSplit.getPartitionKeys(),
                         block.getAddresses(),
@@ -535,6 +541,30 @@ class HiveSplitSource
         return toCompletableFuture(transform);
     }
 
+    /**
+     * Returns the size the borrowed splits are cut to. Once the queued bytes no longer fill the requested batch with
+     * splits of max-split-size, the remaining bytes are spread over the requested number of splits, but not in pieces
+     * smaller than max-initial-split-size. That way large files at the end of a scan do not keep a few drivers busy while
+     * the other threads are idle, whether or not the split loader is still running.
+     */
+    private long getMaxTailSplitBytes(List<InternalHiveSplit> internalSplits, int maxSize)
+    {
+        long maxSplitBytes = maxSplitSize.toBytes();
+        if (internalSplits.size() >= maxSize) {
+            // more splits may be queued than were borrowed
+            return maxSplitBytes;
+        }
+        long queuedBytes = 0;
+        for (InternalHiveSplit internalSplit : internalSplits) {
+            queuedBytes += internalSplit.getEnd() - internalSplit.getStart();
+        }
+        if (queuedBytes >= maxSize * maxSplitBytes) {
+            return maxSplitBytes;
+        }
+        long evenSplitBytes = (queuedBytes + maxSize - 1) / maxSize;
+        return min(maxSplitBytes, max(maxInitialSplitSize.toBytes(), evenSplitBytes));
+    }
+
     @Override
     public void rewind(ConnectorPartitionHandle partitionHandle)
     {
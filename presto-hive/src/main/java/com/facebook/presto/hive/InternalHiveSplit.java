@@ -48,6 +48,7 @@ public class InternalHiveSplit
     private final byte[] relativeUri;
     private final long end;
     private final long fileSize;
+    private final long fileModifiedTime;
 
     // encode the hive blocks as an array of longs and list of list of addresses to save memory
     //if all blockAddress lists are empty, store only the empty list
@@ -73,6 +74,7 @@ public class InternalHiveSplit
             long start,
             long end,
             long fileSize,
+            long fileModifiedTime,
             List<InternalHiveBlock> blocks,
             OptionalInt readBucketNumber,
             OptionalInt tableBucketNumber,
@@ -96,6 +98,7 @@ public class InternalHiveSplit
         this.start = start;
         this.end = end;
         this.fileSize = fileSize;
+        this.fileModifiedTime = fileModifiedTime;
         this.readBucketNumber = readBucketNumber.orElse(-1);
         this.tableBucketNumber = tableBucketNumber.orElse(-1);
         this.splittable = splittable;
@@ -138,6 +141,11 @@ public class InternalHiveSplit
         return fileSize;
     }
 
+    public long getFileModifiedTime()
+    {
+        return fileModifiedTime;
+    }
+
     public boolean isS3SelectPushdownEnabled()
     {
         return s3SelectPushdownEnabled;
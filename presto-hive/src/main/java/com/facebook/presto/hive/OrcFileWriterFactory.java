@@ -30,6 +30,7 @@ import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.io.orc.OrcFile.OrcTableProperties;
@@ -194,7 +195,7 @@ public class OrcFileWriterFactory
                     fileColumnNames,
                     fileColumnTypes,
                     compression,
-                    orcWriterOptions
+                    getBloomFilterOptions(schema, orcEncoding, orcWriterOptions)
                             .withStripeMinSize(getOrcOptimizedWriterMinStripeSize(session))
                             .withStripeMaxSize(getOrcOptimizedWriterMaxStripeSize(session))
                             .withStripeMaxRowCount(getOrcOptimizedWriterMaxStripeRows(session))
@@ -224,6 +225,27 @@ public class OrcFileWriterFactory
         return new OutputStreamDataSink(fileSystem.create(path));
     }
 
+    private static OrcWriterOptions getBloomFilterOptions(Properties schema, OrcEncoding orcEncoding, OrcWriterOptions orcWriterOptions)
+    {
+        // DWRF files have no bloom filter streams. New DWRF tables cannot declare bloom filter columns,
+        // but tables created by Hive or partitions written in a different format may still carry them.
+        String bloomFilterColumns = schema.getProperty(HiveMetadata.ORC_BLOOM_FILTER_COLUMNS_KEY);
+        if (orcEncoding != ORC || bloomFilterColumns == null) {
+            return orcWriterOptions;
+        }
+        orcWriterOptions = orcWriterOptions.withBloomFilterColumns(ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(bloomFilterColumns.toLowerCase(ENGLISH))));
+        String bloomFilterFpp = schema.getProperty(HiveMetadata.ORC_BLOOM_FILTER_FPP_KEY);
+        if (bloomFilterFpp != null) {
+            try {
+                orcWriterOptions = orcWriterOptions.withBloomFilterFpp(Double.parseDouble(bloomFilterFpp));
+            }
+            catch (IllegalArgumentException e) {
+                throw new PrestoException(HIVE_UNSUPPORTED_FORMAT, "Invalid ORC bloom filter false positive probability: " + bloomFilterFpp, e);
+            }
+        }
+        return orcWriterOptions;
+    }
+
     private static CompressionKind getCompression(Properties schema, JobConf configuration, OrcEncoding orcEncoding)
     {
         String compressionName = schema.getProperty(OrcTableProperties.COMPRESSION.getPropName());
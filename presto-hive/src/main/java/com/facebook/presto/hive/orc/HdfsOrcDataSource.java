@@ -56,6 +56,19 @@ public class HdfsOrcDataSource
         inputStream.close();
     }
 
+    @Override
+    protected boolean isConcurrentReadSupported()
+    {
+        // positioned reads do not move the stream position and can run concurrently
+        return true;
+    }
+
+    @Override
+    protected void concurrentReadsCompleted(int readCount, long bytes, long wallNanos)
+    {
+        stats.addConcurrentReads(readCount, wallNanos);
+    }
+
     @Override
     protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
     {
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.hive.parquet;
 
+import com.facebook.presto.hive.FileFormatDataSourceStats;
 import com.facebook.presto.hive.HiveColumnHandle;
 import com.facebook.presto.parquet.Field;
 import com.facebook.presto.parquet.ParquetCorruptionException;
@@ -48,6 +49,7 @@ public class ParquetPageSource
         implements ConnectorPageSource
 {
     private final ParquetReader parquetReader;
+    private final FileFormatDataSourceStats stats;
     // for debugging heap dump
     private final List<String> columnNames;
     private final List<Type> types;
@@ -63,11 +65,13 @@ public class ParquetPageSource
             MessageColumnIO messageColumnIO,
             TypeManager typeManager,
             List<HiveColumnHandle> columns,
-            boolean useParquetColumnNames)
+            boolean useParquetColumnNames,
+            FileFormatDataSourceStats stats)
     {
         requireNonNull(columns, "columns is null");
         requireNonNull(fileSchema, "fileSchema is null");
         this.parquetReader = requireNonNull(parquetReader, "parquetReader is null");
+        this.stats = requireNonNull(stats, "stats is null");
 
         ImmutableList.Builder<String> namesBuilder = ImmutableList.builder();
         ImmutableList.Builder<Type> typesBuilder = ImmutableList.builder();
@@ -184,6 +188,7 @@ public class ParquetPageSource
 
         try {
             parquetReader.close();
+            stats.addSkippedPages(parquetReader.getSkippedPageCount());
         }
         catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -25,7 +25,9 @@ import com.facebook.presto.parquet.ParquetDataSource;
 import com.facebook.presto.parquet.RichColumnDescriptor;
 import com.facebook.presto.parquet.predicate.Predicate;
 import com.facebook.presto.parquet.reader.MetadataReader;
+import com.facebook.presto.parquet.reader.ParquetFileMetadata;
 import com.facebook.presto.parquet.reader.ParquetReader;
+import com.facebook.presto.parquet.reader.RowRanges;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
@@ -72,6 +74,7 @@ import static com.facebook.presto.hive.HiveErrorCode.HIVE_MISSING_DATA;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_PARTITION_SCHEMA_MISMATCH;
 import static com.facebook.presto.hive.HiveSessionProperties.getParquetMaxReadBlockSize;
 import static com.facebook.presto.hive.HiveSessionProperties.isFailOnCorruptedParquetStatistics;
+import static com.facebook.presto.hive.HiveSessionProperties.isParquetColumnIndexFilterEnabled;
 import static com.facebook.presto.hive.HiveSessionProperties.isUseParquetColumnNames;
 import static com.facebook.presto.hive.parquet.HdfsParquetDataSource.buildHdfsParquetDataSource;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
@@ -80,6 +83,7 @@ import static com.facebook.presto.parquet.ParquetTypeUtils.getDescriptors;
 import static com.facebook.presto.parquet.ParquetTypeUtils.getParquetTypeByName;
 import static com.facebook.presto.parquet.ParquetTypeUtils.getSubfieldType;
 import static com.facebook.presto.parquet.predicate.PredicateUtils.buildPredicate;
+import static com.facebook.presto.parquet.predicate.PredicateUtils.getMatchingRowRanges;
 import static com.facebook.presto.parquet.predicate.PredicateUtils.predicateMatches;
 import static com.facebook.presto.spi.type.StandardTypes.ARRAY;
 import static com.facebook.presto.spi.type.StandardTypes.BIGINT;
@@ -104,7 +108,7 @@ import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Cate
 public class ParquetPageSourceFactory
         implements HiveBatchPageSourceFactory
 {
-    private static final Set<String> PARQUET_SERDE_CLASS_NAMES = ImmutableSet.<String>builder()
+    static final Set<String> PARQUET_SERDE_CLASS_NAMES = ImmutableSet.<String>builder()
             .add("org.apache.hadoop.hive.ql.io.parquet.serde.ParquetHiveSerDe")
             .add("parquet.hive.serde.ParquetHiveSerDe")
             .build();
@@ -151,6 +155,7 @@ public class ParquetPageSourceFactory
                 columns,
                 isUseParquetColumnNames(session),
                 isFailOnCorruptedParquetStatistics(session),
+                isParquetColumnIndexFilterEnabled(session),
                 getParquetMaxReadBlockSize(session),
                 typeManager,
                 effectivePredicate,
@@ -169,6 +174,7 @@ public class ParquetPageSourceFactory
             List<HiveColumnHandle> columns,
             boolean useParquetColumnNames,
             boolean failOnCorruptedParquetStatistics,
+            boolean columnIndexFilterEnabled,
             DataSize maxReadBlockSize,
             TypeManager typeManager,
             TupleDomain<HiveColumnHandle> effectivePredicate,
@@ -180,46 +186,26 @@ public class ParquetPageSourceFactory
         ParquetDataSource dataSource = null;
         try {
             FSDataInputStream inputStream = hdfsEnvironment.getFileSystem(user, path, configuration).openFile(path, hiveFileContext);
-            ParquetMetadata parquetMetadata = MetadataReader.readFooter(inputStream, path, fileSize);
+            ParquetFileMetadata parquetFileMetadata = MetadataReader.readFileMetadata(inputStream, path, fileSize);
+            ParquetMetadata parquetMetadata = parquetFileMetadata.getParquetMetadata();
             FileMetaData fileMetaData = parquetMetadata.getFileMetaData();
             MessageType fileSchema = fileMetaData.getSchema();
             dataSource = buildHdfsParquetDataSource(inputStream, path, stats);
 
-            Optional<MessageType> message = columns.stream()
-                    .filter(column -> column.getColumnType() == REGULAR)
-                    .map(column -> getColumnType(typeManager.getType(column.getTypeSignature()), fileSchema, useParquetColumnNames, column))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .map(type -> new MessageType(fileSchema.getName(), type))
-                    .reduce(MessageType::union);
-
-            MessageType requestedSchema = message.orElse(new MessageType(fileSchema.getName(), ImmutableList.of()));
-
-            ImmutableList.Builder<BlockMetaData> footerBlocks = ImmutableList.builder();
-            for (BlockMetaData block : parquetMetadata.getBlocks()) {
-                long firstDataPage = block.getColumns().get(0).getFirstDataPageOffset();
-                if (firstDataPage >= start && firstDataPage < start + length) {
-                    footerBlocks.add(block);
-                }
-            }
-
-            Map<List<String>, RichColumnDescriptor> descriptorsByPath = getDescriptors(fileSchema, requestedSchema);
-            TupleDomain<ColumnDescriptor> parquetTupleDomain = getParquetTupleDomain(descriptorsByPath, effectivePredicate);
-            Predicate parquetPredicate = buildPredicate(requestedSchema, parquetTupleDomain, descriptorsByPath);
-            final ParquetDataSource finalDataSource = dataSource;
-            ImmutableList.Builder<BlockMetaData> blocks = ImmutableList.builder();
-            for (BlockMetaData block : footerBlocks.build()) {
-                if (predicateMatches(parquetPredicate, block, finalDataSource, descriptorsByPath, parquetTupleDomain, failOnCorruptedParquetStatistics)) {
-                    blocks.add(block);
-                }
-            }
+            MessageType requestedSchema = getRequestedSchema(fileSchema, columns, useParquetColumnNames, typeManager);
             MessageColumnIO messageColumnIO = getColumnIO(fileSchema, requestedSchema);
-            ParquetReader parquetReader = new ParquetReader(
+            ParquetReader parquetReader = createParquetReader(
+                    parquetFileMetadata,
+                    requestedSchema,
                     messageColumnIO,
-                    blocks.build(),
                     dataSource,
-                    systemMemoryContext,
-                    maxReadBlockSize);
+                    start,
+                    length,
+                    effectivePredicate,
+                    failOnCorruptedParquetStatistics,
+                    columnIndexFilterEnabled,
+                    maxReadBlockSize,
+                    systemMemoryContext);
 
             return new ParquetPageSource(
                     parquetReader,
@@ -227,7 +213,8 @@ public class ParquetPageSourceFactory
                     messageColumnIO,
                     typeManager,
                     columns,
-                    useParquetColumnNames);
+                    useParquetColumnNames,
+                    stats);
         }
         catch (Exception e) {
             try {
@@ -237,22 +224,94 @@ public class ParquetPageSourceFactory
             }
             catch (IOException ignored) {
             }
-            if (e instanceof PrestoException) {
-                throw (PrestoException) e;
-            }
-            if (e instanceof ParquetCorruptionException) {
-                throw new PrestoException(HIVE_BAD_DATA, e);
-            }
-            if (nullToEmpty(e.getMessage()).trim().equals("Filesystem closed") ||
-                    e instanceof FileNotFoundException) {
-                throw new PrestoException(HIVE_CANNOT_OPEN_SPLIT, e);
+            throw toPrestoException(e, path, start, length);
+        }
+    }
+
+    static MessageType getRequestedSchema(MessageType fileSchema, List<HiveColumnHandle> columns, boolean useParquetColumnNames, TypeManager typeManager)
+    {
+        return columns.stream()
+                .filter(column -> column.getColumnType() == REGULAR)
+                .map(column -> getColumnType(typeManager.getType(column.getTypeSignature()), fileSchema, useParquetColumnNames, column))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .map(type -> new MessageType(fileSchema.getName(), type))
+                .reduce(MessageType::union)
+                .orElse(new MessageType(fileSchema.getName(), ImmutableList.of()));
+    }
+
+    /**
+     * Creates a reader over the row groups of the split that may match the predicate, skipping
+     * the pages that cannot match it when the column index filter is enabled.
+     */
+    static ParquetReader createParquetReader(
+            ParquetFileMetadata parquetFileMetadata,
+            MessageType requestedSchema,
+            MessageColumnIO messageColumnIO,
+            ParquetDataSource dataSource,
+            long start,
+            long length,
+            TupleDomain<HiveColumnHandle> effectivePredicate,
+            boolean failOnCorruptedParquetStatistics,
+            boolean columnIndexFilterEnabled,
+            DataSize maxReadBlockSize,
+            AggregatedMemoryContext systemMemoryContext)
+            throws IOException
+    {
+        ParquetMetadata parquetMetadata = parquetFileMetadata.getParquetMetadata();
+        MessageType fileSchema = parquetMetadata.getFileMetaData().getSchema();
+
+        ImmutableList.Builder<BlockMetaData> footerBlocks = ImmutableList.builder();
+        for (BlockMetaData block : parquetMetadata.getBlocks()) {
+            long firstDataPage = block.getColumns().get(0).getFirstDataPageOffset();
+            if (firstDataPage >= start && firstDataPage < start + length) {
+                footerBlocks.add(block);
             }
-            String message = format("Error opening Hive split %s (offset=%s, length=%s): %s", path, start, length, e.getMessage());
-            if (e.getClass().getSimpleName().equals("BlockMissingException")) {
-                throw new PrestoException(HIVE_MISSING_DATA, message, e);
+        }
+
+        Map<List<String>, RichColumnDescriptor> descriptorsByPath = getDescriptors(fileSchema, requestedSchema);
+        TupleDomain<ColumnDescriptor> parquetTupleDomain = getParquetTupleDomain(descriptorsByPath, effectivePredicate);
+        Predicate parquetPredicate = buildPredicate(requestedSchema, parquetTupleDomain, descriptorsByPath);
+        ImmutableList.Builder<BlockMetaData> blocks = ImmutableList.builder();
+        ImmutableList.Builder<RowRanges> blockRowRanges = ImmutableList.builder();
+        for (BlockMetaData block : footerBlocks.build()) {
+            if (predicateMatches(parquetPredicate, block, dataSource, descriptorsByPath, parquetTupleDomain, failOnCorruptedParquetStatistics)) {
+                RowRanges rowRanges = RowRanges.all(block.getRowCount());
+                if (columnIndexFilterEnabled) {
+                    rowRanges = getMatchingRowRanges(block, parquetFileMetadata, dataSource, descriptorsByPath, parquetTupleDomain, failOnCorruptedParquetStatistics);
+                }
+                if (!rowRanges.isEmpty()) {
+                    blocks.add(block);
+                    blockRowRanges.add(rowRanges);
+                }
             }
-            throw new PrestoException(HIVE_CANNOT_OPEN_SPLIT, message, e);
         }
+        return new ParquetReader(
+                messageColumnIO,
+                blocks.build(),
+                blockRowRanges.build(),
+                dataSource,
+                systemMemoryContext,
+                maxReadBlockSize);
+    }
+
+    static PrestoException toPrestoException(Exception e, Path path, long start, long length)
+    {
+        if (e instanceof PrestoException) {
+            return (PrestoException) e;
+        }
+        if (e instanceof ParquetCorruptionException) {
+            return new PrestoException(HIVE_BAD_DATA, e);
+        }
+        if (nullToEmpty(e.getMessage()).trim().equals("Filesystem closed") ||
+                e instanceof FileNotFoundException) {
+            return new PrestoException(HIVE_CANNOT_OPEN_SPLIT, e);
+        }
+        String message = format("Error opening Hive split %s (offset=%s, length=%s): %s", path, start, length, e.getMessage());
+        if (e.getClass().getSimpleName().equals("BlockMissingException")) {
+            return new PrestoException(HIVE_MISSING_DATA, message, e);
+        }
+        return new PrestoException(HIVE_CANNOT_OPEN_SPLIT, message, e);
     }
 
     public static TupleDomain<ColumnDescriptor> getParquetTupleDomain(Map<List<String>, RichColumnDescriptor> descriptorsByPath, TupleDomain<HiveColumnHandle> effectivePredicate)
@@ -0,0 +1,361 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.parquet;
+
+import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.parquet.Field;
+import com.facebook.presto.parquet.ParquetCorruptionException;
+import com.facebook.presto.parquet.reader.ParquetReader;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.LazyBlock;
+import com.facebook.presto.spi.block.LazyBlockLoader;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static com.facebook.presto.hive.FilteringPageSource.testNonNullPosition;
+import static com.facebook.presto.hive.HiveErrorCode.HIVE_BAD_DATA;
+import static com.facebook.presto.hive.HiveErrorCode.HIVE_CURSOR_ERROR;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Page source that evaluates the filters of the columns one after another while reading a batch.
+ * Each filter column only decodes the positions that passed the previous filters, and the remaining
+ * columns are loaded lazily for the positions that passed all of them.
+ */
+public class ParquetSelectivePageSource
+        implements ConnectorPageSource
+{
+    private final ParquetReader parquetReader;
+    private final FileFormatDataSourceStats stats;
+    private final List<Type> types;
+    private final List<Optional<Field>> fields;
+    private final Map<Integer, Object> constantValues;
+    private final List<FilterColumn> filterColumns;
+    private final boolean[] filteredChannels;
+
+    private int[] positions = new int[0];
+    private int batchId;
+    private long completedPositions;
+    private boolean closed;
+
+    /**
+     * @param types the types of the output columns
+     * @param fields the fields of the output columns, empty for the columns that are not read from the file
+     * @param constantValues the values of the output columns that are not read from the file, by channel;
+     * these columns are null if they have no value
+     * @param filterColumns the filter columns in the order they are evaluated
+     */
+    public ParquetSelectivePageSource(
+            ParquetReader parquetReader,
+            List<Type> types,
+            List<Optional<Field>> fields,
+            Map<Integer, Object> constantValues,
+            List<FilterColumn> filterColumns,
+            FileFormatDataSourceStats stats)
+    {
+        this.parquetReader = requireNonNull(parquetReader, "parquetReader is null");
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.fields = ImmutableList.copyOf(requireNonNull(fields, "fields is null"));
+        checkArgument(types.size() == fields.size(), "types and fields must have the same size");
+        this.constantValues = ImmutableMap.copyOf(requireNonNull(constantValues, "constantValues is null"));
+        this.filterColumns = ImmutableList.copyOf(requireNonNull(filterColumns, "filterColumns is null"));
+        this.stats = requireNonNull(stats, "stats is null");
+
+        filteredChannels = new boolean[types.size()];
+        for (FilterColumn filterColumn : filterColumns) {
+            filterColumn.getOutputChannel().ifPresent(channel -> filteredChannels[channel] = true);
+        }
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return parquetReader.getDataSource().getReadBytes();
+    }
+
+    @Override
+    public long getCompletedPositions()
+    {
+        return completedPositions;
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return parquetReader.getDataSource().getReadTimeNanos();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return closed;
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return parquetReader.getSystemMemoryContext().getBytes();
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        try {
+            while (true) {
+                batchId++;
+                int batchSize = parquetReader.nextBatch();
+
+                if (closed || batchSize <= 0) {
+                    close();
+                    return null;
+                }
+
+                completedPositions += batchSize;
+
+                Page page = readBatch(batchSize);
+                if (page != null) {
+                    return page;
+                }
+            }
+        }
+        catch (PrestoException e) {
+            closeWithSuppression(e);
+            throw e;
+        }
+        catch (ParquetCorruptionException e) {
+            closeWithSuppression(e);
+            throw new PrestoException(HIVE_BAD_DATA, e);
+        }
+        catch (IOException | RuntimeException e) {
+            closeWithSuppression(e);
+            throw new PrestoException(HIVE_CURSOR_ERROR, e);
+        }
+    }
+
+    /**
+     * Returns the page of the rows of the current batch that pass the filters, or null if none does.
+     */
+    private Page readBatch(int batchSize)
+            throws IOException
+    {
+        if (positions.length < batchSize) {
+            positions = new int[batchSize];
+        }
+        for (int i = 0; i < batchSize; i++) {
+            positions[i] = i;
+        }
+        int positionCount = batchSize;
+
+        Block[] filteredBlocks = new Block[filterColumns.size()];
+        int[][] filteredBlockPositions = new int[filterColumns.size()][];
+        for (int i = 0; i < filterColumns.size(); i++) {
+            FilterColumn filterColumn = filterColumns.get(i);
+            Block block = positionCount == batchSize ? parquetReader.readBlock(filterColumn.getField()) : parquetReader.readBlock(filterColumn.getField(), positions, positionCount);
+            if (filterColumn.getOutputChannel().isPresent()) {
+                filteredBlocks[i] = block;
+                filteredBlockPositions[i] = Arrays.copyOf(positions, positionCount);
+            }
+            positionCount = filterBlock(block, filterColumn.getType(), filterColumn.getFilter(), positions, positionCount);
+            if (positionCount == 0) {
+                return null;
+            }
+        }
+
+        int[] selectedPositions = Arrays.copyOf(positions, positionCount);
+        Block[] blocks = new Block[types.size()];
+        for (int i = 0; i < filterColumns.size(); i++) {
+            OptionalInt outputChannel = filterColumns.get(i).getOutputChannel();
+            if (outputChannel.isPresent()) {
+                blocks[outputChannel.getAsInt()] = selectPositions(filteredBlocks[i], filteredBlockPositions[i], selectedPositions);
+            }
+        }
+        for (int channel = 0; channel < blocks.length; channel++) {
+            if (filteredChannels[channel]) {
+                continue;
+            }
+            Optional<Field> field = fields.get(channel);
+            if (field.isPresent()) {
+                blocks[channel] = new LazyBlock(positionCount, new ParquetBlockLoader(field.get(), positionCount == batchSize ? null : selectedPositions));
+            }
+            else {
+                blocks[channel] = RunLengthEncodedBlock.create(types.get(channel), constantValues.get(channel), positionCount);
+            }
+        }
+        return new Page(positionCount, blocks);
+    }
+
+    /**
+     * Tests the values of the block, which holds the values at the given positions, and keeps
+     * the positions that pass the filter.
+     */
+    private static int filterBlock(Block block, Type type, TupleDomainFilter filter, int[] positions, int positionCount)
+    {
+        int outputPositionCount = 0;
+        for (int i = 0; i < positionCount; i++) {
+            boolean selected = block.isNull(i) ? filter.testNull() : testNonNullPosition(block, i, type, filter);
+            if (selected) {
+                positions[outputPositionCount] = positions[i];
+                outputPositionCount++;
+            }
+        }
+        return outputPositionCount;
+    }
+
+    /**
+     * Returns the values of the selected positions from a block that holds the values at the
+     * given positions. The selected positions are a subset of these positions.
+     */
+    private static Block selectPositions(Block block, int[] blockPositions, int[] selectedPositions)
+    {
+        if (blockPositions.length == selectedPositions.length) {
+            return block;
+        }
+        int[] indexes = new int[selectedPositions.length];
+        int index = 0;
+        for (int i = 0; i < selectedPositions.length; i++) {
+            while (blockPositions[index] != selectedPositions[i]) {
+                index++;
+            }
+            indexes[i] = index;
+        }
+        return block.getPositions(indexes, 0, indexes.length);
+    }
+
+    private void closeWithSuppression(Throwable throwable)
+    {
+        requireNonNull(throwable, "throwable is null");
+        try {
+            close();
+        }
+        catch (RuntimeException e) {
+            // Self-suppression not permitted
+            if (e != throwable) {
+                throwable.addSuppressed(e);
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            parquetReader.close();
+            stats.addSkippedPages(parquetReader.getSkippedPageCount());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class FilterColumn
+    {
+        private final Field field;
+        private final Type type;
+        private final TupleDomainFilter filter;
+        private final OptionalInt outputChannel;
+
+        public FilterColumn(Field field, Type type, TupleDomainFilter filter, OptionalInt outputChannel)
+        {
+            this.field = requireNonNull(field, "field is null");
+            this.type = requireNonNull(type, "type is null");
+            this.filter = requireNonNull(filter, "filter is null");
+            this.outputChannel = requireNonNull(outputChannel, "outputChannel is null");
+        }
+
+        public Field getField()
+        {
+            return field;
+        }
+
+        public Type getType()
+        {
+            return type;
+        }
+
+        public TupleDomainFilter getFilter()
+        {
+            return filter;
+        }
+
+        public OptionalInt getOutputChannel()
+        {
+            return outputChannel;
+        }
+    }
+
+    private final class ParquetBlockLoader
+            implements LazyBlockLoader<LazyBlock>
+    {
+        private final int expectedBatchId = batchId;
+        private final Field field;
+        // null if every position of the batch is selected
+        private final int[] selectedPositions;
+        private boolean loaded;
+
+        public ParquetBlockLoader(Field field, int[] selectedPositions)
+        {
+            this.field = requireNonNull(field, "field is null");
+            this.selectedPositions = selectedPositions;
+        }
+
+        @Override
+        public final void load(LazyBlock lazyBlock)
+        {
+            if (loaded) {
+                return;
+            }
+
+            checkState(batchId == expectedBatchId);
+
+            try {
+                Block block;
+                if (selectedPositions == null) {
+                    block = parquetReader.readBlock(field);
+                }
+                else {
+                    block = parquetReader.readBlock(field, selectedPositions, selectedPositions.length);
+                }
+                lazyBlock.setBlock(block);
+            }
+            catch (ParquetCorruptionException e) {
+                throw new PrestoException(HIVE_BAD_DATA, e);
+            }
+            catch (IOException e) {
+                throw new PrestoException(HIVE_CURSOR_ERROR, e);
+            }
+            loaded = true;
+        }
+    }
+}
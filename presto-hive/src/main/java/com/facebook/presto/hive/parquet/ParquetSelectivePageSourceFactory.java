@@ -0,0 +1,383 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.parquet;
+
+import com.facebook.presto.hive.BucketAdaptation;
+import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.hive.HdfsEnvironment;
+import com.facebook.presto.hive.HiveCoercer;
+import com.facebook.presto.hive.HiveColumnHandle;
+import com.facebook.presto.hive.HiveFileContext;
+import com.facebook.presto.hive.HiveSelectivePageSourceFactory;
+import com.facebook.presto.hive.metastore.Storage;
+import com.facebook.presto.hive.orc.TupleDomainFilterCache;
+import com.facebook.presto.hive.parquet.ParquetSelectivePageSource.FilterColumn;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.orc.TupleDomainFilter;
+import com.facebook.presto.orc.TupleDomainFilter.BigintMultiRange;
+import com.facebook.presto.orc.TupleDomainFilter.BigintRange;
+import com.facebook.presto.orc.TupleDomainFilter.BigintValuesUsingBitmask;
+import com.facebook.presto.orc.TupleDomainFilter.BigintValuesUsingHashTable;
+import com.facebook.presto.parquet.Field;
+import com.facebook.presto.parquet.ParquetDataSource;
+import com.facebook.presto.parquet.reader.MetadataReader;
+import com.facebook.presto.parquet.reader.ParquetFileMetadata;
+import com.facebook.presto.parquet.reader.ParquetReader;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.FixedPageSource;
+import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.spi.type.DecimalType;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.TypeManager;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.schema.MessageType;
+import org.joda.time.DateTimeZone;
+
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static com.facebook.presto.expressions.LogicalRowExpressions.TRUE_CONSTANT;
+import static com.facebook.presto.hive.FilteringPageSource.testNonNullPosition;
+import static com.facebook.presto.hive.HiveColumnHandle.ColumnType.REGULAR;
+import static com.facebook.presto.hive.HiveSessionProperties.getParquetMaxReadBlockSize;
+import static com.facebook.presto.hive.HiveSessionProperties.isFailOnCorruptedParquetStatistics;
+import static com.facebook.presto.hive.HiveSessionProperties.isParquetColumnIndexFilterEnabled;
+import static com.facebook.presto.hive.HiveSessionProperties.isUseParquetColumnNames;
+import static com.facebook.presto.hive.HiveUtil.typedPartitionKey;
+import static com.facebook.presto.hive.parquet.HdfsParquetDataSource.buildHdfsParquetDataSource;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.PARQUET_SERDE_CLASS_NAMES;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.createParquetReader;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.getParquetType;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.getRequestedSchema;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.toPrestoException;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.parquet.ParquetTypeUtils.getColumnIO;
+import static com.facebook.presto.parquet.ParquetTypeUtils.lookupColumnByName;
+import static com.facebook.presto.spi.predicate.Utils.nativeValueToBlock;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.Chars.isCharType;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.RealType.REAL;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.facebook.presto.spi.type.Varchars.isVarcharType;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Maps.uniqueIndex;
+import static java.util.Objects.requireNonNull;
+import static org.apache.parquet.io.ColumnIOConverter.constructField;
+
+/**
+ * Creates {@link ParquetSelectivePageSource}s for the splits whose filters can all be evaluated
+ * as {@link TupleDomainFilter}s on top level columns. Other splits return no page source and are
+ * read by {@link ParquetPageSourceFactory} followed by a filtering page source.
+ */
+public class ParquetSelectivePageSourceFactory
+        implements HiveSelectivePageSourceFactory
+{
+    private final TypeManager typeManager;
+    private final HdfsEnvironment hdfsEnvironment;
+    private final FileFormatDataSourceStats stats;
+    private final TupleDomainFilterCache tupleDomainFilterCache;
+
+    @Inject
+    public ParquetSelectivePageSourceFactory(
+            TypeManager typeManager,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            TupleDomainFilterCache tupleDomainFilterCache)
+    {
+        this.typeManager = requireNonNull(typeManager, "typeManager is null");
+        this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
+        this.stats = requireNonNull(stats, "stats is null");
+        this.tupleDomainFilterCache = requireNonNull(tupleDomainFilterCache, "tupleDomainFilterCache is null");
+    }
+
+    @Override
+    public Optional<? extends ConnectorPageSource> createPageSource(
+            Configuration configuration,
+            ConnectorSession session,
+            Path path,
+            long start,
+            long length,
+            long fileSize,
+            Storage storage,
+            List<HiveColumnHandle> columns,
+            Map<Integer, String> prefilledValues,
+            Map<Integer, HiveCoercer> coercers,
+            Optional<BucketAdaptation> bucketAdaptation,
+            List<Integer> outputColumns,
+            TupleDomain<Subfield> domainPredicate,
+            RowExpression remainingPredicate,
+            DateTimeZone hiveStorageTimeZone,
+            HiveFileContext hiveFileContext)
+    {
+        if (!PARQUET_SERDE_CLASS_NAMES.contains(storage.getStorageFormat().getSerDe())) {
+            return Optional.empty();
+        }
+
+        checkArgument(!domainPredicate.isNone(), "Unexpected NONE domain");
+
+        Map<String, HiveColumnHandle> columnsByName = uniqueIndex(columns, HiveColumnHandle::getName);
+        if (!isSupported(domainPredicate, columnsByName, coercers, bucketAdaptation, remainingPredicate)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(createParquetPageSource(
+                hdfsEnvironment,
+                session,
+                configuration,
+                path,
+                start,
+                length,
+                fileSize,
+                columns,
+                prefilledValues,
+                outputColumns,
+                domainPredicate,
+                hiveStorageTimeZone,
+                typeManager,
+                stats,
+                hiveFileContext,
+                tupleDomainFilterCache));
+    }
+
+    /**
+     * The selective reader only evaluates filters on entire columns of primitive types; remaining
+     * predicates, coercions and bucket adaptation are left to the filtering page source.
+     */
+    private boolean isSupported(
+            TupleDomain<Subfield> domainPredicate,
+            Map<String, HiveColumnHandle> columnsByName,
+            Map<Integer, HiveCoercer> coercers,
+            Optional<BucketAdaptation> bucketAdaptation,
+            RowExpression remainingPredicate)
+    {
+        if (!TRUE_CONSTANT.equals(remainingPredicate) || !coercers.isEmpty() || bucketAdaptation.isPresent()) {
+            return false;
+        }
+        for (Subfield subfield : domainPredicate.getDomains().get().keySet()) {
+            HiveColumnHandle column = columnsByName.get(subfield.getRootName());
+            if (!subfield.getPath().isEmpty() || column == null || !isSupportedFilterType(typeManager.getType(column.getTypeSignature()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSupportedFilterType(Type type)
+    {
+        return type == BOOLEAN ||
+                type == TINYINT ||
+                type == SMALLINT ||
+                type == INTEGER ||
+                type == BIGINT ||
+                type == DATE ||
+                type == TIMESTAMP ||
+                type == REAL ||
+                type == DOUBLE ||
+                type instanceof DecimalType ||
+                isVarcharType(type) ||
+                isCharType(type);
+    }
+
+    public static ConnectorPageSource createParquetPageSource(
+            HdfsEnvironment hdfsEnvironment,
+            ConnectorSession session,
+            Configuration configuration,
+            Path path,
+            long start,
+            long length,
+            long fileSize,
+            List<HiveColumnHandle> columns,
+            Map<Integer, String> prefilledValues,
+            List<Integer> outputColumns,
+            TupleDomain<Subfield> domainPredicate,
+            DateTimeZone hiveStorageTimeZone,
+            TypeManager typeManager,
+            FileFormatDataSourceStats stats,
+            HiveFileContext hiveFileContext,
+            TupleDomainFilterCache tupleDomainFilterCache)
+    {
+        Map<String, HiveColumnHandle> columnsByName = uniqueIndex(columns, HiveColumnHandle::getName);
+        Map<Integer, HiveColumnHandle> columnsByIndex = uniqueIndex(columns, HiveColumnHandle::getHiveColumnIndex);
+        TupleDomain<HiveColumnHandle> effectivePredicate = domainPredicate.transform(subfield -> columnsByName.get(subfield.getRootName()));
+        Map<HiveColumnHandle, TupleDomainFilter> filters = ImmutableMap.copyOf(Maps.transformValues(effectivePredicate.getDomains().get(), tupleDomainFilterCache::getFilter));
+
+        Map<Integer, Object> constantValues = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : prefilledValues.entrySet()) {
+            HiveColumnHandle column = columnsByIndex.get(entry.getKey());
+            Object value = typedPartitionKey(entry.getValue(), typeManager.getType(column.getTypeSignature()), column.getName(), hiveStorageTimeZone);
+            if (value != null) {
+                constantValues.put(entry.getKey(), value);
+            }
+        }
+        boolean useParquetColumnNames = isUseParquetColumnNames(session);
+
+        AggregatedMemoryContext systemMemoryContext = newSimpleAggregatedMemoryContext();
+        ParquetDataSource dataSource = null;
+        try {
+            FSDataInputStream inputStream = hdfsEnvironment.getFileSystem(session.getUser(), path, configuration).openFile(path, hiveFileContext);
+            ParquetFileMetadata parquetFileMetadata = MetadataReader.readFileMetadata(inputStream, path, fileSize);
+            MessageType fileSchema = parquetFileMetadata.getParquetMetadata().getFileMetaData().getSchema();
+            dataSource = buildHdfsParquetDataSource(inputStream, path, stats);
+
+            List<HiveColumnHandle> regularColumns = columns.stream()
+                    .filter(column -> column.getColumnType() == REGULAR)
+                    .collect(toImmutableList());
+            MessageType requestedSchema = getRequestedSchema(fileSchema, regularColumns, useParquetColumnNames, typeManager);
+            MessageColumnIO messageColumnIO = getColumnIO(fileSchema, requestedSchema);
+
+            ImmutableMap.Builder<Integer, Field> fieldsBuilder = ImmutableMap.builder();
+            for (HiveColumnHandle column : regularColumns) {
+                Type type = typeManager.getType(column.getTypeSignature());
+                if (getParquetType(type, fileSchema, useParquetColumnNames, column).isPresent()) {
+                    String columnName = useParquetColumnNames ? column.getName() : fileSchema.getFields().get(column.getHiveColumnIndex()).getName();
+                    constructField(type, lookupColumnByName(messageColumnIO, columnName))
+                            .ifPresent(field -> fieldsBuilder.put(column.getHiveColumnIndex(), field));
+                }
+            }
+            Map<Integer, Field> fields = fieldsBuilder.build();
+
+            // the columns that are not read from the file have the same value in every row, so their filters are evaluated once
+            for (Map.Entry<HiveColumnHandle, TupleDomainFilter> entry : filters.entrySet()) {
+                int hiveColumnIndex = entry.getKey().getHiveColumnIndex();
+                if (!fields.containsKey(hiveColumnIndex) && !testConstant(entry.getValue(), typeManager.getType(entry.getKey().getTypeSignature()), constantValues.get(hiveColumnIndex))) {
+                    dataSource.close();
+                    return new FixedPageSource(ImmutableList.of());
+                }
+            }
+
+            ParquetReader parquetReader = createParquetReader(
+                    parquetFileMetadata,
+                    requestedSchema,
+                    messageColumnIO,
+                    dataSource,
+                    start,
+                    length,
+                    effectivePredicate,
+                    isFailOnCorruptedParquetStatistics(session),
+                    isParquetColumnIndexFilterEnabled(session),
+                    getParquetMaxReadBlockSize(session),
+                    systemMemoryContext);
+
+            ImmutableList.Builder<Type> types = ImmutableList.builder();
+            ImmutableList.Builder<Optional<Field>> outputFields = ImmutableList.builder();
+            ImmutableMap.Builder<Integer, Object> outputConstantValues = ImmutableMap.builder();
+            for (int channel = 0; channel < outputColumns.size(); channel++) {
+                int hiveColumnIndex = outputColumns.get(channel);
+                types.add(typeManager.getType(columnsByIndex.get(hiveColumnIndex).getTypeSignature()));
+                outputFields.add(Optional.ofNullable(fields.get(hiveColumnIndex)));
+                if (constantValues.containsKey(hiveColumnIndex)) {
+                    outputConstantValues.put(channel, constantValues.get(hiveColumnIndex));
+                }
+            }
+
+            List<FilterColumn> filterColumns = filters.entrySet().stream()
+                    .filter(entry -> fields.containsKey(entry.getKey().getHiveColumnIndex()))
+                    .sorted(Comparator.<Map.Entry<HiveColumnHandle, TupleDomainFilter>>comparingInt(entry -> scoreFilter(entry.getValue()))
+                            .thenComparingInt(entry -> scoreType(typeManager.getType(entry.getKey().getTypeSignature()))))
+                    .map(entry -> {
+                        int hiveColumnIndex = entry.getKey().getHiveColumnIndex();
+                        int channel = outputColumns.indexOf(hiveColumnIndex);
+                        return new FilterColumn(
+                                fields.get(hiveColumnIndex),
+                                typeManager.getType(entry.getKey().getTypeSignature()),
+                                entry.getValue(),
+                                channel >= 0 ? OptionalInt.of(channel) : OptionalInt.empty());
+                    })
+                    .collect(toImmutableList());
+
+            return new ParquetSelectivePageSource(
+                    parquetReader,
+                    types.build(),
+                    outputFields.build(),
+                    outputConstantValues.build(),
+                    filterColumns,
+                    stats);
+        }
+        catch (Exception e) {
+            try {
+                if (dataSource != null) {
+                    dataSource.close();
+                }
+            }
+            catch (IOException ignored) {
+            }
+            throw toPrestoException(e, path, start, length);
+        }
+    }
+
+    private static boolean testConstant(TupleDomainFilter filter, Type type, Object value)
+    {
+        if (value == null) {
+            return filter.testNull();
+        }
+        Block block = nativeValueToBlock(type, value);
+        return testNonNullPosition(block, 0, type, filter);
+    }
+
+    // cheaper and more selective filters go first, the same way the selective ORC reader orders them
+    private static int scoreFilter(TupleDomainFilter filter)
+    {
+        if (filter instanceof BigintRange) {
+            if (((BigintRange) filter).isSingleValue()) {
+                return 10;
+            }
+            return 50;
+        }
+        if (filter instanceof BigintValuesUsingHashTable || filter instanceof BigintValuesUsingBitmask || filter instanceof BigintMultiRange) {
+            return 50;
+        }
+        return 100;
+    }
+
+    private static int scoreType(Type type)
+    {
+        if (type == BOOLEAN) {
+            return 10;
+        }
+        if (type == TINYINT || type == SMALLINT || type == INTEGER || type == BIGINT || type == TIMESTAMP || type == DATE) {
+            return 20;
+        }
+        if (type == REAL || type == DOUBLE) {
+            return 30;
+        }
+        if (type instanceof DecimalType) {
+            return 40;
+        }
+        return 50;
+    }
+}
@@ -91,6 +91,7 @@ public class InternalHiveSplitFactory
                 0,
                 fileInfo.getLength(),
                 fileInfo.getLength(),
+                fileInfo.getFileModifiedTime(),
                 readBucketNumber,
                 tableBucketNumber,
                 splittable,
@@ -107,6 +108,7 @@ public class InternalHiveSplitFactory
                 split.getStart(),
                 split.getLength(),
                 file.getLen(),
+                file.getModificationTime(),
                 OptionalInt.empty(),
                 OptionalInt.empty(),
                 false,
@@ -119,6 +121,7 @@ public class InternalHiveSplitFactory
             long start,
             long length,
             long fileSize,
+            long fileModifiedTime,
             OptionalInt readBucketNumber,
             OptionalInt tableBucketNumber,
             boolean splittable,
@@ -177,6 +180,7 @@ public class InternalHiveSplitFactory
                 start,
                 start + length,
                 fileSize,
+                fileModifiedTime,
                 blocks,
                 readBucketNumber,
                 tableBucketNumber,
@@ -54,6 +54,7 @@ public class TestHiveClientConfig
                 .setMaxPartitionBatchSize(100)
                 .setMaxInitialSplits(200)
                 .setMaxInitialSplitSize(new DataSize(32, Unit.MEGABYTE))
+                .setMorselTailSplitsEnabled(false)
                 .setSplitLoaderConcurrency(4)
                 .setDomainCompactionThreshold(100)
                 .setWriterSortBufferSize(new DataSize(64, Unit.MEGABYTE))
@@ -82,6 +83,7 @@ public class TestHiveClientConfig
                 .setTextMaxLineLength(new DataSize(100, Unit.MEGABYTE))
                 .setUseParquetColumnNames(false)
                 .setFailOnCorruptedParquetStatistics(true)
+                .setParquetColumnIndexFilterEnabled(true)
                 .setParquetMaxReadBlockSize(new DataSize(16, Unit.MEGABYTE))
                 .setUseOrcColumnNames(false)
                 .setAssumeCanonicalPartitionKeys(false)
@@ -93,6 +95,7 @@ public class TestHiveClientConfig
                 .setOrcTinyStripeThreshold(new DataSize(8, Unit.MEGABYTE))
                 .setOrcMaxReadBlockSize(new DataSize(16, Unit.MEGABYTE))
                 .setOrcLazyReadSmallRanges(true)
+                .setOrcMaxConcurrentReads(1)
                 .setRcfileOptimizedWriterEnabled(true)
                 .setRcfileWriterValidate(false)
                 .setOrcOptimizedWriterEnabled(true)
@@ -157,6 +160,7 @@ public class TestHiveClientConfig
                 .put("hive.config.resources", "/foo.xml,/bar.xml")
                 .put("hive.max-initial-splits", "10")
                 .put("hive.max-initial-split-size", "16MB")
+                .put("hive.morsel-tail-splits-enabled", "true")
                 .put("hive.split-loader-concurrency", "1")
                 .put("hive.domain-compaction-threshold", "42")
                 .put("hive.writer-sort-buffer-size", "13MB")
@@ -178,6 +182,7 @@ public class TestHiveClientConfig
                 .put("hive.text.max-line-length", "13MB")
                 .put("hive.parquet.use-column-names", "true")
                 .put("hive.parquet.fail-on-corrupted-statistics", "false")
+                .put("hive.parquet.column-index-filter-enabled", "false")
                 .put("hive.parquet.max-read-block-size", "66kB")
                 .put("hive.orc.use-column-names", "true")
                 .put("hive.orc.bloom-filters.enabled", "true")
@@ -188,6 +193,7 @@ public class TestHiveClientConfig
                 .put("hive.orc.tiny-stripe-threshold", "61kB")
                 .put("hive.orc.max-read-block-size", "66kB")
                 .put("hive.orc.lazy-read-small-ranges", "false")
+                .put("hive.orc.max-concurrent-reads", "4")
                 .put("hive.rcfile-optimized-writer.enabled", "false")
                 .put("hive.rcfile.writer.validate", "true")
                 .put("hive.orc.optimized-writer.enabled", "false")
@@ -242,6 +248,7 @@ public class TestHiveClientConfig
                 .setMaxPartitionBatchSize(1000)
                 .setMaxInitialSplits(10)
                 .setMaxInitialSplitSize(new DataSize(16, Unit.MEGABYTE))
+                .setMorselTailSplitsEnabled(true)
                 .setSplitLoaderConcurrency(1)
                 .setDomainCompactionThreshold(42)
                 .setWriterSortBufferSize(new DataSize(13, Unit.MEGABYTE))
@@ -269,6 +276,7 @@ public class TestHiveClientConfig
                 .setTextMaxLineLength(new DataSize(13, Unit.MEGABYTE))
                 .setUseParquetColumnNames(true)
                 .setFailOnCorruptedParquetStatistics(false)
+                .setParquetColumnIndexFilterEnabled(false)
                 .setParquetMaxReadBlockSize(new DataSize(66, Unit.KILOBYTE))
                 .setUseOrcColumnNames(true)
                 .setAssumeCanonicalPartitionKeys(true)
@@ -280,6 +288,7 @@ public class TestHiveClientConfig
                 .setOrcTinyStripeThreshold(new DataSize(61, Unit.KILOBYTE))
                 .setOrcMaxReadBlockSize(new DataSize(66, Unit.KILOBYTE))
                 .setOrcLazyReadSmallRanges(false)
+                .setOrcMaxConcurrentReads(4)
                 .setRcfileOptimizedWriterEnabled(false)
                 .setRcfileWriterValidate(true)
                 .setOrcOptimizedWriterEnabled(false)
@@ -75,6 +75,7 @@ import static com.facebook.airlift.json.JsonCodec.jsonCodec;
 import static com.facebook.presto.SystemSessionProperties.COLOCATED_JOIN;
 import static com.facebook.presto.SystemSessionProperties.CONCURRENT_LIFESPANS_PER_NODE;
 import static com.facebook.presto.SystemSessionProperties.DYNAMIC_SCHEDULE_FOR_GROUPED_EXECUTION;
+import static com.facebook.presto.SystemSessionProperties.ENABLE_DYNAMIC_FILTERING;
 import static com.facebook.presto.SystemSessionProperties.EXCHANGE_MATERIALIZATION_STRATEGY;
 import static com.facebook.presto.SystemSessionProperties.GROUPED_EXECUTION_FOR_AGGREGATION;
 import static com.facebook.presto.SystemSessionProperties.GROUPED_EXECUTION_FOR_ELIGIBLE_TABLE_SCANS;
@@ -4572,6 +4573,23 @@ public class TestHiveIntegrationSmokeTest
         assertQueryFails(createTableSql, "Cannot specify avro_schema_url table property for storage format: ORC");
     }
 
+    @Test
+    public void testCreateDwrfTableWithBloomFilterColumns()
+    {
+        @Language("SQL") String createTableSql = format("" +
+                        "CREATE TABLE %s.%s.test_dwrf_bloom_filter (\n" +
+                        "   dummy_col varchar\n" +
+                        ")\n" +
+                        "WITH (\n" +
+                        "   orc_bloom_filter_columns = ARRAY['dummy_col'],\n" +
+                        "   format = 'DWRF'\n" +
+                        ")",
+                getSession().getCatalog().get(),
+                getSession().getSchema().get());
+
+        assertQueryFails(createTableSql, "Cannot specify orc_bloom_filter_columns table property for storage format: DWRF");
+    }
+
     @Test
     public void testCtasFailsWithAvroSchemaUrl()
             throws Exception
@@ -4669,6 +4687,23 @@ public class TestHiveIntegrationSmokeTest
         assertQuerySucceeds(pushdownFilterEnabled, "SELECT comment FROM lineitem WHERE comment LIKE 'abc%'");
     }
 
+    @Test
+    public void testDynamicFilteringOfProbeScan()
+    {
+        @Language("SQL") String query = "" +
+                "SELECT l.orderkey, l.linenumber, l.quantity " +
+                "FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey " +
+                "WHERE o.custkey < 20 AND o.orderpriority = '1-URGENT'";
+        for (boolean pushdownFilterEnabled : ImmutableList.of(true, false)) {
+            Session session = Session.builder(getQueryRunner().getDefaultSession())
+                    .setSystemProperty(ENABLE_DYNAMIC_FILTERING, "true")
+                    .setSystemProperty(JOIN_DISTRIBUTION_TYPE, BROADCAST.name())
+                    .setCatalogSessionProperty(catalog, PUSHDOWN_FILTER_ENABLED, String.valueOf(pushdownFilterEnabled))
+                    .build();
+            assertQuery(session, query);
+        }
+    }
+
     @Test
     public void testGroupByWithUnion()
     {
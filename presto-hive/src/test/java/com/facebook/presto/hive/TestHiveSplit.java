@@ -41,8 +41,13 @@ import com.google.inject.Module;
 import com.google.inject.Scopes;
 import org.testng.annotations.Test;
 
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static com.facebook.airlift.configuration.ConfigBinder.configBinder;
 import static com.facebook.airlift.json.JsonBinder.jsonBinder;
@@ -50,9 +55,13 @@ import static com.facebook.airlift.json.JsonCodecBinder.jsonCodecBinder;
 import static com.facebook.presto.hive.HiveType.HIVE_LONG;
 import static com.facebook.presto.hive.HiveType.HIVE_STRING;
 import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.NO_PREFERENCE;
+import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.SOFT_AFFINITY;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.inject.multibindings.Multibinder.newSetBinder;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestHiveSplit
 {
@@ -70,6 +79,7 @@ public class TestHiveSplit
                 42,
                 87,
                 88,
+                Instant.now().toEpochMilli(),
                 new Storage(
                         StorageFormat.create("serde", "input", "output"),
                         "location",
@@ -102,6 +112,7 @@ public class TestHiveSplit
         assertEquals(actual.getStart(), expected.getStart());
         assertEquals(actual.getLength(), expected.getLength());
         assertEquals(actual.getFileSize(), expected.getFileSize());
+        assertEquals(actual.getFileModifiedTime(), expected.getFileModifiedTime());
         assertEquals(actual.getStorage(), expected.getStorage());
         assertEquals(actual.getPartitionKeys(), expected.getPartitionKeys());
         assertEquals(actual.getAddresses(), expected.getAddresses());
@@ -112,6 +123,75 @@ public class TestHiveSplit
         assertEquals(actual.isS3SelectPushdownEnabled(), expected.isS3SelectPushdownEnabled());
     }
 
+    @Test
+    public void testSoftAffinityPreferredNodes()
+    {
+        List<HostAddress> candidates = IntStream.range(0, 10)
+                .mapToObj(i -> HostAddress.fromParts("10.0.0." + i, 8080))
+                .collect(toImmutableList());
+
+        int moved = 0;
+        Set<HostAddress> primaries = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            HiveSplit split = createSoftAffinitySplit("s3://bucket/table/file_" + (i % 10), (i / 10) * 1024L);
+            List<HostAddress> preferred = split.getPreferredNodes(candidates);
+            assertEquals(preferred.size(), 2);
+            assertNotEquals(preferred.get(0), preferred.get(1));
+            assertEquals(split.getPreferredNodes(candidates), preferred);
+            primaries.add(preferred.get(0));
+
+            // removing a worker only moves the splits that preferred it
+            HostAddress removed = candidates.get(3);
+            List<HostAddress> remaining = candidates.stream()
+                    .filter(candidate -> !candidate.equals(removed))
+                    .collect(toImmutableList());
+            HostAddress newPrimary = split.getPreferredNodes(remaining).get(0);
+            if (!preferred.get(0).equals(removed)) {
+                assertEquals(newPrimary, preferred.get(0));
+            }
+            else {
+                assertEquals(newPrimary, preferred.get(1));
+                moved++;
+            }
+        }
+        assertTrue(moved < 100);
+        // splits of the same file at different offsets spread across the workers
+        assertTrue(primaries.size() > 5);
+
+        HostAddress single = HostAddress.fromParts("10.0.0.1", 8080);
+        assertEquals(createSoftAffinitySplit("path", 0).getPreferredNodes(ImmutableList.of(single)), ImmutableList.of(single));
+    }
+
+    private static HiveSplit createSoftAffinitySplit(String path, long start)
+    {
+        return new HiveSplit(
+                "db",
+                "table",
+                "partitionId",
+                path,
+                start,
+                1024,
+                1024 * 1024,
+                0,
+                new Storage(
+                        StorageFormat.create("serde", "input", "output"),
+                        "location",
+                        Optional.empty(),
+                        false,
+                        ImmutableMap.of(),
+                        ImmutableMap.of()),
+                ImmutableList.of(),
+                ImmutableList.of(),
+                OptionalInt.empty(),
+                OptionalInt.empty(),
+                SOFT_AFFINITY,
+                0,
+                ImmutableMap.of(),
+                Optional.empty(),
+                false,
+                Optional.empty());
+    }
+
     private JsonCodec<HiveSplit> getJsonCodec()
             throws Exception
     {
@@ -16,9 +16,11 @@ package com.facebook.presto.hive;
 import com.facebook.airlift.stats.CounterStat;
 import com.facebook.presto.hive.metastore.Storage;
 import com.facebook.presto.hive.metastore.StorageFormat;
+import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.ConnectorSplitSource;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.testing.TestingConnectorSession;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.SettableFuture;
@@ -38,6 +40,8 @@ import static com.facebook.airlift.testing.Assertions.assertContains;
 import static com.facebook.presto.hive.HiveTestUtils.SESSION;
 import static com.facebook.presto.spi.connector.NotPartitionedPartitionHandle.NOT_PARTITIONED;
 import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.NO_PREFERENCE;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.units.DataSize.Unit.BYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.Math.toIntExact;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -379,6 +383,54 @@ public class TestHiveSplitSource
         assertEquals(hiveSplitSource.getBufferedInternalSplitCount(), 19);
     }
 
+    @Test
+    public void testMorselTailSplits()
+    {
+        ConnectorSession session = new TestingConnectorSession(new HiveSessionProperties(
+                new HiveClientConfig()
+                        .setMorselTailSplitsEnabled(true)
+                        .setMaxSplitSize(new DataSize(100, BYTE))
+                        .setMaxInitialSplitSize(new DataSize(25, BYTE)),
+                new OrcFileWriterConfig(),
+                new ParquetFileWriterConfig()).getSessionProperties());
+
+        // splits are cut by the queued bytes, whether or not the loader is still running
+        for (boolean noMoreSplits : new boolean[] {false, true}) {
+            HiveSplitSource hiveSplitSource = HiveSplitSource.allAtOnce(
+                    session,
+                    "database",
+                    "table",
+                    0,
+                    10,
+                    new DataSize(1, MEGABYTE),
+                    new TestingHiveSplitLoader(),
+                    EXECUTOR,
+                    new CounterStat());
+            for (int i = 0; i < 4; i++) {
+                hiveSplitSource.addToQueue(new TestSplit(i));
+            }
+            if (noMoreSplits) {
+                hiveSplitSource.noMoreSplits();
+            }
+
+            // the queue fills the batch, so the head of the queue is not cut
+            assertEquals(getSplitLengths(hiveSplitSource, 2), ImmutableList.of(100L, 100L));
+            // 200 bytes are left for a batch of 4 splits
+            assertEquals(getSplitLengths(hiveSplitSource, 4), ImmutableList.of(50L, 50L));
+            // the splits are not cut below max-initial-split-size
+            assertEquals(getSplitLengths(hiveSplitSource, 4), ImmutableList.of(25L, 25L));
+            assertEquals(getSplitLengths(hiveSplitSource, 4), ImmutableList.of(25L, 25L));
+            assertEquals(hiveSplitSource.getBufferedInternalSplitCount(), 0);
+        }
+    }
+
+    private static List<Long> getSplitLengths(ConnectorSplitSource source, int maxSize)
+    {
+        return getSplits(source, maxSize).stream()
+                .map(split -> ((HiveSplit) split).getLength())
+                .collect(toImmutableList());
+    }
+
     private static List<ConnectorSplit> getSplits(ConnectorSplitSource source, int maxSize)
     {
         return getSplits(source, OptionalInt.empty(), maxSize);
@@ -423,6 +475,7 @@ public class TestHiveSplitSource
                     0,
                     100,
                     100,
+                    0,
                     ImmutableList.of(new InternalHiveBlock(100, ImmutableList.of())),
                     bucketNumber,
                     bucketNumber,
@@ -524,7 +524,8 @@ public class TestOrcBatchPageSourceMemoryTracking
                     new PlanNodeId("0"),
                     (session, split, table, columnHandles) -> pageSource,
                     table,
-                    columns.stream().map(columnHandle -> (ColumnHandle) columnHandle).collect(toList()));
+                    columns.stream().map(columnHandle -> (ColumnHandle) columnHandle).collect(toList()),
+                    TupleDomain::all);
             SourceOperator operator = sourceOperatorFactory.createOperator(driverContext);
             operator.addSplit(new Split(new ConnectorId("test"), TestingTransactionHandle.create(), TestingSplit.createLocalSplit()));
             return operator;
@@ -550,7 +551,8 @@ public class TestOrcBatchPageSourceMemoryTracking
                     columns.stream().map(columnHandle -> (ColumnHandle) columnHandle).collect(toList()),
                     types,
                     new DataSize(0, BYTE),
-                    0);
+                    0,
+                    TupleDomain::all);
             SourceOperator operator = sourceOperatorFactory.createOperator(driverContext);
             operator.addSplit(new Split(new ConnectorId("test"), TestingTransactionHandle.create(), TestingSplit.createLocalSplit()));
             return operator;
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.parquet;
+
+import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.hive.HiveColumnHandle;
+import com.facebook.presto.hive.HiveStorageFormat;
+import com.facebook.presto.hive.benchmark.FormatWriter;
+import com.facebook.presto.hive.metastore.Storage;
+import com.facebook.presto.hive.metastore.StorageFormat;
+import com.facebook.presto.hive.orc.TupleDomainFilterCache;
+import com.facebook.presto.hive.parquet.ParquetTester.TempFile;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.Subfield;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.joda.time.DateTimeZone;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.expressions.LogicalRowExpressions.TRUE_CONSTANT;
+import static com.facebook.presto.hive.HiveColumnHandle.ColumnType.REGULAR;
+import static com.facebook.presto.hive.HiveCompressionCodec.NONE;
+import static com.facebook.presto.hive.HiveFileContext.DEFAULT_HIVE_FILE_CONTEXT;
+import static com.facebook.presto.hive.HiveTestUtils.HDFS_ENVIRONMENT;
+import static com.facebook.presto.hive.HiveTestUtils.SESSION;
+import static com.facebook.presto.hive.HiveTestUtils.TYPE_MANAGER;
+import static com.facebook.presto.hive.HiveType.HIVE_LONG;
+import static com.facebook.presto.hive.benchmark.FileFormat.PRESTO_PARQUET;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static org.testng.Assert.assertEquals;
+
+public class TestParquetSelectivePageSourceFactory
+{
+    private static final int ROW_COUNT = 20_000;
+
+    private static final HiveColumnHandle COLUMN_A = new HiveColumnHandle("a", HIVE_LONG, BIGINT.getTypeSignature(), 0, REGULAR, Optional.empty());
+    private static final HiveColumnHandle COLUMN_B = new HiveColumnHandle("b", HIVE_LONG, BIGINT.getTypeSignature(), 1, REGULAR, Optional.empty());
+    // not present in the file
+    private static final HiveColumnHandle COLUMN_C = new HiveColumnHandle("c", HIVE_LONG, BIGINT.getTypeSignature(), 2, REGULAR, Optional.empty());
+
+    @Test
+    public void testFilterColumnNotProjected()
+            throws Exception
+    {
+        TupleDomain<Subfield> predicate = TupleDomain.withColumnDomains(ImmutableMap.of(
+                new Subfield("a"), Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 1000L, true, 1099L, true), Range.range(BIGINT, 15000L, true, 15009L, true)), false),
+                new Subfield("b"), Domain.notNull(BIGINT)));
+
+        List<List<Long>> expected = new ArrayList<>();
+        for (long a = 0; a < ROW_COUNT; a++) {
+            if (((a >= 1000 && a <= 1099) || (a >= 15000 && a <= 15009)) && getB(a) != null) {
+                expected.add(ImmutableList.of(getB(a)));
+            }
+        }
+        assertEquals(readRows(ImmutableList.of(COLUMN_B), predicate), expected);
+    }
+
+    @Test
+    public void testProjectedFilterColumn()
+            throws Exception
+    {
+        TupleDomain<Subfield> predicate = TupleDomain.withColumnDomains(ImmutableMap.of(
+                new Subfield("b"), Domain.create(ValueSet.ofRanges(Range.lessThan(BIGINT, 100L)), true)));
+
+        List<List<Long>> expected = new ArrayList<>();
+        for (long a = 0; a < ROW_COUNT; a++) {
+            Long b = getB(a);
+            if (b == null || b < 100) {
+                List<Long> row = new ArrayList<>();
+                row.add(a);
+                row.add(b);
+                expected.add(row);
+            }
+        }
+        assertEquals(readRows(ImmutableList.of(COLUMN_A, COLUMN_B), predicate), expected);
+    }
+
+    @Test
+    public void testFilterOnMissingColumn()
+            throws Exception
+    {
+        TupleDomain<Subfield> predicate = TupleDomain.withColumnDomains(ImmutableMap.of(new Subfield("c"), Domain.notNull(BIGINT)));
+        assertEquals(readRows(ImmutableList.of(COLUMN_A), predicate), ImmutableList.of());
+
+        predicate = TupleDomain.withColumnDomains(ImmutableMap.of(
+                new Subfield("a"), Domain.singleValue(BIGINT, 42L),
+                new Subfield("c"), Domain.onlyNull(BIGINT)));
+        List<Long> expectedRow = new ArrayList<>();
+        expectedRow.add(42L);
+        expectedRow.add(null);
+        assertEquals(readRows(ImmutableList.of(COLUMN_A, COLUMN_C), predicate), ImmutableList.of(expectedRow));
+    }
+
+    private static Long getB(long a)
+    {
+        return a % 7 == 0 ? null : a * 2;
+    }
+
+    private static List<List<Long>> readRows(List<HiveColumnHandle> outputColumns, TupleDomain<Subfield> predicate)
+            throws Exception
+    {
+        try (TempFile tempFile = new TempFile("test", "parquet")) {
+            File file = tempFile.getFile();
+            writeFile(file);
+
+            ParquetSelectivePageSourceFactory pageSourceFactory = new ParquetSelectivePageSourceFactory(TYPE_MANAGER, HDFS_ENVIRONMENT, new FileFormatDataSourceStats(), new TupleDomainFilterCache());
+            ImmutableList.Builder<Integer> outputColumnIndexes = ImmutableList.builder();
+            for (HiveColumnHandle column : outputColumns) {
+                outputColumnIndexes.add(column.getHiveColumnIndex());
+            }
+            ConnectorPageSource pageSource = pageSourceFactory.createPageSource(
+                    new Configuration(),
+                    SESSION,
+                    new Path(file.getAbsolutePath()),
+                    0,
+                    file.length(),
+                    file.length(),
+                    new Storage(
+                            StorageFormat.create(HiveStorageFormat.PARQUET.getSerDe(), HiveStorageFormat.PARQUET.getInputFormat(), HiveStorageFormat.PARQUET.getOutputFormat()),
+                            "location",
+                            Optional.empty(),
+                            false,
+                            ImmutableMap.of(),
+                            ImmutableMap.of()),
+                    ImmutableList.of(COLUMN_A, COLUMN_B, COLUMN_C),
+                    ImmutableMap.of(),
+                    ImmutableMap.of(),
+                    Optional.empty(),
+                    outputColumnIndexes.build(),
+                    predicate,
+                    TRUE_CONSTANT,
+                    DateTimeZone.UTC,
+                    DEFAULT_HIVE_FILE_CONTEXT)
+                    .get();
+
+            List<List<Long>> rows = new ArrayList<>();
+            try {
+                while (!pageSource.isFinished()) {
+                    Page page = pageSource.getNextPage();
+                    if (page == null) {
+                        continue;
+                    }
+                    for (int position = 0; position < page.getPositionCount(); position++) {
+                        List<Long> row = new ArrayList<>();
+                        for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                            Block block = page.getBlock(channel);
+                            row.add(block.isNull(position) ? null : BIGINT.getLong(block, position));
+                        }
+                        rows.add(row);
+                    }
+                }
+            }
+            finally {
+                pageSource.close();
+            }
+            return rows;
+        }
+    }
+
+    private static void writeFile(File file)
+            throws Exception
+    {
+        try (FormatWriter writer = PRESTO_PARQUET.createFileFormatWriter(SESSION, file, ImmutableList.of("a", "b"), ImmutableList.of(BIGINT, BIGINT), NONE)) {
+            BlockBuilder a = BIGINT.createBlockBuilder(null, ROW_COUNT);
+            BlockBuilder b = BIGINT.createBlockBuilder(null, ROW_COUNT);
+            for (long value = 0; value < ROW_COUNT; value++) {
+                BIGINT.writeLong(a, value);
+                Long bValue = getB(value);
+                if (bValue == null) {
+                    b.appendNull();
+                }
+                else {
+                    BIGINT.writeLong(b, bValue);
+                }
+            }
+            writer.writePage(new Page(a.build(), b.build()));
+        }
+    }
+}
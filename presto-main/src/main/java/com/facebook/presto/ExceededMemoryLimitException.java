@@ -17,6 +17,7 @@ import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.StandardErrorCode;
 import io.airlift.units.DataSize;
 
+import static com.facebook.presto.spi.StandardErrorCode.EXCEEDED_BROADCAST_MEMORY_LIMIT;
 import static com.facebook.presto.spi.StandardErrorCode.EXCEEDED_GLOBAL_MEMORY_LIMIT;
 import static com.facebook.presto.spi.StandardErrorCode.EXCEEDED_LOCAL_MEMORY_LIMIT;
 import static java.lang.String.format;
@@ -46,6 +47,12 @@ public class ExceededMemoryLimitException
                 format("Query exceeded per-node total memory limit of %s [%s]", maxMemory, additionalFailureInfo));
     }
 
+    public static ExceededMemoryLimitException exceededBroadcastMemoryLimit(DataSize maxBuildSize)
+    {
+        return new ExceededMemoryLimitException(EXCEEDED_BROADCAST_MEMORY_LIMIT,
+                format("Query exceeded broadcast join build side limit of %s. Use a partitioned join instead (join_distribution_type=PARTITIONED)", maxBuildSize));
+    }
+
     private ExceededMemoryLimitException(StandardErrorCode errorCode, String message)
     {
         super(errorCode, message);
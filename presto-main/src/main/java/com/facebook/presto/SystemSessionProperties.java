@@ -16,6 +16,7 @@ package com.facebook.presto;
 import com.facebook.presto.execution.QueryManagerConfig;
 import com.facebook.presto.execution.QueryManagerConfig.ExchangeMaterializationStrategy;
 import com.facebook.presto.execution.TaskManagerConfig;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
 import com.facebook.presto.memory.MemoryManagerConfig;
 import com.facebook.presto.memory.NodeMemoryConfig;
 import com.facebook.presto.spi.PrestoException;
@@ -26,6 +27,7 @@ import com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType;
 import com.facebook.presto.sql.analyzer.FeaturesConfig.JoinReorderingStrategy;
 import com.facebook.presto.sql.analyzer.FeaturesConfig.PartialMergePushdownStrategy;
 import com.facebook.presto.sql.analyzer.FeaturesConfig.PartitioningPrecisionStrategy;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
@@ -61,6 +63,7 @@ public final class SystemSessionProperties
     public static final String OPTIMIZE_HASH_GENERATION = "optimize_hash_generation";
     public static final String JOIN_DISTRIBUTION_TYPE = "join_distribution_type";
     public static final String JOIN_MAX_BROADCAST_TABLE_SIZE = "join_max_broadcast_table_size";
+    public static final String JOIN_MAX_BROADCAST_BUILD_SIZE = "join_max_broadcast_build_size";
     public static final String DISTRIBUTED_JOIN = "distributed_join";
     public static final String DISTRIBUTED_INDEX_JOIN = "distributed_index_join";
     public static final String HASH_PARTITION_COUNT = "hash_partition_count";
@@ -116,6 +119,8 @@ public final class SystemSessionProperties
     public static final String ITERATIVE_OPTIMIZER = "iterative_optimizer_enabled";
     public static final String ITERATIVE_OPTIMIZER_TIMEOUT = "iterative_optimizer_timeout";
     public static final String EXCHANGE_COMPRESSION = "exchange_compression";
+    public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
+    public static final String EXCHANGE_ZSTD_COMPRESSION_LEVEL = "exchange_zstd_compression_level";
     public static final String LEGACY_TIMESTAMP = "legacy_timestamp";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
     public static final String PUSH_AGGREGATION_THROUGH_JOIN = "push_aggregation_through_join";
@@ -150,6 +155,19 @@ public final class SystemSessionProperties
     public static final String EXPERIMENTAL_FUNCTIONS_ENABLED = "experimental_functions_enabled";
     public static final String USE_LEGACY_SCHEDULER = "use_legacy_scheduler";
     public static final String OPTIMIZE_COMMON_SUB_EXPRESSIONS = "optimize_common_sub_expressions";
+    public static final String ENABLE_DYNAMIC_FILTERING = "enable_dynamic_filtering";
+    public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_VALUE_COUNT = "dynamic_filtering_max_per_driver_value_count";
+    public static final String ORDER_BY_SPILL_ENABLED = "order_by_spill_enabled";
+    public static final String WINDOW_SPILL_ENABLED = "window_spill_enabled";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION = "adaptive_partial_aggregation";
+    public static final String ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD = "adaptive_partial_aggregation_unique_rows_ratio_threshold";
+    public static final String FRAGMENT_RESULT_CACHING_ENABLED = "fragment_result_caching_enabled";
+    public static final String SEMI_JOIN_SPILL_ENABLED = "semi_join_spill_enabled";
+    public static final String SKEWED_JOIN_HOT_KEYS = "skewed_join_hot_keys";
+    public static final String SKEWED_JOIN_SALT_FACTOR = "skewed_join_salt_factor";
+    public static final String TOPN_ROW_NUMBER_SPILL_ENABLED = "topn_row_number_spill_enabled";
+    public static final String OPTIMIZE_FILTER_PROJECTION_COMMON_SUB_EXPRESSIONS = "optimize_filter_projection_common_sub_expressions";
+    public static final String TABLE_SCAN_SPLIT_PREFETCH_COUNT = "table_scan_split_prefetch_count";
 
     private final List<PropertyMetadata<?>> sessionProperties;
 
@@ -203,6 +221,15 @@ public final class SystemSessionProperties
                         true,
                         value -> DataSize.valueOf((String) value),
                         DataSize::toString),
+                new PropertyMetadata<>(
+                        JOIN_MAX_BROADCAST_BUILD_SIZE,
+                        "Maximum actual size of the build side of a broadcast join on a single task. Queries exceeding it fail early and should use a partitioned join.",
+                        VARCHAR,
+                        DataSize.class,
+                        featuresConfig.getJoinMaxBroadcastBuildSize(),
+                        false,
+                        value -> DataSize.valueOf((String) value),
+                        DataSize::toString),
                 booleanProperty(
                         DISTRIBUTED_INDEX_JOIN,
                         "Distribute index joins on join keys instead of executing inline",
@@ -567,6 +594,27 @@ public final class SystemSessionProperties
                         "Enable compression in exchanges",
                         featuresConfig.isExchangeCompressionEnabled(),
                         false),
+                new PropertyMetadata<>(
+                        EXCHANGE_COMPRESSION_CODEC,
+                        format("Codec used to compress exchanged pages when exchange compression is enabled. Options are %s",
+                                Stream.of(PageCompressionCodec.values())
+                                        .map(PageCompressionCodec::name)
+                                        .collect(joining(","))),
+                        VARCHAR,
+                        PageCompressionCodec.class,
+                        featuresConfig.getExchangeCompressionCodec(),
+                        false,
+                        value -> PageCompressionCodec.valueOf(((String) value).toUpperCase()),
+                        PageCompressionCodec::name),
+                new PropertyMetadata<>(
+                        EXCHANGE_ZSTD_COMPRESSION_LEVEL,
+                        "Compression level used when exchanged pages are compressed with ZSTD",
+                        INTEGER,
+                        Integer.class,
+                        featuresConfig.getExchangeZstdCompressionLevel(),
+                        false,
+                        value -> validateZstdCompressionLevel(value, EXCHANGE_ZSTD_COMPRESSION_LEVEL),
+                        value -> value),
                 booleanProperty(
                         LEGACY_TIMESTAMP,
                         "Use legacy TIME & TIMESTAMP semantics (warning: this will be removed)",
@@ -762,6 +810,71 @@ public final class SystemSessionProperties
                         OPTIMIZE_COMMON_SUB_EXPRESSIONS,
                         "Extract and compute common sub-expressions in projection",
                         featuresConfig.isOptimizeCommonSubExpressions(),
+                        false),
+                booleanProperty(
+                        ENABLE_DYNAMIC_FILTERING,
+                        "Experimental: Prune probe side table scans using the build side values of hash joins",
+                        featuresConfig.isEnableDynamicFiltering(),
+                        false),
+                integerProperty(
+                        DYNAMIC_FILTERING_MAX_PER_DRIVER_VALUE_COUNT,
+                        "Maximum number of distinct build side values collected per driver before a dynamic filter degrades to a range",
+                        featuresConfig.getDynamicFilteringMaxPerDriverValueCount(),
+                        false),
+                booleanProperty(
+                        ORDER_BY_SPILL_ENABLED,
+                        "Enable spill for ORDER BY when spill_enabled is true",
+                        featuresConfig.isOrderBySpillEnabled(),
+                        false),
+                booleanProperty(
+                        WINDOW_SPILL_ENABLED,
+                        "Enable spill for window functions when spill_enabled is true",
+                        featuresConfig.isWindowSpillEnabled(),
+                        false),
+                booleanProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION,
+                        "Bypass partial aggregation when it does not reduce the number of rows",
+                        featuresConfig.isAdaptivePartialAggregationEnabled(),
+                        false),
+                doubleProperty(
+                        ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD,
+                        "Ratio of unique groups to input rows above which partial aggregation is bypassed",
+                        featuresConfig.getAdaptivePartialAggregationUniqueRowsRatioThreshold(),
+                        false),
+                booleanProperty(
+                        FRAGMENT_RESULT_CACHING_ENABLED,
+                        "Cache the results of leaf plan fragments per split and reuse them in later queries",
+                        featuresConfig.isFragmentResultCachingEnabled(),
+                        false),
+                booleanProperty(
+                        SEMI_JOIN_SPILL_ENABLED,
+                        "Enable spill for semi joins when spill_enabled is true",
+                        featuresConfig.isSemiJoinSpillEnabled(),
+                        false),
+                stringProperty(
+                        SKEWED_JOIN_HOT_KEYS,
+                        "Comma separated join key values whose rows are spread across several partitions in partitioned joins",
+                        null,
+                        false),
+                integerProperty(
+                        SKEWED_JOIN_SALT_FACTOR,
+                        "Number of partitions the rows of each hot join key are spread across in partitioned joins",
+                        featuresConfig.getSkewedJoinSaltFactor(),
+                        false),
+                booleanProperty(
+                        TOPN_ROW_NUMBER_SPILL_ENABLED,
+                        "Enable spill for top N row number when spill_enabled is true",
+                        featuresConfig.isTopNRowNumberSpillEnabled(),
+                        false),
+                booleanProperty(
+                        OPTIMIZE_FILTER_PROJECTION_COMMON_SUB_EXPRESSIONS,
+                        "Evaluate sub-expressions shared by a filter and its projections only once per page",
+                        featuresConfig.isOptimizeFilterProjectionCommonSubExpressions(),
+                        false),
+                integerProperty(
+                        TABLE_SCAN_SPLIT_PREFETCH_COUNT,
+                        "Number of queued table scan splits whose page sources are opened ahead of time",
+                        featuresConfig.getTableScanSplitPrefetchCount(),
                         false));
     }
 
@@ -799,6 +912,11 @@ public final class SystemSessionProperties
         return Optional.ofNullable(session.getSystemProperty(JOIN_MAX_BROADCAST_TABLE_SIZE, DataSize.class));
     }
 
+    public static Optional<DataSize> getJoinMaxBroadcastBuildSize(Session session)
+    {
+        return Optional.ofNullable(session.getSystemProperty(JOIN_MAX_BROADCAST_BUILD_SIZE, DataSize.class));
+    }
+
     public static boolean isDistributedIndexJoinEnabled(Session session)
     {
         return session.getSystemProperty(DISTRIBUTED_INDEX_JOIN, Boolean.class);
@@ -1087,6 +1205,22 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_COMPRESSION, Boolean.class);
     }
 
+    /**
+     * Codec used to compress exchanged pages, {@link PageCompressionCodec#NONE} when exchange compression is disabled.
+     */
+    public static PageCompressionCodec getExchangeCompressionCodec(Session session)
+    {
+        if (!isExchangeCompressionEnabled(session)) {
+            return PageCompressionCodec.NONE;
+        }
+        return session.getSystemProperty(EXCHANGE_COMPRESSION_CODEC, PageCompressionCodec.class);
+    }
+
+    public static int getExchangeZstdCompressionLevel(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_ZSTD_COMPRESSION_LEVEL, Integer.class);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
@@ -1181,6 +1315,15 @@ public final class SystemSessionProperties
         return intValue;
     }
 
+    private static Integer validateZstdCompressionLevel(Object value, String property)
+    {
+        int intValue = validateIntegerValue(value, property, 1, false);
+        if (intValue > 22) {
+            throw new PrestoException(INVALID_SESSION_PROPERTY, format("%s must be equal or less than 22", property));
+        }
+        return intValue;
+    }
+
     private static Integer validateNullablePositiveIntegerValue(Object value, String property)
     {
         return validateIntegerValue(value, property, 1, true);
@@ -1293,4 +1436,73 @@ public final class SystemSessionProperties
     {
         return session.getSystemProperty(OPTIMIZE_COMMON_SUB_EXPRESSIONS, Boolean.class);
     }
+
+    public static boolean isEnableDynamicFiltering(Session session)
+    {
+        return session.getSystemProperty(ENABLE_DYNAMIC_FILTERING, Boolean.class);
+    }
+
+    public static int getDynamicFilteringMaxPerDriverValueCount(Session session)
+    {
+        return session.getSystemProperty(DYNAMIC_FILTERING_MAX_PER_DRIVER_VALUE_COUNT, Integer.class);
+    }
+
+    public static boolean isOrderBySpillEnabled(Session session)
+    {
+        return session.getSystemProperty(ORDER_BY_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static boolean isWindowSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(WINDOW_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static boolean isAdaptivePartialAggregationEnabled(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION, Boolean.class);
+    }
+
+    public static double getAdaptivePartialAggregationUniqueRowsRatioThreshold(Session session)
+    {
+        return session.getSystemProperty(ADAPTIVE_PARTIAL_AGGREGATION_UNIQUE_ROWS_RATIO_THRESHOLD, Double.class);
+    }
+
+    public static boolean isFragmentResultCachingEnabled(Session session)
+    {
+        return session.getSystemProperty(FRAGMENT_RESULT_CACHING_ENABLED, Boolean.class);
+    }
+
+    public static boolean isSemiJoinSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(SEMI_JOIN_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static List<String> getSkewedJoinHotKeys(Session session)
+    {
+        String hotKeys = session.getSystemProperty(SKEWED_JOIN_HOT_KEYS, String.class);
+        if (hotKeys == null) {
+            return ImmutableList.of();
+        }
+        return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(hotKeys);
+    }
+
+    public static int getSkewedJoinSaltFactor(Session session)
+    {
+        return session.getSystemProperty(SKEWED_JOIN_SALT_FACTOR, Integer.class);
+    }
+
+    public static boolean isTopNRowNumberSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(TOPN_ROW_NUMBER_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static boolean isOptimizeFilterProjectionCommonSubExpressions(Session session)
+    {
+        return session.getSystemProperty(OPTIMIZE_FILTER_PROJECTION_COMMON_SUB_EXPRESSIONS, Boolean.class);
+    }
+
+    public static int getTableScanSplitPrefetchCount(Session session)
+    {
+        return session.getSystemProperty(TABLE_SCAN_SPLIT_PREFETCH_COUNT, Integer.class);
+    }
 }
@@ -935,6 +935,10 @@ public class SqlTaskExecution
             // create driver context immediately so the driver existence is recorded in the stats
             // the number of drivers is used to balance work across nodes
             DriverContext driverContext = pipelineContext.addDriverContext(lifespan);
+            if (partitionedSplit != null) {
+                // let the source start reading the split while it waits for a driver
+                driverFactory.splitQueued(partitionedSplit.getSplit());
+            }
             return new DriverSplitRunner(this, driverContext, partitionedSplit, lifespan);
         }
 
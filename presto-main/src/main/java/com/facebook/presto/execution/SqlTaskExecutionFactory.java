@@ -17,6 +17,7 @@ import com.facebook.airlift.concurrent.SetThreadName;
 import com.facebook.presto.Session;
 import com.facebook.presto.event.SplitMonitor;
 import com.facebook.presto.execution.buffer.OutputBuffer;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
 import com.facebook.presto.execution.executor.TaskExecutor;
 import com.facebook.presto.execution.scheduler.TableWriteInfo;
 import com.facebook.presto.memory.QueryContext;
@@ -46,6 +47,7 @@ public class SqlTaskExecutionFactory
     private final BlockEncodingSerde blockEncodingSerde;
     private final OrderingCompiler orderingCompiler;
     private final SplitMonitor splitMonitor;
+    private final PageCompressionStats pageCompressionStats;
     private final boolean perOperatorCpuTimerEnabled;
     private final boolean cpuTimerEnabled;
     private final boolean perOperatorAllocationTrackingEnabled;
@@ -59,7 +61,8 @@ public class SqlTaskExecutionFactory
             BlockEncodingSerde blockEncodingSerde,
             OrderingCompiler orderingCompiler,
             SplitMonitor splitMonitor,
-            TaskManagerConfig config)
+            TaskManagerConfig config,
+            PageCompressionStats pageCompressionStats)
     {
         this.taskNotificationExecutor = requireNonNull(taskNotificationExecutor, "taskNotificationExecutor is null");
         this.taskExecutor = requireNonNull(taskExecutor, "taskExecutor is null");
@@ -67,6 +70,7 @@ public class SqlTaskExecutionFactory
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         this.splitMonitor = requireNonNull(splitMonitor, "splitMonitor is null");
+        this.pageCompressionStats = requireNonNull(pageCompressionStats, "pageCompressionStats is null");
         requireNonNull(config, "config is null");
         this.perOperatorCpuTimerEnabled = config.isPerOperatorCpuTimerEnabled();
         this.cpuTimerEnabled = config.isTaskCpuTimerEnabled();
@@ -104,7 +108,7 @@ public class SqlTaskExecutionFactory
                         fragment.getStageExecutionDescriptor(),
                         fragment.getTableScanSchedulingOrder(),
                         outputBuffer,
-                        new HttpRemoteSourceFactory(blockEncodingSerde, taskExchangeClientManager, orderingCompiler),
+                        new HttpRemoteSourceFactory(blockEncodingSerde, taskExchangeClientManager, orderingCompiler, pageCompressionStats),
                         tableWriteInfo);
             }
             catch (Throwable e) {
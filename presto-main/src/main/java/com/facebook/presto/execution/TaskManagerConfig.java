@@ -79,6 +79,7 @@ public class TaskManagerConfig
 
     private int taskNotificationThreads = 5;
     private int taskYieldThreads = 3;
+    private int splitPrefetchThreads = 16;
 
     private BigDecimal levelTimeMultiplier = new BigDecimal(2.0);
 
@@ -540,6 +541,20 @@ public class TaskManagerConfig
         return this;
     }
 
+    @Min(1)
+    public int getSplitPrefetchThreads()
+    {
+        return splitPrefetchThreads;
+    }
+
+    @Config("task.split-prefetch-threads")
+    @ConfigDescription("Number of threads used for opening the page sources of queued splits ahead of time")
+    public TaskManagerConfig setSplitPrefetchThreads(int splitPrefetchThreads)
+    {
+        this.splitPrefetchThreads = splitPrefetchThreads;
+        return this;
+    }
+
     @Deprecated
     public boolean isLegacyLifespanCompletionCondition()
     {
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.spi.page.PageCodecMarker;
+
+/**
+ * Codec used to compress serialized pages. The codec of a compressed page is recorded in its
+ * {@link PageCodecMarker} values, so it can be verified when the page is deserialized.
+ */
+public enum PageCompressionCodec
+{
+    NONE(PageCodecMarker.none()),
+    LZ4(PageCodecMarker.none()),
+    SNAPPY(PageCodecMarker.SNAPPY.set(PageCodecMarker.none())),
+    ZSTD(PageCodecMarker.ZSTD.set(PageCodecMarker.none()));
+
+    private final byte codecMarkers;
+
+    PageCompressionCodec(byte codecMarkers)
+    {
+        this.codecMarkers = codecMarkers;
+    }
+
+    public byte getCodecMarkers()
+    {
+        return codecMarkers;
+    }
+}
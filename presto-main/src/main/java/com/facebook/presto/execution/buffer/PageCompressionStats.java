@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compression statistics of serialized pages, per {@link PageCompressionCodec}.
+ */
+public class PageCompressionStats
+{
+    private final CodecStats lz4 = new CodecStats();
+    private final CodecStats snappy = new CodecStats();
+    private final CodecStats zstd = new CodecStats();
+
+    public CodecStats getCodecStats(PageCompressionCodec codec)
+    {
+        switch (codec) {
+            case LZ4:
+                return lz4;
+            case SNAPPY:
+                return snappy;
+            case ZSTD:
+                return zstd;
+            default:
+                throw new IllegalArgumentException("Unsupported codec: " + codec);
+        }
+    }
+
+    @Managed
+    @Nested
+    public CodecStats getLz4()
+    {
+        return lz4;
+    }
+
+    @Managed
+    @Nested
+    public CodecStats getSnappy()
+    {
+        return snappy;
+    }
+
+    @Managed
+    @Nested
+    public CodecStats getZstd()
+    {
+        return zstd;
+    }
+
+    public static class CodecStats
+    {
+        private final AtomicLong compressedPages = new AtomicLong();
+        private final AtomicLong compressionInputBytes = new AtomicLong();
+        private final AtomicLong compressionOutputBytes = new AtomicLong();
+        private final AtomicLong compressionNanos = new AtomicLong();
+        private final AtomicLong decompressedPages = new AtomicLong();
+        private final AtomicLong decompressionOutputBytes = new AtomicLong();
+        private final AtomicLong decompressionNanos = new AtomicLong();
+
+        public void recordCompression(long inputBytes, long outputBytes, long nanos)
+        {
+            compressedPages.incrementAndGet();
+            compressionInputBytes.addAndGet(inputBytes);
+            compressionOutputBytes.addAndGet(outputBytes);
+            compressionNanos.addAndGet(nanos);
+        }
+
+        public void recordDecompression(long outputBytes, long nanos)
+        {
+            decompressedPages.incrementAndGet();
+            decompressionOutputBytes.addAndGet(outputBytes);
+            decompressionNanos.addAndGet(nanos);
+        }
+
+        @Managed
+        public long getCompressedPages()
+        {
+            return compressedPages.get();
+        }
+
+        @Managed
+        public long getCompressionInputBytes()
+        {
+            return compressionInputBytes.get();
+        }
+
+        @Managed
+        public long getCompressionOutputBytes()
+        {
+            return compressionOutputBytes.get();
+        }
+
+        /**
+         * Compressed size divided by uncompressed size of all pages passed to the compressor,
+         * including the pages that are sent uncompressed because they did not compress well.
+         */
+        @Managed
+        public double getCompressionRatio()
+        {
+            long inputBytes = compressionInputBytes.get();
+            if (inputBytes == 0) {
+                return 0;
+            }
+            return compressionOutputBytes.get() / (double) inputBytes;
+        }
+
+        /**
+         * Time spent compressing on the calling threads. Compression does not block,
+         * so this is the CPU time spent in the codec.
+         */
+        @Managed
+        public long getCompressionNanos()
+        {
+            return compressionNanos.get();
+        }
+
+        @Managed
+        public long getDecompressedPages()
+        {
+            return decompressedPages.get();
+        }
+
+        @Managed
+        public long getDecompressionOutputBytes()
+        {
+            return decompressionOutputBytes.get();
+        }
+
+        @Managed
+        public long getDecompressionNanos()
+        {
+            return decompressionNanos.get();
+        }
+    }
+}
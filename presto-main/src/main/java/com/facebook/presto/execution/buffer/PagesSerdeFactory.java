@@ -13,30 +13,49 @@
  */
 package com.facebook.presto.execution.buffer;
 
+import com.facebook.presto.execution.buffer.PageCompressionStats.CodecStats;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.page.PageCompressor;
 import com.facebook.presto.spi.page.PageDecompressor;
 import com.facebook.presto.spi.page.PagesSerde;
 import com.facebook.presto.spi.spiller.SpillCipher;
+import com.github.luben.zstd.Zstd;
 import io.airlift.compress.Compressor;
 import io.airlift.compress.Decompressor;
 import io.airlift.compress.lz4.Lz4Compressor;
 import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.snappy.SnappyCompressor;
+import io.airlift.compress.snappy.SnappyDecompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
 
 import java.nio.ByteBuffer;
 import java.util.Optional;
 
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.LZ4;
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.NONE;
+import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
 public class PagesSerdeFactory
 {
+    public static final int DEFAULT_ZSTD_COMPRESSION_LEVEL = 3;
+
     private final BlockEncodingSerde blockEncodingSerde;
-    private final boolean compressionEnabled;
+    private final PageCompressionCodec compressionCodec;
+    private final int zstdCompressionLevel;
+    private final PageCompressionStats compressionStats;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled)
+    {
+        this(blockEncodingSerde, compressionEnabled ? LZ4 : NONE, DEFAULT_ZSTD_COMPRESSION_LEVEL, new PageCompressionStats());
+    }
+
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, PageCompressionCodec compressionCodec, int zstdCompressionLevel, PageCompressionStats compressionStats)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
-        this.compressionEnabled = compressionEnabled;
+        this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
+        this.zstdCompressionLevel = zstdCompressionLevel;
+        this.compressionStats = requireNonNull(compressionStats, "compressionStats is null");
     }
 
     public PagesSerde createPagesSerde()
@@ -51,60 +70,188 @@ public class PagesSerdeFactory
 
     private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher)
     {
-        if (compressionEnabled) {
-            return new PagesSerde(
-                    blockEncodingSerde,
-                    Optional.of(new PageCompressor()
-                    {
-                        Compressor compressor = new Lz4Compressor();
-                        @Override
-                        public int maxCompressedLength(int uncompressedSize)
-                        {
-                            return compressor.maxCompressedLength(uncompressedSize);
-                        }
-
-                        @Override
-                        public int compress(
-                                byte[] input,
-                                int inputOffset,
-                                int inputLength,
-                                byte[] output,
-                                int outputOffset,
-                                int maxOutputLength)
-                        {
-                            return compressor.compress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
-                        }
-
-                        @Override
-                        public void compress(ByteBuffer input, ByteBuffer output)
-                        {
-                            compressor.compress(input, output);
-                        }
-                    }),
-                    Optional.of(new PageDecompressor()
-                    {
-                        Decompressor decompressor = new Lz4Decompressor();
-                        @Override
-                        public int decompress(
-                                byte[] input,
-                                int inputOffset,
-                                int inputLength,
-                                byte[] output,
-                                int outputOffset,
-                                int maxOutputLength)
-                        {
-                            return decompressor.decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
-                        }
-
-                        @Override
-                        public void decompress(ByteBuffer input, ByteBuffer output)
-                        {
-                            decompressor.decompress(input, output);
-                        }
-                    }),
-                    spillCipher);
-        }
-
-        return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty(), spillCipher);
+        if (compressionCodec == NONE) {
+            return new PagesSerde(blockEncodingSerde, Optional.empty(), Optional.empty(), spillCipher);
+        }
+
+        CodecStats codecStats = compressionStats.getCodecStats(compressionCodec);
+        return new PagesSerde(
+                blockEncodingSerde,
+                Optional.of(new MeasuredPageCompressor(createCompressor(), compressionCodec.getCodecMarkers(), codecStats)),
+                Optional.of(new MeasuredPageDecompressor(createDecompressor(), compressionCodec.getCodecMarkers(), codecStats)),
+                spillCipher);
+    }
+
+    private Compressor createCompressor()
+    {
+        switch (compressionCodec) {
+            case LZ4:
+                return new Lz4Compressor();
+            case SNAPPY:
+                return new SnappyCompressor();
+            case ZSTD:
+                return new ZstdJniCompressor(zstdCompressionLevel);
+            default:
+                throw new UnsupportedOperationException("Unsupported compression codec: " + compressionCodec);
+        }
+    }
+
+    private Decompressor createDecompressor()
+    {
+        switch (compressionCodec) {
+            case LZ4:
+                return new Lz4Decompressor();
+            case SNAPPY:
+                return new SnappyDecompressor();
+            case ZSTD:
+                return new ZstdDecompressor();
+            default:
+                throw new UnsupportedOperationException("Unsupported compression codec: " + compressionCodec);
+        }
+    }
+
+    private static class MeasuredPageCompressor
+            implements PageCompressor
+    {
+        private final Compressor compressor;
+        private final byte codecMarkers;
+        private final CodecStats stats;
+
+        public MeasuredPageCompressor(Compressor compressor, byte codecMarkers, CodecStats stats)
+        {
+            this.compressor = requireNonNull(compressor, "compressor is null");
+            this.codecMarkers = codecMarkers;
+            this.stats = requireNonNull(stats, "stats is null");
+        }
+
+        @Override
+        public int maxCompressedLength(int uncompressedSize)
+        {
+            return compressor.maxCompressedLength(uncompressedSize);
+        }
+
+        @Override
+        public int compress(
+                byte[] input,
+                int inputOffset,
+                int inputLength,
+                byte[] output,
+                int outputOffset,
+                int maxOutputLength)
+        {
+            long start = System.nanoTime();
+            int compressedSize = compressor.compress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+            stats.recordCompression(inputLength, compressedSize, System.nanoTime() - start);
+            return compressedSize;
+        }
+
+        @Override
+        public void compress(ByteBuffer input, ByteBuffer output)
+        {
+            int inputLength = input.remaining();
+            int outputPosition = output.position();
+            long start = System.nanoTime();
+            compressor.compress(input, output);
+            stats.recordCompression(inputLength, output.position() - outputPosition, System.nanoTime() - start);
+        }
+
+        @Override
+        public byte getCodecMarkers()
+        {
+            return codecMarkers;
+        }
+    }
+
+    private static class MeasuredPageDecompressor
+            implements PageDecompressor
+    {
+        private final Decompressor decompressor;
+        private final byte codecMarkers;
+        private final CodecStats stats;
+
+        public MeasuredPageDecompressor(Decompressor decompressor, byte codecMarkers, CodecStats stats)
+        {
+            this.decompressor = requireNonNull(decompressor, "decompressor is null");
+            this.codecMarkers = codecMarkers;
+            this.stats = requireNonNull(stats, "stats is null");
+        }
+
+        @Override
+        public int decompress(
+                byte[] input,
+                int inputOffset,
+                int inputLength,
+                byte[] output,
+                int outputOffset,
+                int maxOutputLength)
+        {
+            long start = System.nanoTime();
+            int decompressedSize = decompressor.decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+            stats.recordDecompression(decompressedSize, System.nanoTime() - start);
+            return decompressedSize;
+        }
+
+        @Override
+        public void decompress(ByteBuffer input, ByteBuffer output)
+        {
+            int outputPosition = output.position();
+            long start = System.nanoTime();
+            decompressor.decompress(input, output);
+            stats.recordDecompression(output.position() - outputPosition, System.nanoTime() - start);
+        }
+
+        @Override
+        public byte getCodecMarkers()
+        {
+            return codecMarkers;
+        }
+    }
+
+    /**
+     * The Zstd compressor of aircompressor does not support compression levels, so compression uses zstd-jni.
+     * Decompression does not depend on the level and uses {@link ZstdDecompressor}.
+     */
+    private static class ZstdJniCompressor
+            implements Compressor
+    {
+        private final int compressionLevel;
+
+        public ZstdJniCompressor(int compressionLevel)
+        {
+            this.compressionLevel = compressionLevel;
+        }
+
+        @Override
+        public int maxCompressedLength(int uncompressedSize)
+        {
+            return toIntExact(Zstd.compressBound(uncompressedSize));
+        }
+
+        @Override
+        public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
+        {
+            long size = Zstd.compressByteArray(output, outputOffset, maxOutputLength, input, inputOffset, inputLength, compressionLevel);
+            if (Zstd.isError(size)) {
+                throw new RuntimeException(Zstd.getErrorName(size));
+            }
+            return toIntExact(size);
+        }
+
+        @Override
+        public void compress(ByteBuffer input, ByteBuffer output)
+        {
+            if (!input.hasArray() || !output.hasArray()) {
+                throw new UnsupportedOperationException("Zstd compression requires heap buffers");
+            }
+            int compressedSize = compress(
+                    input.array(),
+                    input.arrayOffset() + input.position(),
+                    input.remaining(),
+                    output.array(),
+                    output.arrayOffset() + output.position(),
+                    output.remaining());
+            input.position(input.limit());
+            output.position(output.position() + compressedSize);
+        }
     }
 }
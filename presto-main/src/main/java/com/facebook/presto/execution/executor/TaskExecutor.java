@@ -33,6 +33,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.Duration;
 import org.weakref.jmx.Managed;
@@ -47,6 +48,7 @@ import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -74,6 +76,7 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static io.airlift.units.Duration.succinctNanos;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
@@ -324,7 +327,8 @@ public class TaskExecutor
                 utilizationSupplier,
                 initialSplitConcurrency,
                 splitConcurrencyAdjustFrequency,
-                maxDriversPerTask);
+                maxDriversPerTask,
+                ticker);
 
         tasks.add(taskHandle);
         return taskHandle;
@@ -638,6 +642,12 @@ public class TaskExecutor
         return runningSplits.size();
     }
 
+    @Managed
+    public double getRunnerThreadUtilization()
+    {
+        return (double) runningSplits.size() / runnerThreads;
+    }
+
     @Managed
     public int getBlockedSplits()
     {
@@ -843,6 +853,45 @@ public class TaskExecutor
         return count;
     }
 
+    public synchronized List<TaskExecutorQueryStats> getQueryStats()
+    {
+        Map<QueryId, List<TaskHandle>> tasksByQuery = new LinkedHashMap<>();
+        for (TaskHandle task : tasks) {
+            tasksByQuery.computeIfAbsent(task.getTaskId().getQueryId(), queryId -> new ArrayList<>()).add(task);
+        }
+
+        long now = ticker.read();
+        ImmutableList.Builder<TaskExecutorQueryStats> queryStats = ImmutableList.builder();
+        for (Map.Entry<QueryId, List<TaskHandle>> entry : tasksByQuery.entrySet()) {
+            int queuedLeafSplits = 0;
+            int runningLeafSplits = 0;
+            long scheduledNanos = 0;
+            long leafSplitTailNanos = 0;
+            long maxLeafSplitScheduledNanos = 0;
+            long firstTaskCreatedNanos = now;
+            for (TaskHandle task : entry.getValue()) {
+                queuedLeafSplits += task.getQueuedLeafSplits();
+                runningLeafSplits += task.getRunningLeafSplits();
+                scheduledNanos += task.getTaskScheduledNanos();
+                leafSplitTailNanos += task.getLeafSplitTailNanos();
+                maxLeafSplitScheduledNanos = Math.max(maxLeafSplitScheduledNanos, task.getMaxLeafSplitScheduledNanos());
+                firstTaskCreatedNanos = Math.min(firstTaskCreatedNanos, task.getCreatedNanos());
+            }
+            long elapsedNanos = now - firstTaskCreatedNanos;
+            double coreUtilization = elapsedNanos == 0 ? 0 : (double) scheduledNanos / elapsedNanos / runnerThreads;
+            queryStats.add(new TaskExecutorQueryStats(
+                    entry.getKey(),
+                    entry.getValue().size(),
+                    queuedLeafSplits,
+                    runningLeafSplits,
+                    succinctNanos(scheduledNanos),
+                    succinctNanos(leafSplitTailNanos),
+                    succinctNanos(maxLeafSplitScheduledNanos),
+                    coreUtilization));
+        }
+        return queryStats.build();
+    }
+
     public String getMaxActiveSplitsInfo()
     {
         // Sample output:
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.executor;
+
+import com.facebook.presto.spi.QueryId;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.airlift.units.Duration;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scheduling statistics of the tasks of a single query that are currently registered with a {@link TaskExecutor}.
+ */
+public class TaskExecutorQueryStats
+{
+    private final QueryId queryId;
+    private final int tasks;
+    private final int queuedLeafSplits;
+    private final int runningLeafSplits;
+    private final Duration scheduledTime;
+    private final Duration leafSplitTailTime;
+    private final Duration maxLeafSplitScheduledTime;
+    private final double coreUtilization;
+
+    @JsonCreator
+    public TaskExecutorQueryStats(
+            @JsonProperty("queryId") QueryId queryId,
+            @JsonProperty("tasks") int tasks,
+            @JsonProperty("queuedLeafSplits") int queuedLeafSplits,
+            @JsonProperty("runningLeafSplits") int runningLeafSplits,
+            @JsonProperty("scheduledTime") Duration scheduledTime,
+            @JsonProperty("leafSplitTailTime") Duration leafSplitTailTime,
+            @JsonProperty("maxLeafSplitScheduledTime") Duration maxLeafSplitScheduledTime,
+            @JsonProperty("coreUtilization") double coreUtilization)
+    {
+        this.queryId = requireNonNull(queryId, "queryId is null");
+        this.tasks = tasks;
+        this.queuedLeafSplits = queuedLeafSplits;
+        this.runningLeafSplits = runningLeafSplits;
+        this.scheduledTime = requireNonNull(scheduledTime, "scheduledTime is null");
+        this.leafSplitTailTime = requireNonNull(leafSplitTailTime, "leafSplitTailTime is null");
+        this.maxLeafSplitScheduledTime = requireNonNull(maxLeafSplitScheduledTime, "maxLeafSplitScheduledTime is null");
+        this.coreUtilization = coreUtilization;
+    }
+
+    @JsonProperty
+    public QueryId getQueryId()
+    {
+        return queryId;
+    }
+
+    @JsonProperty
+    public int getTasks()
+    {
+        return tasks;
+    }
+
+    @JsonProperty
+    public int getQueuedLeafSplits()
+    {
+        return queuedLeafSplits;
+    }
+
+    @JsonProperty
+    public int getRunningLeafSplits()
+    {
+        return runningLeafSplits;
+    }
+
+    @JsonProperty
+    public Duration getScheduledTime()
+    {
+        return scheduledTime;
+    }
+
+    /**
+     * Wall time, summed over the tasks of the query, during which all leaf splits had been
+     * handed out but some of them were still running.
+     */
+    @JsonProperty
+    public Duration getLeafSplitTailTime()
+    {
+        return leafSplitTailTime;
+    }
+
+    @JsonProperty
+    public Duration getMaxLeafSplitScheduledTime()
+    {
+        return maxLeafSplitScheduledTime;
+    }
+
+    /**
+     * Fraction of the runner threads used by the query since its first task was registered.
+     */
+    @JsonProperty
+    public double getCoreUtilization()
+    {
+        return coreUtilization;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("queryId", queryId)
+                .add("tasks", tasks)
+                .add("queuedLeafSplits", queuedLeafSplits)
+                .add("runningLeafSplits", runningLeafSplits)
+                .add("scheduledTime", scheduledTime)
+                .add("leafSplitTailTime", leafSplitTailTime)
+                .add("maxLeafSplitScheduledTime", maxLeafSplitScheduledTime)
+                .add("coreUtilization", coreUtilization)
+                .toString();
+    }
+}
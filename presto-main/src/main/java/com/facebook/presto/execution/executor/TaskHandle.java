@@ -15,6 +15,7 @@ package com.facebook.presto.execution.executor;
 
 import com.facebook.presto.execution.SplitConcurrencyController;
 import com.facebook.presto.execution.TaskId;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import io.airlift.units.Duration;
 
@@ -54,13 +55,29 @@ public class TaskHandle
 
     private final AtomicInteger nextSplitId = new AtomicInteger();
 
+    private final Ticker ticker;
+    private final long createdNanos;
+    // the priority tracker may be shared by all tasks of a query, so the time of this task is recorded separately
+    @GuardedBy("this")
+    private long taskScheduledNanos;
+    // whether all leaf splits have been handed out but some are still running, and since when
+    @GuardedBy("this")
+    private boolean inTail;
+    @GuardedBy("this")
+    private long tailStartNanos;
+    @GuardedBy("this")
+    private long completedTailNanos;
+    @GuardedBy("this")
+    private long maxLeafSplitScheduledNanos;
+
     public TaskHandle(
             TaskId taskId,
             TaskPriorityTracker priorityTracker,
             DoubleSupplier utilizationSupplier,
             int initialSplitConcurrency,
             Duration splitConcurrencyAdjustFrequency,
-            OptionalInt maxDriversPerTask)
+            OptionalInt maxDriversPerTask,
+            Ticker ticker)
     {
         this.taskId = requireNonNull(taskId, "taskId is null");
         this.utilizationSupplier = requireNonNull(utilizationSupplier, "utilizationSupplier is null");
@@ -69,11 +86,14 @@ public class TaskHandle
         this.concurrencyController = new SplitConcurrencyController(
                 initialSplitConcurrency,
                 requireNonNull(splitConcurrencyAdjustFrequency, "splitConcurrencyAdjustFrequency is null"));
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.createdNanos = ticker.read();
     }
 
     public synchronized Priority addScheduledNanos(long durationNanos)
     {
         concurrencyController.update(durationNanos, utilizationSupplier.getAsDouble(), runningLeafSplits.size());
+        taskScheduledNanos += durationNanos;
         return priorityTracker.updatePriority(durationNanos);
     }
 
@@ -121,6 +141,7 @@ public class TaskHandle
     {
         checkState(!destroyed, "Cannot add split to destroyed task handle");
         queuedLeafSplits.add(split);
+        finishTail();
     }
 
     public synchronized void recordIntermediateSplit(PrioritizedSplitRunner split)
@@ -134,11 +155,44 @@ public class TaskHandle
         return runningLeafSplits.size();
     }
 
+    synchronized int getQueuedLeafSplits()
+    {
+        return queuedLeafSplits.size();
+    }
+
+    public long getCreatedNanos()
+    {
+        return createdNanos;
+    }
+
+    /**
+     * Wall time during which the task had no queued leaf splits left, but was still waiting
+     * for running leaf splits to finish. A long tail means a few slow splits kept the task alive
+     * while the other runner threads had nothing to do for it.
+     */
+    public synchronized long getLeafSplitTailNanos()
+    {
+        if (!inTail) {
+            return completedTailNanos;
+        }
+        return completedTailNanos + (ticker.read() - tailStartNanos);
+    }
+
+    public synchronized long getMaxLeafSplitScheduledNanos()
+    {
+        return maxLeafSplitScheduledNanos;
+    }
+
     public synchronized long getScheduledNanos()
     {
         return priorityTracker.getScheduledNanos();
     }
 
+    public synchronized long getTaskScheduledNanos()
+    {
+        return taskScheduledNanos;
+    }
+
     public synchronized PrioritizedSplitRunner pollNextSplit()
     {
         if (destroyed) {
@@ -152,6 +206,10 @@ public class TaskHandle
         PrioritizedSplitRunner split = queuedLeafSplits.poll();
         if (split != null) {
             runningLeafSplits.add(split);
+            if (queuedLeafSplits.isEmpty() && !inTail) {
+                inTail = true;
+                tailStartNanos = ticker.read();
+            }
         }
         return split;
     }
@@ -160,7 +218,21 @@ public class TaskHandle
     {
         concurrencyController.splitFinished(split.getScheduledNanos(), utilizationSupplier.getAsDouble(), runningLeafSplits.size());
         runningIntermediateSplits.remove(split);
-        runningLeafSplits.remove(split);
+        if (runningLeafSplits.remove(split)) {
+            maxLeafSplitScheduledNanos = Math.max(maxLeafSplitScheduledNanos, split.getScheduledNanos());
+            if (runningLeafSplits.isEmpty()) {
+                finishTail();
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void finishTail()
+    {
+        if (inTail) {
+            completedTailNanos += ticker.read() - tailStartNanos;
+            inTail = false;
+        }
     }
 
     public int getNextSplitId()
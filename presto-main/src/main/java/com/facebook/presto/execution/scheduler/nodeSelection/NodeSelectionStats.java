@@ -61,4 +61,18 @@ public class NodeSelectionStats
     {
         return nonPreferredNodeSelectedCount;
     }
+
+    /**
+     * Fraction of splits with preferred nodes that were scheduled on one of them.
+     */
+    @Managed
+    public double getPreferredNodeSelectedRate()
+    {
+        long preferred = primaryPreferredNodeSelectedCount.getTotalCount() + nonPrimaryPreferredNodeSelectedCount.getTotalCount();
+        long total = preferred + nonPreferredNodeSelectedCount.getTotalCount();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) preferred / total;
+    }
 }
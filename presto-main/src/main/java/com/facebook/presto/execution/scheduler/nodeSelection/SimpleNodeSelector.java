@@ -130,9 +130,9 @@ public class SimpleNodeSelector
 
         // todo identify if sorting will cause bottleneck
         List<HostAddress> sortedCandidates = sortedNodes(nodeMap);
-        OptionalInt preferredNodeCount = OptionalInt.empty();
         for (Split split : splits) {
             List<InternalNode> candidateNodes;
+            OptionalInt preferredNodeCount = OptionalInt.empty();
             switch (split.getNodeSelectionStrategy()) {
                 case HARD_AFFINITY:
                     candidateNodes = selectExactNodes(nodeMap, split.getPreferredNodes(sortedCandidates), includeCoordinator);
@@ -226,7 +226,9 @@ public class SimpleNodeSelector
         if (chosenNode == null) {
             return Optional.empty();
         }
-        nodeSelectionStats.incrementNonPreferredNodeSelectedCount();
+        if (preferredNodeCount.isPresent()) {
+            nodeSelectionStats.incrementNonPreferredNodeSelectedCount();
+        }
         return Optional.of(new InternalNodeInfo(chosenNode, false));
     }
 }
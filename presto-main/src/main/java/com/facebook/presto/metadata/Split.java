@@ -14,11 +14,13 @@
 package com.facebook.presto.metadata;
 
 import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorId;
 import com.facebook.presto.spi.ConnectorSplit;
 import com.facebook.presto.spi.HostAddress;
 import com.facebook.presto.spi.SplitContext;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.schedule.NodeSelectionStrategy;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -89,6 +91,11 @@ public final class Split
         return splitContext;
     }
 
+    public Split withDynamicFilter(TupleDomain<ColumnHandle> dynamicFilterPredicate)
+    {
+        return new Split(connectorId, transactionHandle, connectorSplit, lifespan, new SplitContext(splitContext.isCacheable(), dynamicFilterPredicate));
+    }
+
     public Object getInfo()
     {
         return connectorSplit.getInfo();
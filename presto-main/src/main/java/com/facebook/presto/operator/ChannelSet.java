@@ -15,11 +15,14 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -81,6 +84,11 @@ public class ChannelSet
         private final LocalMemoryContext localMemoryContext;
 
         public ChannelSetBuilder(Type type, Optional<Integer> hashChannel, int expectedPositions, OperatorContext operatorContext, JoinCompiler joinCompiler)
+        {
+            this(type, hashChannel, expectedPositions, operatorContext, joinCompiler, operatorContext.localUserMemoryContext());
+        }
+
+        public ChannelSetBuilder(Type type, Optional<Integer> hashChannel, int expectedPositions, OperatorContext operatorContext, JoinCompiler joinCompiler, LocalMemoryContext localMemoryContext)
         {
             List<Type> types = ImmutableList.of(type);
             this.hash = createGroupByHash(
@@ -93,7 +101,7 @@ public class ChannelSet
                     this::updateMemoryReservation);
             this.nullBlockPage = new Page(type.createBlockBuilder(null, 1, UNKNOWN.getFixedSize()).appendNull().build());
             this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
-            this.localMemoryContext = operatorContext.localUserMemoryContext();
+            this.localMemoryContext = requireNonNull(localMemoryContext, "localMemoryContext is null");
         }
 
         public ChannelSet build()
@@ -111,6 +119,33 @@ public class ChannelSet
             return hash.getGroupCount();
         }
 
+        /**
+         * Returns the distinct values added so far as single channel pages.
+         */
+        public Iterator<Page> buildPages()
+        {
+            PageBuilder pageBuilder = new PageBuilder(hash.getTypes());
+            return new AbstractIterator<Page>()
+            {
+                private int groupId;
+
+                @Override
+                protected Page computeNext()
+                {
+                    if (groupId == hash.getGroupCount()) {
+                        return endOfData();
+                    }
+                    pageBuilder.reset();
+                    while (!pageBuilder.isFull() && groupId < hash.getGroupCount()) {
+                        pageBuilder.declarePosition();
+                        hash.appendValuesTo(groupId, pageBuilder, 0);
+                        groupId++;
+                    }
+                    return new Page(pageBuilder.getBlockBuilder(0).build());
+                }
+            };
+        }
+
         public Work<?> addPage(Page page)
         {
             // Just add the page to the pending work, which will be processed later.
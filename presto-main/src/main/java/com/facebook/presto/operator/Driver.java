@@ -35,6 +35,7 @@ import javax.annotation.concurrent.GuardedBy;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -51,6 +52,7 @@ import static com.facebook.presto.util.MoreUninterruptibles.tryLockUninterruptib
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.lang.Boolean.TRUE;
 import static java.util.Objects.requireNonNull;
@@ -73,6 +75,8 @@ public class Driver
     private final List<Operator> allOperators;
     private final Optional<SourceOperator> sourceOperator;
     private final Optional<DeleteOperator> deleteOperator;
+    private final Operator outputOperator;
+    private final Optional<FragmentResultCacheContext> fragmentResultCacheContext;
 
     // This variable acts as a staging area. When new splits (encapsulated in TaskSource) are
     // provided to a Driver, the Driver will not process them right away. Instead, the splits are
@@ -90,16 +94,33 @@ public class Driver
 
     private final AtomicReference<SettableFuture<?>> driverBlockedFuture = new AtomicReference<>();
 
+    // pages of a cached fragment result that still have to be passed to the output operator
+    @GuardedBy("exclusiveLock")
+    private Optional<Iterator<Page>> cachedResult = Optional.empty();
+    // the split whose result is collected to be put into the fragment result cache
+    @GuardedBy("exclusiveLock")
+    private Optional<Split> splitToCache = Optional.empty();
+    @GuardedBy("exclusiveLock")
+    private final List<Page> resultToCache = new ArrayList<>();
+    @GuardedBy("exclusiveLock")
+    private long resultToCacheSizeInBytes;
+
     private enum State
     {
         ALIVE, NEED_DESTRUCTION, DESTROYED
     }
 
     public static Driver createDriver(DriverContext driverContext, List<Operator> operators)
+    {
+        return createDriver(driverContext, operators, Optional.empty());
+    }
+
+    public static Driver createDriver(DriverContext driverContext, List<Operator> operators, Optional<FragmentResultCacheContext> fragmentResultCacheContext)
     {
         requireNonNull(driverContext, "driverContext is null");
         requireNonNull(operators, "operators is null");
-        Driver driver = new Driver(driverContext, operators);
+        requireNonNull(fragmentResultCacheContext, "fragmentResultCacheContext is null");
+        Driver driver = new Driver(driverContext, operators, fragmentResultCacheContext);
         driver.initialize();
         return driver;
     }
@@ -117,11 +138,13 @@ public class Driver
         return createDriver(driverContext, operators);
     }
 
-    private Driver(DriverContext driverContext, List<Operator> operators)
+    private Driver(DriverContext driverContext, List<Operator> operators, Optional<FragmentResultCacheContext> fragmentResultCacheContext)
     {
         this.driverContext = requireNonNull(driverContext, "driverContext is null");
         this.allOperators = ImmutableList.copyOf(requireNonNull(operators, "operators is null"));
         checkArgument(allOperators.size() > 1, "At least two operators are required");
+        this.outputOperator = allOperators.get(allOperators.size() - 1);
+        this.fragmentResultCacheContext = requireNonNull(fragmentResultCacheContext, "fragmentResultCacheContext is null");
         this.activeOperators = new ArrayList<>(operators);
         checkArgument(!operators.isEmpty(), "There must be at least one operator");
 
@@ -243,8 +266,25 @@ public class Driver
         // determine new splits to add
         Set<ScheduledSplit> newSplits = Sets.difference(newSource.getSplits(), currentTaskSource.getSplits());
 
-        // add new splits
         SourceOperator sourceOperator = this.sourceOperator.orElseThrow(VerifyException::new);
+        if (fragmentResultCacheContext.isPresent() && isOnlySplit(newSource, newSplits)) {
+            Split split = getOnlyElement(newSplits).getSplit();
+            if (split.getConnectorSplit().getSplitIdentifier().isPresent()) {
+                FragmentResultCacheContext cacheContext = fragmentResultCacheContext.get();
+                cachedResult = cacheContext.getFragmentResultCacheManager().get(cacheContext.getPlanFingerprint(), split);
+                if (cachedResult.isPresent()) {
+                    // the split does not need to be processed, its result is replayed to the output operator
+                    sourceOperator.noMoreSplits();
+                    currentTaskSource = newSource;
+                    return;
+                }
+                if (cacheContext.getFragmentResultCacheManager().getMaxCachedEntrySize() > 0) {
+                    splitToCache = Optional.of(split);
+                }
+            }
+        }
+
+        // add new splits
         for (ScheduledSplit newSplit : newSplits) {
             Split split = newSplit.getSplit();
 
@@ -260,6 +300,13 @@ public class Driver
         currentTaskSource = newSource;
     }
 
+    // the result of a driver can only be cached if the driver processes exactly one split
+    @GuardedBy("exclusiveLock")
+    private boolean isOnlySplit(TaskSource newSource, Set<ScheduledSplit> newSplits)
+    {
+        return currentTaskSource.getSplits().isEmpty() && newSplits.size() == 1 && newSource.isNoMoreSplits();
+    }
+
     public ListenableFuture<?> processFor(Duration duration)
     {
         checkLockNotHeld("Can not process for a duration while holding the driver lock");
@@ -361,12 +408,20 @@ public class Driver
             // TODO remove the second part of the if statement, when these operators are fixed
             // Note: finish should not be called on the natural source of the pipeline as this could cause the task to finish early
             if (!activeOperators.isEmpty() && activeOperators.size() != allOperators.size()) {
-                Operator rootOperator = activeOperators.get(0);
-                rootOperator.finish();
-                rootOperator.getOperatorContext().recordFinish(operationTimer);
+                finishOperator(activeOperators.get(0), operationTimer);
             }
 
             boolean movedPage = false;
+            if (cachedResult.isPresent() && cachedResult.get().hasNext() && !outputOperator.isFinished() && !getBlockedFuture(outputOperator).isPresent() && outputOperator.needsInput()) {
+                Page page = cachedResult.get().next();
+                outputOperator.addInput(page);
+                outputOperator.getOperatorContext().recordAddInput(operationTimer, page);
+                movedPage = true;
+                if (!cachedResult.get().hasNext() && activeOperators.size() == 1) {
+                    finishOperator(outputOperator, operationTimer);
+                }
+            }
+
             for (int i = 0; i < activeOperators.size() - 1 && !driverContext.isDone(); i++) {
                 Operator current = activeOperators.get(i);
                 Operator next = activeOperators.get(i + 1);
@@ -384,8 +439,14 @@ public class Driver
 
                     // if we got an output page, add it to the next operator
                     if (page != null && page.getPositionCount() != 0) {
-                        next.addInput(page);
-                        next.getOperatorContext().recordAddInput(operationTimer, page);
+                        if (next != outputOperator || !cachedResult.isPresent()) {
+                            next.addInput(page);
+                            next.getOperatorContext().recordAddInput(operationTimer, page);
+                            if (next == outputOperator) {
+                                collectResultToCache(page);
+                            }
+                        }
+                        // otherwise the page is dropped, the output is replayed from the fragment result cache
                         movedPage = true;
                     }
 
@@ -396,9 +457,11 @@ public class Driver
 
                 // if current operator is finished...
                 if (current.isFinished()) {
+                    if (next == outputOperator) {
+                        putResultToCache();
+                    }
                     // let next operator know there will be no more data
-                    next.finish();
-                    next.getOperatorContext().recordFinish(operationTimer);
+                    finishOperator(next, operationTimer);
                 }
             }
 
@@ -414,9 +477,7 @@ public class Driver
                     }
                     // Finish the next operator, which is now the first operator.
                     if (!activeOperators.isEmpty()) {
-                        Operator newRootOperator = activeOperators.get(0);
-                        newRootOperator.finish();
-                        newRootOperator.getOperatorContext().recordFinish(operationTimer);
+                        finishOperator(activeOperators.get(0), operationTimer);
                     }
                     break;
                 }
@@ -468,6 +529,45 @@ public class Driver
         }
     }
 
+    @GuardedBy("exclusiveLock")
+    private void finishOperator(Operator operator, OperationTimer operationTimer)
+    {
+        if (operator == outputOperator && cachedResult.isPresent() && cachedResult.get().hasNext()) {
+            // the output operator still has to receive the rest of the cached result
+            return;
+        }
+        operator.finish();
+        operator.getOperatorContext().recordFinish(operationTimer);
+    }
+
+    @GuardedBy("exclusiveLock")
+    private void collectResultToCache(Page page)
+    {
+        if (!splitToCache.isPresent()) {
+            return;
+        }
+        resultToCacheSizeInBytes += page.getRetainedSizeInBytes();
+        if (resultToCacheSizeInBytes > fragmentResultCacheContext.get().getFragmentResultCacheManager().getMaxCachedEntrySize()) {
+            // the result is too large to be cached
+            splitToCache = Optional.empty();
+            resultToCache.clear();
+            return;
+        }
+        resultToCache.add(page);
+    }
+
+    @GuardedBy("exclusiveLock")
+    private void putResultToCache()
+    {
+        if (!splitToCache.isPresent()) {
+            return;
+        }
+        FragmentResultCacheContext cacheContext = fragmentResultCacheContext.get();
+        cacheContext.getFragmentResultCacheManager().put(cacheContext.getPlanFingerprint(), splitToCache.get(), ImmutableList.copyOf(resultToCache));
+        splitToCache = Optional.empty();
+        resultToCache.clear();
+    }
+
     @GuardedBy("exclusiveLock")
     private void handleMemoryRevoke()
     {
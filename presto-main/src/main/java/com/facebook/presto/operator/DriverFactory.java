@@ -14,6 +14,7 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.metadata.Split;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
@@ -39,12 +40,25 @@ public class DriverFactory
     private final Optional<PlanNodeId> sourceId;
     private final OptionalInt driverInstances;
     private final PipelineExecutionStrategy pipelineExecutionStrategy;
+    private final Optional<FragmentResultCacheContext> fragmentResultCacheContext;
 
     private boolean closed;
     private final Set<Lifespan> encounteredLifespans = new HashSet<>();
     private final Set<Lifespan> closedLifespans = new HashSet<>();
 
     public DriverFactory(int pipelineId, boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories, OptionalInt driverInstances, PipelineExecutionStrategy pipelineExecutionStrategy)
+    {
+        this(pipelineId, inputDriver, outputDriver, operatorFactories, driverInstances, pipelineExecutionStrategy, Optional.empty());
+    }
+
+    public DriverFactory(
+            int pipelineId,
+            boolean inputDriver,
+            boolean outputDriver,
+            List<OperatorFactory> operatorFactories,
+            OptionalInt driverInstances,
+            PipelineExecutionStrategy pipelineExecutionStrategy,
+            Optional<FragmentResultCacheContext> fragmentResultCacheContext)
     {
         this.pipelineId = pipelineId;
         this.inputDriver = inputDriver;
@@ -53,6 +67,7 @@ public class DriverFactory
         checkArgument(!operatorFactories.isEmpty(), "There must be at least one operator");
         this.driverInstances = requireNonNull(driverInstances, "driverInstances is null");
         this.pipelineExecutionStrategy = requireNonNull(pipelineExecutionStrategy, "pipelineExecutionStrategy is null");
+        this.fragmentResultCacheContext = requireNonNull(fragmentResultCacheContext, "fragmentResultCacheContext is null");
 
         List<PlanNodeId> sourceIds = operatorFactories.stream()
                 .filter(SourceOperatorFactory.class::isInstance)
@@ -103,6 +118,23 @@ public class DriverFactory
         return operatorFactories;
     }
 
+    public Optional<FragmentResultCacheContext> getFragmentResultCacheContext()
+    {
+        return fragmentResultCacheContext;
+    }
+
+    /**
+     * Notifies the source operator of this driver factory about a split that one of its drivers will process.
+     */
+    public void splitQueued(Split split)
+    {
+        for (OperatorFactory operatorFactory : operatorFactories) {
+            if (operatorFactory instanceof SourceOperatorFactory) {
+                ((SourceOperatorFactory) operatorFactory).splitQueued(split);
+            }
+        }
+    }
+
     public synchronized Driver createDriver(DriverContext driverContext)
     {
         checkState(!closed, "DriverFactory is already closed");
@@ -114,7 +146,7 @@ public class DriverFactory
             Operator operator = operatorFactory.createOperator(driverContext);
             operators.add(operator);
         }
-        return Driver.createDriver(driverContext, operators.build());
+        return Driver.createDriver(driverContext, operators.build(), fragmentResultCacheContext);
     }
 
     public synchronized void noMoreDrivers(Lifespan lifespan)
@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.RealType.REAL;
+import static com.facebook.presto.spi.type.TypeUtils.readNativeValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Passes its input through unchanged while collecting a summary of the values seen
+ * on the given channels. The summary is a set of distinct values while it is small,
+ * and degrades to a [min, max] range (or to "all" for unordered types) once the
+ * number of distinct values exceeds {@code maxDistinctValues}.
+ * <p>
+ * When the operator finishes, the collected domains are handed to the consumer,
+ * one domain per channel, in channel order.
+ */
+public class DynamicFilterSourceOperator
+        implements Operator
+{
+    public static class DynamicFilterSourceOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PlanNodeId planNodeId;
+        private final Consumer<List<Domain>> dynamicFilterConsumer;
+        private final List<Integer> channels;
+        private final List<Type> types;
+        private final int maxDistinctValues;
+        private boolean closed;
+
+        public DynamicFilterSourceOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Consumer<List<Domain>> dynamicFilterConsumer,
+                List<Integer> channels,
+                List<Type> types,
+                int maxDistinctValues)
+        {
+            this.operatorId = operatorId;
+            this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
+            this.dynamicFilterConsumer = requireNonNull(dynamicFilterConsumer, "dynamicFilterConsumer is null");
+            this.channels = ImmutableList.copyOf(requireNonNull(channels, "channels is null"));
+            this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+            checkArgument(channels.size() == types.size(), "channels and types must have the same size");
+            checkArgument(maxDistinctValues >= 0, "maxDistinctValues must not be negative");
+            this.maxDistinctValues = maxDistinctValues;
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, DynamicFilterSourceOperator.class.getSimpleName());
+            return new DynamicFilterSourceOperator(operatorContext, dynamicFilterConsumer, channels, types, maxDistinctValues);
+        }
+
+        @Override
+        public void noMoreOperators()
+        {
+            checkState(!closed, "Factory is already closed");
+            closed = true;
+        }
+
+        /**
+         * The consumer expects as many partitions as there are drivers in the build pipeline,
+         * so the drivers of a duplicate would report partitions it does not know about.
+         */
+        @Override
+        public OperatorFactory duplicate()
+        {
+            throw new UnsupportedOperationException("Dynamic filter source can not be duplicated");
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final Consumer<List<Domain>> dynamicFilterConsumer;
+    private final List<ChannelSummary> summaries;
+
+    private boolean finished;
+    private Page current;
+
+    public DynamicFilterSourceOperator(
+            OperatorContext operatorContext,
+            Consumer<List<Domain>> dynamicFilterConsumer,
+            List<Integer> channels,
+            List<Type> types,
+            int maxDistinctValues)
+    {
+        this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.dynamicFilterConsumer = requireNonNull(dynamicFilterConsumer, "dynamicFilterConsumer is null");
+        requireNonNull(channels, "channels is null");
+        requireNonNull(types, "types is null");
+        checkArgument(channels.size() == types.size(), "channels and types must have the same size");
+
+        List<ChannelSummary> summaries = new ArrayList<>(channels.size());
+        for (int i = 0; i < channels.size(); i++) {
+            summaries.add(new ChannelSummary(channels.get(i), types.get(i), maxDistinctValues));
+        }
+        this.summaries = summaries;
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return current == null && !finished;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        requireNonNull(page, "page is null");
+        checkState(needsInput(), "Operator did not expect any more data");
+        current = page;
+        for (ChannelSummary summary : summaries) {
+            summary.add(page);
+        }
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        Page result = current;
+        current = null;
+        return result;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        dynamicFilterConsumer.accept(summaries.stream()
+                .map(ChannelSummary::toDomain)
+                .collect(toImmutableList()));
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return current == null && finished;
+    }
+
+    private static class ChannelSummary
+    {
+        private final int channel;
+        private final Type type;
+        private final int maxDistinctValues;
+        private final boolean supported;
+
+        private Set<Object> values = new HashSet<>();
+        private Block min;
+        private Block max;
+        private boolean empty = true;
+
+        private ChannelSummary(int channel, Type type, int maxDistinctValues)
+        {
+            this.channel = channel;
+            this.type = requireNonNull(type, "type is null");
+            this.maxDistinctValues = maxDistinctValues;
+            // floating point equality does not agree with the type's ordering for NaN and -0.0
+            this.supported = !type.equals(DOUBLE) && !type.equals(REAL) && (type.isOrderable() || isHashableJavaType(type));
+            if (!isHashableJavaType(type)) {
+                values = null;
+            }
+        }
+
+        private void add(Page page)
+        {
+            if (!supported) {
+                return;
+            }
+
+            Block block = page.getBlock(channel);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                // null keys never match in an equi-join, so they are not part of the filter
+                if (block.isNull(position)) {
+                    continue;
+                }
+                empty = false;
+                if (type.isOrderable()) {
+                    if (min == null || type.compareTo(block, position, min, 0) < 0) {
+                        min = block.getSingleValueBlock(position);
+                    }
+                    if (max == null || type.compareTo(block, position, max, 0) > 0) {
+                        max = block.getSingleValueBlock(position);
+                    }
+                }
+                if (values != null) {
+                    values.add(readNativeValue(type, block, position));
+                    if (values.size() > maxDistinctValues) {
+                        values = null;
+                    }
+                }
+            }
+        }
+
+        private Domain toDomain()
+        {
+            if (!supported) {
+                return Domain.all(type);
+            }
+            if (empty) {
+                return Domain.none(type);
+            }
+            if (values != null) {
+                return Domain.multipleValues(type, ImmutableList.copyOf(values));
+            }
+            if (type.isOrderable()) {
+                return Domain.create(ValueSet.ofRanges(Range.range(type, readNativeValue(type, min, 0), true, readNativeValue(type, max, 0), true)), false);
+            }
+            return Domain.notNull(type);
+        }
+
+        private static boolean isHashableJavaType(Type type)
+        {
+            Class<?> javaType = type.getJavaType();
+            return type.isComparable() && (javaType == long.class || javaType == double.class || javaType == boolean.class || javaType == Slice.class);
+        }
+    }
+}
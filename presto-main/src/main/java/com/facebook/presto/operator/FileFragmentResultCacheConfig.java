@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.airlift.units.MaxDataSize;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.DAYS;
+
+public class FileFragmentResultCacheConfig
+{
+    private boolean cachingEnabled;
+    private String baseDirectory;
+    private DataSize maxCacheSize = new DataSize(10, GIGABYTE);
+    private DataSize maxCachedEntrySize = new DataSize(10, MEGABYTE);
+    private Duration cacheTtl = new Duration(2, DAYS);
+    private int writerThreads = 1;
+
+    public boolean isCachingEnabled()
+    {
+        return cachingEnabled;
+    }
+
+    @Config("fragment-result-cache.enabled")
+    @ConfigDescription("Enable caching the results of leaf plan fragments on local disk")
+    public FileFragmentResultCacheConfig setCachingEnabled(boolean cachingEnabled)
+    {
+        this.cachingEnabled = cachingEnabled;
+        return this;
+    }
+
+    public String getBaseDirectory()
+    {
+        return baseDirectory;
+    }
+
+    @Config("fragment-result-cache.base-directory")
+    @ConfigDescription("Local directory the cached fragment results are written to")
+    public FileFragmentResultCacheConfig setBaseDirectory(String baseDirectory)
+    {
+        this.baseDirectory = baseDirectory;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxCacheSize()
+    {
+        return maxCacheSize;
+    }
+
+    @Config("fragment-result-cache.max-cache-size")
+    @ConfigDescription("Maximum size of all cached fragment results, least recently used results are evicted first")
+    public FileFragmentResultCacheConfig setMaxCacheSize(DataSize maxCacheSize)
+    {
+        this.maxCacheSize = maxCacheSize;
+        return this;
+    }
+
+    @NotNull
+    @MaxDataSize("1GB")
+    public DataSize getMaxCachedEntrySize()
+    {
+        return maxCachedEntrySize;
+    }
+
+    @Config("fragment-result-cache.max-cached-entry-size")
+    @ConfigDescription("Fragment results of a single split larger than this are not cached")
+    public FileFragmentResultCacheConfig setMaxCachedEntrySize(DataSize maxCachedEntrySize)
+    {
+        this.maxCachedEntrySize = maxCachedEntrySize;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("0s")
+    public Duration getCacheTtl()
+    {
+        return cacheTtl;
+    }
+
+    @Config("fragment-result-cache.cache-ttl")
+    @ConfigDescription("Cached fragment results not accessed for this long are evicted")
+    public FileFragmentResultCacheConfig setCacheTtl(Duration cacheTtl)
+    {
+        this.cacheTtl = cacheTtl;
+        return this;
+    }
+
+    @Min(1)
+    public int getWriterThreads()
+    {
+        return writerThreads;
+    }
+
+    @Config("fragment-result-cache.writer-threads")
+    @ConfigDescription("Number of threads writing fragment results to the cache")
+    public FileFragmentResultCacheConfig setWriterThreads(int writerThreads)
+    {
+        this.writerThreads = writerThreads;
+        return this;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.execution.buffer.PagesSerdeFactory;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.facebook.presto.spi.page.PagesSerdeUtil;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceOutput;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.primitives.Ints.saturatedCast;
+import static java.lang.String.format;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.newDirectoryStream;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static java.util.Objects.requireNonNull;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Stores fragment results as files in a local directory. The index of the cached results
+ * is kept in memory, so the cache starts empty after a restart and files left over from a
+ * previous run are deleted.
+ */
+public class FileFragmentResultCacheManager
+        implements FragmentResultCacheManager
+{
+    private static final Logger log = Logger.get(FileFragmentResultCacheManager.class);
+
+    private static final String CACHE_FILE_SUFFIX = ".cache";
+    private static final String CACHE_FILE_GLOB = "*" + CACHE_FILE_SUFFIX;
+    private static final int BUFFER_SIZE = 4 * 1024;
+
+    private final Path baseDirectory;
+    private final long maxCachedEntrySize;
+    private final PagesSerdeFactory pagesSerdeFactory;
+    private final FragmentResultCacheStats stats;
+    private final ExecutorService flushExecutor;
+    private final Cache<CacheKey, CacheEntry> cache;
+
+    @Inject
+    public FileFragmentResultCacheManager(
+            FileFragmentResultCacheConfig config,
+            BlockEncodingSerde blockEncodingSerde,
+            FragmentResultCacheStats stats)
+    {
+        this(
+                requireNonNull(config, "config is null"),
+                blockEncodingSerde,
+                stats,
+                newFixedThreadPool(config.getWriterThreads(), daemonThreadsNamed("fragment-result-cache-writer-%s")));
+    }
+
+    @VisibleForTesting
+    FileFragmentResultCacheManager(
+            FileFragmentResultCacheConfig config,
+            BlockEncodingSerde blockEncodingSerde,
+            FragmentResultCacheStats stats,
+            ExecutorService flushExecutor)
+    {
+        requireNonNull(config, "config is null");
+        checkArgument(config.getBaseDirectory() != null, "fragment-result-cache.base-directory must be set when the fragment result cache is enabled");
+        this.baseDirectory = Paths.get(config.getBaseDirectory());
+        this.maxCachedEntrySize = config.getMaxCachedEntrySize().toBytes();
+        this.pagesSerdeFactory = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), true);
+        this.stats = requireNonNull(stats, "stats is null");
+        this.flushExecutor = requireNonNull(flushExecutor, "flushExecutor is null");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(config.getMaxCacheSize().toBytes())
+                .weigher((CacheKey key, CacheEntry entry) -> saturatedCast(entry.getSizeInBytes()))
+                .expireAfterAccess(config.getCacheTtl().toMillis(), MILLISECONDS)
+                .removalListener(this::removeCacheFile)
+                .build();
+
+        try {
+            createDirectories(baseDirectory);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(
+                    format("could not create fragment result cache directory %s; adjust fragment-result-cache.base-directory config property or filesystem permissions", baseDirectory), e);
+        }
+    }
+
+    @PostConstruct
+    public void cleanupOldCacheFiles()
+    {
+        try (DirectoryStream<Path> stream = newDirectoryStream(baseDirectory, CACHE_FILE_GLOB)) {
+            stream.forEach(cacheFile -> {
+                try {
+                    delete(cacheFile);
+                }
+                catch (IOException e) {
+                    log.warn("Could not cleanup old fragment result cache file: " + cacheFile);
+                }
+            });
+        }
+        catch (IOException e) {
+            log.warn(e, "Error cleaning fragment result cache directory %s", baseDirectory);
+        }
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        flushExecutor.shutdownNow();
+    }
+
+    @Override
+    public Optional<Iterator<Page>> get(String planFingerprint, Split split)
+    {
+        Optional<Object> splitIdentifier = split.getConnectorSplit().getSplitIdentifier();
+        if (!splitIdentifier.isPresent()) {
+            return Optional.empty();
+        }
+
+        CacheKey key = new CacheKey(planFingerprint, splitIdentifier.get());
+        CacheEntry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            stats.incrementCacheMiss();
+            return Optional.empty();
+        }
+
+        // read the whole result eagerly, so that an eviction racing with the reader cannot delete the file under it
+        try (InputStream input = newInputStream(entry.getPath())) {
+            Iterator<Page> pages = PagesSerdeUtil.readPages(pagesSerdeFactory.createPagesSerde(), new InputStreamSliceInput(input, BUFFER_SIZE));
+            List<Page> result = ImmutableList.copyOf(pages);
+            stats.incrementCacheHit();
+            return Optional.of(result.iterator());
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn(e, "Failed to read fragment result cache file %s", entry.getPath());
+            cache.invalidate(key);
+            stats.incrementCacheMiss();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(String planFingerprint, Split split, List<Page> result)
+    {
+        Optional<Object> splitIdentifier = split.getConnectorSplit().getSplitIdentifier();
+        if (!splitIdentifier.isPresent()) {
+            return;
+        }
+
+        CacheKey key = new CacheKey(planFingerprint, splitIdentifier.get());
+        List<Page> pages = ImmutableList.copyOf(result);
+        flushExecutor.execute(() -> flush(key, pages));
+    }
+
+    @Override
+    public long getMaxCachedEntrySize()
+    {
+        return maxCachedEntrySize;
+    }
+
+    private void flush(CacheKey key, List<Page> pages)
+    {
+        if (cache.getIfPresent(key) != null) {
+            // another task already cached the same result
+            return;
+        }
+
+        Path path = baseDirectory.resolve(randomUUID() + CACHE_FILE_SUFFIX);
+        long sizeInBytes;
+        try (SliceOutput output = new OutputStreamSliceOutput(newOutputStream(path), BUFFER_SIZE)) {
+            sizeInBytes = PagesSerdeUtil.writePages(pagesSerdeFactory.createPagesSerde(), output, pages.iterator());
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn(e, "Failed to write fragment result cache file %s", path);
+            stats.incrementCacheWriteFailures();
+            tryDelete(path);
+            return;
+        }
+
+        stats.addCacheEntry(sizeInBytes);
+        cache.put(key, new CacheEntry(path, sizeInBytes));
+    }
+
+    private void removeCacheFile(RemovalNotification<CacheKey, CacheEntry> notification)
+    {
+        CacheEntry entry = notification.getValue();
+        stats.removeCacheEntry(entry.getSizeInBytes());
+        tryDelete(entry.getPath());
+    }
+
+    private static void tryDelete(Path path)
+    {
+        try {
+            deleteIfExists(path);
+        }
+        catch (IOException e) {
+            log.warn(e, "Could not delete fragment result cache file %s", path);
+        }
+    }
+
+    private static class CacheKey
+    {
+        private final String planFingerprint;
+        private final Object splitIdentifier;
+
+        public CacheKey(String planFingerprint, Object splitIdentifier)
+        {
+            this.planFingerprint = requireNonNull(planFingerprint, "planFingerprint is null");
+            this.splitIdentifier = requireNonNull(splitIdentifier, "splitIdentifier is null");
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return planFingerprint.equals(other.planFingerprint) &&
+                    splitIdentifier.equals(other.splitIdentifier);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(planFingerprint, splitIdentifier);
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("planFingerprint", planFingerprint)
+                    .add("splitIdentifier", splitIdentifier)
+                    .toString();
+        }
+    }
+
+    private static class CacheEntry
+    {
+        private final Path path;
+        private final long sizeInBytes;
+
+        public CacheEntry(Path path, long sizeInBytes)
+        {
+            this.path = requireNonNull(path, "path is null");
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public Path getPath()
+        {
+            return path;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+    }
+}
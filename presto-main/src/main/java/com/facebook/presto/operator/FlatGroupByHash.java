@@ -0,0 +1,594 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.scalar.CombineHashFunction;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.DecimalType;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.type.TypeUtils;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.operator.UncheckedByteArrays.getByteUnchecked;
+import static com.facebook.presto.operator.UncheckedByteArrays.getLongUnchecked;
+import static com.facebook.presto.operator.UncheckedByteArrays.setByteUnchecked;
+import static com.facebook.presto.operator.UncheckedByteArrays.setLongUnchecked;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INSUFFICIENT_RESOURCES;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TimestampType.TIMESTAMP;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.facebook.presto.sql.planner.optimizations.HashGenerationOptimizer.INITIAL_HASH_VALUE;
+import static com.facebook.presto.util.HashCollisionsEstimator.estimateNumberOfHashCollisions;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static io.airlift.slice.SizeOf.sizeOfObjectArray;
+import static it.unimi.dsi.fastutil.HashCommon.arraySize;
+import static it.unimi.dsi.fastutil.HashCommon.murmurHash3;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Group by hash for keys that are all fixed width. Each group is stored as one row in a flat byte array:
+ * the raw hash, followed by the key values as longs and a null flag per key. Looking up a key only
+ * touches the hash table and the row of the candidate group, and the keys of a page are first copied
+ * into rows of the same layout, so that they can be compared word by word.
+ */
+// This implementation assumes arrays used in the hash are always a power of 2
+public class FlatGroupByHash
+        implements GroupByHash
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(FlatGroupByHash.class).instanceSize();
+    private static final float FILL_RATIO = 0.75f;
+
+    private static final int ROWS_PER_CHUNK_SHIFT = 12;
+    private static final int ROWS_PER_CHUNK = 1 << ROWS_PER_CHUNK_SHIFT;
+    private static final int ROWS_PER_CHUNK_MASK = ROWS_PER_CHUNK - 1;
+
+    private static final int HASH_OFFSET = 0;
+    private static final int VALUES_OFFSET = HASH_OFFSET + Long.BYTES;
+
+    private final List<Type> hashTypes;
+    private final List<Type> types;
+    private final Type[] keyTypes;
+    private final int[] channels;
+    private final Optional<Integer> inputHashChannel;
+
+    private final int nullsOffset;
+    private final int rowSize;
+
+    // rows of the groups, ROWS_PER_CHUNK groups per chunk
+    private byte[][] rowChunks = new byte[16][];
+    private long rowChunksSizeInBytes;
+
+    // row of the position being looked up by contains
+    private final byte[] lookupRow;
+
+    private int hashCapacity;
+    private int maxFill;
+    private int mask;
+    private int[] groupIdsByHash;
+    private byte[] rawHashByHashPosition;
+
+    private int nextGroupId;
+    private long hashCollisions;
+    private double expectedHashCollisions;
+
+    // reserve enough memory before rehash
+    private final UpdateMemory updateMemory;
+    private long preallocatedMemoryInBytes;
+    private long currentPageSizeInBytes;
+
+    public static boolean isSupportedKeyType(Type type)
+    {
+        // the keys are compared by their long representation, so this is only correct for
+        // types whose equality is the equality of that representation
+        return type.equals(BIGINT) ||
+                type.equals(INTEGER) ||
+                type.equals(SMALLINT) ||
+                type.equals(TINYINT) ||
+                type.equals(BOOLEAN) ||
+                type.equals(DATE) ||
+                type.equals(TIMESTAMP) ||
+                (type instanceof DecimalType && ((DecimalType) type).isShort());
+    }
+
+    public FlatGroupByHash(
+            List<? extends Type> hashTypes,
+            int[] hashChannels,
+            Optional<Integer> inputHashChannel,
+            int expectedSize,
+            UpdateMemory updateMemory)
+    {
+        this.hashTypes = ImmutableList.copyOf(requireNonNull(hashTypes, "hashTypes is null"));
+        requireNonNull(hashChannels, "hashChannels is null");
+        checkArgument(hashTypes.size() == hashChannels.length, "hashTypes and hashChannels have different sizes");
+        checkArgument(hashTypes.stream().allMatch(FlatGroupByHash::isSupportedKeyType), "unsupported key types: %s", hashTypes);
+        checkArgument(expectedSize > 0, "expectedSize must be greater than zero");
+
+        this.inputHashChannel = requireNonNull(inputHashChannel, "inputHashChannel is null");
+        this.types = inputHashChannel.isPresent() ? ImmutableList.copyOf(Iterables.concat(hashTypes, ImmutableList.of(BIGINT))) : this.hashTypes;
+        this.keyTypes = this.hashTypes.toArray(new Type[0]);
+        this.channels = hashChannels.clone();
+
+        this.nullsOffset = VALUES_OFFSET + channels.length * Long.BYTES;
+        this.rowSize = nullsOffset + channels.length;
+        this.lookupRow = new byte[rowSize];
+
+        // reserve memory for the arrays
+        hashCapacity = arraySize(expectedSize, FILL_RATIO);
+
+        maxFill = calculateMaxFill(hashCapacity);
+        mask = hashCapacity - 1;
+        groupIdsByHash = new int[hashCapacity];
+        Arrays.fill(groupIdsByHash, -1);
+        rawHashByHashPosition = new byte[hashCapacity];
+
+        // This interface is used for actively reserving memory (push model) for rehash.
+        // The caller can also query memory usage on this object (pull model)
+        this.updateMemory = requireNonNull(updateMemory, "updateMemory is null");
+    }
+
+    @Override
+    public long getRawHash(int groupId)
+    {
+        return getLongUnchecked(rowChunks[groupId >> ROWS_PER_CHUNK_SHIFT], rowOffset(groupId) + HASH_OFFSET);
+    }
+
+    @Override
+    public long getEstimatedSize()
+    {
+        return INSTANCE_SIZE +
+                sizeOfObjectArray(rowChunks.length) +
+                rowChunksSizeInBytes +
+                sizeOf(lookupRow) +
+                sizeOf(groupIdsByHash) +
+                sizeOf(rawHashByHashPosition) +
+                preallocatedMemoryInBytes;
+    }
+
+    @Override
+    public long getHashCollisions()
+    {
+        return hashCollisions;
+    }
+
+    @Override
+    public double getExpectedHashCollisions()
+    {
+        return expectedHashCollisions + estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public int getGroupCount()
+    {
+        return nextGroupId;
+    }
+
+    @Override
+    public void appendValuesTo(int groupId, PageBuilder pageBuilder, int outputChannelOffset)
+    {
+        byte[] chunk = rowChunks[groupId >> ROWS_PER_CHUNK_SHIFT];
+        int offset = rowOffset(groupId);
+        for (int i = 0; i < keyTypes.length; i++) {
+            BlockBuilder blockBuilder = pageBuilder.getBlockBuilder(outputChannelOffset + i);
+            if (getByteUnchecked(chunk, offset + nullsOffset + i) != 0) {
+                blockBuilder.appendNull();
+            }
+            else {
+                writeValue(keyTypes[i], blockBuilder, getLongUnchecked(chunk, offset + VALUES_OFFSET + i * Long.BYTES));
+            }
+        }
+        if (inputHashChannel.isPresent()) {
+            BIGINT.writeLong(pageBuilder.getBlockBuilder(outputChannelOffset + keyTypes.length), getLongUnchecked(chunk, offset + HASH_OFFSET));
+        }
+    }
+
+    @Override
+    public Work<?> addPage(Page page)
+    {
+        currentPageSizeInBytes = page.getRetainedSizeInBytes();
+        return new AddPageWork(page);
+    }
+
+    @Override
+    public Work<GroupByIdBlock> getGroupIds(Page page)
+    {
+        currentPageSizeInBytes = page.getRetainedSizeInBytes();
+        return new GetGroupIdsWork(page);
+    }
+
+    @Override
+    public boolean contains(int position, Page page, int[] hashChannels)
+    {
+        long rawHash = INITIAL_HASH_VALUE;
+        for (int i = 0; i < hashChannels.length; i++) {
+            rawHash = CombineHashFunction.getHash(rawHash, TypeUtils.hashPosition(keyTypes[i], page.getBlock(hashChannels[i]), position));
+        }
+        setLongUnchecked(lookupRow, HASH_OFFSET, rawHash);
+        for (int i = 0; i < hashChannels.length; i++) {
+            writeKey(lookupRow, 0, i, page.getBlock(hashChannels[i]), position);
+        }
+        return findGroupId(lookupRow, 0) >= 0;
+    }
+
+    @VisibleForTesting
+    @Override
+    public int getCapacity()
+    {
+        return hashCapacity;
+    }
+
+    /**
+     * Copies the keys and hashes of the first {@code positionCount} positions of the page into rows,
+     * one column at a time.
+     */
+    private byte[] createPageRows(Page page, int positionCount)
+    {
+        byte[] pageRows = new byte[positionCount * rowSize];
+
+        for (int i = 0; i < channels.length; i++) {
+            Block block = page.getBlock(channels[i]);
+            for (int position = 0, offset = 0; position < positionCount; position++, offset += rowSize) {
+                writeKey(pageRows, offset, i, block, position);
+            }
+        }
+
+        if (inputHashChannel.isPresent()) {
+            Block hashBlock = page.getBlock(inputHashChannel.get());
+            for (int position = 0, offset = 0; position < positionCount; position++, offset += rowSize) {
+                setLongUnchecked(pageRows, offset + HASH_OFFSET, BIGINT.getLong(hashBlock, position));
+            }
+        }
+        else {
+            for (int position = 0, offset = 0; position < positionCount; position++, offset += rowSize) {
+                long rawHash = INITIAL_HASH_VALUE;
+                for (int i = 0; i < channels.length; i++) {
+                    rawHash = CombineHashFunction.getHash(rawHash, TypeUtils.hashPosition(keyTypes[i], page.getBlock(channels[i]), position));
+                }
+                setLongUnchecked(pageRows, offset + HASH_OFFSET, rawHash);
+            }
+        }
+        return pageRows;
+    }
+
+    private void writeKey(byte[] rows, int rowOffset, int keyIndex, Block block, int position)
+    {
+        if (block.isNull(position)) {
+            // null keys have a zero value, so that rows can be compared without looking at the null flags first
+            setLongUnchecked(rows, rowOffset + VALUES_OFFSET + keyIndex * Long.BYTES, 0);
+            setByteUnchecked(rows, rowOffset + nullsOffset + keyIndex, (byte) 1);
+        }
+        else {
+            setLongUnchecked(rows, rowOffset + VALUES_OFFSET + keyIndex * Long.BYTES, readValue(keyTypes[keyIndex], block, position));
+            setByteUnchecked(rows, rowOffset + nullsOffset + keyIndex, (byte) 0);
+        }
+    }
+
+    private int putIfAbsent(byte[] rows, int offset)
+    {
+        long rawHash = getLongUnchecked(rows, offset + HASH_OFFSET);
+        int hashPosition = getHashPosition(rawHash, mask);
+
+        // look for an empty slot or a slot containing this key
+        while (groupIdsByHash[hashPosition] != -1) {
+            if (rawHashByHashPosition[hashPosition] == (byte) rawHash && rowEquals(groupIdsByHash[hashPosition], rows, offset)) {
+                // found an existing slot for this key
+                return groupIdsByHash[hashPosition];
+            }
+            // increment position and mask to handle wrap around
+            hashPosition = (hashPosition + 1) & mask;
+            hashCollisions++;
+        }
+
+        return addNewGroup(hashPosition, rows, offset, rawHash);
+    }
+
+    private int findGroupId(byte[] rows, int offset)
+    {
+        long rawHash = getLongUnchecked(rows, offset + HASH_OFFSET);
+        int hashPosition = getHashPosition(rawHash, mask);
+
+        while (groupIdsByHash[hashPosition] != -1) {
+            if (rawHashByHashPosition[hashPosition] == (byte) rawHash && rowEquals(groupIdsByHash[hashPosition], rows, offset)) {
+                return groupIdsByHash[hashPosition];
+            }
+            // increment position and mask to handle wrap around
+            hashPosition = (hashPosition + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean rowEquals(int groupId, byte[] rows, int offset)
+    {
+        byte[] chunk = rowChunks[groupId >> ROWS_PER_CHUNK_SHIFT];
+        int groupOffset = rowOffset(groupId);
+
+        // the full hash is compared first, as it is stored next to the values
+        int index = 0;
+        for (; index + Long.BYTES <= rowSize; index += Long.BYTES) {
+            if (getLongUnchecked(chunk, groupOffset + index) != getLongUnchecked(rows, offset + index)) {
+                return false;
+            }
+        }
+        for (; index < rowSize; index++) {
+            if (getByteUnchecked(chunk, groupOffset + index) != getByteUnchecked(rows, offset + index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addNewGroup(int hashPosition, byte[] rows, int offset, long rawHash)
+    {
+        int groupId = nextGroupId++;
+
+        int chunkIndex = groupId >> ROWS_PER_CHUNK_SHIFT;
+        if (chunkIndex == rowChunks.length) {
+            rowChunks = Arrays.copyOf(rowChunks, rowChunks.length * 2);
+        }
+        if (rowChunks[chunkIndex] == null) {
+            rowChunks[chunkIndex] = new byte[ROWS_PER_CHUNK * rowSize];
+            rowChunksSizeInBytes += sizeOf(rowChunks[chunkIndex]);
+        }
+        System.arraycopy(rows, offset, rowChunks[chunkIndex], rowOffset(groupId), rowSize);
+
+        // record group id in hash
+        groupIdsByHash[hashPosition] = groupId;
+        rawHashByHashPosition[hashPosition] = (byte) rawHash;
+
+        // increase capacity, if necessary
+        if (needRehash()) {
+            tryRehash();
+        }
+        return groupId;
+    }
+
+    private int rowOffset(int groupId)
+    {
+        return (groupId & ROWS_PER_CHUNK_MASK) * rowSize;
+    }
+
+    private boolean needRehash()
+    {
+        return nextGroupId >= maxFill;
+    }
+
+    private boolean tryRehash()
+    {
+        long newCapacityLong = hashCapacity * 2L;
+        if (newCapacityLong > Integer.MAX_VALUE) {
+            throw new PrestoException(GENERIC_INSUFFICIENT_RESOURCES, "Size of hash table cannot exceed 1 billion entries");
+        }
+        int newCapacity = toIntExact(newCapacityLong);
+
+        // An estimate of how much extra memory is needed before we can go ahead and expand the hash table.
+        // This includes the new capacity for groupIdsByHash and rawHashByHashPosition as well as the size of the current page
+        preallocatedMemoryInBytes = (newCapacity - hashCapacity) * (long) (Integer.BYTES + Byte.BYTES) + currentPageSizeInBytes;
+        if (!updateMemory.update()) {
+            // reserved memory but has exceeded the limit
+            return false;
+        }
+        preallocatedMemoryInBytes = 0;
+
+        expectedHashCollisions += estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
+
+        int newMask = newCapacity - 1;
+        int[] newGroupIds = new int[newCapacity];
+        Arrays.fill(newGroupIds, -1);
+        byte[] newRawHashes = new byte[newCapacity];
+
+        // the hashes are stored with the groups, so the old table does not have to be scanned
+        for (int groupId = 0; groupId < nextGroupId; groupId++) {
+            long rawHash = getRawHash(groupId);
+            int pos = getHashPosition(rawHash, newMask);
+            while (newGroupIds[pos] != -1) {
+                pos = (pos + 1) & newMask;
+                hashCollisions++;
+            }
+            newGroupIds[pos] = groupId;
+            newRawHashes[pos] = (byte) rawHash;
+        }
+
+        this.mask = newMask;
+        this.hashCapacity = newCapacity;
+        this.maxFill = calculateMaxFill(newCapacity);
+        this.groupIdsByHash = newGroupIds;
+        this.rawHashByHashPosition = newRawHashes;
+        return true;
+    }
+
+    private static long readValue(Type type, Block block, int position)
+    {
+        if (type == BOOLEAN) {
+            return type.getBoolean(block, position) ? 1 : 0;
+        }
+        return type.getLong(block, position);
+    }
+
+    private static void writeValue(Type type, BlockBuilder blockBuilder, long value)
+    {
+        if (type == BOOLEAN) {
+            type.writeBoolean(blockBuilder, value != 0);
+        }
+        else {
+            type.writeLong(blockBuilder, value);
+        }
+    }
+
+    private static int getHashPosition(long rawHash, int mask)
+    {
+        return (int) (murmurHash3(rawHash) & mask);
+    }
+
+    private static int calculateMaxFill(int hashSize)
+    {
+        checkArgument(hashSize > 0, "hashSize must be greater than 0");
+        int maxFill = (int) Math.ceil(hashSize * FILL_RATIO);
+        if (maxFill == hashSize) {
+            maxFill--;
+        }
+        checkArgument(hashSize > maxFill, "hashSize must be larger than maxFill");
+        return maxFill;
+    }
+
+    private boolean isRunLengthEncoded(Page page)
+    {
+        for (int channel : channels) {
+            if (!(page.getBlock(channel) instanceof RunLengthEncodedBlock)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class AddPageWork
+            implements Work<Void>
+    {
+        private final int positionCount;
+        private final byte[] pageRows;
+
+        private int lastPosition;
+
+        public AddPageWork(Page page)
+        {
+            requireNonNull(page, "page is null");
+            // only the first row of a run length encoded page has to be added
+            this.positionCount = isRunLengthEncoded(page) ? Math.min(page.getPositionCount(), 1) : page.getPositionCount();
+            this.pageRows = createPageRows(page, positionCount);
+        }
+
+        @Override
+        public boolean process()
+        {
+            checkState(lastPosition <= positionCount, "position count out of bound");
+            if (lastPosition == positionCount) {
+                return true;
+            }
+
+            // needRehash() == false indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // putIfAbsent will rehash automatically if rehash is needed, unless there isn't enough memory to do so.
+            // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
+            while (lastPosition < positionCount && !needRehash()) {
+                putIfAbsent(pageRows, lastPosition * rowSize);
+                lastPosition++;
+            }
+            return lastPosition == positionCount;
+        }
+
+        @Override
+        public Void getResult()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class GetGroupIdsWork
+            implements Work<GroupByIdBlock>
+    {
+        private final int pagePositionCount;
+        private final boolean runLengthEncoded;
+        private final int positionCount;
+        private final byte[] pageRows;
+        private final long[] groupIds;
+
+        private boolean finished;
+        private int lastPosition;
+
+        public GetGroupIdsWork(Page page)
+        {
+            requireNonNull(page, "page is null");
+            this.pagePositionCount = page.getPositionCount();
+            this.runLengthEncoded = isRunLengthEncoded(page);
+            // only the first row of a run length encoded page has to be looked up
+            this.positionCount = runLengthEncoded ? Math.min(pagePositionCount, 1) : pagePositionCount;
+            this.pageRows = createPageRows(page, positionCount);
+            this.groupIds = new long[positionCount];
+        }
+
+        @Override
+        public boolean process()
+        {
+            checkState(lastPosition <= positionCount, "position count out of bound");
+            checkState(!finished);
+            if (lastPosition == positionCount) {
+                return true;
+            }
+
+            // needRehash() == false indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // putIfAbsent will rehash automatically if rehash is needed, unless there isn't enough memory to do so.
+            // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
+            while (lastPosition < positionCount && !needRehash()) {
+                groupIds[lastPosition] = putIfAbsent(pageRows, lastPosition * rowSize);
+                lastPosition++;
+            }
+            return lastPosition == positionCount;
+        }
+
+        @Override
+        public GroupByIdBlock getResult()
+        {
+            checkState(lastPosition == positionCount, "process has not yet finished");
+            checkState(!finished, "result has produced");
+            finished = true;
+
+            if (runLengthEncoded) {
+                long groupId = positionCount == 0 ? -1 : groupIds[0];
+                return new GroupByIdBlock(
+                        nextGroupId,
+                        new RunLengthEncodedBlock(
+                                BIGINT.createFixedSizeBlockBuilder(1).writeLong(groupId).build(),
+                                pagePositionCount));
+            }
+
+            BlockBuilder blockBuilder = BIGINT.createFixedSizeBlockBuilder(positionCount);
+            for (int position = 0; position < positionCount; position++) {
+                BIGINT.writeLong(blockBuilder, groupIds[position]);
+            }
+            return new GroupByIdBlock(nextGroupId, blockBuilder.build());
+        }
+    }
+}
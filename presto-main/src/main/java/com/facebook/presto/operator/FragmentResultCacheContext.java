@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.airlift.json.JsonCodec;
+import com.facebook.presto.Session;
+import com.facebook.presto.spi.function.SqlFunctionProperties;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.TreeMap;
+
+import static com.google.common.hash.Hashing.sha256;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+public class FragmentResultCacheContext
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    // the transaction handles differ between queries, but don't change the result of a fragment
+    private static final String TRANSACTION_FIELD = "transaction";
+
+    private final FragmentResultCacheManager fragmentResultCacheManager;
+    private final String planFingerprint;
+
+    public FragmentResultCacheContext(FragmentResultCacheManager fragmentResultCacheManager, String planFingerprint)
+    {
+        this.fragmentResultCacheManager = requireNonNull(fragmentResultCacheManager, "fragmentResultCacheManager is null");
+        this.planFingerprint = requireNonNull(planFingerprint, "planFingerprint is null");
+    }
+
+    public FragmentResultCacheManager getFragmentResultCacheManager()
+    {
+        return fragmentResultCacheManager;
+    }
+
+    public String getPlanFingerprint()
+    {
+        return planFingerprint;
+    }
+
+    /**
+     * The fingerprint is a hash of the JSON representation of the fragment and its output layout,
+     * and of the session state expressions can depend on, so two fragments only share cached
+     * results if they serialize to the same plan and run with the same session settings.
+     */
+    public static String computePlanFingerprint(JsonCodec<PlanNode> planCodec, PlanNode plan, List<VariableReferenceExpression> outputLayout, Session session)
+    {
+        JsonNode planJson;
+        try {
+            planJson = OBJECT_MAPPER.readTree(planCodec.toJson(plan));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        removeTransactionHandles(planJson);
+        return sha256()
+                .newHasher()
+                .putString(planJson.toString(), UTF_8)
+                .putString(outputLayout.toString(), UTF_8)
+                .putString(getSessionFingerprint(session), UTF_8)
+                .hash()
+                .toString();
+    }
+
+    // the session start time is left out, fragments calling functions that return it are not cached
+    private static String getSessionFingerprint(Session session)
+    {
+        SqlFunctionProperties properties = session.getSqlFunctionProperties();
+        StringBuilder fingerprint = new StringBuilder()
+                .append(properties.getSessionUser()).append('\n')
+                .append(properties.getTimeZoneKey()).append('\n')
+                .append(properties.getSessionLocale()).append('\n')
+                .append(properties.isLegacyTimestamp()).append('\n')
+                .append(properties.isLegacyMapSubscript()).append('\n')
+                .append(properties.isLegacyRowFieldOrdinalAccessEnabled()).append('\n')
+                .append(properties.isParseDecimalLiteralAsDouble()).append('\n')
+                .append(new TreeMap<>(session.getSystemProperties())).append('\n');
+        session.getConnectorProperties().entrySet().stream()
+                .sorted((first, second) -> first.getKey().toString().compareTo(second.getKey().toString()))
+                .forEach(entry -> fingerprint.append(entry.getKey()).append(new TreeMap<>(entry.getValue())).append('\n'));
+        return fingerprint.toString();
+    }
+
+    private static void removeTransactionHandles(JsonNode node)
+    {
+        if (node.isObject()) {
+            ((ObjectNode) node).remove(TRANSACTION_FIELD);
+        }
+        node.forEach(FragmentResultCacheContext::removeTransactionHandles);
+    }
+}
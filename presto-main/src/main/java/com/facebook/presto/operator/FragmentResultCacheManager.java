@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.Page;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Caches the output of leaf plan fragments per split, so that a later task running the
+ * same fragment over the same split can replay the pages instead of processing the split.
+ */
+public interface FragmentResultCacheManager
+{
+    Optional<Iterator<Page>> get(String planFingerprint, Split split);
+
+    /**
+     * Stores the result asynchronously. Storing is best effort: the result may be dropped,
+     * e.g. if it is larger than {@link #getMaxCachedEntrySize()}.
+     */
+    void put(String planFingerprint, Split split, List<Page> result);
+
+    /**
+     * Results with a larger retained size are not cached, so callers can stop collecting them early.
+     */
+    long getMaxCachedEntrySize();
+}
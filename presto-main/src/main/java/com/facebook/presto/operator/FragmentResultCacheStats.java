@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import org.weakref.jmx.Managed;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FragmentResultCacheStats
+{
+    private final AtomicLong cacheHit = new AtomicLong();
+    private final AtomicLong cacheMiss = new AtomicLong();
+    private final AtomicLong cacheEntries = new AtomicLong();
+    private final AtomicLong cacheSizeInBytes = new AtomicLong();
+    private final AtomicLong cacheWriteFailures = new AtomicLong();
+
+    public void incrementCacheHit()
+    {
+        cacheHit.incrementAndGet();
+    }
+
+    public void incrementCacheMiss()
+    {
+        cacheMiss.incrementAndGet();
+    }
+
+    public void addCacheEntry(long sizeInBytes)
+    {
+        cacheEntries.incrementAndGet();
+        cacheSizeInBytes.addAndGet(sizeInBytes);
+    }
+
+    public void removeCacheEntry(long sizeInBytes)
+    {
+        cacheEntries.decrementAndGet();
+        cacheSizeInBytes.addAndGet(-sizeInBytes);
+    }
+
+    public void incrementCacheWriteFailures()
+    {
+        cacheWriteFailures.incrementAndGet();
+    }
+
+    @Managed
+    public long getCacheHit()
+    {
+        return cacheHit.get();
+    }
+
+    @Managed
+    public long getCacheMiss()
+    {
+        return cacheMiss.get();
+    }
+
+    @Managed
+    public long getCacheEntries()
+    {
+        return cacheEntries.get();
+    }
+
+    @Managed
+    public long getCacheSizeInBytes()
+    {
+        return cacheSizeInBytes.get();
+    }
+
+    @Managed
+    public long getCacheWriteFailures()
+    {
+        return cacheWriteFailures.get();
+    }
+}
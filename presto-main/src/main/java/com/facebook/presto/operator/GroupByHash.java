@@ -52,6 +52,10 @@ public interface GroupByHash
         if (hashTypes.size() == 1 && hashTypes.get(0).equals(BIGINT) && hashChannels.length == 1) {
             return new BigintGroupByHash(hashChannels[0], inputHashChannel.isPresent(), expectedSize, updateMemory);
         }
+        // a single dictionary encoded key is better served by the dictionary processing of MultiChannelGroupByHash
+        if (hashTypes.stream().allMatch(FlatGroupByHash::isSupportedKeyType) && !(processDictionary && hashChannels.length == 1)) {
+            return new FlatGroupByHash(hashTypes, hashChannels, inputHashChannel, expectedSize, updateMemory);
+        }
         return new MultiChannelGroupByHash(hashTypes, hashChannels, inputHashChannel, expectedSize, processDictionary, joinCompiler, updateMemory);
     }
 
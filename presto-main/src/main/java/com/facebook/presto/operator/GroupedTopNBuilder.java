@@ -22,7 +22,9 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
 import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
@@ -104,7 +106,35 @@ public class GroupedTopNBuilder
 
     public Iterator<Page> buildResult()
     {
-        return new ResultIterator();
+        return new ResultIterator(IntStream.range(0, groupByHash.getGroupCount()).toArray(), produceRowNumber);
+    }
+
+    /**
+     * Builds the rows of all groups without row numbers, with the groups ordered by the hash
+     * {@param hashGenerator} computes for their rows. Groups with equal keys that were built
+     * separately thus end up in the same order and can be merged by hash.
+     */
+    public Iterator<Page> buildHashSortedResult(HashGenerator hashGenerator)
+    {
+        requireNonNull(hashGenerator, "hashGenerator is null");
+        int groupCount = groupByHash.getGroupCount();
+        long[] hashes = new long[groupCount];
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            RowHeap rows = groupedRows.get(groupId);
+            verify(rows != null && !rows.isEmpty(), "impossible to have inserted a group without a witness row");
+            Row row = rows.first();
+            hashes[groupId] = hashGenerator.hashPosition(row.getPosition(), pageReferences.get(row.getPageId()).getPage());
+        }
+        int[] groupIds = IntStream.range(0, groupCount).toArray();
+        IntArrays.quickSort(groupIds, new AbstractIntComparator()
+        {
+            @Override
+            public int compare(int left, int right)
+            {
+                return Long.compare(hashes[left], hashes[right]);
+            }
+        });
+        return new ResultIterator(groupIds, false);
     }
 
     public long getEstimatedSizeInBytes()
@@ -376,8 +406,9 @@ public class GroupedTopNBuilder
             extends AbstractIterator<Page>
     {
         private final PageBuilder pageBuilder;
-        // we may have 0 groups if there is no input page processed
-        private final int groupCount = groupByHash.getGroupCount();
+        // the order in which the groups are produced; we may have 0 groups if there is no input page processed
+        private final int[] groupIds;
+        private final boolean outputRowNumber;
 
         private int currentGroupNumber;
         private long currentGroupSizeInBytes;
@@ -387,11 +418,14 @@ public class GroupedTopNBuilder
         // number of rows in the group
         private int currentGroupSize;
 
-        private ObjectBigArray<Row> currentRows = nextGroupedRows();
+        private ObjectBigArray<Row> currentRows;
 
-        ResultIterator()
+        ResultIterator(int[] groupIds, boolean outputRowNumber)
         {
-            if (produceRowNumber) {
+            this.groupIds = requireNonNull(groupIds, "groupIds is null");
+            this.outputRowNumber = outputRowNumber;
+            this.currentRows = nextGroupedRows();
+            if (outputRowNumber) {
                 pageBuilder = new PageBuilder(new ImmutableList.Builder<Type>().addAll(sourceTypes).add(BIGINT).build());
             }
             else {
@@ -421,7 +455,7 @@ public class GroupedTopNBuilder
                     sourceTypes.get(i).appendTo(pageReferences.get(row.getPageId()).getPage().getBlock(i), row.getPosition(), pageBuilder.getBlockBuilder(i));
                 }
 
-                if (produceRowNumber) {
+                if (outputRowNumber) {
                     BIGINT.writeLong(pageBuilder.getBlockBuilder(sourceTypes.size()), currentGroupPosition + 1);
                 }
                 pageBuilder.declarePosition();
@@ -444,10 +478,11 @@ public class GroupedTopNBuilder
 
         private ObjectBigArray<Row> nextGroupedRows()
         {
-            if (currentGroupNumber < groupCount) {
-                RowHeap rows = groupedRows.get(currentGroupNumber);
+            if (currentGroupNumber < groupIds.length) {
+                int groupId = groupIds[currentGroupNumber];
+                RowHeap rows = groupedRows.get(groupId);
                 verify(rows != null && !rows.isEmpty(), "impossible to have inserted a group without a witness row");
-                groupedRows.set(currentGroupNumber, null);
+                groupedRows.set(groupId, null);
                 currentGroupSizeInBytes = rows.getEstimatedSizeInBytes();
                 currentGroupNumber++;
                 currentGroupSize = rows.size();
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.util.Mergeable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+public class HashAggregationInfo
+        implements Mergeable<HashAggregationInfo>, OperatorInfo
+{
+    private final HashCollisionsInfo hashCollisionsInfo;
+    // rows converted to intermediate state without being aggregated, because partial aggregation was bypassed
+    private final long passThroughPositions;
+
+    @JsonCreator
+    public HashAggregationInfo(
+            @JsonProperty("hashCollisionsInfo") HashCollisionsInfo hashCollisionsInfo,
+            @JsonProperty("passThroughPositions") long passThroughPositions)
+    {
+        this.hashCollisionsInfo = requireNonNull(hashCollisionsInfo, "hashCollisionsInfo is null");
+        this.passThroughPositions = passThroughPositions;
+    }
+
+    @JsonProperty
+    public HashCollisionsInfo getHashCollisionsInfo()
+    {
+        return hashCollisionsInfo;
+    }
+
+    @JsonProperty
+    public long getPassThroughPositions()
+    {
+        return passThroughPositions;
+    }
+
+    @Override
+    public HashAggregationInfo mergeWith(HashAggregationInfo other)
+    {
+        return new HashAggregationInfo(
+                hashCollisionsInfo.mergeWith(other.getHashCollisionsInfo()),
+                passThroughPositions + other.getPassThroughPositions());
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("hashCollisionsInfo", hashCollisionsInfo)
+                .add("passThroughPositions", passThroughPositions)
+                .toString();
+    }
+}
@@ -15,12 +15,16 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.operator.aggregation.Accumulator;
 import com.facebook.presto.operator.aggregation.AccumulatorFactory;
+import com.facebook.presto.operator.aggregation.GroupedAccumulator;
 import com.facebook.presto.operator.aggregation.builder.HashAggregationBuilder;
 import com.facebook.presto.operator.aggregation.builder.InMemoryHashAggregationBuilder;
 import com.facebook.presto.operator.aggregation.builder.SpillableHashAggregationBuilder;
 import com.facebook.presto.operator.scalar.CombineHashFunction;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.LongArrayBlock;
 import com.facebook.presto.spi.plan.AggregationNode.Step;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.BigintType;
@@ -39,6 +43,7 @@ import java.util.stream.Collectors;
 import static com.facebook.presto.operator.aggregation.builder.InMemoryHashAggregationBuilder.toTypes;
 import static com.facebook.presto.sql.planner.optimizations.HashGenerationOptimizer.INITIAL_HASH_VALUE;
 import static com.facebook.presto.type.TypeUtils.NULL_HASH_CODE;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
@@ -65,6 +70,7 @@ public class HashAggregationOperator
 
         private final int expectedGroups;
         private final Optional<DataSize> maxPartialMemory;
+        private final Optional<PartialAggregationController> partialAggregationController;
         private final boolean spillEnabled;
         private final DataSize memoryLimitForMerge;
         private final DataSize memoryLimitForMergeWithMemory;
@@ -125,6 +131,7 @@ public class HashAggregationOperator
                 Optional<Integer> groupIdChannel,
                 int expectedGroups,
                 Optional<DataSize> maxPartialMemory,
+                Optional<PartialAggregationController> partialAggregationController,
                 boolean spillEnabled,
                 DataSize unspillMemoryLimit,
                 SpillerFactory spillerFactory,
@@ -143,6 +150,7 @@ public class HashAggregationOperator
                     groupIdChannel,
                     expectedGroups,
                     maxPartialMemory,
+                    partialAggregationController,
                     spillEnabled,
                     unspillMemoryLimit,
                     DataSize.succinctBytes((long) (unspillMemoryLimit.toBytes() * MERGE_WITH_MEMORY_RATIO)),
@@ -171,6 +179,48 @@ public class HashAggregationOperator
                 SpillerFactory spillerFactory,
                 JoinCompiler joinCompiler,
                 boolean useSystemMemory)
+        {
+            this(operatorId,
+                    planNodeId,
+                    groupByTypes,
+                    groupByChannels,
+                    globalAggregationGroupIds,
+                    step,
+                    produceDefaultOutput,
+                    accumulatorFactories,
+                    hashChannel,
+                    groupIdChannel,
+                    expectedGroups,
+                    maxPartialMemory,
+                    Optional.empty(),
+                    spillEnabled,
+                    memoryLimitForMerge,
+                    memoryLimitForMergeWithMemory,
+                    spillerFactory,
+                    joinCompiler,
+                    useSystemMemory);
+        }
+
+        private HashAggregationOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> groupByTypes,
+                List<Integer> groupByChannels,
+                List<Integer> globalAggregationGroupIds,
+                Step step,
+                boolean produceDefaultOutput,
+                List<AccumulatorFactory> accumulatorFactories,
+                Optional<Integer> hashChannel,
+                Optional<Integer> groupIdChannel,
+                int expectedGroups,
+                Optional<DataSize> maxPartialMemory,
+                Optional<PartialAggregationController> partialAggregationController,
+                boolean spillEnabled,
+                DataSize memoryLimitForMerge,
+                DataSize memoryLimitForMergeWithMemory,
+                SpillerFactory spillerFactory,
+                JoinCompiler joinCompiler,
+                boolean useSystemMemory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -184,6 +234,8 @@ public class HashAggregationOperator
             this.accumulatorFactories = ImmutableList.copyOf(accumulatorFactories);
             this.expectedGroups = expectedGroups;
             this.maxPartialMemory = requireNonNull(maxPartialMemory, "maxPartialMemory is null");
+            this.partialAggregationController = requireNonNull(partialAggregationController, "partialAggregationController is null");
+            checkArgument(!partialAggregationController.isPresent() || step == Step.PARTIAL, "partialAggregationController is only supported for partial aggregations");
             this.spillEnabled = spillEnabled;
             this.memoryLimitForMerge = requireNonNull(memoryLimitForMerge, "memoryLimitForMerge is null");
             this.memoryLimitForMergeWithMemory = requireNonNull(memoryLimitForMergeWithMemory, "memoryLimitForMergeWithMemory is null");
@@ -210,6 +262,7 @@ public class HashAggregationOperator
                     groupIdChannel,
                     expectedGroups,
                     maxPartialMemory,
+                    partialAggregationController,
                     spillEnabled,
                     memoryLimitForMerge,
                     memoryLimitForMergeWithMemory,
@@ -241,6 +294,7 @@ public class HashAggregationOperator
                     groupIdChannel,
                     expectedGroups,
                     maxPartialMemory,
+                    partialAggregationController,
                     spillEnabled,
                     memoryLimitForMerge,
                     memoryLimitForMergeWithMemory,
@@ -261,6 +315,7 @@ public class HashAggregationOperator
     private final Optional<Integer> groupIdChannel;
     private final int expectedGroups;
     private final Optional<DataSize> maxPartialMemory;
+    private final Optional<PartialAggregationController> partialAggregationController;
     private final boolean spillEnabled;
     private final DataSize memoryLimitForMerge;
     private final DataSize memoryLimitForMergeWithMemory;
@@ -273,6 +328,10 @@ public class HashAggregationOperator
 
     private HashAggregationBuilder aggregationBuilder;
     private WorkProcessor<Page> outputPages;
+    // input rows added to the current aggregationBuilder
+    private long aggregationInputPositions;
+    private Page passThroughPage;
+    private long passThroughPositions;
     private boolean inputProcessed;
     private boolean finishing;
     private boolean finished;
@@ -292,6 +351,7 @@ public class HashAggregationOperator
             Optional<Integer> groupIdChannel,
             int expectedGroups,
             Optional<DataSize> maxPartialMemory,
+            Optional<PartialAggregationController> partialAggregationController,
             boolean spillEnabled,
             DataSize memoryLimitForMerge,
             DataSize memoryLimitForMergeWithMemory,
@@ -314,6 +374,7 @@ public class HashAggregationOperator
         this.produceDefaultOutput = produceDefaultOutput;
         this.expectedGroups = expectedGroups;
         this.maxPartialMemory = requireNonNull(maxPartialMemory, "maxPartialMemory is null");
+        this.partialAggregationController = requireNonNull(partialAggregationController, "partialAggregationController is null");
         this.types = toTypes(groupByTypes, step, accumulatorFactories, hashChannel);
         this.spillEnabled = spillEnabled;
         this.memoryLimitForMerge = requireNonNull(memoryLimitForMerge, "memoryLimitForMerge is null");
@@ -321,7 +382,7 @@ public class HashAggregationOperator
         this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
         this.hashCollisionsCounter = new HashCollisionsCounter(operatorContext);
-        operatorContext.setInfoSupplier(hashCollisionsCounter);
+        operatorContext.setInfoSupplier(() -> new HashAggregationInfo(hashCollisionsCounter.get(), passThroughPositions));
         this.useSystemMemory = useSystemMemory;
     }
 
@@ -346,7 +407,7 @@ public class HashAggregationOperator
     @Override
     public boolean needsInput()
     {
-        if (finishing || outputPages != null) {
+        if (finishing || outputPages != null || passThroughPage != null) {
             return false;
         }
         else if (aggregationBuilder != null && aggregationBuilder.isFull()) {
@@ -365,6 +426,12 @@ public class HashAggregationOperator
         requireNonNull(page, "page is null");
         inputProcessed = true;
 
+        if (aggregationBuilder == null && isPartialAggregationDisabled()) {
+            passThroughPage = toIntermediatePage(page);
+            passThroughPositions += page.getPositionCount();
+            return;
+        }
+
         if (aggregationBuilder == null) {
             // TODO: We ignore spillEnabled here if any aggregate has ORDER BY clause or DISTINCT because they are not yet implemented for spilling.
             if (step.isOutputPartial() || !spillEnabled || hasOrderBy() || hasDistinct()) {
@@ -405,12 +472,51 @@ public class HashAggregationOperator
 
         // process the current page; save the unfinished work if we are waiting for memory
         unfinishedWork = aggregationBuilder.processPage(page);
+        aggregationInputPositions += page.getPositionCount();
         if (unfinishedWork.process()) {
             unfinishedWork = null;
         }
         aggregationBuilder.updateMemory();
     }
 
+    private boolean isPartialAggregationDisabled()
+    {
+        return partialAggregationController.isPresent() && partialAggregationController.get().isPartialAggregationDisabled() && !hasOrderBy() && !hasDistinct();
+    }
+
+    /**
+     * Converts raw input rows to the output of a partial aggregation without grouping them,
+     * i.e. every row becomes its own group.
+     */
+    private Page toIntermediatePage(Page page)
+    {
+        int positionCount = page.getPositionCount();
+        Block[] blocks = new Block[types.size()];
+        int channel = 0;
+        for (int groupByChannel : groupByChannels) {
+            blocks[channel++] = page.getBlock(groupByChannel);
+        }
+        if (hashChannel.isPresent()) {
+            blocks[channel++] = page.getBlock(hashChannel.get());
+        }
+
+        long[] groupIds = new long[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            groupIds[position] = position;
+        }
+        GroupByIdBlock groupIdsBlock = new GroupByIdBlock(positionCount, new LongArrayBlock(positionCount, Optional.empty(), groupIds));
+        for (AccumulatorFactory accumulatorFactory : accumulatorFactories) {
+            GroupedAccumulator accumulator = accumulatorFactory.createGroupedAccumulator();
+            accumulator.addInput(groupIdsBlock, page);
+            BlockBuilder output = accumulator.getIntermediateType().createBlockBuilder(null, positionCount);
+            for (int groupId = 0; groupId < positionCount; groupId++) {
+                accumulator.evaluateIntermediate(groupId, output);
+            }
+            blocks[channel++] = output.build();
+        }
+        return new Page(positionCount, blocks);
+    }
+
     private boolean hasOrderBy()
     {
         return accumulatorFactories.stream().anyMatch(AccumulatorFactory::hasOrderBy);
@@ -445,6 +551,12 @@ public class HashAggregationOperator
             return null;
         }
 
+        if (passThroughPage != null) {
+            Page page = passThroughPage;
+            passThroughPage = null;
+            return page;
+        }
+
         // process unfinished work if one exists
         if (unfinishedWork != null) {
             boolean workDone = unfinishedWork.process();
@@ -469,11 +581,15 @@ public class HashAggregationOperator
                 }
             }
 
-            // only flush if we are finishing or the aggregation builder is full
-            if (!finishing && (aggregationBuilder == null || !aggregationBuilder.isFull())) {
+            // only flush if we are finishing, the aggregation builder is full or partial aggregation has been disabled
+            if (!finishing && (aggregationBuilder == null || !(aggregationBuilder.isFull() || isPartialAggregationDisabled()))) {
                 return null;
             }
 
+            if (partialAggregationController.isPresent()) {
+                verify(aggregationBuilder instanceof InMemoryHashAggregationBuilder, "partial aggregation must not spill");
+                partialAggregationController.get().onFlush(aggregationInputPositions, ((InMemoryHashAggregationBuilder) aggregationBuilder).getGroupCount());
+            }
             outputPages = aggregationBuilder.buildResult();
         }
 
@@ -511,6 +627,7 @@ public class HashAggregationOperator
             // The reference must be set to null afterwards to avoid unaccounted memory.
             aggregationBuilder = null;
         }
+        aggregationInputPositions = 0;
         operatorContext.localUserMemoryContext().setBytes(0);
         operatorContext.localRevocableMemoryContext().setBytes(0);
     }
@@ -24,6 +24,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Closer;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -37,9 +38,11 @@ import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.airlift.concurrent.MoreFutures.checkSuccess;
 import static com.facebook.airlift.concurrent.MoreFutures.getDone;
+import static com.facebook.presto.ExceededMemoryLimitException.exceededBroadcastMemoryLimit;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
@@ -68,8 +71,10 @@ public class HashBuilderOperator
         private final int expectedPositions;
         private final boolean spillEnabled;
         private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+        private final Optional<DataSize> maxBroadcastBuildSize;
 
         private final Map<Lifespan, Integer> partitionIndexManager = new HashMap<>();
+        private final Map<Lifespan, FailFastBroadcastBuildSizeLimit> broadcastBuildSizeLimits = new HashMap<>();
 
         private boolean closed;
 
@@ -87,6 +92,42 @@ public class HashBuilderOperator
                 PagesIndex.Factory pagesIndexFactory,
                 boolean spillEnabled,
                 SingleStreamSpillerFactory singleStreamSpillerFactory)
+        {
+            this(
+                    operatorId,
+                    planNodeId,
+                    lookupSourceFactoryManager,
+                    outputChannels,
+                    hashChannels,
+                    preComputedHashChannel,
+                    filterFunctionFactory,
+                    sortChannel,
+                    searchFunctionFactories,
+                    expectedPositions,
+                    pagesIndexFactory,
+                    spillEnabled,
+                    singleStreamSpillerFactory,
+                    Optional.empty());
+        }
+
+        /**
+         * @param maxBroadcastBuildSize build input of all operators of a lifespan at which the query fails, set only when the build side is broadcast
+         */
+        public HashBuilderOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactoryManager,
+                List<Integer> outputChannels,
+                List<Integer> hashChannels,
+                OptionalInt preComputedHashChannel,
+                Optional<JoinFilterFunctionFactory> filterFunctionFactory,
+                Optional<Integer> sortChannel,
+                List<JoinFilterFunctionFactory> searchFunctionFactories,
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                SingleStreamSpillerFactory singleStreamSpillerFactory,
+                Optional<DataSize> maxBroadcastBuildSize)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -104,6 +145,7 @@ public class HashBuilderOperator
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
             this.spillEnabled = spillEnabled;
             this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+            this.maxBroadcastBuildSize = requireNonNull(maxBroadcastBuildSize, "maxBroadcastBuildSize is null");
 
             this.expectedPositions = expectedPositions;
         }
@@ -130,7 +172,8 @@ public class HashBuilderOperator
                     expectedPositions,
                     pagesIndexFactory,
                     spillEnabled,
-                    singleStreamSpillerFactory);
+                    singleStreamSpillerFactory,
+                    maxBroadcastBuildSize.map(maxSize -> getBroadcastBuildSizeLimit(driverContext.getLifespan(), maxSize, partitionIndex == lookupSourceFactory.partitions() - 1)));
         }
 
         @Override
@@ -149,6 +192,46 @@ public class HashBuilderOperator
         {
             return partitionIndexManager.compute(lifespan, (k, v) -> v == null ? 1 : v + 1) - 1;
         }
+
+        private FailFastBroadcastBuildSizeLimit getBroadcastBuildSizeLimit(Lifespan lifespan, DataSize maxBuildSize, boolean lastPartition)
+        {
+            FailFastBroadcastBuildSizeLimit limit = broadcastBuildSizeLimits.computeIfAbsent(lifespan, ignored -> new FailFastBroadcastBuildSizeLimit(maxBuildSize));
+            if (lastPartition) {
+                // all operators of the lifespan share the limit by now, so the factory no longer needs to track it
+                broadcastBuildSizeLimits.remove(lifespan);
+            }
+            return limit;
+        }
+
+        @VisibleForTesting
+        int getTrackedBroadcastBuildSizeLimitCount()
+        {
+            return broadcastBuildSizeLimits.size();
+        }
+    }
+
+    /**
+     * Every task builds the whole broadcast table, so a table larger than expected by the planner is stopped
+     * here before it runs all workers out of memory. The query fails; the join is not re-planned with a
+     * partitioned distribution.
+     */
+    @ThreadSafe
+    static class FailFastBroadcastBuildSizeLimit
+    {
+        private final DataSize maxBuildSize;
+        private final AtomicLong buildSizeInBytes = new AtomicLong();
+
+        FailFastBroadcastBuildSizeLimit(DataSize maxBuildSize)
+        {
+            this.maxBuildSize = requireNonNull(maxBuildSize, "maxBuildSize is null");
+        }
+
+        void addBuildInput(long bytes)
+        {
+            if (buildSizeInBytes.addAndGet(bytes) > maxBuildSize.toBytes()) {
+                throw exceededBroadcastMemoryLimit(maxBuildSize);
+            }
+        }
     }
 
     @VisibleForTesting
@@ -210,6 +293,7 @@ public class HashBuilderOperator
 
     private final boolean spillEnabled;
     private final SingleStreamSpillerFactory singleStreamSpillerFactory;
+    private final Optional<FailFastBroadcastBuildSizeLimit> broadcastBuildSizeLimit;
 
     private final HashCollisionsCounter hashCollisionsCounter;
 
@@ -238,7 +322,8 @@ public class HashBuilderOperator
             int expectedPositions,
             PagesIndex.Factory pagesIndexFactory,
             boolean spillEnabled,
-            SingleStreamSpillerFactory singleStreamSpillerFactory)
+            SingleStreamSpillerFactory singleStreamSpillerFactory,
+            Optional<FailFastBroadcastBuildSizeLimit> broadcastBuildSizeLimit)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
@@ -263,6 +348,7 @@ public class HashBuilderOperator
 
         this.spillEnabled = spillEnabled;
         this.singleStreamSpillerFactory = requireNonNull(singleStreamSpillerFactory, "singleStreamSpillerFactory is null");
+        this.broadcastBuildSizeLimit = requireNonNull(broadcastBuildSizeLimit, "broadcastBuildSizeLimit is null");
     }
 
     @Override
@@ -324,6 +410,8 @@ public class HashBuilderOperator
             return;
         }
 
+        broadcastBuildSizeLimit.ifPresent(limit -> limit.addBuildInput(page.getSizeInBytes()));
+
         if (state == State.SPILLING_INPUT) {
             spillInput(page);
             return;
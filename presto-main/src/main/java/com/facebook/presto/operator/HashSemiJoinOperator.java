@@ -13,20 +13,38 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.operator.PartitionedConsumption.Partition;
 import com.facebook.presto.operator.SetBuilderOperator.SetSupplier;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
+import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
+import static com.facebook.airlift.concurrent.MoreFutures.checkSuccess;
+import static com.facebook.airlift.concurrent.MoreFutures.getDone;
 import static com.facebook.airlift.concurrent.MoreFutures.tryGetFutureValue;
+import static com.facebook.presto.operator.SpilledChannelSet.createPartitionFunction;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Verify.verify;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
 public class HashSemiJoinOperator
@@ -42,9 +60,21 @@ public class HashSemiJoinOperator
         private final SetSupplier setSupplier;
         private final List<Type> probeTypes;
         private final int probeJoinChannel;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
         private boolean closed;
 
         public HashSemiJoinOperatorFactory(int operatorId, PlanNodeId planNodeId, SetSupplier setSupplier, List<? extends Type> probeTypes, int probeJoinChannel)
+        {
+            this(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, unsupportedPartitioningSpillerFactory());
+        }
+
+        public HashSemiJoinOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                SetSupplier setSupplier,
+                List<? extends Type> probeTypes,
+                int probeJoinChannel,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -52,6 +82,7 @@ public class HashSemiJoinOperator
             this.probeTypes = ImmutableList.copyOf(probeTypes);
             checkArgument(probeJoinChannel >= 0, "probeJoinChannel is negative");
             this.probeJoinChannel = probeJoinChannel;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         @Override
@@ -59,7 +90,7 @@ public class HashSemiJoinOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, HashSemiJoinOperator.class.getSimpleName());
-            return new HashSemiJoinOperator(operatorContext, setSupplier, probeJoinChannel);
+            return new HashSemiJoinOperator(operatorContext, setSupplier, probeTypes, probeJoinChannel, partitioningSpillerFactory);
         }
 
         @Override
@@ -71,18 +102,49 @@ public class HashSemiJoinOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new HashSemiJoinOperatorFactory(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel);
+            return new HashSemiJoinOperatorFactory(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, partitioningSpillerFactory);
         }
     }
 
+    private final SetSupplier setSupplier;
+    private final List<Type> probeTypes;
     private final int probeJoinChannel;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
     private final ListenableFuture<ChannelSet> channelSetFuture;
+    private final ListenableFuture<SpilledChannelSet> spilledChannelSetFuture;
 
     private ChannelSet channelSet;
     private Page outputPage;
     private boolean finishing;
+    private boolean finished;
+    private boolean closed;
+
+    @Nullable
+    private SpilledChannelSet spilledChannelSet;
+    private Optional<PartitioningSpiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+
+    @Nullable
+    private ListenableFuture<PartitionedConsumption<ChannelSet>> partitionedConsumption;
+    @Nullable
+    private Iterator<Partition<ChannelSet>> setPartitions;
+    private Optional<Partition<ChannelSet>> currentPartition = Optional.empty();
+    private Optional<ListenableFuture<ChannelSet>> unspilledChannelSet = Optional.empty();
+    @Nullable
+    private ChannelSet currentPartitionSet;
+    private Iterator<Page> unspilledInputPages = emptyIterator();
 
     public HashSemiJoinOperator(OperatorContext operatorContext, SetSupplier channelSetFuture, int probeJoinChannel)
+    {
+        this(operatorContext, channelSetFuture, ImmutableList.of(), probeJoinChannel, unsupportedPartitioningSpillerFactory());
+    }
+
+    public HashSemiJoinOperator(
+            OperatorContext operatorContext,
+            SetSupplier channelSetFuture,
+            List<Type> probeTypes,
+            int probeJoinChannel,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
 
@@ -90,8 +152,12 @@ public class HashSemiJoinOperator
         requireNonNull(channelSetFuture, "hashProvider is null");
         checkArgument(probeJoinChannel >= 0, "probeJoinChannel is negative");
 
+        this.setSupplier = channelSetFuture;
         this.channelSetFuture = channelSetFuture.getChannelSet();
+        this.spilledChannelSetFuture = channelSetFuture.getSpilledChannelSet();
+        this.probeTypes = ImmutableList.copyOf(requireNonNull(probeTypes, "probeTypes is null"));
         this.probeJoinChannel = probeJoinChannel;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
     }
 
     @Override
@@ -109,26 +175,43 @@ public class HashSemiJoinOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && outputPage == null;
+        if (finished) {
+            return outputPage == null;
+        }
+        // Without spilled input there is nothing to join once the input is finished
+        return finishing && outputPage == null && !spiller.isPresent() && spillInProgress.isDone();
     }
 
     @Override
     public ListenableFuture<?> isBlocked()
     {
-        return channelSetFuture;
+        if (!spillInProgress.isDone()) {
+            return spillInProgress;
+        }
+        if (partitionedConsumption != null) {
+            if (!partitionedConsumption.isDone()) {
+                return partitionedConsumption;
+            }
+            if (unspilledChannelSet.isPresent()) {
+                return unspilledChannelSet.get();
+            }
+            return NOT_BLOCKED;
+        }
+        return setSupplier.isSetBuilt();
     }
 
     @Override
     public boolean needsInput()
     {
-        if (finishing || outputPage != null) {
+        if (finishing || outputPage != null || !spillInProgress.isDone()) {
             return false;
         }
 
-        if (channelSet == null) {
+        if (channelSet == null && spilledChannelSet == null) {
             channelSet = tryGetFutureValue(channelSetFuture).orElse(null);
+            spilledChannelSet = tryGetFutureValue(spilledChannelSetFuture).orElse(null);
         }
-        return channelSet != null;
+        return channelSet != null || spilledChannelSet != null;
     }
 
     @Override
@@ -136,19 +219,32 @@ public class HashSemiJoinOperator
     {
         requireNonNull(page, "page is null");
         checkState(!finishing, "Operator is finishing");
-        checkState(channelSet != null, "Set has not been built yet");
+        checkState(channelSet != null || spilledChannelSet != null, "Set has not been built yet");
         checkState(outputPage == null, "Operator still has pending output");
 
+        if (spilledChannelSet != null) {
+            // The set was spilled, so keep the input until the matching partition of the set is unspilled
+            checkSuccess(spillInProgress, "spilling failed");
+            spillInProgress = getSpiller().partitionAndSpill(page, partition -> true).getSpillingFuture();
+            return;
+        }
+
+        outputPage = semiJoin(page, channelSet, channelSet.isEmpty(), channelSet.containsNull());
+    }
+
+    private Page semiJoin(Page page, ChannelSet set, boolean setEmpty, boolean setContainsNull)
+    {
         // create the block builder for the new boolean column
         // we know the exact size required for the block
         BlockBuilder blockBuilder = BOOLEAN.createFixedSizeBlockBuilder(page.getPositionCount());
 
         Page probeJoinPage = new Page(page.getBlock(probeJoinChannel));
+        Block probeJoinBlock = probeJoinPage.getBlock(0);
 
         // update hashing strategy to use probe cursor
         for (int position = 0; position < page.getPositionCount(); position++) {
-            if (probeJoinPage.getBlock(0).isNull(position)) {
-                if (channelSet.isEmpty()) {
+            if (probeJoinBlock.isNull(position)) {
+                if (setEmpty) {
                     BOOLEAN.writeBoolean(blockBuilder, false);
                 }
                 else {
@@ -156,8 +252,8 @@ public class HashSemiJoinOperator
                 }
             }
             else {
-                boolean contains = channelSet.contains(position, probeJoinPage);
-                if (!contains && channelSet.containsNull()) {
+                boolean contains = set.contains(position, probeJoinPage);
+                if (!contains && setContainsNull) {
                     blockBuilder.appendNull();
                 }
                 else {
@@ -167,14 +263,112 @@ public class HashSemiJoinOperator
         }
 
         // add the new boolean column to the page
-        outputPage = page.appendColumn(blockBuilder.build());
+        return page.appendColumn(blockBuilder.build());
     }
 
     @Override
     public Page getOutput()
     {
+        if (outputPage == null && finishing && !finished && spiller.isPresent() && spillInProgress.isDone()) {
+            checkSuccess(spillInProgress, "spilling failed");
+            if (partitionedConsumption == null) {
+                partitionedConsumption = setSupplier.finishProbeOperator();
+            }
+            tryUnspillNext();
+        }
+
         Page result = outputPage;
         outputPage = null;
         return result;
     }
+
+    private void tryUnspillNext()
+    {
+        verify(outputPage == null);
+
+        if (!partitionedConsumption.isDone()) {
+            return;
+        }
+
+        if (setPartitions == null) {
+            setPartitions = getDone(partitionedConsumption).beginConsumption();
+        }
+
+        if (unspilledInputPages.hasNext()) {
+            outputPage = semiJoin(unspilledInputPages.next(), currentPartitionSet, spilledChannelSet.isEmpty(), spilledChannelSet.containsNull());
+            return;
+        }
+
+        if (unspilledChannelSet.isPresent()) {
+            if (!unspilledChannelSet.get().isDone()) {
+                // Not unspilled yet
+                return;
+            }
+            currentPartitionSet = getDone(unspilledChannelSet.get());
+            unspilledChannelSet = Optional.empty();
+            unspilledInputPages = getSpiller().getSpilledPages(currentPartition.get().number());
+            return;
+        }
+
+        currentPartitionSet = null;
+        currentPartition.ifPresent(Partition::release);
+        currentPartition = Optional.empty();
+        if (setPartitions.hasNext()) {
+            currentPartition = Optional.of(setPartitions.next());
+            unspilledChannelSet = Optional.of(currentPartition.get().load());
+            return;
+        }
+
+        getSpiller().verifyAllPartitionsRead();
+        finished = true;
+    }
+
+    private PartitioningSpiller getSpiller()
+    {
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(partitioningSpillerFactory.create(
+                    probeTypes,
+                    createPartitionFunction(setSupplier.getType(), probeJoinChannel, spilledChannelSet.getPartitionCount()),
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+        return spiller.get();
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        outputPage = null;
+        unspilledInputPages = emptyIterator();
+        currentPartitionSet = null;
+
+        if (partitionedConsumption == null) {
+            // This operator will not consume any spilled partitions
+            setSupplier.probeOperatorClosed();
+        }
+        else if (!finished) {
+            // Release the partitions not consumed yet, so that the other probe operators are not blocked on them
+            addSuccessCallback(partitionedConsumption, consumption -> {
+                currentPartition.ifPresent(HashSemiJoinOperator::releaseWhenLoaded);
+                Iterator<Partition<ChannelSet>> partitions = setPartitions == null ? consumption.beginConsumption() : setPartitions;
+                partitions.forEachRemaining(HashSemiJoinOperator::releaseWhenLoaded);
+            });
+        }
+
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void releaseWhenLoaded(Partition<ChannelSet> partition)
+    {
+        partition.load().addListener(partition::release, directExecutor());
+    }
 }
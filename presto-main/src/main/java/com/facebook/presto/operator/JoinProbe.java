@@ -51,6 +51,8 @@ public class JoinProbe
     private final Optional<Block> probeHashBlock;
 
     private int position = -1;
+    // join positions of all positions of the page, looked up as one batch on first use
+    private long[] joinPositions;
 
     private JoinProbe(int[] probeOutputChannels, Page page, List<Integer> probeJoinChannels, OptionalInt probeHashChannel)
     {
@@ -79,14 +81,13 @@ public class JoinProbe
 
     public long getCurrentJoinPosition(LookupSource lookupSource)
     {
-        if (currentRowContainsNull()) {
-            return -1;
+        if (!lookupSource.isBatchLookupSupported()) {
+            return lookupCurrentJoinPosition(lookupSource);
         }
-        if (probeHashBlock.isPresent()) {
-            long rawHash = BIGINT.getLong(probeHashBlock.get(), position);
-            return lookupSource.getJoinPosition(position, probePage, page, rawHash);
+        if (joinPositions == null) {
+            joinPositions = getJoinPositions(lookupSource);
         }
-        return lookupSource.getJoinPosition(position, probePage, page);
+        return joinPositions[position];
     }
 
     public int getPosition()
@@ -99,7 +100,55 @@ public class JoinProbe
         return page;
     }
 
-    private boolean currentRowContainsNull()
+    private long lookupCurrentJoinPosition(LookupSource lookupSource)
+    {
+        if (rowContainsNull(position)) {
+            return -1;
+        }
+        if (probeHashBlock.isPresent()) {
+            long rawHash = BIGINT.getLong(probeHashBlock.get(), position);
+            return lookupSource.getJoinPosition(position, probePage, page, rawHash);
+        }
+        return lookupSource.getJoinPosition(position, probePage, page);
+    }
+
+    private long[] getJoinPositions(LookupSource lookupSource)
+    {
+        long[] result = new long[positionCount];
+        int[] positions = new int[positionCount];
+        int positionsToLookup = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (rowContainsNull(position)) {
+                result[position] = -1;
+            }
+            else {
+                positions[positionsToLookup] = position;
+                positionsToLookup++;
+            }
+        }
+
+        long[] rawHashes = null;
+        if (probeHashBlock.isPresent()) {
+            rawHashes = new long[positionsToLookup];
+            for (int i = 0; i < positionsToLookup; i++) {
+                rawHashes[i] = BIGINT.getLong(probeHashBlock.get(), positions[i]);
+            }
+        }
+
+        if (positionsToLookup == positionCount) {
+            lookupSource.getJoinPositions(positions, positionsToLookup, probePage, page, rawHashes, result);
+            return result;
+        }
+
+        long[] joinPositions = new long[positionsToLookup];
+        lookupSource.getJoinPositions(positions, positionsToLookup, probePage, page, rawHashes, joinPositions);
+        for (int i = 0; i < positionsToLookup; i++) {
+            result[positions[i]] = joinPositions[i];
+        }
+        return result;
+    }
+
+    private boolean rowContainsNull(int position)
     {
         for (Block probeBlock : probeBlocks) {
             if (probeBlock.isNull(position)) {
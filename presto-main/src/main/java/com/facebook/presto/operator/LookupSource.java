@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import java.io.Closeable;
@@ -36,6 +37,35 @@ public interface LookupSource
 
     long getJoinPosition(int position, Page hashChannelsPage, Page allChannelsPage);
 
+    /**
+     * Returns false if a lookup can invalidate the join positions returned by earlier lookups.
+     * The probe then has to look up and consume one position at a time.
+     */
+    default boolean isBatchLookupSupported()
+    {
+        return true;
+    }
+
+    /**
+     * Looks up the first join position of each of the given probe positions, like calling
+     * {@link #getJoinPosition} for every position. Implementations can look up the whole batch
+     * in one pass over the hash table instead of one position at a time.
+     *
+     * @param rawHashes the raw hashes of the probe positions, or null if the probe has no hash channel
+     * @param joinPositions output array for the join position of each probe position, -1 if there is no match
+     */
+    default void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, @Nullable long[] rawHashes, long[] joinPositions)
+    {
+        for (int i = 0; i < positionCount; i++) {
+            if (rawHashes == null) {
+                joinPositions[i] = getJoinPosition(positions[i], hashChannelsPage, allChannelsPage);
+            }
+            else {
+                joinPositions[i] = getJoinPosition(positions[i], hashChannelsPage, allChannelsPage, rawHashes[i]);
+            }
+        }
+    }
+
     long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage);
 
     void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset);
@@ -49,7 +49,19 @@ public class MergeHashSort
      */
     public WorkProcessor<Page> merge(List<Type> keyTypes, List<Type> allTypes, List<WorkProcessor<Page>> channels, DriverYieldSignal driverYieldSignal)
     {
-        InterpretedHashGenerator hashGenerator = createHashGenerator(keyTypes);
+        return merge(createHashGenerator(keyTypes), allTypes, channels, driverYieldSignal);
+    }
+
+    /**
+     * Rows with same hash value of the {@param hashChannels} are guaranteed to be in the same result page.
+     */
+    public WorkProcessor<Page> merge(List<Type> keyTypes, int[] hashChannels, List<Type> allTypes, List<WorkProcessor<Page>> channels, DriverYieldSignal driverYieldSignal)
+    {
+        return merge(new InterpretedHashGenerator(keyTypes, hashChannels), allTypes, channels, driverYieldSignal);
+    }
+
+    private WorkProcessor<Page> merge(InterpretedHashGenerator hashGenerator, List<Type> allTypes, List<WorkProcessor<Page>> channels, DriverYieldSignal driverYieldSignal)
+    {
         return mergeSortedPages(
                 channels,
                 createHashPageWithPositionComparator(hashGenerator),
@@ -15,16 +15,29 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.Page;
-import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
+import static com.facebook.airlift.concurrent.MoreFutures.checkSuccess;
+import static com.facebook.presto.util.MergeSortedPages.mergeSortedPages;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Verify.verify;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterators.transform;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Objects.requireNonNull;
 
 public class OrderByOperator
@@ -42,6 +55,9 @@ public class OrderByOperator
         private final List<SortOrder> sortOrder;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final boolean spillEnabled;
+        private final Optional<SpillerFactory> spillerFactory;
+        private final OrderingCompiler orderingCompiler;
 
         public OrderByOperatorFactory(
                 int operatorId,
@@ -51,7 +67,10 @@ public class OrderByOperator
                 int expectedPositions,
                 List<Integer> sortChannels,
                 List<SortOrder> sortOrder,
-                PagesIndex.Factory pagesIndexFactory)
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory,
+                OrderingCompiler orderingCompiler)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -62,6 +81,10 @@ public class OrderByOperator
             this.sortOrder = ImmutableList.copyOf(requireNonNull(sortOrder, "sortOrder is null"));
 
             this.pagesIndexFactory = requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+            this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
         }
 
         @Override
@@ -77,7 +100,10 @@ public class OrderByOperator
                     expectedPositions,
                     sortChannels,
                     sortOrder,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
 
         @Override
@@ -89,27 +115,48 @@ public class OrderByOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new OrderByOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, pagesIndexFactory);
+            return new OrderByOperatorFactory(
+                    operatorId,
+                    planNodeId,
+                    sourceTypes,
+                    outputChannels,
+                    expectedPositions,
+                    sortChannels,
+                    sortOrder,
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
     }
 
     private enum State
     {
         NEEDS_INPUT,
+        SPILLING_INPUT,
         HAS_OUTPUT,
         FINISHED
     }
 
     private final OperatorContext operatorContext;
+    private final List<Type> sourceTypes;
     private final List<Integer> sortChannels;
     private final List<SortOrder> sortOrder;
     private final int[] outputChannels;
+    private final LocalMemoryContext revocableMemoryContext;
     private final LocalMemoryContext localUserMemoryContext;
 
     private final PagesIndex pageIndex;
 
-    private final PageBuilder pageBuilder;
-    private int currentPosition;
+    private final boolean spillEnabled;
+    private final Optional<SpillerFactory> spillerFactory;
+    private final OrderingCompiler orderingCompiler;
+
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+
+    private Iterator<Optional<Page>> sortedPages;
 
     private State state = State.NEEDS_INPUT;
 
@@ -120,19 +167,26 @@ public class OrderByOperator
             int expectedPositions,
             List<Integer> sortChannels,
             List<SortOrder> sortOrder,
-            PagesIndex.Factory pagesIndexFactory)
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory,
+            OrderingCompiler orderingCompiler)
     {
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
 
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
         this.outputChannels = Ints.toArray(requireNonNull(outputChannels, "outputChannels is null"));
         this.sortChannels = ImmutableList.copyOf(requireNonNull(sortChannels, "sortChannels is null"));
         this.sortOrder = ImmutableList.copyOf(requireNonNull(sortOrder, "sortOrder is null"));
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.revocableMemoryContext = operatorContext.localRevocableMemoryContext();
 
         this.pageIndex = pagesIndexFactory.newPagesIndex(sourceTypes, expectedPositions);
-
-        this.pageBuilder = new PageBuilder(toTypes(sourceTypes, outputChannels));
+        this.spillEnabled = spillEnabled;
+        this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
+        checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
     }
 
     @Override
@@ -145,10 +199,50 @@ public class OrderByOperator
     public void finish()
     {
         if (state == State.NEEDS_INPUT) {
-            state = State.HAS_OUTPUT;
+            // wait until a pending spill has been completed with finishMemoryRevoke
+            if (!spillInProgress.isDone() || finishMemoryRevoke.isPresent()) {
+                return;
+            }
+            checkSuccess(spillInProgress, "spilling failed");
+
+            // the sorted index is read while producing output, so its memory can no longer be revoked
+            long revocableBytes = revocableMemoryContext.getBytes();
+            if (revocableBytes > 0) {
+                revocableMemoryContext.setBytes(0);
+                if (!localUserMemoryContext.trySetBytes(localUserMemoryContext.getBytes() + revocableBytes)) {
+                    // spill the rest of the input rather than failing the query, the driver
+                    // is blocked on the spill and finish is called again once it completes
+                    revocableMemoryContext.setBytes(revocableBytes);
+                    state = State.SPILLING_INPUT;
+                    spillToDisk();
+                    return;
+                }
+            }
+            startOutput();
+        }
+        else if (state == State.SPILLING_INPUT && spillInProgress.isDone()) {
+            checkSuccess(spillInProgress, "spilling failed");
+            pageIndex.clear();
+            revocableMemoryContext.setBytes(0);
+            localUserMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
+            startOutput();
+        }
+    }
+
+    private void startOutput()
+    {
+        state = State.HAS_OUTPUT;
 
-            // sort the index
-            pageIndex.sort(sortChannels, sortOrder);
+        // sort the index
+        pageIndex.sort(sortChannels, sortOrder);
+        Iterator<Page> sortedPagesIndex = pageIndex.getSortedPages();
+
+        List<WorkProcessor<Page>> spilledPages = getSpilledPages();
+        if (spilledPages.isEmpty()) {
+            sortedPages = transform(sortedPagesIndex, Optional::of);
+        }
+        else {
+            sortedPages = mergeSpilledAndMemoryPages(spilledPages, sortedPagesIndex).yieldingIterator();
         }
     }
 
@@ -158,10 +252,16 @@ public class OrderByOperator
         return state == State.FINISHED;
     }
 
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
+    }
+
     @Override
     public boolean needsInput()
     {
-        return state == State.NEEDS_INPUT;
+        return state == State.NEEDS_INPUT && spillInProgress.isDone();
     }
 
     @Override
@@ -169,13 +269,10 @@ public class OrderByOperator
     {
         checkState(state == State.NEEDS_INPUT, "Operator is already finishing");
         requireNonNull(page, "page is null");
+        checkSuccess(spillInProgress, "spilling failed");
 
         pageIndex.addPage(page);
-
-        if (!localUserMemoryContext.trySetBytes(pageIndex.getEstimatedSize().toBytes())) {
-            pageIndex.compact();
-            localUserMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
-        }
+        updateMemoryUsage();
     }
 
     @Override
@@ -185,37 +282,120 @@ public class OrderByOperator
             return null;
         }
 
-        if (currentPosition >= pageIndex.getPositionCount()) {
+        verify(sortedPages != null, "sortedPages is null");
+        if (!sortedPages.hasNext()) {
             state = State.FINISHED;
             return null;
         }
 
-        // iterate through the positions sequentially until we have one full page
-        pageBuilder.reset();
-        currentPosition = pageIndex.buildPage(currentPosition, outputChannels, pageBuilder);
-
-        // output the page if we have any data
-        if (pageBuilder.isEmpty()) {
-            state = State.FINISHED;
+        // an empty result means the merge of spilled runs yielded
+        Optional<Page> next = sortedPages.next();
+        if (!next.isPresent()) {
             return null;
         }
 
-        Page page = pageBuilder.build();
-        return page;
+        Page page = next.get();
+        Block[] blocks = new Block[outputChannels.length];
+        for (int i = 0; i < outputChannels.length; i++) {
+            blocks[i] = page.getBlock(outputChannels[i]);
+        }
+        return new Page(page.getPositionCount(), blocks);
     }
 
     @Override
-    public void close()
+    public ListenableFuture<?> startMemoryRevoke()
     {
-        pageIndex.clear();
+        if (state != State.NEEDS_INPUT || revocableMemoryContext.getBytes() == 0) {
+            // nothing to revoke, or the in memory index is already being spilled by finish or read
+            verify(pageIndex.getPositionCount() == 0 || state != State.NEEDS_INPUT);
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        ListenableFuture<?> spillFuture = spillToDisk();
+        finishMemoryRevoke = Optional.of(() -> {
+            pageIndex.clear();
+            updateMemoryUsage();
+        });
+        return spillFuture;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        finishMemoryRevoke.orElseThrow(() -> new IllegalStateException("finishMemoryRevoke called without startMemoryRevoke"))
+                .run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private ListenableFuture<?> spillToDisk()
+    {
+        checkSuccess(spillInProgress, "spilling failed");
+
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+
+        // every spill is a sorted run, the runs are merged back when the output is produced
+        pageIndex.sort(sortChannels, sortOrder);
+        spillInProgress = spiller.get().spill(pageIndex.getSortedPages());
+        return spillInProgress;
+    }
+
+    private List<WorkProcessor<Page>> getSpilledPages()
+    {
+        if (!spiller.isPresent()) {
+            return ImmutableList.of();
+        }
+
+        return spiller.get().getSpills().stream()
+                .map(WorkProcessor::fromIterator)
+                .collect(toImmutableList());
+    }
+
+    private WorkProcessor<Page> mergeSpilledAndMemoryPages(List<WorkProcessor<Page>> spilledPages, Iterator<Page> sortedPagesIndex)
+    {
+        List<WorkProcessor<Page>> sortedStreams = ImmutableList.<WorkProcessor<Page>>builder()
+                .addAll(spilledPages)
+                .add(WorkProcessor.fromIterator(sortedPagesIndex))
+                .build();
+
+        return mergeSortedPages(
+                sortedStreams,
+                orderingCompiler.compilePageWithPositionComparator(sourceTypes, sortChannels, sortOrder),
+                sourceTypes,
+                operatorContext.aggregateUserMemoryContext(),
+                operatorContext.getDriverContext().getYieldSignal());
     }
 
-    private static List<Type> toTypes(List<? extends Type> sourceTypes, List<Integer> outputChannels)
+    private void updateMemoryUsage()
     {
-        ImmutableList.Builder<Type> types = ImmutableList.builder();
-        for (int channel : outputChannels) {
-            types.add(sourceTypes.get(channel));
+        if (spillEnabled && state == State.NEEDS_INPUT) {
+            if (pageIndex.getPositionCount() == 0) {
+                localUserMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
+                revocableMemoryContext.setBytes(0L);
+            }
+            else {
+                localUserMemoryContext.setBytes(0);
+                revocableMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
+            }
         }
-        return types.build();
+        else {
+            revocableMemoryContext.setBytes(0);
+            if (!localUserMemoryContext.trySetBytes(pageIndex.getEstimatedSize().toBytes())) {
+                pageIndex.compact();
+                localUserMemoryContext.setBytes(pageIndex.getEstimatedSize().toBytes());
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        pageIndex.clear();
+        spiller.ifPresent(Spiller::close);
     }
 }
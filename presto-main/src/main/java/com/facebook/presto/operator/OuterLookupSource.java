@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
@@ -87,6 +88,18 @@ public final class OuterLookupSource
         return lookupSource.getJoinPosition(position, hashChannelsPage, allChannelsPage);
     }
 
+    @Override
+    public boolean isBatchLookupSupported()
+    {
+        return lookupSource.isBatchLookupSupported();
+    }
+
+    @Override
+    public void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, @Nullable long[] rawHashes, long[] joinPositions)
+    {
+        lookupSource.getJoinPositions(positions, positionCount, hashChannelsPage, allChannelsPage, rawHashes, joinPositions);
+    }
+
     @Override
     public long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage)
     {
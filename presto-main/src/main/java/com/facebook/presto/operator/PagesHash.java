@@ -20,6 +20,8 @@ import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.openjdk.jol.info.ClassLayout;
 
+import javax.annotation.Nullable;
+
 import java.util.Arrays;
 
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
@@ -168,6 +170,52 @@ public final class PagesHash
         return -1;
     }
 
+    /**
+     * Batched version of {@link #getAddressIndex(int, Page, long)}. The lookups are done in separate
+     * passes over the whole batch, so that the loads of the hash table slots of different positions
+     * do not depend on each other and their cache misses can overlap.
+     *
+     * @param rawHashes the raw hashes of the positions, or null if they have to be computed
+     * @param addressIndexes output array for the address index of each position, -1 if not found
+     */
+    public void getAddressIndexes(int[] positions, int positionCount, Page hashChannelsPage, @Nullable long[] rawHashes, int[] addressIndexes)
+    {
+        long[] hashes = rawHashes;
+        if (hashes == null) {
+            hashes = new long[positionCount];
+            for (int i = 0; i < positionCount; i++) {
+                hashes[i] = pagesHashStrategy.hashRow(positions[i], hashChannelsPage);
+            }
+        }
+
+        int[] slots = new int[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            slots[i] = getHashPosition(hashes[i], mask);
+        }
+
+        // the first candidate of each position only depends on its slot, so these loads are independent
+        int[] candidates = new int[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            candidates[i] = key[slots[i]];
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            int pos = slots[i];
+            int candidate = candidates[i];
+            byte rawHash = (byte) hashes[i];
+            addressIndexes[i] = -1;
+            while (candidate != -1) {
+                if (positionEqualsCurrentRowIgnoreNulls(candidate, rawHash, positions[i], hashChannelsPage)) {
+                    addressIndexes[i] = candidate;
+                    break;
+                }
+                // increment position and mask to handler wrap around
+                pos = (pos + 1) & mask;
+                candidate = key[pos];
+            }
+        }
+    }
+
     public void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset)
     {
         long pageAddress = addresses.getLong(toIntExact(position));
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decides whether partial aggregation is worth doing for a plan node. It is shared by all
+ * partial aggregation operators created by the same factory and collects the number of input
+ * rows and produced groups each time one of them flushes its hash table. Once enough rows have
+ * been seen and the groups are almost as many as the input rows, partial aggregation is
+ * disabled and the operators convert their input to the intermediate representation directly.
+ */
+@ThreadSafe
+public class PartialAggregationController
+{
+    // the ratio is not representative until enough rows have been aggregated
+    private static final long DEFAULT_MIN_INPUT_POSITIONS = 100_000;
+
+    private final double uniqueRowsRatioThreshold;
+    private final long minInputPositions;
+
+    @GuardedBy("this")
+    private long totalInputPositions;
+    @GuardedBy("this")
+    private long totalUniqueRows;
+
+    private volatile boolean partialAggregationDisabled;
+
+    public PartialAggregationController(double uniqueRowsRatioThreshold)
+    {
+        this(uniqueRowsRatioThreshold, DEFAULT_MIN_INPUT_POSITIONS);
+    }
+
+    @VisibleForTesting
+    PartialAggregationController(double uniqueRowsRatioThreshold, long minInputPositions)
+    {
+        checkArgument(uniqueRowsRatioThreshold >= 0 && uniqueRowsRatioThreshold <= 1, "uniqueRowsRatioThreshold must be between 0 and 1");
+        checkArgument(minInputPositions > 0, "minInputPositions must be positive");
+        this.uniqueRowsRatioThreshold = uniqueRowsRatioThreshold;
+        this.minInputPositions = minInputPositions;
+    }
+
+    public boolean isPartialAggregationDisabled()
+    {
+        return partialAggregationDisabled;
+    }
+
+    public synchronized void onFlush(long inputPositions, long uniqueRows)
+    {
+        if (partialAggregationDisabled) {
+            return;
+        }
+
+        totalInputPositions += inputPositions;
+        totalUniqueRows += uniqueRows;
+        if (totalInputPositions >= minInputPositions && totalUniqueRows > totalInputPositions * uniqueRowsRatioThreshold) {
+            partialAggregationDisabled = true;
+        }
+    }
+}
@@ -147,6 +147,61 @@ public class PartitionedLookupSource
         return encodePartitionedJoinPosition(partition, toIntExact(joinPosition));
     }
 
+    @Override
+    public boolean isBatchLookupSupported()
+    {
+        return Arrays.stream(lookupSources).allMatch(LookupSource::isBatchLookupSupported);
+    }
+
+    @Override
+    public void getJoinPositions(int[] positions, int positionCount, Page hashChannelsPage, Page allChannelsPage, @Nullable long[] rawHashes, long[] joinPositions)
+    {
+        long[] hashes = rawHashes;
+        if (hashes == null) {
+            hashes = new long[positionCount];
+            for (int i = 0; i < positionCount; i++) {
+                hashes[i] = partitionGenerator.getRawHash(hashChannelsPage, positions[i]);
+            }
+        }
+
+        // group the positions by partition, so that each partition can look up its positions as one batch
+        int[] partitions = new int[positionCount];
+        int[] partitionOffsets = new int[lookupSources.length + 1];
+        for (int i = 0; i < positionCount; i++) {
+            partitions[i] = partitionGenerator.getPartition(hashes[i]);
+            partitionOffsets[partitions[i] + 1]++;
+        }
+        for (int partition = 0; partition < lookupSources.length; partition++) {
+            partitionOffsets[partition + 1] += partitionOffsets[partition];
+        }
+        int[] sortedIndexes = new int[positionCount];
+        int[] nextOffsets = Arrays.copyOf(partitionOffsets, lookupSources.length);
+        for (int i = 0; i < positionCount; i++) {
+            sortedIndexes[nextOffsets[partitions[i]]++] = i;
+        }
+
+        int[] partitionPositions = new int[positionCount];
+        long[] partitionHashes = new long[positionCount];
+        long[] partitionJoinPositions = new long[positionCount];
+        for (int partition = 0; partition < lookupSources.length; partition++) {
+            int start = partitionOffsets[partition];
+            int count = partitionOffsets[partition + 1] - start;
+            if (count == 0) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                int index = sortedIndexes[start + i];
+                partitionPositions[i] = positions[index];
+                partitionHashes[i] = hashes[index];
+            }
+            lookupSources[partition].getJoinPositions(partitionPositions, count, hashChannelsPage, allChannelsPage, partitionHashes, partitionJoinPositions);
+            for (int i = 0; i < count; i++) {
+                long joinPosition = partitionJoinPositions[i];
+                joinPositions[sortedIndexes[start + i]] = joinPosition < 0 ? joinPosition : encodePartitionedJoinPosition(partition, toIntExact(joinPosition));
+            }
+        }
+    }
+
     @Override
     public long getNextJoinPosition(long currentJoinPosition, int probePosition, Page allProbeChannelsPage)
     {
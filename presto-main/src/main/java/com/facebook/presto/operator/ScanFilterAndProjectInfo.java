@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.util.Mergeable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Split info of a {@link ScanFilterAndProjectOperator} together with how much of each scanned column was
+ * actually loaded. Columns delivered as lazy blocks are only loaded when the filter or a projection reads
+ * them, so the difference between input and loaded positions is the decoding saved by late materialization.
+ */
+public class ScanFilterAndProjectInfo
+        implements Mergeable<ScanFilterAndProjectInfo>, OperatorInfo
+{
+    // NOTE: this deserializes to a map instead of the expected type
+    private final Object splitInfo;
+    private final List<Long> columnInputPositions;
+    private final List<Long> columnLoadedPositions;
+    private final List<Long> columnLoadedBytes;
+
+    @JsonCreator
+    public ScanFilterAndProjectInfo(
+            @JsonProperty("splitInfo") @Nullable Object splitInfo,
+            @JsonProperty("columnInputPositions") List<Long> columnInputPositions,
+            @JsonProperty("columnLoadedPositions") List<Long> columnLoadedPositions,
+            @JsonProperty("columnLoadedBytes") List<Long> columnLoadedBytes)
+    {
+        this.splitInfo = splitInfo;
+        this.columnInputPositions = ImmutableList.copyOf(requireNonNull(columnInputPositions, "columnInputPositions is null"));
+        this.columnLoadedPositions = ImmutableList.copyOf(requireNonNull(columnLoadedPositions, "columnLoadedPositions is null"));
+        this.columnLoadedBytes = ImmutableList.copyOf(requireNonNull(columnLoadedBytes, "columnLoadedBytes is null"));
+    }
+
+    @Nullable
+    @JsonProperty
+    public Object getSplitInfo()
+    {
+        return splitInfo;
+    }
+
+    @JsonProperty
+    public List<Long> getColumnInputPositions()
+    {
+        return columnInputPositions;
+    }
+
+    @JsonProperty
+    public List<Long> getColumnLoadedPositions()
+    {
+        return columnLoadedPositions;
+    }
+
+    @JsonProperty
+    public List<Long> getColumnLoadedBytes()
+    {
+        return columnLoadedBytes;
+    }
+
+    @Override
+    public ScanFilterAndProjectInfo mergeWith(ScanFilterAndProjectInfo other)
+    {
+        // split info of different splits cannot be combined
+        return new ScanFilterAndProjectInfo(
+                null,
+                sum(columnInputPositions, other.getColumnInputPositions()),
+                sum(columnLoadedPositions, other.getColumnLoadedPositions()),
+                sum(columnLoadedBytes, other.getColumnLoadedBytes()));
+    }
+
+    @Override
+    public boolean isFinal()
+    {
+        return true;
+    }
+
+    private static List<Long> sum(List<Long> left, List<Long> right)
+    {
+        ImmutableList.Builder<Long> result = ImmutableList.builder();
+        for (int i = 0; i < max(left.size(), right.size()); i++) {
+            long leftValue = i < left.size() ? left.get(i) : 0;
+            long rightValue = i < right.size() ? right.get(i) : 0;
+            result.add(leftValue + rightValue);
+        }
+        return result.build();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("splitInfo", splitInfo)
+                .add("columnInputPositions", columnInputPositions)
+                .add("columnLoadedPositions", columnLoadedPositions)
+                .add("columnLoadedBytes", columnLoadedBytes)
+                .toString();
+    }
+}
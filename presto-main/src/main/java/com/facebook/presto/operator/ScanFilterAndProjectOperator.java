@@ -15,6 +15,7 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.metadata.Split;
+import com.facebook.presto.operator.SplitPrefetcher.PrefetchedPageSource;
 import com.facebook.presto.operator.project.CursorProcessor;
 import com.facebook.presto.operator.project.CursorProcessorOutput;
 import com.facebook.presto.operator.project.MergingPageOutput;
@@ -31,6 +32,7 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.LazyBlock;
 import com.facebook.presto.spi.block.LazyBlockLoader;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.EmptySplit;
 import com.facebook.presto.split.EmptySplitPageSource;
@@ -47,6 +49,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.MoreFutures.toListenableFuture;
@@ -62,6 +65,8 @@ public class ScanFilterAndProjectOperator
     private final PageSourceProvider pageSourceProvider;
     private final TableHandle table;
     private final List<ColumnHandle> columns;
+    private final Supplier<TupleDomain<ColumnHandle>> dynamicFilter;
+    private final Optional<SplitPrefetcher> splitPrefetcher;
     private final PageBuilder pageBuilder;
     private final CursorProcessor cursorProcessor;
     private final PageProcessor pageProcessor;
@@ -71,8 +76,14 @@ public class ScanFilterAndProjectOperator
     private final SettableFuture<?> blocked = SettableFuture.create();
     private final MergingPageOutput mergingOutput;
 
+    // how many positions and bytes of each column were received and how many were actually loaded
+    private final AtomicLongArray columnInputPositions;
+    private final AtomicLongArray columnLoadedPositions;
+    private final AtomicLongArray columnLoadedBytes;
+
     private RecordCursor cursor;
     private ConnectorPageSource pageSource;
+    private Optional<PrefetchedPageSource> prefetchedSource = Optional.empty();
 
     private Split split;
 
@@ -91,7 +102,24 @@ public class ScanFilterAndProjectOperator
             TableHandle table,
             Iterable<ColumnHandle> columns,
             Iterable<Type> types,
-            MergingPageOutput mergingOutput)
+            MergingPageOutput mergingOutput,
+            Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
+    {
+        this(operatorContext, sourceId, pageSourceProvider, cursorProcessor, pageProcessor, table, columns, types, mergingOutput, dynamicFilter, Optional.empty());
+    }
+
+    protected ScanFilterAndProjectOperator(
+            OperatorContext operatorContext,
+            PlanNodeId sourceId,
+            PageSourceProvider pageSourceProvider,
+            CursorProcessor cursorProcessor,
+            PageProcessor pageProcessor,
+            TableHandle table,
+            Iterable<ColumnHandle> columns,
+            Iterable<Type> types,
+            MergingPageOutput mergingOutput,
+            Supplier<TupleDomain<ColumnHandle>> dynamicFilter,
+            Optional<SplitPrefetcher> splitPrefetcher)
     {
         this.cursorProcessor = requireNonNull(cursorProcessor, "cursorProcessor is null");
         this.pageProcessor = requireNonNull(pageProcessor, "pageProcessor is null");
@@ -100,10 +128,15 @@ public class ScanFilterAndProjectOperator
         this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
         this.table = requireNonNull(table, "table is null");
         this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+        this.columnInputPositions = new AtomicLongArray(this.columns.size());
+        this.columnLoadedPositions = new AtomicLongArray(this.columns.size());
+        this.columnLoadedBytes = new AtomicLongArray(this.columns.size());
         this.pageSourceMemoryContext = operatorContext.newLocalSystemMemoryContext(ScanFilterAndProjectOperator.class.getSimpleName());
         this.pageProcessorMemoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext(ScanFilterAndProjectOperator.class.getSimpleName());
         this.outputMemoryContext = operatorContext.newLocalSystemMemoryContext(ScanFilterAndProjectOperator.class.getSimpleName());
         this.mergingOutput = requireNonNull(mergingOutput, "mergingOutput is null");
+        this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
+        this.splitPrefetcher = requireNonNull(splitPrefetcher, "splitPrefetcher is null");
 
         this.pageBuilder = new PageBuilder(ImmutableList.copyOf(requireNonNull(types, "types is null")));
     }
@@ -133,14 +166,19 @@ public class ScanFilterAndProjectOperator
         this.split = split;
 
         Object splitInfo = split.getInfo();
-        if (splitInfo != null) {
-            operatorContext.setInfoSupplier(() -> new SplitOperatorInfo(splitInfo));
-        }
+        operatorContext.setInfoSupplier(() -> new ScanFilterAndProjectInfo(
+                splitInfo,
+                toList(columnInputPositions),
+                toList(columnLoadedPositions),
+                toList(columnLoadedBytes)));
         blocked.set(null);
 
         if (split.getConnectorSplit() instanceof EmptySplit) {
             pageSource = new EmptySplitPageSource();
         }
+        else if (splitPrefetcher.isPresent()) {
+            prefetchedSource = splitPrefetcher.get().claim(split);
+        }
 
         return () -> {
             if (pageSource instanceof UpdatablePageSource) {
@@ -170,6 +208,11 @@ public class ScanFilterAndProjectOperator
     public void finish()
     {
         blocked.set(null);
+
+        // a page source opened ahead of time belongs to this operator once claimed
+        prefetchedSource.ifPresent(PrefetchedPageSource::close);
+        prefetchedSource = Optional.empty();
+
         if (pageSource != null) {
             try {
                 pageSource.close();
@@ -201,6 +244,9 @@ public class ScanFilterAndProjectOperator
             CompletableFuture<?> pageSourceBlocked = pageSource.isBlocked();
             return pageSourceBlocked.isDone() ? NOT_BLOCKED : toListenableFuture(pageSourceBlocked);
         }
+        if (prefetchedSource.isPresent() && !prefetchedSource.get().getPageSource().isDone()) {
+            return prefetchedSource.get().getPageSource();
+        }
         return NOT_BLOCKED;
     }
 
@@ -224,7 +270,18 @@ public class ScanFilterAndProjectOperator
         }
 
         if (!finishing && pageSource == null && cursor == null) {
-            ConnectorPageSource source = pageSourceProvider.createPageSource(operatorContext.getSession(), split, table, columns);
+            ConnectorPageSource source;
+            if (prefetchedSource.isPresent()) {
+                PrefetchedPageSource prefetched = prefetchedSource.get();
+                if (!prefetched.getPageSource().isDone()) {
+                    return null;
+                }
+                prefetchedSource = Optional.empty();
+                source = prefetched.takePageSource();
+            }
+            else {
+                source = createPageSource();
+            }
             if (source instanceof RecordPageSource) {
                 cursor = ((RecordPageSource) source).getCursor();
             }
@@ -241,6 +298,19 @@ public class ScanFilterAndProjectOperator
         }
     }
 
+    private ConnectorPageSource createPageSource()
+    {
+        // by the time the scan is read, the joins downstream have usually built their lookup sources
+        TupleDomain<ColumnHandle> dynamicFilterPredicate = dynamicFilter.get();
+        if (dynamicFilterPredicate.isNone()) {
+            return new EmptySplitPageSource();
+        }
+        if (!dynamicFilterPredicate.isAll()) {
+            split = split.withDynamicFilter(dynamicFilterPredicate);
+        }
+        return pageSourceProvider.createPageSource(operatorContext.getSession(), split, table, columns);
+    }
+
     private Page processColumnSource()
     {
         DriverYieldSignal yieldSignal = operatorContext.getDriverContext().getYieldSignal();
@@ -295,10 +365,12 @@ public class ScanFilterAndProjectOperator
     private final class RecordingLazyBlockLoader
             implements LazyBlockLoader<LazyBlock>
     {
+        private final int channel;
         private LazyBlock delegateLazyBlock;
 
-        private RecordingLazyBlockLoader(LazyBlock delegateLazyBlock)
+        private RecordingLazyBlockLoader(int channel, LazyBlock delegateLazyBlock)
         {
+            this.channel = channel;
             this.delegateLazyBlock = requireNonNull(delegateLazyBlock, "delegateLazyBlock is null");
         }
 
@@ -310,6 +382,7 @@ public class ScanFilterAndProjectOperator
             delegateLazyBlock = null;
             // Position count already recorded for lazy blocks, input bytes are not
             operatorContext.recordProcessedInput(loadedBlock.getSizeInBytes(), 0);
+            recordColumnLoaded(channel, loadedBlock);
             recordPageSourceRawInputStats();
             block.setBlock(loadedBlock);
         }
@@ -345,15 +418,17 @@ public class ScanFilterAndProjectOperator
         Block[] blocks = null;
         for (int i = 0; i < page.getChannelCount(); ++i) {
             Block block = page.getBlock(i);
+            recordColumnInput(i, page.getPositionCount());
             // account processed bytes from lazy blocks only when they are loaded
             if (block instanceof LazyBlock && !((LazyBlock) block).isLoaded()) {
                 if (blocks == null) {
                     blocks = copyOfPageBlocks(page);
                 }
-                blocks[i] = new LazyBlock(page.getPositionCount(), new RecordingLazyBlockLoader((LazyBlock) block));
+                blocks[i] = new LazyBlock(page.getPositionCount(), new RecordingLazyBlockLoader(i, (LazyBlock) block));
             }
             else {
                 blockSizeSum += block.getSizeInBytes();
+                recordColumnLoaded(i, block);
             }
         }
         // stats update
@@ -363,6 +438,31 @@ public class ScanFilterAndProjectOperator
         return (blocks == null) ? page : new Page(page.getPositionCount(), blocks);
     }
 
+    private void recordColumnInput(int channel, int positionCount)
+    {
+        // pages of sources that do not map one channel per column are not tracked per column
+        if (channel < columnInputPositions.length()) {
+            columnInputPositions.addAndGet(channel, positionCount);
+        }
+    }
+
+    private void recordColumnLoaded(int channel, Block block)
+    {
+        if (channel < columnLoadedPositions.length()) {
+            columnLoadedPositions.addAndGet(channel, block.getPositionCount());
+            columnLoadedBytes.addAndGet(channel, block.getSizeInBytes());
+        }
+    }
+
+    private static List<Long> toList(AtomicLongArray values)
+    {
+        ImmutableList.Builder<Long> list = ImmutableList.builder();
+        for (int i = 0; i < values.length(); i++) {
+            list.add(values.get(i));
+        }
+        return list.build();
+    }
+
     private static Block[] copyOfPageBlocks(Page page)
     {
         Block[] blocks = new Block[page.getChannelCount()];
@@ -386,6 +486,8 @@ public class ScanFilterAndProjectOperator
         private final List<Type> types;
         private final DataSize minOutputPageSize;
         private final int minOutputPageRowCount;
+        private final Supplier<TupleDomain<ColumnHandle>> dynamicFilter;
+        private final Optional<SplitPrefetcher> splitPrefetcher;
         private boolean closed;
 
         public ScanFilterAndProjectOperatorFactory(
@@ -400,6 +502,41 @@ public class ScanFilterAndProjectOperator
                 List<Type> types,
                 DataSize minOutputPageSize,
                 int minOutputPageRowCount)
+        {
+            this(operatorId, planNodeId, sourceId, pageSourceProvider, cursorProcessor, pageProcessor, table, columns, types, minOutputPageSize, minOutputPageRowCount, TupleDomain::all);
+        }
+
+        public ScanFilterAndProjectOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                PlanNodeId sourceId,
+                PageSourceProvider pageSourceProvider,
+                Supplier<CursorProcessor> cursorProcessor,
+                Supplier<PageProcessor> pageProcessor,
+                TableHandle table,
+                Iterable<ColumnHandle> columns,
+                List<Type> types,
+                DataSize minOutputPageSize,
+                int minOutputPageRowCount,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
+        {
+            this(operatorId, planNodeId, sourceId, pageSourceProvider, cursorProcessor, pageProcessor, table, columns, types, minOutputPageSize, minOutputPageRowCount, dynamicFilter, Optional.empty());
+        }
+
+        public ScanFilterAndProjectOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                PlanNodeId sourceId,
+                PageSourceProvider pageSourceProvider,
+                Supplier<CursorProcessor> cursorProcessor,
+                Supplier<PageProcessor> pageProcessor,
+                TableHandle table,
+                Iterable<ColumnHandle> columns,
+                List<Type> types,
+                DataSize minOutputPageSize,
+                int minOutputPageRowCount,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter,
+                Optional<SplitPrefetcher> splitPrefetcher)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -412,6 +549,8 @@ public class ScanFilterAndProjectOperator
             this.types = requireNonNull(types, "types is null");
             this.minOutputPageSize = requireNonNull(minOutputPageSize, "minOutputPageSize is null");
             this.minOutputPageRowCount = minOutputPageRowCount;
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
+            this.splitPrefetcher = requireNonNull(splitPrefetcher, "splitPrefetcher is null");
         }
 
         @Override
@@ -420,6 +559,14 @@ public class ScanFilterAndProjectOperator
             return sourceId;
         }
 
+        @Override
+        public void splitQueued(Split split)
+        {
+            if (!(split.getConnectorSplit() instanceof EmptySplit)) {
+                splitPrefetcher.ifPresent(prefetcher -> prefetcher.splitQueued(split));
+            }
+        }
+
         @Override
         public SourceOperator createOperator(DriverContext driverContext)
         {
@@ -434,13 +581,17 @@ public class ScanFilterAndProjectOperator
                     table,
                     columns,
                     types,
-                    new MergingPageOutput(types, minOutputPageSize.toBytes(), minOutputPageRowCount));
+                    new MergingPageOutput(types, minOutputPageSize.toBytes(), minOutputPageRowCount),
+                    dynamicFilter,
+                    splitPrefetcher);
         }
 
         @Override
         public void noMoreOperators()
         {
             closed = true;
+            // all splits have been handed to operators by now
+            splitPrefetcher.ifPresent(SplitPrefetcher::close);
         }
     }
 }
@@ -13,37 +13,81 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.ChannelSet.ChannelSetBuilder;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 
+import static com.facebook.airlift.concurrent.MoreFutures.checkSuccess;
+import static com.facebook.airlift.concurrent.MoreFutures.getDone;
+import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.facebook.presto.operator.SpilledChannelSet.createPartitionFunction;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterators.concat;
+import static com.google.common.collect.Iterators.singletonIterator;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Futures.transformAsync;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 @ThreadSafe
 public class SetBuilderOperator
         implements Operator
 {
+    @VisibleForTesting
+    static final int SPILL_PARTITION_COUNT = 16;
+
     public static class SetSupplier
     {
         private final Type type;
+        private final OptionalInt probeOperatorsCount;
         private final SettableFuture<ChannelSet> channelSetFuture = SettableFuture.create();
+        private final SettableFuture<SpilledChannelSet> spilledChannelSetFuture = SettableFuture.create();
+        private final ListenableFuture<?> setBuilt = whenAnyComplete(ImmutableList.of(channelSetFuture, spilledChannelSetFuture));
+        private final SettableFuture<PartitionedConsumption<ChannelSet>> partitionedConsumption = SettableFuture.create();
+
+        @GuardedBy("this")
+        private int finishedProbeOperators;
+        @GuardedBy("this")
+        private int consumingProbeOperators;
+        @GuardedBy("this")
+        private boolean consumptionStarted;
 
         public SetSupplier(Type type)
+        {
+            this(type, OptionalInt.empty());
+        }
+
+        /**
+         * @param probeOperatorsCount the number of {@link HashSemiJoinOperator}s using the set, present only when the set may be spilled
+         */
+        public SetSupplier(Type type, OptionalInt probeOperatorsCount)
         {
             this.type = requireNonNull(type, "type is null");
+            this.probeOperatorsCount = requireNonNull(probeOperatorsCount, "probeOperatorsCount is null");
         }
 
         public Type getType()
@@ -51,16 +95,105 @@ public class SetBuilderOperator
             return type;
         }
 
+        public boolean isSpillEnabled()
+        {
+            return probeOperatorsCount.isPresent();
+        }
+
         public ListenableFuture<ChannelSet> getChannelSet()
         {
             return channelSetFuture;
         }
 
+        public ListenableFuture<SpilledChannelSet> getSpilledChannelSet()
+        {
+            return spilledChannelSetFuture;
+        }
+
+        /**
+         * Completes once either {@link #getChannelSet()} or {@link #getSpilledChannelSet()} is done.
+         */
+        public ListenableFuture<?> isSetBuilt()
+        {
+            return setBuilt;
+        }
+
         void setChannelSet(ChannelSet channelSet)
         {
+            checkState(!spilledChannelSetFuture.isDone(), "ChannelSet already spilled");
             boolean wasSet = channelSetFuture.set(requireNonNull(channelSet, "channelSet is null"));
             checkState(wasSet, "ChannelSet already set");
         }
+
+        void setSpilledChannelSet(SpilledChannelSet spilledChannelSet)
+        {
+            checkState(isSpillEnabled(), "Spill is not enabled");
+            checkState(!channelSetFuture.isDone(), "ChannelSet already set");
+            boolean wasSet = spilledChannelSetFuture.set(requireNonNull(spilledChannelSet, "spilledChannelSet is null"));
+            checkState(wasSet, "ChannelSet already spilled");
+            startPartitionedConsumptionIfReady();
+        }
+
+        /**
+         * Called by a probe operator that spilled its input and needs to join it with the spilled partitions of the set.
+         * The returned future completes once all probe operators are finished with their in-memory input.
+         */
+        public ListenableFuture<PartitionedConsumption<ChannelSet>> finishProbeOperator()
+        {
+            checkState(spilledChannelSetFuture.isDone(), "ChannelSet was not spilled");
+            synchronized (this) {
+                consumingProbeOperators++;
+                probeOperatorFinished();
+            }
+            startPartitionedConsumptionIfReady();
+            return partitionedConsumption;
+        }
+
+        /**
+         * Called by a probe operator that will not consume spilled partitions.
+         */
+        public void probeOperatorClosed()
+        {
+            if (!isSpillEnabled()) {
+                return;
+            }
+            synchronized (this) {
+                probeOperatorFinished();
+            }
+            startPartitionedConsumptionIfReady();
+        }
+
+        @GuardedBy("this")
+        private void probeOperatorFinished()
+        {
+            finishedProbeOperators++;
+            checkState(
+                    finishedProbeOperators <= probeOperatorsCount.getAsInt(),
+                    "%s probe operators finished out of %s declared",
+                    finishedProbeOperators,
+                    probeOperatorsCount.getAsInt());
+        }
+
+        private void startPartitionedConsumptionIfReady()
+        {
+            SpilledChannelSet spilledChannelSet;
+            int consumers;
+            synchronized (this) {
+                if (consumptionStarted || !spilledChannelSetFuture.isDone() || finishedProbeOperators < probeOperatorsCount.getAsInt()) {
+                    return;
+                }
+                consumptionStarted = true;
+                spilledChannelSet = getDone(spilledChannelSetFuture);
+                consumers = consumingProbeOperators;
+            }
+
+            if (consumers == 0) {
+                // No probe operator spilled any input, so none of the partitions will be loaded
+                spilledChannelSet.dispose();
+                return;
+            }
+            partitionedConsumption.set(spilledChannelSet.createPartitionedConsumption(consumers));
+        }
     }
 
     public static class SetBuilderOperatorFactory
@@ -74,6 +207,8 @@ public class SetBuilderOperator
         private final int expectedPositions;
         private boolean closed;
         private final JoinCompiler joinCompiler;
+        private final OptionalInt probeOperatorsCount;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
 
         public SetBuilderOperatorFactory(
                 int operatorId,
@@ -83,15 +218,34 @@ public class SetBuilderOperator
                 Optional<Integer> hashChannel,
                 int expectedPositions,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, type, setChannel, hashChannel, expectedPositions, joinCompiler, OptionalInt.empty(), unsupportedPartitioningSpillerFactory());
+        }
+
+        /**
+         * @param probeOperatorsCount the number of probe operators, spill is enabled when present
+         */
+        public SetBuilderOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Type type,
+                int setChannel,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                JoinCompiler joinCompiler,
+                OptionalInt probeOperatorsCount,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
             Preconditions.checkArgument(setChannel >= 0, "setChannel is negative");
-            this.setProvider = new SetSupplier(requireNonNull(type, "type is null"));
+            this.probeOperatorsCount = requireNonNull(probeOperatorsCount, "probeOperatorsCount is null");
+            this.setProvider = new SetSupplier(requireNonNull(type, "type is null"), probeOperatorsCount);
             this.setChannel = setChannel;
             this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
             this.expectedPositions = expectedPositions;
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         public SetSupplier getSetProvider()
@@ -104,7 +258,7 @@ public class SetBuilderOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, SetBuilderOperator.class.getSimpleName());
-            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions, joinCompiler);
+            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions, joinCompiler, partitioningSpillerFactory);
         }
 
         @Override
@@ -116,21 +270,80 @@ public class SetBuilderOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new SetBuilderOperatorFactory(operatorId, planNodeId, setProvider.getType(), setChannel, hashChannel, expectedPositions, joinCompiler);
+            return new SetBuilderOperatorFactory(operatorId, planNodeId, setProvider.getType(), setChannel, hashChannel, expectedPositions, joinCompiler, probeOperatorsCount, partitioningSpillerFactory);
         }
     }
 
+    @VisibleForTesting
+    public enum State
+    {
+        /**
+         * Operator accepts input
+         */
+        CONSUMING_INPUT,
+
+        /**
+         * Memory revoking occurred during {@link #CONSUMING_INPUT}. Operator accepts input and spills it
+         */
+        SPILLING_INPUT,
+
+        /**
+         * Input has been finished and spilled, waiting for the next partition to be requested
+         */
+        INPUT_SPILLED,
+
+        /**
+         * A spilled partition is being read back
+         */
+        INPUT_UNSPILLING,
+
+        /**
+         * A spilled partition has been read back and its set handed to the probe operators
+         */
+        INPUT_UNSPILLED_AND_BUILT,
+
+        /**
+         * The set has been built or all spilled partitions have been consumed
+         */
+        FINISHED
+    }
+
     private final OperatorContext operatorContext;
+    private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
     private final SetSupplier setSupplier;
     private final int setChannel;
     private final Optional<Integer> hashChannel;
+    private final int expectedPositions;
+    private final JoinCompiler joinCompiler;
+    private final boolean spillEnabled;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
 
-    private final ChannelSetBuilder channelSetBuilder;
+    @Nullable
+    private ChannelSetBuilder channelSetBuilder;
 
-    private boolean finished;
+    private State state = State.CONSUMING_INPUT;
+    private boolean closed;
 
     @Nullable
     private Work<?> unfinishedWork;  // The pending work for current page.
+    @Nullable
+    private Page unfinishedPage;  // The page of the pending work, kept only when spill is enabled.
+
+    private Optional<PartitioningSpiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private boolean spilledContainsNull;
+    private boolean spilledEmpty = true;
+
+    private List<SpilledChannelSetHandle> spilledPartitions = ImmutableList.of();
+    private int unspillPartition;
+    @Nullable
+    private Iterator<Page> unspilledPages;
+    @Nullable
+    private ChannelSetBuilder unspilledSetBuilder;
+    @Nullable
+    private Work<?> unspillWork;
 
     public SetBuilderOperator(
             OperatorContext operatorContext,
@@ -139,20 +352,40 @@ public class SetBuilderOperator
             Optional<Integer> hashChannel,
             int expectedPositions,
             JoinCompiler joinCompiler)
+    {
+        this(operatorContext, setSupplier, setChannel, hashChannel, expectedPositions, joinCompiler, unsupportedPartitioningSpillerFactory());
+    }
+
+    public SetBuilderOperator(
+            OperatorContext operatorContext,
+            SetSupplier setSupplier,
+            int setChannel,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            JoinCompiler joinCompiler,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
         this.setSupplier = requireNonNull(setSupplier, "setProvider is null");
         this.setChannel = setChannel;
 
         this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.expectedPositions = expectedPositions;
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        this.spillEnabled = setSupplier.isSpillEnabled();
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+
         // Set builder is has a single channel which goes in channel 0, if hash is present, add a hachBlock to channel 1
         Optional<Integer> channelSetHashChannel = hashChannel.isPresent() ? Optional.of(1) : Optional.empty();
         this.channelSetBuilder = new ChannelSetBuilder(
                 setSupplier.getType(),
                 channelSetHashChannel,
                 expectedPositions,
-                requireNonNull(operatorContext, "operatorContext is null"),
-                requireNonNull(joinCompiler, "joinCompiler is null"));
+                operatorContext,
+                joinCompiler,
+                spillEnabled ? localRevocableMemoryContext : localUserMemoryContext);
     }
 
     @Override
@@ -161,32 +394,188 @@ public class SetBuilderOperator
         return operatorContext;
     }
 
+    @VisibleForTesting
+    public State getState()
+    {
+        return state;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        switch (state) {
+            case CONSUMING_INPUT:
+            case INPUT_UNSPILLING:
+            case FINISHED:
+                return NOT_BLOCKED;
+
+            case SPILLING_INPUT:
+                return spillInProgress;
+
+            case INPUT_SPILLED:
+                return spilledPartitions.get(unspillPartition).getUnspillingOrDisposeRequested();
+
+            case INPUT_UNSPILLED_AND_BUILT:
+                return spilledPartitions.get(unspillPartition).getDisposeRequested();
+        }
+        throw new IllegalStateException("Unhandled state: " + state);
+    }
+
     @Override
     public void finish()
     {
-        if (finished) {
+        if (finishMemoryRevoke.isPresent()) {
+            return;
+        }
+
+        switch (state) {
+            case CONSUMING_INPUT:
+                finishInput();
+                return;
+
+            case SPILLING_INPUT:
+                finishSpilledInput();
+                return;
+
+            case INPUT_SPILLED:
+                unspillPartitionIfRequested();
+                return;
+
+            case INPUT_UNSPILLING:
+                finishPartitionUnspilling();
+                return;
+
+            case INPUT_UNSPILLED_AND_BUILT:
+                disposeUnspilledPartitionIfRequested();
+                return;
+
+            case FINISHED:
+                // no-op
+                return;
+        }
+        throw new IllegalStateException("Unhandled state: " + state);
+    }
+
+    private void finishInput()
+    {
+        checkState(state == State.CONSUMING_INPUT);
+        if (unfinishedWork != null && !processUnfinishedWork()) {
             return;
         }
 
         ChannelSet channelSet = channelSetBuilder.build();
+        if (spillEnabled) {
+            // the set can no longer be revoked once it is handed to the probe operators
+            localUserMemoryContext.setBytes(channelSet.getEstimatedSizeInBytes());
+            localRevocableMemoryContext.setBytes(0);
+        }
         setSupplier.setChannelSet(channelSet);
         operatorContext.recordOutput(channelSet.getEstimatedSizeInBytes(), channelSet.size());
-        finished = true;
+        state = State.FINISHED;
+    }
+
+    private void finishSpilledInput()
+    {
+        checkState(state == State.SPILLING_INPUT);
+        if (!spillInProgress.isDone()) {
+            // Not ready to handle finish() yet
+            return;
+        }
+        checkSuccess(spillInProgress, "spilling failed");
+
+        ImmutableList.Builder<SpilledChannelSetHandle> partitions = ImmutableList.builder();
+        for (int partition = 0; partition < SPILL_PARTITION_COUNT; partition++) {
+            partitions.add(new SpilledChannelSetHandle());
+        }
+        spilledPartitions = partitions.build();
+        state = State.INPUT_SPILLED;
+        setSupplier.setSpilledChannelSet(new SpilledChannelSet(spilledContainsNull, spilledEmpty, spilledPartitions));
+    }
+
+    private void unspillPartitionIfRequested()
+    {
+        checkState(state == State.INPUT_SPILLED);
+        SpilledChannelSetHandle partition = spilledPartitions.get(unspillPartition);
+        if (partition.getDisposeRequested().isDone()) {
+            nextPartition();
+            return;
+        }
+        if (!partition.getUnspillingRequested().isDone()) {
+            // Nothing to do yet.
+            return;
+        }
+
+        unspilledPages = getSpiller().getSpilledPages(unspillPartition);
+        unspilledSetBuilder = new ChannelSetBuilder(setSupplier.getType(), Optional.empty(), expectedPositions, operatorContext, joinCompiler, localUserMemoryContext);
+        state = State.INPUT_UNSPILLING;
+        finishPartitionUnspilling();
+    }
+
+    private void finishPartitionUnspilling()
+    {
+        checkState(state == State.INPUT_UNSPILLING);
+        while (true) {
+            if (unspillWork != null) {
+                boolean done = unspillWork.process();
+                unspilledSetBuilder.updateMemoryReservation();
+                if (!done) {
+                    // Wait for memory to become available
+                    return;
+                }
+                unspillWork = null;
+            }
+            if (!unspilledPages.hasNext()) {
+                break;
+            }
+            unspillWork = unspilledSetBuilder.addPage(unspilledPages.next());
+        }
+
+        unspilledPages = null;
+        spilledPartitions.get(unspillPartition).setChannelSet(unspilledSetBuilder.build());
+        state = State.INPUT_UNSPILLED_AND_BUILT;
+    }
+
+    private void disposeUnspilledPartitionIfRequested()
+    {
+        checkState(state == State.INPUT_UNSPILLED_AND_BUILT);
+        if (!spilledPartitions.get(unspillPartition).getDisposeRequested().isDone()) {
+            return;
+        }
+
+        unspilledSetBuilder = null;
+        localUserMemoryContext.setBytes(0);
+        nextPartition();
+    }
+
+    private void nextPartition()
+    {
+        unspillPartition++;
+        if (unspillPartition == spilledPartitions.size()) {
+            close();
+            return;
+        }
+        state = State.INPUT_SPILLED;
     }
 
     @Override
     public boolean isFinished()
     {
-        return finished;
+        return state == State.FINISHED;
     }
 
     @Override
     public boolean needsInput()
     {
+        if (finishMemoryRevoke.isPresent()) {
+            return false;
+        }
+        if (state == State.SPILLING_INPUT) {
+            return spillInProgress.isDone();
+        }
         // Since SetBuilderOperator doesn't produce any output, the getOutput()
         // method may never be called. We need to handle any unfinished work
         // before addInput() can be called again.
-        return !finished && (unfinishedWork == null || processUnfinishedWork());
+        return state == State.CONSUMING_INPUT && (unfinishedWork == null || processUnfinishedWork());
     }
 
     @Override
@@ -196,9 +585,18 @@ public class SetBuilderOperator
         checkState(!isFinished(), "Operator is already finished");
 
         Block sourceBlock = page.getBlock(setChannel);
+        if (state == State.SPILLING_INPUT) {
+            spillInput(new Page(sourceBlock));
+            return;
+        }
+
+        checkState(state == State.CONSUMING_INPUT, "Operator is not consuming input");
         Page sourcePage = hashChannel.isPresent() ? new Page(sourceBlock, page.getBlock(hashChannel.get())) : new Page(sourceBlock);
 
         unfinishedWork = channelSetBuilder.addPage(sourcePage);
+        if (spillEnabled) {
+            unfinishedPage = sourcePage;
+        }
         processUnfinishedWork();
     }
 
@@ -208,6 +606,99 @@ public class SetBuilderOperator
         return null;
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revokable memory should be reserved");
+
+        if (state == State.CONSUMING_INPUT) {
+            ChannelSet channelSet = channelSetBuilder.build();
+            spilledContainsNull = channelSet.containsNull();
+            spilledEmpty = channelSet.isEmpty();
+
+            Iterator<Page> pages = channelSetBuilder.buildPages();
+            if (unfinishedPage != null) {
+                // the pending page may have been partially added, so spill all of it
+                Page pendingPage = new Page(unfinishedPage.getBlock(0));
+                recordSpilledValues(pendingPage);
+                pages = concat(pages, singletonIterator(pendingPage));
+            }
+
+            finishMemoryRevoke = Optional.of(() -> {
+                channelSetBuilder = null;
+                unfinishedWork = null;
+                unfinishedPage = null;
+                localRevocableMemoryContext.setBytes(0);
+                state = State.SPILLING_INPUT;
+            });
+            return spillPages(pages);
+        }
+        else if (operatorContext.getReservedRevocableBytes() == 0) {
+            // Probably stale revoking request
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        throw new IllegalStateException(format("State %s can not have revocable memory, but has %s revocable bytes", state, operatorContext.getReservedRevocableBytes()));
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private ListenableFuture<?> spillPages(Iterator<Page> pages)
+    {
+        while (pages.hasNext()) {
+            ListenableFuture<?> spillingFuture = getSpiller().partitionAndSpill(pages.next(), partition -> true).getSpillingFuture();
+            if (!spillingFuture.isDone()) {
+                return transformAsync(spillingFuture, ignored -> spillPages(pages), directExecutor());
+            }
+            checkSuccess(spillingFuture, "spilling failed");
+        }
+        return immediateFuture(null);
+    }
+
+    private void spillInput(Page page)
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSuccess(spillInProgress, "spilling failed");
+        recordSpilledValues(page);
+        spillInProgress = getSpiller().partitionAndSpill(page, partition -> true).getSpillingFuture();
+    }
+
+    private void recordSpilledValues(Page page)
+    {
+        if (page.getPositionCount() > 0) {
+            spilledEmpty = false;
+        }
+        Block block = page.getBlock(0);
+        if (spilledContainsNull || !block.mayHaveNull()) {
+            return;
+        }
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            if (block.isNull(position)) {
+                spilledContainsNull = true;
+                return;
+            }
+        }
+    }
+
+    private PartitioningSpiller getSpiller()
+    {
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(partitioningSpillerFactory.create(
+                    ImmutableList.of(setSupplier.getType()),
+                    createPartitionFunction(setSupplier.getType(), 0, SPILL_PARTITION_COUNT),
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+        return spiller.get();
+    }
+
     private boolean processUnfinishedWork()
     {
         // Processes the unfinishedWork for this page by adding the data to the hash table. If this page
@@ -216,6 +707,7 @@ public class SetBuilderOperator
         boolean done = unfinishedWork.process();
         if (done) {
             unfinishedWork = null;
+            unfinishedPage = null;
         }
         // We need to update the memory reservation again since the page builder memory may also be increasing.
         channelSetBuilder.updateMemoryReservation();
@@ -227,4 +719,30 @@ public class SetBuilderOperator
     {
         return channelSetBuilder.getCapacity();
     }
+
+    @Override
+    public void close()
+    {
+        if (!spillEnabled || closed) {
+            return;
+        }
+        closed = true;
+        // close() can be called in any state, due for example to query failure, and must clean resource up unconditionally
+        state = State.FINISHED;
+        finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
+        unfinishedWork = null;
+        unfinishedPage = null;
+        unspilledPages = null;
+        unspillWork = null;
+        unspilledSetBuilder = null;
+
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+            closer.register(() -> localUserMemoryContext.setBytes(0));
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
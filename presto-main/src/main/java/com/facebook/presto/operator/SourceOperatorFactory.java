@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.metadata.Split;
 import com.facebook.presto.spi.plan.PlanNodeId;
 
 public interface SourceOperatorFactory
@@ -23,6 +24,13 @@ public interface SourceOperatorFactory
     @Override
     SourceOperator createOperator(DriverContext driverContext);
 
+    /**
+     * Called when a split for this source is queued for execution, before the operator processing it exists.
+     */
+    default void splitQueued(Split split)
+    {
+    }
+
     @Override
     default OperatorFactory duplicate()
     {
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The filtering side of a semi join that was spilled to disk by {@link SetBuilderOperator}.
+ * The distinct values are hash partitioned and every partition is loaded back on its own
+ * once all probe operators have finished their in-memory work.
+ */
+@ThreadSafe
+public final class SpilledChannelSet
+{
+    private final boolean containsNull;
+    private final boolean empty;
+    private final List<SpilledChannelSetHandle> partitions;
+
+    SpilledChannelSet(boolean containsNull, boolean empty, List<SpilledChannelSetHandle> partitions)
+    {
+        this.containsNull = containsNull;
+        this.empty = empty;
+        this.partitions = ImmutableList.copyOf(requireNonNull(partitions, "partitions is null"));
+    }
+
+    public boolean containsNull()
+    {
+        return containsNull;
+    }
+
+    public boolean isEmpty()
+    {
+        return empty;
+    }
+
+    public int getPartitionCount()
+    {
+        return partitions.size();
+    }
+
+    PartitionedConsumption<ChannelSet> createPartitionedConsumption(int consumersCount)
+    {
+        return new PartitionedConsumption<>(
+                consumersCount,
+                IntStream.range(0, partitions.size()).boxed().collect(toImmutableList()),
+                partition -> partitions.get(partition).getChannelSet(),
+                partition -> partitions.get(partition).dispose());
+    }
+
+    void dispose()
+    {
+        partitions.forEach(SpilledChannelSetHandle::dispose);
+    }
+
+    /**
+     * Partitions rows by the value in the given channel. The build and the probe side must use the same function.
+     */
+    static LocalPartitionGenerator createPartitionFunction(Type type, int channel, int partitionCount)
+    {
+        return new LocalPartitionGenerator(new InterpretedHashGenerator(ImmutableList.of(type), new int[] {channel}), partitionCount);
+    }
+}
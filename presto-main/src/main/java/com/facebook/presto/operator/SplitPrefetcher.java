@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Opens the page sources of queued splits ahead of the drivers that will read them, so that the first
+ * storage reads of a split overlap with the processing of the splits before it. At most
+ * {@code maxPrefetchedSplits} page sources are open without having been claimed by an operator.
+ * Until a page source is taken by an operator, its memory is charged to the given system memory context.
+ */
+@ThreadSafe
+public class SplitPrefetcher
+{
+    private static final Logger log = Logger.get(SplitPrefetcher.class);
+
+    private final int maxPrefetchedSplits;
+    private final Executor executor;
+    private final Function<Split, ConnectorPageSource> pageSourceFactory;
+    private final AggregatedMemoryContext systemMemoryContext;
+
+    @GuardedBy("this")
+    private final Deque<Split> queuedSplits = new ArrayDeque<>();
+    // splits claimed by an operator before their prefetch was started
+    @GuardedBy("this")
+    private final Set<Split> claimedSplits = Collections.newSetFromMap(new IdentityHashMap<>());
+    @GuardedBy("this")
+    private final Map<Split, PrefetchedPageSource> prefetchedPageSources = new IdentityHashMap<>();
+    @GuardedBy("this")
+    private boolean closed;
+
+    public SplitPrefetcher(
+            int maxPrefetchedSplits,
+            Executor executor,
+            Function<Split, ConnectorPageSource> pageSourceFactory,
+            AggregatedMemoryContext systemMemoryContext)
+    {
+        checkArgument(maxPrefetchedSplits > 0, "maxPrefetchedSplits must be positive");
+        this.maxPrefetchedSplits = maxPrefetchedSplits;
+        this.executor = requireNonNull(executor, "executor is null");
+        this.pageSourceFactory = requireNonNull(pageSourceFactory, "pageSourceFactory is null");
+        this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null");
+    }
+
+    public synchronized void splitQueued(Split split)
+    {
+        requireNonNull(split, "split is null");
+        if (closed) {
+            return;
+        }
+        queuedSplits.add(split);
+        startPrefetches();
+    }
+
+    /**
+     * Hands the page source of the split over to the caller, who becomes responsible for closing it.
+     * Returns empty if the prefetch of the split has not been started.
+     */
+    public synchronized Optional<PrefetchedPageSource> claim(Split split)
+    {
+        requireNonNull(split, "split is null");
+        PrefetchedPageSource pageSource = prefetchedPageSources.remove(split);
+        if (pageSource == null) {
+            if (!closed) {
+                claimedSplits.add(split);
+            }
+            return Optional.empty();
+        }
+        startPrefetches();
+        return Optional.of(pageSource);
+    }
+
+    /**
+     * Stops prefetching and closes the page sources that were not claimed.
+     */
+    public synchronized void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queuedSplits.clear();
+        claimedSplits.clear();
+        for (PrefetchedPageSource pageSource : prefetchedPageSources.values()) {
+            pageSource.close();
+        }
+        prefetchedPageSources.clear();
+    }
+
+    @GuardedBy("this")
+    private void startPrefetches()
+    {
+        while (!closed && prefetchedPageSources.size() < maxPrefetchedSplits && !queuedSplits.isEmpty()) {
+            Split split = queuedSplits.poll();
+            if (claimedSplits.remove(split)) {
+                continue;
+            }
+            PrefetchedPageSource pageSource = new PrefetchedPageSource(split);
+            prefetchedPageSources.put(split, pageSource);
+            executor.execute(pageSource::open);
+        }
+    }
+
+    public class PrefetchedPageSource
+    {
+        private final Split split;
+        private final SettableFuture<ConnectorPageSource> pageSource = SettableFuture.create();
+        private final LocalMemoryContext memoryContext;
+        private volatile long openNanos;
+        private volatile long openedAtNanos;
+
+        private PrefetchedPageSource(Split split)
+        {
+            this.split = requireNonNull(split, "split is null");
+            this.memoryContext = systemMemoryContext.newLocalMemoryContext(SplitPrefetcher.class.getSimpleName());
+        }
+
+        public ListenableFuture<ConnectorPageSource> getPageSource()
+        {
+            return pageSource;
+        }
+
+        /**
+         * Returns the opened page source. From then on the caller accounts for its memory.
+         */
+        public ConnectorPageSource takePageSource()
+        {
+            checkState(pageSource.isDone(), "page source is not opened yet");
+            try {
+                return getFutureValue(pageSource);
+            }
+            finally {
+                memoryContext.close();
+            }
+        }
+
+        /**
+         * Wall time spent opening and prefetching the page source on the I/O thread.
+         */
+        public long getOpenNanos()
+        {
+            return openNanos;
+        }
+
+        /**
+         * Value of {@link System#nanoTime()} when the page source was opened.
+         */
+        public long getOpenedAtNanos()
+        {
+            return openedAtNanos;
+        }
+
+        private void open()
+        {
+            long start = System.nanoTime();
+            ConnectorPageSource source = null;
+            try {
+                source = pageSourceFactory.apply(split);
+                source.prefetch();
+                // fails if the page source was closed in the meantime
+                memoryContext.setBytes(source.getSystemMemoryUsage());
+            }
+            catch (Throwable t) {
+                if (source != null) {
+                    try {
+                        source.close();
+                    }
+                    catch (IOException | RuntimeException e) {
+                        t.addSuppressed(e);
+                    }
+                }
+                recordOpened(start);
+                pageSource.setException(t);
+                return;
+            }
+            recordOpened(start);
+            pageSource.set(source);
+        }
+
+        private void recordOpened(long start)
+        {
+            openedAtNanos = System.nanoTime();
+            openNanos = openedAtNanos - start;
+        }
+
+        /**
+         * Closes the page source once it is opened. Only for page sources that are not going to be read.
+         */
+        public void close()
+        {
+            memoryContext.close();
+            Futures.addCallback(pageSource, new FutureCallback<ConnectorPageSource>()
+            {
+                @Override
+                public void onSuccess(ConnectorPageSource source)
+                {
+                    try {
+                        source.close();
+                    }
+                    catch (IOException e) {
+                        log.warn(e, "Error closing prefetched page source");
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t)
+                {
+                    // the page source was never opened
+                }
+            }, directExecutor());
+        }
+    }
+}
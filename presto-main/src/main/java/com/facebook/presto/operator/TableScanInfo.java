@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.util.Mergeable;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.airlift.units.Duration;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static io.airlift.units.Duration.succinctNanos;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Split info of a {@link TableScanOperator} together with how much of the opening of its page source
+ * was done ahead of time by a {@link SplitPrefetcher}. The prefetch time not spent waiting by the
+ * driver is storage I/O that overlapped with the processing of other splits.
+ */
+public class TableScanInfo
+        implements Mergeable<TableScanInfo>, OperatorInfo
+{
+    // NOTE: this deserializes to a map instead of the expected type
+    private final Object splitInfo;
+    private final long prefetchedSplits;
+    private final Duration prefetchTime;
+    private final Duration prefetchWaitTime;
+
+    @JsonCreator
+    public TableScanInfo(
+            @JsonProperty("splitInfo") @Nullable Object splitInfo,
+            @JsonProperty("prefetchedSplits") long prefetchedSplits,
+            @JsonProperty("prefetchTime") Duration prefetchTime,
+            @JsonProperty("prefetchWaitTime") Duration prefetchWaitTime)
+    {
+        this.splitInfo = splitInfo;
+        this.prefetchedSplits = prefetchedSplits;
+        this.prefetchTime = requireNonNull(prefetchTime, "prefetchTime is null");
+        this.prefetchWaitTime = requireNonNull(prefetchWaitTime, "prefetchWaitTime is null");
+    }
+
+    @Nullable
+    @JsonProperty
+    public Object getSplitInfo()
+    {
+        return splitInfo;
+    }
+
+    @JsonProperty
+    public long getPrefetchedSplits()
+    {
+        return prefetchedSplits;
+    }
+
+    @JsonProperty
+    public Duration getPrefetchTime()
+    {
+        return prefetchTime;
+    }
+
+    @JsonProperty
+    public Duration getPrefetchWaitTime()
+    {
+        return prefetchWaitTime;
+    }
+
+    @Override
+    public TableScanInfo mergeWith(TableScanInfo other)
+    {
+        // split info of different splits cannot be combined
+        return new TableScanInfo(
+                null,
+                prefetchedSplits + other.getPrefetchedSplits(),
+                succinctNanos(prefetchTime.roundTo(NANOSECONDS) + other.getPrefetchTime().roundTo(NANOSECONDS)),
+                succinctNanos(prefetchWaitTime.roundTo(NANOSECONDS) + other.getPrefetchWaitTime().roundTo(NANOSECONDS)));
+    }
+
+    @Override
+    public boolean isFinal()
+    {
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("splitInfo", splitInfo)
+                .add("prefetchedSplits", prefetchedSplits)
+                .add("prefetchTime", prefetchTime)
+                .add("prefetchWaitTime", prefetchWaitTime)
+                .toString();
+    }
+}
@@ -13,14 +13,17 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.Session;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.metadata.Split;
+import com.facebook.presto.operator.SplitPrefetcher.PrefetchedPageSource;
 import com.facebook.presto.spi.ColumnHandle;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.UpdatablePageSource;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.split.EmptySplit;
 import com.facebook.presto.split.EmptySplitPageSource;
 import com.facebook.presto.split.PageSourceProvider;
@@ -38,6 +41,7 @@ import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.MoreFutures.toListenableFuture;
 import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.units.Duration.succinctNanos;
 import static java.util.Objects.requireNonNull;
 
 public class TableScanOperator
@@ -51,6 +55,8 @@ public class TableScanOperator
         private final PageSourceProvider pageSourceProvider;
         private final TableHandle table;
         private final List<ColumnHandle> columns;
+        private final Supplier<TupleDomain<ColumnHandle>> dynamicFilter;
+        private final Optional<SplitPrefetcher> splitPrefetcher;
         private boolean closed;
 
         public TableScanOperatorFactory(
@@ -58,13 +64,28 @@ public class TableScanOperator
                 PlanNodeId sourceId,
                 PageSourceProvider pageSourceProvider,
                 TableHandle table,
-                Iterable<ColumnHandle> columns)
+                Iterable<ColumnHandle> columns,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
+        {
+            this(operatorId, sourceId, pageSourceProvider, table, columns, dynamicFilter, Optional.empty());
+        }
+
+        public TableScanOperatorFactory(
+                int operatorId,
+                PlanNodeId sourceId,
+                PageSourceProvider pageSourceProvider,
+                TableHandle table,
+                Iterable<ColumnHandle> columns,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter,
+                Optional<SplitPrefetcher> splitPrefetcher)
         {
             this.operatorId = operatorId;
             this.sourceId = requireNonNull(sourceId, "sourceId is null");
             this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
             this.table = requireNonNull(table, "table is null");
             this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+            this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
+            this.splitPrefetcher = requireNonNull(splitPrefetcher, "splitPrefetcher is null");
         }
 
         @Override
@@ -73,6 +94,14 @@ public class TableScanOperator
             return sourceId;
         }
 
+        @Override
+        public void splitQueued(Split split)
+        {
+            if (!(split.getConnectorSplit() instanceof EmptySplit)) {
+                splitPrefetcher.ifPresent(prefetcher -> prefetcher.splitQueued(split));
+            }
+        }
+
         @Override
         public SourceOperator createOperator(DriverContext driverContext)
         {
@@ -83,13 +112,17 @@ public class TableScanOperator
                     sourceId,
                     pageSourceProvider,
                     table,
-                    columns);
+                    columns,
+                    dynamicFilter,
+                    splitPrefetcher);
         }
 
         @Override
         public void noMoreOperators()
         {
             closed = true;
+            // all splits have been handed to operators by now
+            splitPrefetcher.ifPresent(SplitPrefetcher::close);
         }
     }
 
@@ -98,11 +131,19 @@ public class TableScanOperator
     private final PageSourceProvider pageSourceProvider;
     private final TableHandle table;
     private final List<ColumnHandle> columns;
+    private final Supplier<TupleDomain<ColumnHandle>> dynamicFilter;
+    private final Optional<SplitPrefetcher> splitPrefetcher;
     private final LocalMemoryContext systemMemoryContext;
     private final SettableFuture<?> blocked = SettableFuture.create();
 
     private Split split;
     private ConnectorPageSource source;
+    private Optional<PrefetchedPageSource> prefetchedSource = Optional.empty();
+    private long prefetchWaitStartNanos;
+
+    private volatile long prefetchedSplits;
+    private volatile long prefetchNanos;
+    private volatile long prefetchWaitNanos;
 
     private boolean finished;
 
@@ -115,13 +156,28 @@ public class TableScanOperator
             PlanNodeId planNodeId,
             PageSourceProvider pageSourceProvider,
             TableHandle table,
-            Iterable<ColumnHandle> columns)
+            Iterable<ColumnHandle> columns,
+            Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
+    {
+        this(operatorContext, planNodeId, pageSourceProvider, table, columns, dynamicFilter, Optional.empty());
+    }
+
+    public TableScanOperator(
+            OperatorContext operatorContext,
+            PlanNodeId planNodeId,
+            PageSourceProvider pageSourceProvider,
+            TableHandle table,
+            Iterable<ColumnHandle> columns,
+            Supplier<TupleDomain<ColumnHandle>> dynamicFilter,
+            Optional<SplitPrefetcher> splitPrefetcher)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
         this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
         this.table = requireNonNull(table, "table is null");
         this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+        this.dynamicFilter = requireNonNull(dynamicFilter, "dynamicFilter is null");
+        this.splitPrefetcher = requireNonNull(splitPrefetcher, "splitPrefetcher is null");
         this.systemMemoryContext = operatorContext.newLocalSystemMemoryContext(TableScanOperator.class.getSimpleName());
     }
 
@@ -150,15 +206,16 @@ public class TableScanOperator
         this.split = split;
 
         Object splitInfo = split.getInfo();
-        if (splitInfo != null) {
-            operatorContext.setInfoSupplier(() -> new SplitOperatorInfo(splitInfo));
-        }
+        operatorContext.setInfoSupplier(() -> new TableScanInfo(splitInfo, prefetchedSplits, succinctNanos(prefetchNanos), succinctNanos(prefetchWaitNanos)));
 
         blocked.set(null);
 
         if (split.getConnectorSplit() instanceof EmptySplit) {
             source = new EmptySplitPageSource();
         }
+        else {
+            prefetchedSource = splitPrefetcher.flatMap(prefetcher -> prefetcher.claim(split));
+        }
 
         return () -> {
             if (source instanceof UpdatablePageSource) {
@@ -189,6 +246,12 @@ public class TableScanOperator
         finished = true;
         blocked.set(null);
 
+        // a page source opened ahead of time belongs to this operator once claimed
+        if (source == null) {
+            prefetchedSource.ifPresent(PrefetchedPageSource::close);
+        }
+        prefetchedSource = Optional.empty();
+
         if (source != null) {
             try {
                 source.close();
@@ -223,6 +286,10 @@ public class TableScanOperator
             CompletableFuture<?> pageSourceBlocked = source.isBlocked();
             return pageSourceBlocked.isDone() ? NOT_BLOCKED : toListenableFuture(pageSourceBlocked);
         }
+        if (prefetchedSource.isPresent() && !prefetchedSource.get().getPageSource().isDone()) {
+            startPrefetchWait();
+            return prefetchedSource.get().getPageSource();
+        }
         return NOT_BLOCKED;
     }
 
@@ -245,7 +312,19 @@ public class TableScanOperator
             return null;
         }
         if (source == null) {
-            source = pageSourceProvider.createPageSource(operatorContext.getSession(), split, table, columns);
+            if (prefetchedSource.isPresent()) {
+                PrefetchedPageSource prefetched = prefetchedSource.get();
+                if (!prefetched.getPageSource().isDone()) {
+                    startPrefetchWait();
+                    return null;
+                }
+                prefetchedSource = Optional.empty();
+                source = prefetched.takePageSource();
+                recordPrefetch(prefetched);
+            }
+            else {
+                source = createPageSource(operatorContext.getSession(), pageSourceProvider, split, table, columns, dynamicFilter);
+            }
         }
 
         Page page = source.getNextPage();
@@ -264,6 +343,44 @@ public class TableScanOperator
         return page;
     }
 
+    /**
+     * Creates the page source of a split, applying the dynamic filter collected so far.
+     */
+    public static ConnectorPageSource createPageSource(
+            Session session,
+            PageSourceProvider pageSourceProvider,
+            Split split,
+            TableHandle table,
+            List<ColumnHandle> columns,
+            Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
+    {
+        // by the time the scan is read, the joins downstream have usually built their lookup sources
+        TupleDomain<ColumnHandle> dynamicFilterPredicate = dynamicFilter.get();
+        if (dynamicFilterPredicate.isNone()) {
+            return new EmptySplitPageSource();
+        }
+        if (!dynamicFilterPredicate.isAll()) {
+            split = split.withDynamicFilter(dynamicFilterPredicate);
+        }
+        return pageSourceProvider.createPageSource(session, split, table, columns);
+    }
+
+    private void startPrefetchWait()
+    {
+        if (prefetchWaitStartNanos == 0) {
+            prefetchWaitStartNanos = System.nanoTime();
+        }
+    }
+
+    private void recordPrefetch(PrefetchedPageSource prefetched)
+    {
+        prefetchedSplits = 1;
+        prefetchNanos = prefetched.getOpenNanos();
+        if (prefetchWaitStartNanos != 0) {
+            prefetchWaitNanos = Math.max(0, prefetched.getOpenedAtNanos() - prefetchWaitStartNanos);
+        }
+    }
+
     private void recordSourceRawInputStats()
     {
         checkState(source != null, "source must not be null");
@@ -19,20 +19,28 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.units.DataSize;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.airlift.concurrent.MoreFutures.checkSuccess;
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.Objects.requireNonNull;
 
 public class TopNRowNumberOperator
@@ -59,6 +67,8 @@ public class TopNRowNumberOperator
         private final boolean generateRowNumber;
         private boolean closed;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final Optional<SpillerFactory> spillerFactory;
 
         public TopNRowNumberOperatorFactory(
                 int operatorId,
@@ -74,6 +84,26 @@ public class TopNRowNumberOperator
                 Optional<Integer> hashChannel,
                 int expectedPositions,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler, false, Optional.empty());
+        }
+
+        public TopNRowNumberOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                List<Integer> partitionChannels,
+                List<? extends Type> partitionTypes,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                int maxRowCountPerPartition,
+                boolean partial,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -91,6 +121,9 @@ public class TopNRowNumberOperator
             this.generateRowNumber = !partial;
             this.expectedPositions = expectedPositions;
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
         }
 
         @Override
@@ -110,7 +143,9 @@ public class TopNRowNumberOperator
                     generateRowNumber,
                     hashChannel,
                     expectedPositions,
-                    joinCompiler);
+                    joinCompiler,
+                    spillEnabled,
+                    spillerFactory);
         }
 
         @Override
@@ -122,19 +157,46 @@ public class TopNRowNumberOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new TopNRowNumberOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler);
+            return new TopNRowNumberOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrder, maxRowCountPerPartition, partial, hashChannel, expectedPositions, joinCompiler, spillEnabled, spillerFactory);
         }
     }
 
+    // the partitions merged back from disk are produced in batches of about this size
+    private static final long MERGE_BATCH_SIZE_IN_BYTES = new DataSize(16, MEGABYTE).toBytes();
+
     private final OperatorContext operatorContext;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
 
+    private final List<Type> sourceTypes;
     private final List<Integer> outputChannels;
-
-    private final GroupByHash groupByHash;
-    private final GroupedTopNBuilder groupedTopNBuilder;
+    private final int[] partitionChannels;
+    private final List<Type> partitionTypes;
+    private final PageWithPositionComparator comparator;
+    private final int maxRowCountPerPartition;
+    private final boolean generateRowNumber;
+    private final Optional<Integer> hashChannel;
+    private final int expectedPositions;
+    private final JoinCompiler joinCompiler;
+
+    private final boolean spillEnabled;
+    private final Optional<SpillerFactory> spillerFactory;
+    private final HashGenerator spillHashGenerator;
+
+    private GroupByHash groupByHash;
+    private GroupedTopNBuilder groupedTopNBuilder;
+
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private Optional<MergeHashSort> mergeHashSort = Optional.empty();
+    // the spilled partial heaps merged by partition hash; present only when flushing after a spill
+    private WorkProcessor<Page> mergedPages;
 
     private boolean finishing;
+    private boolean flushing;
+    // the remaining heaps are spilled before the spills are merged
+    private boolean spillingHeaps;
     private Work<?> unfinishedWork;
     private Iterator<Page> outputIterator;
 
@@ -151,9 +213,30 @@ public class TopNRowNumberOperator
             Optional<Integer> hashChannel,
             int expectedPositions,
             JoinCompiler joinCompiler)
+    {
+        this(operatorContext, sourceTypes, outputChannels, partitionChannels, partitionTypes, sortChannels, sortOrders, maxRowCountPerPartition, generateRowNumber, hashChannel, expectedPositions, joinCompiler, false, Optional.empty());
+    }
+
+    public TopNRowNumberOperator(
+            OperatorContext operatorContext,
+            List<? extends Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<Integer> partitionChannels,
+            List<Type> partitionTypes,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrders,
+            int maxRowCountPerPartition,
+            boolean generateRowNumber,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.sourceTypes = ImmutableList.copyOf(requireNonNull(sourceTypes, "sourceTypes is null"));
 
         ImmutableList.Builder<Integer> outputChannelsBuilder = ImmutableList.builder();
         for (int channel : requireNonNull(outputChannels, "outputChannels is null")) {
@@ -165,29 +248,28 @@ public class TopNRowNumberOperator
         this.outputChannels = outputChannelsBuilder.build();
 
         checkArgument(maxRowCountPerPartition > 0, "maxRowCountPerPartition must be > 0");
-
         if (!partitionChannels.isEmpty()) {
             checkArgument(expectedPositions > 0, "expectedPositions must be > 0");
-            groupByHash = createGroupByHash(
-                    partitionTypes,
-                    Ints.toArray(partitionChannels),
-                    hashChannel,
-                    expectedPositions,
-                    isDictionaryAggregationEnabled(operatorContext.getSession()),
-                    joinCompiler,
-                    this::updateMemoryReservation);
-        }
-        else {
-            groupByHash = new NoChannelGroupByHash();
         }
 
+        this.partitionChannels = Ints.toArray(requireNonNull(partitionChannels, "partitionChannels is null"));
+        this.partitionTypes = ImmutableList.copyOf(requireNonNull(partitionTypes, "partitionTypes is null"));
+        this.maxRowCountPerPartition = maxRowCountPerPartition;
+        this.generateRowNumber = generateRowNumber;
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.expectedPositions = expectedPositions;
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+
         List<Type> types = toTypes(sourceTypes, outputChannels, generateRowNumber);
-        this.groupedTopNBuilder = new GroupedTopNBuilder(
-                ImmutableList.copyOf(sourceTypes),
-                new SimplePageWithPositionComparator(types, sortChannels, sortOrders),
-                maxRowCountPerPartition,
-                generateRowNumber,
-                groupByHash);
+        this.comparator = new SimplePageWithPositionComparator(types, sortChannels, sortOrders);
+
+        // without partitions only the top N rows are ever kept, so there is nothing worth spilling
+        this.spillEnabled = spillEnabled && !partitionChannels.isEmpty();
+        this.spillerFactory = requireNonNull(spillerFactory, "spillerFactory is null");
+        checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
+        this.spillHashGenerator = new InterpretedHashGenerator(this.partitionTypes, this.partitionChannels);
+
+        createGroupedTopNBuilder();
     }
 
     @Override
@@ -206,14 +288,24 @@ public class TopNRowNumberOperator
     public boolean isFinished()
     {
         // has no more input, has finished flushing, and has no unfinished work
-        return finishing && outputIterator != null && !outputIterator.hasNext() && unfinishedWork == null;
+        return finishing &&
+                outputIterator != null &&
+                !outputIterator.hasNext() &&
+                unfinishedWork == null &&
+                (mergedPages == null || mergedPages.isFinished());
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
     }
 
     @Override
     public boolean needsInput()
     {
-        // still has more input, has not started flushing yet, and has no unfinished work
-        return !finishing && outputIterator == null && unfinishedWork == null;
+        // still has more input, has not started flushing yet, has no unfinished work and is not spilling
+        return !finishing && outputIterator == null && unfinishedWork == null && spillInProgress.isDone() && !finishMemoryRevoke.isPresent();
     }
 
     @Override
@@ -222,7 +314,9 @@ public class TopNRowNumberOperator
         checkState(!finishing, "Operator is already finishing");
         checkState(unfinishedWork == null, "Cannot add input with the operator when unfinished work is not empty");
         checkState(outputIterator == null, "Cannot add input with the operator when flushing");
+        checkState(!finishMemoryRevoke.isPresent(), "Cannot add input with the operator when memory revoke is not finished");
         requireNonNull(page, "page is null");
+        checkSuccess(spillInProgress, "spilling failed");
         unfinishedWork = groupedTopNBuilder.processPage(page);
         if (unfinishedWork.process()) {
             unfinishedWork = null;
@@ -242,12 +336,27 @@ public class TopNRowNumberOperator
             unfinishedWork = null;
         }
 
-        if (!finishing) {
+        if (!finishing || !spillInProgress.isDone() || finishMemoryRevoke.isPresent()) {
             return null;
         }
+        checkSuccess(spillInProgress, "spilling failed");
 
         if (outputIterator == null) {
-            // start flushing
+            if (!flushing) {
+                startFlushing();
+            }
+            if (spillingHeaps) {
+                if (!spillInProgress.isDone()) {
+                    return null;
+                }
+                checkSuccess(spillInProgress, "spilling failed");
+                spillingHeaps = false;
+                resetHeaps();
+                startMerge();
+            }
+            if (mergedPages != null && !mergeNextPartitions()) {
+                return null;
+            }
             outputIterator = groupedTopNBuilder.buildResult();
         }
 
@@ -261,10 +370,42 @@ public class TopNRowNumberOperator
             }
             output = new Page(blocks);
         }
+        else if (mergedPages != null && !mergedPages.isFinished()) {
+            // the current batch of merged partitions has been produced; start the next one
+            outputIterator = null;
+            createGroupedTopNBuilder();
+        }
         updateMemoryReservation();
         return output;
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        if (flushing || unfinishedWork != null || !hasHeapsToSpill()) {
+            // the heaps are either being read, in the middle of an update or empty
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+        finishMemoryRevoke = Optional.of(this::resetHeaps);
+        return spillToDisk();
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        finishMemoryRevoke.orElseThrow(() -> new IllegalStateException("finishMemoryRevoke called without startMemoryRevoke"))
+                .run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    @Override
+    public void close()
+    {
+        spiller.ifPresent(Spiller::close);
+        mergeHashSort.ifPresent(MergeHashSort::close);
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
@@ -272,10 +413,135 @@ public class TopNRowNumberOperator
         return groupByHash.getCapacity();
     }
 
+    private void createGroupedTopNBuilder()
+    {
+        if (partitionChannels.length > 0) {
+            groupByHash = createGroupByHash(
+                    partitionTypes,
+                    partitionChannels,
+                    hashChannel,
+                    expectedPositions,
+                    isDictionaryAggregationEnabled(operatorContext.getSession()),
+                    joinCompiler,
+                    this::updateMemoryReservation);
+        }
+        else {
+            groupByHash = new NoChannelGroupByHash();
+        }
+
+        groupedTopNBuilder = new GroupedTopNBuilder(
+                sourceTypes,
+                comparator,
+                maxRowCountPerPartition,
+                generateRowNumber,
+                groupByHash);
+    }
+
+    private void startFlushing()
+    {
+        flushing = true;
+
+        // the heaps are read while producing output, so their memory can no longer be revoked
+        long revocableBytes = localRevocableMemoryContext.getBytes();
+        if (revocableBytes > 0 && !spiller.isPresent()) {
+            localRevocableMemoryContext.setBytes(0);
+            if (!localUserMemoryContext.trySetBytes(localUserMemoryContext.getBytes() + revocableBytes)) {
+                // spill the heaps rather than failing the query
+                localRevocableMemoryContext.setBytes(revocableBytes);
+            }
+        }
+
+        if (hasHeapsToSpill()) {
+            // once anything was spilled the remaining heaps are spilled as well, so only one batch of partitions is held while merging
+            spillToDisk();
+            spillingHeaps = true;
+            return;
+        }
+        startMerge();
+    }
+
+    private void startMerge()
+    {
+        if (spiller.isPresent()) {
+            List<WorkProcessor<Page>> spilledPages = spiller.get().getSpills().stream()
+                    .map(WorkProcessor::fromIterator)
+                    .collect(toImmutableList());
+            mergeHashSort = Optional.of(new MergeHashSort(operatorContext.newAggregateSystemMemoryContext()));
+            mergedPages = mergeHashSort.get().merge(
+                    partitionTypes,
+                    partitionChannels,
+                    sourceTypes,
+                    spilledPages,
+                    operatorContext.getDriverContext().getYieldSignal());
+        }
+    }
+
+    /**
+     * Feeds the merged spilled rows into the current heaps until they hold a batch worth of partitions.
+     * The merge keeps the rows with equal partition hash within the same page, so a partition never spans batches.
+     *
+     * @return false if the merge or the heaps update has to be continued later
+     */
+    private boolean mergeNextPartitions()
+    {
+        while (groupedTopNBuilder.getEstimatedSizeInBytes() < MERGE_BATCH_SIZE_IN_BYTES) {
+            if (!mergedPages.process()) {
+                return false;
+            }
+            if (mergedPages.isFinished()) {
+                return true;
+            }
+
+            unfinishedWork = groupedTopNBuilder.processPage(mergedPages.getResult());
+            boolean finished = unfinishedWork.process();
+            updateMemoryReservation();
+            if (!finished) {
+                return false;
+            }
+            unfinishedWork = null;
+        }
+        return true;
+    }
+
+    private boolean hasHeapsToSpill()
+    {
+        return localRevocableMemoryContext.getBytes() > 0 && groupByHash.getGroupCount() > 0;
+    }
+
+    private ListenableFuture<?> spillToDisk()
+    {
+        checkSuccess(spillInProgress, "spilling failed");
+
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+
+        // every spill holds the partial heaps ordered by partition hash, so the spills can be merged in a single streaming pass
+        spillInProgress = spiller.get().spill(groupedTopNBuilder.buildHashSortedResult(spillHashGenerator));
+        return spillInProgress;
+    }
+
+    private void resetHeaps()
+    {
+        createGroupedTopNBuilder();
+        updateMemoryReservation();
+    }
+
     private boolean updateMemoryReservation()
     {
-        // TODO: may need to use trySetMemoryReservation with a compaction to free memory (but that may cause GC pressure)
-        localUserMemoryContext.setBytes(groupedTopNBuilder.getEstimatedSizeInBytes());
+        long sizeInBytes = groupedTopNBuilder.getEstimatedSizeInBytes();
+        if (spillEnabled && !flushing) {
+            localUserMemoryContext.setBytes(0);
+            localRevocableMemoryContext.setBytes(sizeInBytes);
+        }
+        else {
+            // TODO: may need to use trySetMemoryReservation with a compaction to free memory (but that may cause GC pressure)
+            localRevocableMemoryContext.setBytes(0);
+            localUserMemoryContext.setBytes(sizeInBytes);
+        }
         return operatorContext.isWaitingForMemory().isDone();
     }
 
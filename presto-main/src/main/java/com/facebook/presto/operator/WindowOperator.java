@@ -22,12 +22,17 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -35,12 +40,15 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiPredicate;
 import java.util.stream.Stream;
 
+import static com.facebook.airlift.concurrent.MoreFutures.checkSuccess;
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.util.MergeSortedPages.mergeSortedPages;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.concat;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Collections.nCopies;
 import static java.util.Objects.requireNonNull;
 
@@ -63,6 +71,9 @@ public class WindowOperator
         private final int expectedPositions;
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
+        private final boolean spillEnabled;
+        private final Optional<SpillerFactory> spillerFactory;
+        private final OrderingCompiler orderingCompiler;
 
         public WindowOperatorFactory(
                 int operatorId,
@@ -76,7 +87,10 @@ public class WindowOperator
                 List<SortOrder> sortOrder,
                 int preSortedChannelPrefix,
                 int expectedPositions,
-                PagesIndex.Factory pagesIndexFactory)
+                PagesIndex.Factory pagesIndexFactory,
+                boolean spillEnabled,
+                Optional<SpillerFactory> spillerFactory,
+                OrderingCompiler orderingCompiler)
         {
             requireNonNull(sourceTypes, "sourceTypes is null");
             requireNonNull(planNodeId, "planNodeId is null");
@@ -88,9 +102,12 @@ public class WindowOperator
             requireNonNull(sortChannels, "sortChannels is null");
             requireNonNull(sortOrder, "sortOrder is null");
             requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+            requireNonNull(spillerFactory, "spillerFactory is null");
+            requireNonNull(orderingCompiler, "orderingCompiler is null");
             checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
             checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
             checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
+            checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
 
             this.pagesIndexFactory = pagesIndexFactory;
             this.operatorId = operatorId;
@@ -104,6 +121,9 @@ public class WindowOperator
             this.sortOrder = ImmutableList.copyOf(sortOrder);
             this.preSortedChannelPrefix = preSortedChannelPrefix;
             this.expectedPositions = expectedPositions;
+            this.spillEnabled = spillEnabled;
+            this.spillerFactory = spillerFactory;
+            this.orderingCompiler = orderingCompiler;
         }
 
         @Override
@@ -123,7 +143,10 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
 
         @Override
@@ -147,7 +170,10 @@ public class WindowOperator
                     sortOrder,
                     preSortedChannelPrefix,
                     expectedPositions,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    spillerFactory,
+                    orderingCompiler);
         }
     }
 
@@ -165,8 +191,11 @@ public class WindowOperator
     private final List<Integer> orderChannels;
     private final List<SortOrder> ordering;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext revocableMemoryContext;
+    private final List<Type> sourceTypes;
 
     private final int[] preGroupedChannels;
+    private final int[] unGroupedPartitionChannels;
 
     private final PagesHashStrategy preGroupedPartitionHashStrategy;
     private final PagesHashStrategy unGroupedPartitionHashStrategy;
@@ -186,6 +215,29 @@ public class WindowOperator
 
     private Page pendingInput;
 
+    private final boolean spillEnabled;
+    private final Optional<SpillerFactory> spillerFactory;
+    private final OrderingCompiler orderingCompiler;
+    // order of the rows of a pre-grouped group, used to write and merge the spilled sorted runs
+    private final List<Integer> spillSortChannels;
+    private final List<SortOrder> spillSortOrder;
+
+    // Spilling bounds memory by the largest window partition, not by a single frame: window functions
+    // are given random access to their whole partition through WindowIndex (size() for ntile and
+    // cume_dist, arbitrary positions for lag, lead and nth_value, peer groups for RANGE frames), so
+    // streaming a partition through a bounded ROWS frame would need a different window function SPI.
+    private Optional<Spiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = immediateFuture(null);
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    // the rest of a complete group is being spilled, it is read back once the spill completes
+    private boolean spillingGroup;
+    // pre-grouped channel values of the group that is partially spilled
+    private Page spilledGroupKey;
+    // sorted rows of a spilled group, read back one window partition at a time
+    private Iterator<Optional<Page>> mergedSpilledPages;
+    private Page pendingSpilledPage;
+    private boolean loadingSpilledPartition;
+
     public WindowOperator(
             OperatorContext operatorContext,
             List<Type> sourceTypes,
@@ -197,7 +249,10 @@ public class WindowOperator
             List<SortOrder> sortOrder,
             int preSortedChannelPrefix,
             int expectedPositions,
-            PagesIndex.Factory pagesIndexFactory)
+            PagesIndex.Factory pagesIndexFactory,
+            boolean spillEnabled,
+            Optional<SpillerFactory> spillerFactory,
+            OrderingCompiler orderingCompiler)
     {
         requireNonNull(operatorContext, "operatorContext is null");
         requireNonNull(outputChannels, "outputChannels is null");
@@ -208,12 +263,20 @@ public class WindowOperator
         requireNonNull(sortChannels, "sortChannels is null");
         requireNonNull(sortOrder, "sortOrder is null");
         requireNonNull(pagesIndexFactory, "pagesIndexFactory is null");
+        requireNonNull(spillerFactory, "spillerFactory is null");
+        requireNonNull(orderingCompiler, "orderingCompiler is null");
         checkArgument(sortChannels.size() == sortOrder.size(), "Must have same number of sort channels as sort orders");
         checkArgument(preSortedChannelPrefix <= sortChannels.size(), "Cannot have more pre-sorted channels than specified sorted channels");
         checkArgument(preSortedChannelPrefix == 0 || ImmutableSet.copyOf(preGroupedChannels).equals(ImmutableSet.copyOf(partitionChannels)), "preSortedChannelPrefix can only be greater than zero if all partition channels are pre-grouped");
+        checkArgument(!spillEnabled || spillerFactory.isPresent(), "Spiller Factory is not present when spill is enabled");
 
         this.operatorContext = operatorContext;
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.revocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.sourceTypes = ImmutableList.copyOf(sourceTypes);
+        this.spillEnabled = spillEnabled;
+        this.spillerFactory = spillerFactory;
+        this.orderingCompiler = orderingCompiler;
         this.outputChannels = Ints.toArray(outputChannels);
         this.windowFunctions = windowFunctionDefinitions.stream()
                 .map(functionDefinition -> new FramedWindowFunction(functionDefinition.createWindowFunction(), functionDefinition.getFrameInfo()))
@@ -232,6 +295,7 @@ public class WindowOperator
         List<Integer> unGroupedPartitionChannels = partitionChannels.stream()
                 .filter(channel -> !preGroupedChannels.contains(channel))
                 .collect(toImmutableList());
+        this.unGroupedPartitionChannels = Ints.toArray(unGroupedPartitionChannels);
         this.unGroupedPartitionHashStrategy = pagesIndex.createPagesHashStrategy(unGroupedPartitionChannels, OptionalInt.empty());
         List<Integer> preSortedChannels = sortChannels.stream()
                 .limit(preSortedChannelPrefix)
@@ -245,11 +309,16 @@ public class WindowOperator
             // This already implies that set(preGroupedChannels) == set(partitionChannels) (enforced with checkArgument)
             this.orderChannels = ImmutableList.copyOf(Iterables.skip(sortChannels, preSortedChannelPrefix));
             this.ordering = ImmutableList.copyOf(Iterables.skip(sortOrder, preSortedChannelPrefix));
+            // the input is already sorted on the pre-sorted prefix, so sorting on all sort channels gives the same order
+            this.spillSortChannels = ImmutableList.copyOf(sortChannels);
+            this.spillSortOrder = ImmutableList.copyOf(sortOrder);
         }
         else {
             // Otherwise, we need to sort by the unGroupedPartitionChannels and all original sort channels
             this.orderChannels = ImmutableList.copyOf(concat(unGroupedPartitionChannels, sortChannels));
             this.ordering = ImmutableList.copyOf(concat(nCopies(unGroupedPartitionChannels.size(), ASC_NULLS_LAST), sortOrder));
+            this.spillSortChannels = orderChannels;
+            this.spillSortOrder = ordering;
         }
 
         windowInfo = new WindowInfo.DriverWindowInfoBuilder();
@@ -273,6 +342,11 @@ public class WindowOperator
         if (state == State.FINISHING || state == State.FINISHED) {
             return;
         }
+        // wait until a pending spill has been completed with finishMemoryRevoke
+        if (!spillInProgress.isDone() || finishMemoryRevoke.isPresent()) {
+            return;
+        }
+        checkSuccess(spillInProgress, "spilling failed");
         if (state == State.NEEDS_INPUT) {
             // Since was waiting for more input, prepare what we have for output since we will not be getting any more input
             finishPagesIndex();
@@ -289,7 +363,13 @@ public class WindowOperator
     @Override
     public boolean needsInput()
     {
-        return state == State.NEEDS_INPUT;
+        return state == State.NEEDS_INPUT && spillInProgress.isDone();
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return spillInProgress;
     }
 
     @Override
@@ -298,6 +378,7 @@ public class WindowOperator
         checkState(state == State.NEEDS_INPUT, "Operator can not take input at this time");
         requireNonNull(page, "page is null");
         checkState(pendingInput == null, "Operator already has pending input");
+        checkSuccess(spillInProgress, "spilling failed");
 
         if (page.getPositionCount() == 0) {
             return;
@@ -307,7 +388,7 @@ public class WindowOperator
         if (processPendingInput()) {
             state = State.HAS_OUTPUT;
         }
-        localUserMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
     }
 
     /**
@@ -330,7 +411,7 @@ public class WindowOperator
 
     /**
      * @return the unused section of the page, or null if fully applied.
-     * pagesIndex guaranteed to have at least one row after this method returns
+     * pagesIndex guaranteed to have at least one row after this method returns, unless the current group has been spilled
      */
     private Page updatePagesIndex(Page page)
     {
@@ -338,7 +419,7 @@ public class WindowOperator
 
         // TODO: Fix pagesHashStrategy to allow specifying channels for comparison, it currently requires us to rearrange the right side blocks in consecutive channel order
         Page preGroupedPage = rearrangePage(page, preGroupedChannels);
-        if (pagesIndex.getPositionCount() == 0 || pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage)) {
+        if (isCurrentGroup(preGroupedPage)) {
             // Find the position where the pre-grouped columns change
             int groupEnd = findGroupEnd(preGroupedPage, preGroupedPartitionHashStrategy, 0);
 
@@ -360,6 +441,17 @@ public class WindowOperator
         }
     }
 
+    private boolean isCurrentGroup(Page preGroupedPage)
+    {
+        if (pagesIndex.getPositionCount() > 0) {
+            return pagesIndex.positionEqualsRow(preGroupedPartitionHashStrategy, 0, 0, preGroupedPage);
+        }
+        if (spilledGroupKey != null) {
+            return preGroupedPartitionHashStrategy.rowEqualsRow(0, spilledGroupKey, 0, preGroupedPage);
+        }
+        return true;
+    }
+
     private static Page rearrangePage(Page page, int[] channels)
     {
         Block[] newBlocks = new Block[channels.length];
@@ -377,7 +469,7 @@ public class WindowOperator
         }
 
         Page page = extractOutput();
-        localUserMemoryContext.setBytes(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryUsage();
         return page;
     }
 
@@ -387,9 +479,26 @@ public class WindowOperator
 
         // Iterate through the positions sequentially until we have one full page
         while (!pageBuilder.isFull()) {
+            if (spillingGroup) {
+                if (!spillInProgress.isDone()) {
+                    // the driver is blocked on the spill through isBlocked
+                    break;
+                }
+                startSpilledGroupOutput();
+            }
+
             if (partition == null || !partition.hasNext()) {
                 int partitionStart = partition == null ? 0 : partition.getPartitionEnd();
 
+                if (partitionStart >= pagesIndex.getPositionCount() && mergedSpilledPages != null) {
+                    partition = null;
+                    if (!loadNextSpilledPartition()) {
+                        // merging of the spilled runs yielded
+                        break;
+                    }
+                    partitionStart = 0;
+                }
+
                 if (partitionStart >= pagesIndex.getPositionCount()) {
                     // Finished all of the partitions in the current pagesIndex
                     partition = null;
@@ -397,6 +506,10 @@ public class WindowOperator
 
                     // Try to extract more partitions from the pendingInput
                     if (pendingInput != null && processPendingInput()) {
+                        if (spillingGroup) {
+                            // the group was spilled, its partitions are loaded at the top of the loop
+                            continue;
+                        }
                         partitionStart = 0;
                     }
                     else if (state == State.FINISHING) {
@@ -423,11 +536,66 @@ public class WindowOperator
             partition.processNextRow(pageBuilder);
         }
 
+        if (pageBuilder.isEmpty()) {
+            return null;
+        }
         Page page = pageBuilder.build();
         pageBuilder.reset();
         return page;
     }
 
+    /**
+     * Loads the next window partition of a spilled group into the pagesIndex.
+     *
+     * @return false if merging of the spilled runs yielded before the partition was fully loaded
+     */
+    private boolean loadNextSpilledPartition()
+    {
+        if (!loadingSpilledPartition) {
+            pagesIndex.clear();
+            loadingSpilledPartition = true;
+        }
+
+        while (true) {
+            Page page = pendingSpilledPage;
+            pendingSpilledPage = null;
+            if (page == null) {
+                if (!mergedSpilledPages.hasNext()) {
+                    // all partitions of the spilled group have been loaded
+                    mergedSpilledPages = null;
+                    spiller.ifPresent(Spiller::close);
+                    spiller = Optional.empty();
+                    break;
+                }
+                Optional<Page> next = mergedSpilledPages.next();
+                if (!next.isPresent()) {
+                    return false;
+                }
+                page = next.get();
+            }
+
+            Page unGroupedPage = rearrangePage(page, unGroupedPartitionChannels);
+            if (pagesIndex.getPositionCount() > 0 && !pagesIndex.positionEqualsRow(unGroupedPartitionHashStrategy, 0, 0, unGroupedPage)) {
+                pendingSpilledPage = page;
+                break;
+            }
+
+            int partitionEnd = findGroupEnd(unGroupedPage, unGroupedPartitionHashStrategy, 0);
+            pagesIndex.addPage(page.getRegion(0, partitionEnd));
+            if (partitionEnd < page.getPositionCount()) {
+                pendingSpilledPage = page.getRegion(partitionEnd, page.getPositionCount() - partitionEnd);
+                break;
+            }
+        }
+
+        loadingSpilledPartition = false;
+        if (pagesIndex.getPositionCount() > 0) {
+            // rows come back from the merge in the window order, so the partition does not need to be sorted
+            windowInfo.addIndex(pagesIndex);
+        }
+        return true;
+    }
+
     private void sortPagesIndexIfNecessary()
     {
         if (pagesIndex.getPositionCount() > 1 && !orderChannels.isEmpty()) {
@@ -442,10 +610,120 @@ public class WindowOperator
 
     private void finishPagesIndex()
     {
+        boolean spillGroup = spiller.isPresent();
+        long revocableBytes = revocableMemoryContext.getBytes();
+        if (!spillGroup && revocableBytes > 0) {
+            // the group is about to be output, so its memory can no longer be revoked
+            revocableMemoryContext.setBytes(0);
+            if (!localUserMemoryContext.trySetBytes(localUserMemoryContext.getBytes() + revocableBytes)) {
+                revocableMemoryContext.setBytes(revocableBytes);
+                spillGroup = true;
+            }
+        }
+
+        if (spillGroup) {
+            // spill the rest of the group without blocking the driver, and read it back
+            // one window partition at a time once the spill completes
+            if (pagesIndex.getPositionCount() > 0) {
+                spillToDisk();
+            }
+            spillingGroup = true;
+            return;
+        }
+
         sortPagesIndexIfNecessary();
         windowInfo.addIndex(pagesIndex);
     }
 
+    private void startSpilledGroupOutput()
+    {
+        checkSuccess(spillInProgress, "spilling failed");
+        spillingGroup = false;
+        pagesIndex.clear();
+        updateMemoryUsage();
+        spilledGroupKey = null;
+        mergedSpilledPages = mergeSpilledPages().yieldingIterator();
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        if (state != State.NEEDS_INPUT || pagesIndex.getPositionCount() == 0) {
+            // only a group that is still being buffered can be spilled, a complete group is spilled by finishPagesIndex
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        ListenableFuture<?> spillFuture = spillToDisk();
+        finishMemoryRevoke = Optional.of(() -> {
+            pagesIndex.clear();
+            updateMemoryUsage();
+        });
+        return spillFuture;
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        finishMemoryRevoke.orElseThrow(() -> new IllegalStateException("finishMemoryRevoke called without startMemoryRevoke"))
+                .run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private ListenableFuture<?> spillToDisk()
+    {
+        checkSuccess(spillInProgress, "spilling failed");
+        checkState(pagesIndex.getPositionCount() > 0, "nothing to spill");
+
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(spillerFactory.get().create(
+                    sourceTypes,
+                    operatorContext.getSpillContext(),
+                    operatorContext.newAggregateSystemMemoryContext()));
+        }
+
+        if (spilledGroupKey == null) {
+            Block[] blocks = new Block[preGroupedChannels.length];
+            for (int i = 0; i < preGroupedChannels.length; i++) {
+                blocks[i] = pagesIndex.getSingleValueBlock(preGroupedChannels[i], 0);
+            }
+            spilledGroupKey = new Page(1, blocks);
+        }
+
+        // every spill is a sorted run of the current group, the runs are merged when the group is output
+        pagesIndex.sort(spillSortChannels, spillSortOrder);
+        spillInProgress = spiller.get().spill(pagesIndex.getSortedPages());
+        return spillInProgress;
+    }
+
+    private WorkProcessor<Page> mergeSpilledPages()
+    {
+        List<WorkProcessor<Page>> sortedRuns = spiller.get().getSpills().stream()
+                .map(WorkProcessor::fromIterator)
+                .collect(toImmutableList());
+
+        return mergeSortedPages(
+                sortedRuns,
+                orderingCompiler.compilePageWithPositionComparator(sourceTypes, spillSortChannels, spillSortOrder),
+                sourceTypes,
+                operatorContext.aggregateUserMemoryContext(),
+                operatorContext.getDriverContext().getYieldSignal());
+    }
+
+    private void updateMemoryUsage()
+    {
+        long bytes = pagesIndex.getEstimatedSize().toBytes();
+        // the rows of a group that is being spilled stay revocable until the spill completes
+        if (spillEnabled && (state == State.NEEDS_INPUT || spillingGroup)) {
+            localUserMemoryContext.setBytes(0);
+            revocableMemoryContext.setBytes(bytes);
+        }
+        else {
+            revocableMemoryContext.setBytes(0);
+            localUserMemoryContext.setBytes(bytes);
+        }
+    }
+
     // Assumes input grouped on relevant pagesHashStrategy columns
     private static int findGroupEnd(Page page, PagesHashStrategy pagesHashStrategy, int startPosition)
     {
@@ -497,5 +775,6 @@ public class WindowOperator
     public void close()
     {
         driverWindowInfo.set(Optional.of(windowInfo.build()));
+        spiller.ifPresent(Spiller::close);
     }
 }
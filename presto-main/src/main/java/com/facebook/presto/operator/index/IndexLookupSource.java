@@ -67,6 +67,13 @@ public class IndexLookupSource
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean isBatchLookupSupported()
+    {
+        // a lookup of a key missing from the index replaces the indexed data, which invalidates the earlier join positions
+        return false;
+    }
+
     @Override
     public long getJoinPosition(int position, Page hashChannelsPage, Page allChannelsPage, long rawHash)
     {
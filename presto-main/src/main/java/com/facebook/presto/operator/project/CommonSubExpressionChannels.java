@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.DriverYieldSignal;
+import com.facebook.presto.operator.Work;
+import com.facebook.presto.operator.WorkProcessor;
+import com.facebook.presto.operator.WorkProcessor.ProcessState;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.function.SqlFunctionProperties;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.facebook.presto.operator.WorkProcessor.ProcessState.finished;
+import static com.facebook.presto.operator.WorkProcessor.ProcessState.ofResult;
+import static com.facebook.presto.operator.WorkProcessor.ProcessState.yield;
+import static com.facebook.presto.operator.project.SelectedPositions.positionsRange;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Computes the subexpressions shared by a filter and its projections once for all positions of a page,
+ * and appends the results to the page starting at {@code firstChannel}, so the filter and the
+ * projections can read them as input channels.
+ */
+public class CommonSubExpressionChannels
+{
+    private final List<PageProjection> subExpressions;
+    private final int firstChannel;
+
+    public CommonSubExpressionChannels(List<PageProjection> subExpressions, int firstChannel)
+    {
+        this.subExpressions = ImmutableList.copyOf(requireNonNull(subExpressions, "subExpressions is null"));
+        checkArgument(firstChannel >= 0, "firstChannel is negative");
+        this.firstChannel = firstChannel;
+    }
+
+    /**
+     * The computed blocks are accounted in {@code memoryContext}, which the page processor keeps updating
+     * while it filters and projects the returned page.
+     */
+    public WorkProcessor<Page> appendTo(SqlFunctionProperties properties, DriverYieldSignal yieldSignal, LocalMemoryContext memoryContext, Page page)
+    {
+        checkArgument(page.getChannelCount() >= firstChannel, "page has fewer than %s channels", firstChannel);
+        return WorkProcessor.create(new AppendSubExpressions(properties, yieldSignal, memoryContext, page));
+    }
+
+    private class AppendSubExpressions
+            implements WorkProcessor.Process<Page>
+    {
+        private final SqlFunctionProperties properties;
+        private final DriverYieldSignal yieldSignal;
+        private final LocalMemoryContext memoryContext;
+        private final Page page;
+        private final Block[] blocks;
+
+        private int nextSubExpression;
+        private long retainedSizeInBytes;
+        private Work<List<Block>> subExpressionWork;
+        private boolean finished;
+
+        private AppendSubExpressions(SqlFunctionProperties properties, DriverYieldSignal yieldSignal, LocalMemoryContext memoryContext, Page page)
+        {
+            this.properties = requireNonNull(properties, "properties is null");
+            this.yieldSignal = requireNonNull(yieldSignal, "yieldSignal is null");
+            this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+            this.page = requireNonNull(page, "page is null");
+            this.blocks = new Block[firstChannel + subExpressions.size()];
+            for (int channel = 0; channel < firstChannel; channel++) {
+                blocks[channel] = page.getBlock(channel);
+            }
+        }
+
+        @Override
+        public ProcessState<Page> process()
+        {
+            if (finished) {
+                return finished();
+            }
+
+            while (nextSubExpression < subExpressions.size()) {
+                PageProjection subExpression = subExpressions.get(nextSubExpression);
+                if (subExpressionWork == null) {
+                    subExpressionWork = subExpression.project(properties, yieldSignal, subExpression.getInputChannels().getInputChannels(page), positionsRange(0, page.getPositionCount()));
+                }
+                if (!subExpressionWork.process()) {
+                    // resume the same work when processed again
+                    return yield();
+                }
+                Block block = subExpressionWork.getResult().get(0);
+                blocks[firstChannel + nextSubExpression] = block;
+                subExpressionWork = null;
+                nextSubExpression++;
+
+                retainedSizeInBytes += block.getRetainedSizeInBytes();
+                memoryContext.setBytes(retainedSizeInBytes);
+            }
+
+            finished = true;
+            return ofResult(new Page(page.getPositionCount(), blocks));
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.IntArrayBlock;
+import com.facebook.presto.spi.block.LongArrayBlock;
+import com.facebook.presto.spi.block.VariableWidthBlock;
+import com.facebook.presto.spi.function.OperatorType;
+import com.facebook.presto.spi.function.SqlFunctionProperties;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.VarcharType;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.slice.Slice;
+
+import java.util.Set;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DateType.DATE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Filters a single input column compared with a non-null constant. Instead of evaluating the
+ * comparison one position at a time through the generated code, it loops directly over the
+ * values of the concrete block class and appends the matching positions without branching.
+ */
+public class ConstantComparisonPageFilter
+        implements PageFilter
+{
+    private static final Set<Type> LONG_TYPES = ImmutableSet.of(BIGINT, INTEGER, SMALLINT, TINYINT, DATE);
+
+    private final InputChannels inputChannels;
+    private final OperatorType operatorType;
+    private final Type type;
+    private final Object value;
+
+    // a long comparison is evaluated as (lowerBound <= value <= upperBound) != negate
+    private final long lowerBound;
+    private final long upperBound;
+    private final boolean negate;
+    // a slice comparison selects the position if the bit of (signum(compare) + 1) is set
+    private final int compareResultMask;
+
+    private int[] selectedPositions = new int[0];
+
+    public ConstantComparisonPageFilter(int inputChannel, OperatorType operatorType, Type type, Object value)
+    {
+        checkArgument(isSupported(operatorType, type), "Unsupported comparison %s for type %s", operatorType, type);
+        this.inputChannels = new InputChannels(inputChannel);
+        this.operatorType = operatorType;
+        this.type = type;
+        this.value = requireNonNull(value, "value is null");
+
+        if (type.getJavaType() == long.class) {
+            long constant = (long) value;
+            switch (operatorType) {
+                case EQUAL:
+                case NOT_EQUAL:
+                    lowerBound = constant;
+                    upperBound = constant;
+                    break;
+                case LESS_THAN:
+                    lowerBound = constant == Long.MIN_VALUE ? Long.MAX_VALUE : Long.MIN_VALUE;
+                    upperBound = constant == Long.MIN_VALUE ? Long.MIN_VALUE : constant - 1;
+                    break;
+                case LESS_THAN_OR_EQUAL:
+                    lowerBound = Long.MIN_VALUE;
+                    upperBound = constant;
+                    break;
+                case GREATER_THAN:
+                    lowerBound = constant == Long.MAX_VALUE ? Long.MAX_VALUE : constant + 1;
+                    upperBound = constant == Long.MAX_VALUE ? Long.MIN_VALUE : Long.MAX_VALUE;
+                    break;
+                case GREATER_THAN_OR_EQUAL:
+                    lowerBound = constant;
+                    upperBound = Long.MAX_VALUE;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported comparison: " + operatorType);
+            }
+            negate = operatorType == OperatorType.NOT_EQUAL;
+            compareResultMask = 0;
+        }
+        else {
+            checkArgument(value instanceof Slice, "value must be a slice for type %s", type);
+            lowerBound = 0;
+            upperBound = 0;
+            negate = false;
+            compareResultMask = compareResultMask(operatorType);
+        }
+    }
+
+    public static boolean isSupported(OperatorType operatorType, Type type)
+    {
+        switch (requireNonNull(operatorType, "operatorType is null")) {
+            case EQUAL:
+            case NOT_EQUAL:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+                return LONG_TYPES.contains(type) || type instanceof VarcharType;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return true;
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return inputChannels;
+    }
+
+    @Override
+    public SelectedPositions filter(SqlFunctionProperties properties, Page page)
+    {
+        Block block = page.getBlock(0).getLoadedBlock();
+        int positionCount = page.getPositionCount();
+        if (selectedPositions.length < positionCount) {
+            selectedPositions = new int[positionCount];
+        }
+
+        int selectedCount;
+        if (type.getJavaType() == long.class) {
+            if (block instanceof LongArrayBlock) {
+                selectedCount = filterLongArray((LongArrayBlock) block, positionCount);
+            }
+            else if (block instanceof IntArrayBlock) {
+                selectedCount = filterIntArray((IntArrayBlock) block, positionCount);
+            }
+            else {
+                selectedCount = filterLongs(block, positionCount);
+            }
+        }
+        else if (block instanceof VariableWidthBlock) {
+            selectedCount = filterVariableWidth((VariableWidthBlock) block, positionCount);
+        }
+        else {
+            selectedCount = filterSlices(block, positionCount);
+        }
+
+        if (selectedCount == 0 || selectedCount == positionCount) {
+            return SelectedPositions.positionsRange(0, selectedCount);
+        }
+        // the buffer is reused for the next page, so the selected positions must be copied
+        int[] positions = new int[selectedCount];
+        System.arraycopy(selectedPositions, 0, positions, 0, selectedCount);
+        return SelectedPositions.positionsList(positions, 0, selectedCount);
+    }
+
+    private int filterLongArray(LongArrayBlock block, int positionCount)
+    {
+        int[] selectedPositions = this.selectedPositions;
+        int offsetBase = block.getOffsetBase();
+        boolean mayHaveNull = block.mayHaveNull();
+        int selectedCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            long element = block.getLongUnchecked(offsetBase + position);
+            boolean selected = ((element >= lowerBound) & (element <= upperBound)) != negate;
+            selected &= !(mayHaveNull && block.isNullUnchecked(offsetBase + position));
+            selectedPositions[selectedCount] = position;
+            selectedCount += selected ? 1 : 0;
+        }
+        return selectedCount;
+    }
+
+    private int filterIntArray(IntArrayBlock block, int positionCount)
+    {
+        int[] selectedPositions = this.selectedPositions;
+        int offsetBase = block.getOffsetBase();
+        boolean mayHaveNull = block.mayHaveNull();
+        int selectedCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            long element = block.getIntUnchecked(offsetBase + position);
+            boolean selected = ((element >= lowerBound) & (element <= upperBound)) != negate;
+            selected &= !(mayHaveNull && block.isNullUnchecked(offsetBase + position));
+            selectedPositions[selectedCount] = position;
+            selectedCount += selected ? 1 : 0;
+        }
+        return selectedCount;
+    }
+
+    private int filterLongs(Block block, int positionCount)
+    {
+        int[] selectedPositions = this.selectedPositions;
+        int selectedCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (block.isNull(position)) {
+                continue;
+            }
+            long element = type.getLong(block, position);
+            boolean selected = ((element >= lowerBound) & (element <= upperBound)) != negate;
+            selectedPositions[selectedCount] = position;
+            selectedCount += selected ? 1 : 0;
+        }
+        return selectedCount;
+    }
+
+    private int filterVariableWidth(VariableWidthBlock block, int positionCount)
+    {
+        int[] selectedPositions = this.selectedPositions;
+        Slice constant = (Slice) value;
+        int constantLength = constant.length();
+        boolean mayHaveNull = block.mayHaveNull();
+        int selectedCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (mayHaveNull && block.isNull(position)) {
+                continue;
+            }
+            int compare = block.bytesCompare(position, 0, block.getSliceLength(position), constant, 0, constantLength);
+            selectedPositions[selectedCount] = position;
+            selectedCount += (compareResultMask >>> (Integer.signum(compare) + 1)) & 1;
+        }
+        return selectedCount;
+    }
+
+    private int filterSlices(Block block, int positionCount)
+    {
+        int[] selectedPositions = this.selectedPositions;
+        Slice constant = (Slice) value;
+        int selectedCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (block.isNull(position)) {
+                continue;
+            }
+            int compare = type.getSlice(block, position).compareTo(constant);
+            selectedPositions[selectedCount] = position;
+            selectedCount += (compareResultMask >>> (Integer.signum(compare) + 1)) & 1;
+        }
+        return selectedCount;
+    }
+
+    private static int compareResultMask(OperatorType operatorType)
+    {
+        // bit 0 selects less than, bit 1 equal and bit 2 greater than the constant
+        switch (operatorType) {
+            case EQUAL:
+                return 0b010;
+            case NOT_EQUAL:
+                return 0b101;
+            case LESS_THAN:
+                return 0b001;
+            case LESS_THAN_OR_EQUAL:
+                return 0b011;
+            case GREATER_THAN:
+                return 0b100;
+            case GREATER_THAN_OR_EQUAL:
+                return 0b110;
+            default:
+                throw new IllegalArgumentException("Unsupported comparison: " + operatorType);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("inputChannels", inputChannels)
+                .add("operatorType", operatorType)
+                .add("type", type)
+                .add("value", value)
+                .toString();
+    }
+}
@@ -63,6 +63,7 @@ public class PageProcessor
     private final ExpressionProfiler expressionProfiler;
     private final DictionarySourceIdFunction dictionarySourceIdFunction = new DictionarySourceIdFunction();
     private final Optional<PageFilter> filter;
+    private final Optional<CommonSubExpressionChannels> commonSubExpressions;
     private final List<PageProjectionWithOutputs> projections;
     private final int outputCount;
 
@@ -76,6 +77,16 @@ public class PageProcessor
 
     @VisibleForTesting
     public PageProcessor(Optional<PageFilter> filter, List<PageProjectionWithOutputs> projections, OptionalInt initialBatchSize, ExpressionProfiler expressionProfiler)
+    {
+        this(filter, Optional.empty(), projections, initialBatchSize, expressionProfiler);
+    }
+
+    public PageProcessor(Optional<PageFilter> filter, Optional<CommonSubExpressionChannels> commonSubExpressions, List<PageProjectionWithOutputs> projections, OptionalInt initialBatchSize)
+    {
+        this(filter, commonSubExpressions, projections, initialBatchSize, new ExpressionProfiler());
+    }
+
+    private PageProcessor(Optional<PageFilter> filter, Optional<CommonSubExpressionChannels> commonSubExpressions, List<PageProjectionWithOutputs> projections, OptionalInt initialBatchSize, ExpressionProfiler expressionProfiler)
     {
         List<Integer> outputChannels = projections.stream().map(PageProjectionWithOutputs::getOutputChannels).map(Arrays::stream).map(IntStream::boxed).flatMap(identity()).distinct().collect(toImmutableList());
         int outputCount = projections.stream().map(PageProjectionWithOutputs::getOutputCount).reduce(Integer::sum).orElse(0);
@@ -90,6 +101,7 @@ public class PageProcessor
                     }
                     return pageFilter;
                 });
+        this.commonSubExpressions = requireNonNull(commonSubExpressions, "commonSubExpressions is null");
         this.outputCount = outputCount;
         this.projections = requireNonNull(projections, "projections is null").stream()
                 .map(projectionWithOutputs -> {
@@ -112,7 +124,14 @@ public class PageProcessor
 
     public Iterator<Optional<Page>> process(SqlFunctionProperties properties, DriverYieldSignal yieldSignal, LocalMemoryContext memoryContext, Page page)
     {
-        WorkProcessor<Page> processor = createWorkProcessor(properties, yieldSignal, memoryContext, page);
+        WorkProcessor<Page> processor;
+        if (commonSubExpressions.isPresent() && page.getPositionCount() > 0) {
+            processor = commonSubExpressions.get().appendTo(properties, yieldSignal, memoryContext, page)
+                    .flatMap(pageWithSubExpressions -> createWorkProcessor(properties, yieldSignal, memoryContext, pageWithSubExpressions));
+        }
+        else {
+            processor = createWorkProcessor(properties, yieldSignal, memoryContext, page);
+        }
         return processor.yieldingIterator();
     }
 
@@ -128,11 +147,14 @@ public class PageProcessor
         if (filter.isPresent()) {
             SelectedPositions selectedPositions = filter.get().filter(properties, filter.get().getInputChannels().getInputChannels(page));
             if (selectedPositions.isEmpty()) {
+                // release the common sub-expressions computed for the page
+                memoryContext.setBytes(0);
                 return WorkProcessor.of();
             }
 
             if (projections.isEmpty()) {
                 // retained memory for empty page is negligible
+                memoryContext.setBytes(0);
                 return WorkProcessor.of(new Page(selectedPositions.size()));
             }
 
@@ -48,6 +48,7 @@ import com.facebook.presto.execution.TaskManagementExecutor;
 import com.facebook.presto.execution.TaskManager;
 import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.execution.TaskStatus;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
 import com.facebook.presto.execution.executor.MultilevelSplitQueue;
 import com.facebook.presto.execution.executor.TaskExecutor;
 import com.facebook.presto.execution.scheduler.FlatNetworkTopology;
@@ -87,8 +88,14 @@ import com.facebook.presto.metadata.ViewDefinition;
 import com.facebook.presto.operator.ExchangeClientConfig;
 import com.facebook.presto.operator.ExchangeClientFactory;
 import com.facebook.presto.operator.ExchangeClientSupplier;
+import com.facebook.presto.operator.FileFragmentResultCacheConfig;
+import com.facebook.presto.operator.FileFragmentResultCacheManager;
 import com.facebook.presto.operator.ForExchange;
+import com.facebook.presto.operator.ForSplitPrefetch;
+import com.facebook.presto.operator.FragmentResultCacheManager;
+import com.facebook.presto.operator.FragmentResultCacheStats;
 import com.facebook.presto.operator.LookupJoinOperators;
+import com.facebook.presto.operator.NoOpFragmentResultCacheManager;
 import com.facebook.presto.operator.OperatorStats;
 import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.TableCommitContext;
@@ -105,6 +112,7 @@ import com.facebook.presto.spi.PageSorter;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockEncoding;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.relation.DeterminismEvaluator;
 import com.facebook.presto.spi.relation.DomainTranslator;
 import com.facebook.presto.spi.relation.PredicateCompiler;
@@ -118,6 +126,7 @@ import com.facebook.presto.spiller.LocalSpillManager;
 import com.facebook.presto.spiller.NodeSpillConfig;
 import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.spiller.SingleStreamSpillerFactory;
+import com.facebook.presto.spiller.SpillPathStatsExporter;
 import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.spiller.SpillerStats;
 import com.facebook.presto.split.PageSinkManager;
@@ -171,6 +180,7 @@ import javax.inject.Singleton;
 import javax.servlet.Servlet;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -300,6 +310,7 @@ public class ServerMainModule
         newExporter(binder).export(TaskResource.class).withGeneratedName();
         jaxrsBinder(binder).bind(TaskExecutorResource.class);
         newExporter(binder).export(TaskExecutorResource.class).withGeneratedName();
+        jaxrsBinder(binder).bind(TaskExecutorQueryStatsResource.class);
         binder.bind(TaskManagementExecutor.class).in(Scopes.SINGLETON);
         binder.bind(SqlTaskManager.class).in(Scopes.SINGLETON);
         binder.bind(TaskManager.class).to(Key.get(SqlTaskManager.class));
@@ -343,6 +354,19 @@ public class ServerMainModule
         binder.bind(PagesIndex.Factory.class).to(PagesIndex.DefaultFactory.class);
         binder.bind(LookupJoinOperators.class).in(Scopes.SINGLETON);
 
+        // fragment result cache
+        configBinder(binder).bindConfig(FileFragmentResultCacheConfig.class);
+        binder.bind(FragmentResultCacheStats.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(FragmentResultCacheStats.class).withGeneratedName();
+        install(installModuleIf(
+                FileFragmentResultCacheConfig.class,
+                FileFragmentResultCacheConfig::isCachingEnabled,
+                moduleBinder -> moduleBinder.bind(FragmentResultCacheManager.class).to(FileFragmentResultCacheManager.class).in(Scopes.SINGLETON)));
+        install(installModuleIf(
+                FileFragmentResultCacheConfig.class,
+                config -> !config.isCachingEnabled(),
+                moduleBinder -> moduleBinder.bind(FragmentResultCacheManager.class).to(NoOpFragmentResultCacheManager.class).in(Scopes.SINGLETON)));
+
         jsonCodecBinder(binder).bindJsonCodec(TaskStatus.class);
         jsonCodecBinder(binder).bindJsonCodec(StageInfo.class);
         jsonCodecBinder(binder).bindJsonCodec(TaskInfo.class);
@@ -449,6 +473,7 @@ public class ServerMainModule
         jsonCodecBinder(binder).bindJsonCodec(TaskUpdateRequest.class);
         jsonCodecBinder(binder).bindJsonCodec(ConnectorSplit.class);
         jsonCodecBinder(binder).bindJsonCodec(PlanFragment.class);
+        jsonCodecBinder(binder).bindJsonCodec(PlanNode.class);
         smileCodecBinder(binder).bindSmileCodec(TaskUpdateRequest.class);
         smileCodecBinder(binder).bindSmileCodec(ConnectorSplit.class);
         smileCodecBinder(binder).bindSmileCodec(PlanFragment.class);
@@ -492,6 +517,10 @@ public class ServerMainModule
         jsonBinder(binder).addSerializerBinding(Block.class).to(BlockJsonSerde.Serializer.class);
         jsonBinder(binder).addDeserializerBinding(Block.class).to(BlockJsonSerde.Deserializer.class);
 
+        // page compression
+        binder.bind(PageCompressionStats.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(PageCompressionStats.class).withGeneratedName();
+
         // thread visualizer
         jaxrsBinder(binder).bind(ThreadResource.class);
 
@@ -506,7 +535,9 @@ public class ServerMainModule
 
         // Spiller
         binder.bind(SpillerFactory.class).to(GenericSpillerFactory.class).in(Scopes.SINGLETON);
+        binder.bind(FileSingleStreamSpillerFactory.class).in(Scopes.SINGLETON);
         binder.bind(SingleStreamSpillerFactory.class).to(FileSingleStreamSpillerFactory.class).in(Scopes.SINGLETON);
+        binder.bind(SpillPathStatsExporter.class).in(Scopes.SINGLETON);
         binder.bind(PartitioningSpillerFactory.class).to(GenericPartitioningSpillerFactory.class).in(Scopes.SINGLETON);
         binder.bind(SpillerStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(SpillerFactory.class).withGeneratedName();
@@ -552,6 +583,22 @@ public class ServerMainModule
         return new BoundedExecutor(coreExecutor, config.getHttpResponseThreads());
     }
 
+    @Provides
+    @Singleton
+    @ForSplitPrefetch
+    public static ExecutorService createSplitPrefetchCoreExecutor()
+    {
+        return newCachedThreadPool(daemonThreadsNamed("split-prefetch-%s"));
+    }
+
+    @Provides
+    @Singleton
+    @ForSplitPrefetch
+    public static Executor createSplitPrefetchExecutor(@ForSplitPrefetch ExecutorService coreExecutor, TaskManagerConfig config)
+    {
+        return new BoundedExecutor(coreExecutor, config.getSplitPrefetchThreads());
+    }
+
     @Provides
     @Singleton
     @ForAsyncRpc
@@ -568,12 +615,14 @@ public class ServerMainModule
         public ExecutorCleanup(
                 @ForExchange ScheduledExecutorService exchangeExecutor,
                 @ForAsyncRpc ExecutorService httpResponseExecutor,
-                @ForAsyncRpc ScheduledExecutorService httpTimeoutExecutor)
+                @ForAsyncRpc ScheduledExecutorService httpTimeoutExecutor,
+                @ForSplitPrefetch ExecutorService splitPrefetchExecutor)
         {
             executors = ImmutableList.of(
                     exchangeExecutor,
                     httpResponseExecutor,
-                    httpTimeoutExecutor);
+                    httpTimeoutExecutor,
+                    splitPrefetchExecutor);
         }
 
         @PreDestroy
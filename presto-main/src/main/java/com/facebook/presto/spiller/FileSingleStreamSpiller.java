@@ -18,25 +18,23 @@ import com.facebook.presto.operator.SpillContext;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.page.PagesSerde;
-import com.facebook.presto.spi.page.PagesSerdeUtil;
 import com.facebook.presto.spi.page.SerializedPage;
 import com.facebook.presto.spi.spiller.SpillCipher;
+import com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.io.Closer;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
-import io.airlift.slice.InputStreamSliceInput;
 import io.airlift.slice.OutputStreamSliceOutput;
 import io.airlift.slice.SliceOutput;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.NotThreadSafe;
 
-import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -48,6 +46,8 @@ import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.STREAM;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.nio.file.StandardOpenOption.APPEND;
 import static java.util.Objects.requireNonNull;
@@ -62,14 +62,19 @@ public class FileSingleStreamSpiller
     private final FileHolder targetFile;
     private final Closer closer = Closer.create();
     private final PagesSerde serde;
+    private final SpillPathStats spillPathStats;
     private final SpillerStats spillerStats;
     private final SpillContext localSpillContext;
     private final LocalMemoryContext memoryContext;
     private final Optional<SpillCipher> spillCipher;
+    private final SpillReadMode readMode;
+    private final int readBufferSize;
 
     private final ListeningExecutorService executor;
 
     private boolean writable = true;
+    @GuardedBy("this")
+    private boolean closed;
     private long spilledPagesInMemorySize;
     private ListenableFuture<?> spillInProgress = Futures.immediateFuture(null);
 
@@ -81,15 +86,33 @@ public class FileSingleStreamSpiller
             SpillContext spillContext,
             LocalMemoryContext memoryContext,
             Optional<SpillCipher> spillCipher)
+    {
+        this(serde, executor, new SpillPathStats(spillPath), spillerStats, spillContext, memoryContext, spillCipher, STREAM, BUFFER_SIZE);
+    }
+
+    public FileSingleStreamSpiller(
+            PagesSerde serde,
+            ListeningExecutorService executor,
+            SpillPathStats spillPathStats,
+            SpillerStats spillerStats,
+            SpillContext spillContext,
+            LocalMemoryContext memoryContext,
+            Optional<SpillCipher> spillCipher,
+            SpillReadMode readMode,
+            int readBufferSize)
     {
         this.serde = requireNonNull(serde, "serde is null");
         this.executor = requireNonNull(executor, "executor is null");
+        this.spillPathStats = requireNonNull(spillPathStats, "spillPathStats is null");
         this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
         this.localSpillContext = spillContext.newLocalSpillContext();
         this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
         this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
         checkState(!spillCipher.isPresent() || !spillCipher.get().isDestroyed(), "spillCipher is already destroyed");
         this.spillCipher.ifPresent(cipher -> closer.register(cipher::destroy));
+        this.readMode = requireNonNull(readMode, "readMode is null");
+        checkArgument(readBufferSize > 0, "readBufferSize must be positive");
+        this.readBufferSize = readBufferSize;
         // HACK!
         // The writePages() method is called in a separate thread pool and it's possible that
         // these spiller thread can run concurrently with the close() method.
@@ -102,9 +125,10 @@ public class FileSingleStreamSpiller
         // middle of execution when close() is called (note that this applies to both readPages() and writePages() methods).
         this.memoryContext.setBytes(BUFFER_SIZE);
         try {
-            this.targetFile = closer.register(new FileHolder(Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX)));
+            this.targetFile = closer.register(new FileHolder(Files.createTempFile(spillPathStats.getPath(), SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX)));
         }
         catch (IOException e) {
+            spillPathStats.recordFailure();
             throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to create spill file", e);
         }
     }
@@ -114,6 +138,7 @@ public class FileSingleStreamSpiller
     {
         requireNonNull(pageIterator, "pageIterator is null");
         checkNoSpillInProgress();
+        spillPathStats.writeQueued();
         spillInProgress = executor.submit(() -> writePages(pageIterator));
         return spillInProgress;
     }
@@ -128,43 +153,56 @@ public class FileSingleStreamSpiller
     public Iterator<Page> getSpilledPages()
     {
         checkNoSpillInProgress();
-        return readPages();
+        return accountReadBuffer(readPages());
     }
 
     @Override
     public ListenableFuture<List<Page>> getAllSpilledPages()
     {
-        return executor.submit(() -> ImmutableList.copyOf(getSpilledPages()));
+        return executor.submit(() -> {
+            checkNoSpillInProgress();
+            return ImmutableList.copyOf(accountReadBuffer(readPages()));
+        });
     }
 
     private void writePages(Iterator<Page> pageIterator)
     {
-        checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
-        try (SliceOutput output = new OutputStreamSliceOutput(targetFile.newOutputStream(APPEND), BUFFER_SIZE)) {
-            while (pageIterator.hasNext()) {
-                Page page = pageIterator.next();
-                spilledPagesInMemorySize += page.getSizeInBytes();
-                SerializedPage serializedPage = serde.serialize(page);
-                long pageSize = serializedPage.getSizeInBytes();
-                localSpillContext.updateBytes(pageSize);
-                spillerStats.addToTotalSpilledBytes(pageSize);
-                writeSerializedPage(output, serializedPage);
+        long start = System.nanoTime();
+        long bytesWritten = 0;
+        try {
+            checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
+            try (SliceOutput output = new OutputStreamSliceOutput(targetFile.newOutputStream(APPEND), BUFFER_SIZE)) {
+                while (pageIterator.hasNext()) {
+                    Page page = pageIterator.next();
+                    spilledPagesInMemorySize += page.getSizeInBytes();
+                    SerializedPage serializedPage = serde.serialize(page);
+                    long pageSize = serializedPage.getSizeInBytes();
+                    localSpillContext.updateBytes(pageSize);
+                    spillerStats.addToTotalSpilledBytes(pageSize);
+                    writeSerializedPage(output, serializedPage);
+                    bytesWritten += pageSize;
+                }
             }
+            spillPathStats.recordWrite(bytesWritten, System.nanoTime() - start);
         }
         catch (UncheckedIOException | IOException e) {
+            spillPathStats.recordFailure();
             throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to spill pages", e);
         }
+        finally {
+            spillPathStats.writeDone();
+        }
     }
 
-    private Iterator<Page> readPages()
+    private SpillFileReader readPages()
     {
         checkState(writable, "Repeated reads are disallowed to prevent potential resource leaks");
         writable = false;
 
         try {
-            InputStream input = closer.register(targetFile.newInputStream());
-            Iterator<Page> pages = PagesSerdeUtil.readPages(serde, new InputStreamSliceInput(input, BUFFER_SIZE));
-            return closeWhenExhausted(pages, input);
+            SpillFileReader reader = closer.register(SpillFileReader.create(targetFile, readMode, readMode == STREAM ? BUFFER_SIZE : readBufferSize, serde, spillerStats));
+            updateMemoryUsage(reader.getRetainedSizeInBytes());
+            return reader;
         }
         catch (IOException e) {
             throw new PrestoException(GENERIC_INTERNAL_ERROR, "Failed to read spilled pages", e);
@@ -175,7 +213,7 @@ public class FileSingleStreamSpiller
     public void close()
     {
         closer.register(localSpillContext);
-        closer.register(() -> memoryContext.setBytes(0));
+        closer.register(this::releaseMemory);
         try {
             closer.close();
         }
@@ -189,27 +227,30 @@ public class FileSingleStreamSpiller
         checkState(spillInProgress.isDone(), "spill in progress");
     }
 
-    private static <T> Iterator<T> closeWhenExhausted(Iterator<T> iterator, Closeable resource)
+    /**
+     * The pages may be read on the executor, which can race with {@link #close()}.
+     */
+    private synchronized void updateMemoryUsage(long bytes)
     {
-        requireNonNull(iterator, "iterator is null");
-        requireNonNull(resource, "resource is null");
-
-        return new AbstractIterator<T>()
-        {
-            @Override
-            protected T computeNext()
-            {
-                if (iterator.hasNext()) {
-                    return iterator.next();
-                }
-                try {
-                    resource.close();
-                }
-                catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-                return endOfData();
-            }
-        };
+        if (!closed) {
+            memoryContext.setBytes(bytes);
+        }
+    }
+
+    private synchronized void releaseMemory()
+    {
+        closed = true;
+        memoryContext.setBytes(0);
+    }
+
+    /**
+     * The positional reader grows its buffer to fit pages larger than the configured read buffer size.
+     */
+    private Iterator<Page> accountReadBuffer(SpillFileReader reader)
+    {
+        return Iterators.transform(reader, page -> {
+            updateMemoryUsage(reader.getRetainedSizeInBytes());
+            return page;
+        });
     }
 }
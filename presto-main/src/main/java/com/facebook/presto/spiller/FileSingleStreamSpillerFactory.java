@@ -14,6 +14,8 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.SpillContext;
@@ -22,25 +24,34 @@ import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.page.PagesSerde;
 import com.facebook.presto.spi.spiller.SpillCipher;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
+import io.airlift.units.Duration;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.spi.StandardErrorCode.OUT_OF_SPILL_SPACE;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.STREAM;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.delete;
@@ -48,6 +59,7 @@ import static java.nio.file.Files.getFileStore;
 import static java.nio.file.Files.newDirectoryStream;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MINUTES;
 
 public class FileSingleStreamSpillerFactory
         implements SingleStreamSpillerFactory
@@ -62,25 +74,37 @@ public class FileSingleStreamSpillerFactory
 
     private final ListeningExecutorService executor;
     private final PagesSerdeFactory serdeFactory;
-    private final List<Path> spillPaths;
+    private final List<SpillPathStats> spillPaths;
     private final SpillerStats spillerStats;
     private final double maxUsedSpaceThreshold;
     private final boolean spillEncryptionEnabled;
+    private final SpillReadMode readMode;
+    private final int readBufferSize;
+    private final double slowPathLatencyRatio;
+    @GuardedBy("this")
     private int roundRobinIndex;
 
     @Inject
-    public FileSingleStreamSpillerFactory(BlockEncodingSerde blockEncodingSerde, SpillerStats spillerStats, FeaturesConfig featuresConfig, NodeSpillConfig nodeSpillConfig)
+    public FileSingleStreamSpillerFactory(
+            BlockEncodingSerde blockEncodingSerde,
+            SpillerStats spillerStats,
+            PageCompressionStats pageCompressionStats,
+            FeaturesConfig featuresConfig,
+            NodeSpillConfig nodeSpillConfig)
     {
         this(
                 listeningDecorator(newFixedThreadPool(
                         requireNonNull(featuresConfig, "featuresConfig is null").getSpillerThreads(),
                         daemonThreadsNamed("binary-spiller-%s"))),
-                blockEncodingSerde,
+                createPagesSerdeFactory(blockEncodingSerde, pageCompressionStats, nodeSpillConfig),
                 spillerStats,
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(),
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillMaxUsedSpaceThreshold(),
-                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillCompressionEnabled(),
-                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled());
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled(),
+                nodeSpillConfig.getSpillReadMode(),
+                toIntExact(nodeSpillConfig.getSpillReadBufferSize().toBytes()),
+                featuresConfig.getSpillPathQuarantineDuration(),
+                featuresConfig.getSpillSlowPathLatencyRatio());
     }
 
     @VisibleForTesting
@@ -93,11 +117,63 @@ public class FileSingleStreamSpillerFactory
             boolean spillCompressionEnabled,
             boolean spillEncryptionEnabled)
     {
-        this.serdeFactory = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), spillCompressionEnabled);
+        this(
+                executor,
+                new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), spillCompressionEnabled),
+                spillerStats,
+                spillPaths,
+                maxUsedSpaceThreshold,
+                spillEncryptionEnabled);
+    }
+
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            PagesSerdeFactory serdeFactory,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            boolean spillEncryptionEnabled)
+    {
+        this(executor, serdeFactory, spillerStats, spillPaths, maxUsedSpaceThreshold, spillEncryptionEnabled, STREAM, FileSingleStreamSpiller.BUFFER_SIZE);
+    }
+
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            PagesSerdeFactory serdeFactory,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            boolean spillEncryptionEnabled,
+            SpillReadMode readMode,
+            int readBufferSize)
+    {
+        // write latencies of paths on the same device are too noisy to compare in tests, so slow paths are never skipped unless a ratio is given
+        this(executor, serdeFactory, spillerStats, spillPaths, maxUsedSpaceThreshold, spillEncryptionEnabled, readMode, readBufferSize, new Duration(1, MINUTES), Double.POSITIVE_INFINITY);
+    }
+
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            PagesSerdeFactory serdeFactory,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            boolean spillEncryptionEnabled,
+            SpillReadMode readMode,
+            int readBufferSize,
+            Duration spillPathQuarantineDuration,
+            double slowPathLatencyRatio)
+    {
+        this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
         this.executor = requireNonNull(executor, "executor is null");
         this.spillerStats = requireNonNull(spillerStats, "spillerStats can not be null");
         requireNonNull(spillPaths, "spillPaths is null");
-        this.spillPaths = ImmutableList.copyOf(spillPaths);
+        requireNonNull(spillPathQuarantineDuration, "spillPathQuarantineDuration is null");
+        this.spillPaths = spillPaths.stream()
+                .map(path -> new SpillPathStats(path, spillPathQuarantineDuration))
+                .collect(toImmutableList());
         spillPaths.forEach(path -> {
             try {
                 createDirectories(path);
@@ -113,13 +189,35 @@ public class FileSingleStreamSpillerFactory
         });
         this.maxUsedSpaceThreshold = maxUsedSpaceThreshold;
         this.spillEncryptionEnabled = spillEncryptionEnabled;
+        this.readMode = requireNonNull(readMode, "readMode is null");
+        this.readBufferSize = readBufferSize;
+        checkArgument(slowPathLatencyRatio >= 1, "slowPathLatencyRatio must be at least 1");
+        this.slowPathLatencyRatio = slowPathLatencyRatio;
         this.roundRobinIndex = 0;
     }
 
+    private static PagesSerdeFactory createPagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, PageCompressionStats pageCompressionStats, NodeSpillConfig nodeSpillConfig)
+    {
+        requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
+        requireNonNull(nodeSpillConfig, "nodeSpillConfig is null");
+        return new PagesSerdeFactory(
+                blockEncodingSerde,
+                nodeSpillConfig.isSpillCompressionEnabled() ? nodeSpillConfig.getSpillCompressionCodec() : PageCompressionCodec.NONE,
+                nodeSpillConfig.getSpillZstdCompressionLevel(),
+                pageCompressionStats);
+    }
+
     @PostConstruct
     public void cleanupOldSpillFiles()
     {
-        spillPaths.forEach(FileSingleStreamSpillerFactory::cleanupOldSpillFiles);
+        spillPaths.stream()
+                .map(SpillPathStats::getPath)
+                .forEach(FileSingleStreamSpillerFactory::cleanupOldSpillFiles);
+    }
+
+    public List<SpillPathStats> getSpillPathStats()
+    {
+        return spillPaths;
     }
 
     @PreDestroy
@@ -149,39 +247,98 @@ public class FileSingleStreamSpillerFactory
     @Override
     public SingleStreamSpiller create(List<Type> types, SpillContext spillContext, LocalMemoryContext memoryContext)
     {
-        Optional<SpillCipher> spillCipher = Optional.empty();
-        if (spillEncryptionEnabled) {
-            spillCipher = Optional.of(new AesSpillCipher());
+        PrestoException failure = null;
+        // a path that fails to create the spill file is quarantined, so each retry goes to a different path
+        for (int attempt = 0; attempt < max(spillPaths.size(), 1); attempt++) {
+            SpillPathStats spillPath = getNextSpillPath();
+            Optional<SpillCipher> spillCipher = Optional.empty();
+            if (spillEncryptionEnabled) {
+                spillCipher = Optional.of(new AesSpillCipher());
+            }
+            PagesSerde serde = serdeFactory.createPagesSerdeForSpill(spillCipher);
+            try {
+                return new FileSingleStreamSpiller(serde, executor, spillPath, spillerStats, spillContext, memoryContext, spillCipher, readMode, readBufferSize);
+            }
+            catch (PrestoException e) {
+                spillCipher.ifPresent(SpillCipher::destroy);
+                log.warn(e, "Could not create spill file in %s", spillPath.getPath());
+                if (failure == null) {
+                    failure = e;
+                }
+                else {
+                    failure.addSuppressed(e);
+                }
+            }
         }
-        PagesSerde serde = serdeFactory.createPagesSerdeForSpill(spillCipher);
-        return new FileSingleStreamSpiller(serde, executor, getNextSpillPath(), spillerStats, spillContext, memoryContext, spillCipher);
+        throw failure;
     }
 
-    private synchronized Path getNextSpillPath()
+    /**
+     * Picks the path for the next spill file. Paths that recently failed or are out of space are skipped, and so are paths
+     * that recently wrote much slower than the fastest one. Of the remaining paths the one with the fewest queued writes
+     * is used, rotating between paths that are equally busy.
+     */
+    private synchronized SpillPathStats getNextSpillPath()
     {
+        if (spillPaths.isEmpty()) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "No spill paths configured");
+        }
+
         int spillPathsCount = spillPaths.size();
+        List<Integer> healthy = new ArrayList<>(spillPathsCount);
+        int fallback = -1;
+        double fastestLatency = Double.POSITIVE_INFINITY;
         for (int i = 0; i < spillPathsCount; ++i) {
             int pathIndex = (roundRobinIndex + i) % spillPathsCount;
-            Path path = spillPaths.get(pathIndex);
-            if (hasEnoughDiskSpace(path)) {
-                roundRobinIndex = (roundRobinIndex + i + 1) % spillPathsCount;
-                return path;
+            SpillPathStats path = spillPaths.get(pathIndex);
+            if (!hasEnoughDiskSpace(path)) {
+                continue;
+            }
+            if (path.isQuarantined()) {
+                if (fallback < 0) {
+                    fallback = pathIndex;
+                }
+                continue;
+            }
+            healthy.add(pathIndex);
+            double latency = path.getWriteLatencyNanosPerUnit();
+            if (latency > 0) {
+                fastestLatency = min(fastestLatency, latency);
             }
         }
-        if (spillPaths.isEmpty()) {
-            throw new PrestoException(OUT_OF_SPILL_SPACE, "No spill paths configured");
+
+        int selected = -1;
+        for (int pathIndex : healthy) {
+            SpillPathStats path = spillPaths.get(pathIndex);
+            // paths without any writes yet are not known to be slow
+            if (path.getWriteLatencyNanosPerUnit() > fastestLatency * slowPathLatencyRatio) {
+                continue;
+            }
+            if (selected < 0 || path.getActiveWrites() < spillPaths.get(selected).getActiveWrites()) {
+                selected = pathIndex;
+            }
+        }
+        if (selected < 0) {
+            // all paths with free space recently failed, so retry one of them rather than failing the query
+            selected = fallback;
+        }
+        if (selected < 0) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "No free space available for spill");
         }
-        throw new PrestoException(OUT_OF_SPILL_SPACE, "No free space available for spill");
+        roundRobinIndex = (selected + 1) % spillPathsCount;
+        return spillPaths.get(selected);
     }
 
-    private boolean hasEnoughDiskSpace(Path path)
+    private boolean hasEnoughDiskSpace(SpillPathStats path)
     {
         try {
-            FileStore fileStore = getFileStore(path);
+            FileStore fileStore = getFileStore(path.getPath());
             return fileStore.getUsableSpace() > fileStore.getTotalSpace() * (1.0 - maxUsedSpaceThreshold);
         }
         catch (IOException e) {
-            throw new PrestoException(OUT_OF_SPILL_SPACE, "Cannot determine free space for spill", e);
+            log.warn(e, "Cannot determine free space for spill in %s", path.getPath());
+            path.recordFailure();
+            return false;
         }
     }
 }
@@ -14,17 +14,39 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.airlift.configuration.Config;
+import com.facebook.airlift.configuration.ConfigDescription;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
 import io.airlift.units.DataSize;
+import io.airlift.units.MaxDataSize;
+import io.airlift.units.MinDataSize;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import static com.facebook.presto.execution.buffer.PagesSerdeFactory.DEFAULT_ZSTD_COMPRESSION_LEVEL;
+
 public class NodeSpillConfig
 {
     private DataSize maxSpillPerNode = new DataSize(100, DataSize.Unit.GIGABYTE);
     private DataSize queryMaxSpillPerNode = new DataSize(100, DataSize.Unit.GIGABYTE);
 
     private boolean spillCompressionEnabled;
+    private PageCompressionCodec spillCompressionCodec = PageCompressionCodec.LZ4;
+    private int spillZstdCompressionLevel = DEFAULT_ZSTD_COMPRESSION_LEVEL;
     private boolean spillEncryptionEnabled;
+    private SpillReadMode spillReadMode = SpillReadMode.STREAM;
+    private DataSize spillReadBufferSize = new DataSize(64, DataSize.Unit.KILOBYTE);
+
+    public enum SpillReadMode
+    {
+        // Read through a buffered input stream
+        STREAM,
+        // Positional channel reads into a reusable buffer
+        POSITIONAL,
+        // Read only memory mapping, falls back to positional reads for files too large to map
+        MEMORY_MAPPED,
+    }
 
     @NotNull
     public DataSize getMaxSpillPerNode()
@@ -64,6 +86,35 @@ public class NodeSpillConfig
         return this;
     }
 
+    @NotNull
+    public PageCompressionCodec getSpillCompressionCodec()
+    {
+        return spillCompressionCodec;
+    }
+
+    @Config("experimental.spill-compression-codec")
+    @ConfigDescription("Codec used to compress spilled pages when spill compression is enabled")
+    public NodeSpillConfig setSpillCompressionCodec(PageCompressionCodec spillCompressionCodec)
+    {
+        this.spillCompressionCodec = spillCompressionCodec;
+        return this;
+    }
+
+    @Min(1)
+    @Max(22)
+    public int getSpillZstdCompressionLevel()
+    {
+        return spillZstdCompressionLevel;
+    }
+
+    @Config("experimental.spill-zstd-compression-level")
+    @ConfigDescription("Compression level used when spilled pages are compressed with ZSTD")
+    public NodeSpillConfig setSpillZstdCompressionLevel(int spillZstdCompressionLevel)
+    {
+        this.spillZstdCompressionLevel = spillZstdCompressionLevel;
+        return this;
+    }
+
     public boolean isSpillEncryptionEnabled()
     {
         return spillEncryptionEnabled;
@@ -75,4 +126,34 @@ public class NodeSpillConfig
         this.spillEncryptionEnabled = spillEncryptionEnabled;
         return this;
     }
+
+    @NotNull
+    public SpillReadMode getSpillReadMode()
+    {
+        return spillReadMode;
+    }
+
+    @Config("experimental.spill-read-mode")
+    @ConfigDescription("How spill files are read back: STREAM, POSITIONAL or MEMORY_MAPPED")
+    public NodeSpillConfig setSpillReadMode(SpillReadMode spillReadMode)
+    {
+        this.spillReadMode = spillReadMode;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("4kB")
+    @MaxDataSize("16MB")
+    public DataSize getSpillReadBufferSize()
+    {
+        return spillReadBufferSize;
+    }
+
+    @Config("experimental.spill-read-buffer-size")
+    @ConfigDescription("Initial size of the reusable buffer used for positional reads of spill files")
+    public NodeSpillConfig setSpillReadBufferSize(DataSize spillReadBufferSize)
+    {
+        this.spillReadBufferSize = spillReadBufferSize;
+        return this;
+    }
 }
@@ -0,0 +1,331 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.PagesSerdeUtil;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode;
+import com.google.common.collect.AbstractIterator;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.Slices;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
+import static com.facebook.presto.spi.page.PageCodecMarker.ENCRYPTED;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.MEMORY_MAPPED;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.STREAM;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads back the pages written by {@link FileSingleStreamSpiller} and records the read throughput.
+ * The spill file is closed once all pages are read.
+ */
+@NotThreadSafe
+abstract class SpillFileReader
+        extends AbstractIterator<Page>
+        implements Closeable
+{
+    private static final int PAGE_HEADER_SIZE = SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_INT + SIZE_OF_INT;
+
+    private final PagesSerde serde;
+    private final SpillerStats spillerStats;
+
+    static SpillFileReader create(FileHolder file, SpillReadMode readMode, int bufferSize, PagesSerde serde, SpillerStats spillerStats)
+            throws IOException
+    {
+        if (readMode == STREAM) {
+            return new StreamReader(file.newInputStream(), bufferSize, serde, spillerStats);
+        }
+
+        FileChannel channel = file.newFileChannel(READ);
+        try {
+            if (readMode == MEMORY_MAPPED && channel.size() <= Integer.MAX_VALUE) {
+                // the mapping stays valid after the channel is closed
+                try (FileChannel ignored = channel) {
+                    return new MemoryMappedReader(channel.map(READ_ONLY, 0, channel.size()), serde, spillerStats);
+                }
+            }
+            return new PositionalReader(channel, bufferSize, serde, spillerStats);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private SpillFileReader(PagesSerde serde, SpillerStats spillerStats)
+    {
+        this.serde = requireNonNull(serde, "serde is null");
+        this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
+    }
+
+    protected abstract boolean hasRemaining()
+            throws IOException;
+
+    protected abstract SerializedPage readSerializedPage()
+            throws IOException;
+
+    /**
+     * Returns the size of the read buffer, which may grow while the pages are read.
+     */
+    public abstract long getRetainedSizeInBytes();
+
+    @Override
+    protected Page computeNext()
+    {
+        long start = System.nanoTime();
+        try {
+            if (!hasRemaining()) {
+                close();
+                return endOfData();
+            }
+            SerializedPage serializedPage = readSerializedPage();
+            Page page = serde.deserialize(serializedPage);
+            spillerStats.addToTotalUnspilledBytes(PAGE_HEADER_SIZE + serializedPage.getSizeInBytes(), System.nanoTime() - start);
+            return page;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pages that are neither compressed nor encrypted are deserialized without a copy, so their
+     * blocks keep referencing the slice they were read from.
+     */
+    private static boolean isCopiedOnDeserialization(byte pageCodecMarkers)
+    {
+        return COMPRESSED.isSet(pageCodecMarkers) || ENCRYPTED.isSet(pageCodecMarkers);
+    }
+
+    private static class StreamReader
+            extends SpillFileReader
+    {
+        private final InputStream input;
+        private final SliceInput sliceInput;
+        private final int bufferSize;
+
+        private StreamReader(InputStream input, int bufferSize, PagesSerde serde, SpillerStats spillerStats)
+        {
+            super(serde, spillerStats);
+            this.input = requireNonNull(input, "input is null");
+            this.sliceInput = new InputStreamSliceInput(input, bufferSize);
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        protected boolean hasRemaining()
+        {
+            return sliceInput.isReadable();
+        }
+
+        @Override
+        protected SerializedPage readSerializedPage()
+        {
+            return PagesSerdeUtil.readSerializedPage(sliceInput);
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            return bufferSize;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            input.close();
+        }
+    }
+
+    private static class PositionalReader
+            extends SpillFileReader
+    {
+        private final FileChannel channel;
+        private final long fileSize;
+
+        // window of the file held in the reusable buffer
+        private byte[] buffer;
+        private long bufferFilePosition;
+        private int bufferLength;
+
+        private long position;
+
+        private PositionalReader(FileChannel channel, int bufferSize, PagesSerde serde, SpillerStats spillerStats)
+                throws IOException
+        {
+            super(serde, spillerStats);
+            this.channel = requireNonNull(channel, "channel is null");
+            this.fileSize = channel.size();
+            this.buffer = new byte[bufferSize];
+        }
+
+        @Override
+        protected boolean hasRemaining()
+        {
+            return position < fileSize;
+        }
+
+        @Override
+        protected SerializedPage readSerializedPage()
+                throws IOException
+        {
+            Slice header = read(PAGE_HEADER_SIZE);
+            int positionCount = header.getInt(0);
+            byte pageCodecMarkers = header.getByte(SIZE_OF_INT);
+            int uncompressedSizeInBytes = header.getInt(SIZE_OF_INT + SIZE_OF_BYTE);
+            int sizeInBytes = header.getInt(SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_INT);
+
+            Slice slice = read(sizeInBytes);
+            if (!isCopiedOnDeserialization(pageCodecMarkers)) {
+                slice = Slices.copyOf(slice);
+            }
+            return new SerializedPage(slice, pageCodecMarkers, positionCount, uncompressedSizeInBytes);
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            return buffer.length;
+        }
+
+        /**
+         * Returns a view of the next {@code length} bytes of the file, which is valid until the next read.
+         */
+        private Slice read(int length)
+                throws IOException
+        {
+            if (position + length > bufferFilePosition + bufferLength) {
+                fill(length);
+            }
+            int offset = toIntExact(position - bufferFilePosition);
+            position += length;
+            return Slices.wrappedBuffer(buffer, offset, length);
+        }
+
+        private void fill(int minimumLength)
+                throws IOException
+        {
+            if (minimumLength > buffer.length) {
+                buffer = new byte[max(minimumLength, buffer.length * 2)];
+            }
+            int length = toIntExact(min(buffer.length, fileSize - position));
+            if (length < minimumLength) {
+                throw new EOFException("Unexpected end of spill file");
+            }
+
+            ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+            long readPosition = position;
+            while (target.hasRemaining()) {
+                int read = channel.read(target, readPosition);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of spill file");
+                }
+                readPosition += read;
+            }
+            bufferFilePosition = position;
+            bufferLength = length;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    private static class MemoryMappedReader
+            extends SpillFileReader
+    {
+        private final MappedByteBuffer mapping;
+        private final SliceInput input;
+        private boolean closed;
+
+        private MemoryMappedReader(MappedByteBuffer mapping, PagesSerde serde, SpillerStats spillerStats)
+        {
+            super(serde, spillerStats);
+            this.mapping = requireNonNull(mapping, "mapping is null");
+            this.input = Slices.wrappedBuffer(mapping).getInput();
+        }
+
+        @Override
+        protected boolean hasRemaining()
+        {
+            checkState(!closed, "Spill file reader is closed");
+            return input.isReadable();
+        }
+
+        @Override
+        protected SerializedPage readSerializedPage()
+        {
+            checkState(!closed, "Spill file reader is closed");
+            SerializedPage page = PagesSerdeUtil.readSerializedPage(input);
+            if (isCopiedOnDeserialization(page.getPageCodecMarkers())) {
+                return page;
+            }
+            // do not let the blocks reference, and account for, the whole mapping
+            return new SerializedPage(Slices.copyOf(page.getSlice()), page.getPageCodecMarkers(), page.getPositionCount(), page.getUncompressedSizeInBytes());
+        }
+
+        @Override
+        public long getRetainedSizeInBytes()
+        {
+            // the mapping is not allocated on the heap
+            return 0;
+        }
+
+        /**
+         * The disk space of a deleted spill file stays allocated while it is mapped, so the mapping is
+         * released here rather than when it is garbage collected. No page references the mapping.
+         */
+        @Override
+        public void close()
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Cleaner cleaner = ((DirectBuffer) mapping).cleaner();
+            if (cleaner != null) {
+                cleaner.clean();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Write statistics and health of a single spill path, used to decide which path the next spill file is placed on.
+ */
+@ThreadSafe
+public class SpillPathStats
+{
+    private static final long LATENCY_UNIT_BYTES = 1024 * 1024;
+    private static final double LATENCY_DECAY_WEIGHT = 0.2;
+
+    private final Path path;
+    private final long quarantineNanos;
+    private final long latencyExpirationNanos;
+
+    private final AtomicInteger activeWrites = new AtomicInteger();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong writeTimeNanos = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+
+    @GuardedBy("this")
+    private double writeLatencyNanosPerUnit;
+    @GuardedBy("this")
+    private long lastWriteNanos;
+    @GuardedBy("this")
+    private long quarantinedUntilNanos;
+    @GuardedBy("this")
+    private boolean quarantined;
+
+    public SpillPathStats(Path path)
+    {
+        this(path, new Duration(1, MINUTES));
+    }
+
+    public SpillPathStats(Path path, Duration quarantineDuration)
+    {
+        this.path = requireNonNull(path, "path is null");
+        this.quarantineNanos = requireNonNull(quarantineDuration, "quarantineDuration is null").roundTo(NANOSECONDS);
+        // a path skipped for being slow gets no writes to update its latency, so the measurement has to expire
+        this.latencyExpirationNanos = quarantineNanos;
+    }
+
+    public Path getPath()
+    {
+        return path;
+    }
+
+    public void writeQueued()
+    {
+        activeWrites.incrementAndGet();
+    }
+
+    public void writeDone()
+    {
+        activeWrites.decrementAndGet();
+    }
+
+    public void recordWrite(long bytes, long nanos)
+    {
+        bytesWritten.addAndGet(bytes);
+        writeTimeNanos.addAndGet(nanos);
+        // small writes are dominated by fixed costs, so count them as a full unit
+        double latency = (double) nanos / max(bytes, LATENCY_UNIT_BYTES) * LATENCY_UNIT_BYTES;
+        synchronized (this) {
+            if (getWriteLatencyNanosPerUnit() == 0) {
+                writeLatencyNanosPerUnit = latency;
+            }
+            else {
+                writeLatencyNanosPerUnit += LATENCY_DECAY_WEIGHT * (latency - writeLatencyNanosPerUnit);
+            }
+            lastWriteNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records an I/O failure and stops placing new spill files on the path for the quarantine duration
+     */
+    public void recordFailure()
+    {
+        writeFailures.incrementAndGet();
+        synchronized (this) {
+            quarantined = true;
+            quarantinedUntilNanos = System.nanoTime() + quarantineNanos;
+        }
+    }
+
+    /**
+     * Exponentially weighted write latency per megabyte, or 0 if nothing has been written to the path recently
+     */
+    public synchronized double getWriteLatencyNanosPerUnit()
+    {
+        if (writeLatencyNanosPerUnit != 0 && System.nanoTime() - lastWriteNanos >= latencyExpirationNanos) {
+            writeLatencyNanosPerUnit = 0;
+        }
+        return writeLatencyNanosPerUnit;
+    }
+
+    @Managed
+    public synchronized boolean isQuarantined()
+    {
+        if (quarantined && System.nanoTime() - quarantinedUntilNanos >= 0) {
+            quarantined = false;
+        }
+        return quarantined;
+    }
+
+    @Managed
+    public int getActiveWrites()
+    {
+        return activeWrites.get();
+    }
+
+    @Managed
+    public long getBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    @Managed
+    public long getWriteFailures()
+    {
+        return writeFailures.get();
+    }
+
+    @Managed
+    public double getWriteLatencyMillisPerMegabyte()
+    {
+        return getWriteLatencyNanosPerUnit() / MILLISECONDS.toNanos(1);
+    }
+
+    @Managed
+    public double getWriteThroughputBytesPerSecond()
+    {
+        long nanos = writeTimeNanos.get();
+        if (nanos == 0) {
+            return 0;
+        }
+        return bytesWritten.get() * (double) SECONDS.toNanos(1) / nanos;
+    }
+}
@@ -17,9 +17,13 @@ import org.weakref.jmx.Managed;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public class SpillerStats
 {
     protected final AtomicLong totalSpilledBytes = new AtomicLong();
+    protected final AtomicLong totalUnspilledBytes = new AtomicLong();
+    protected final AtomicLong totalUnspillTimeNanos = new AtomicLong();
 
     @Managed
     public long getTotalSpilledBytes()
@@ -31,4 +35,35 @@ public class SpillerStats
     {
         totalSpilledBytes.addAndGet(delta);
     }
+
+    @Managed
+    public long getTotalUnspilledBytes()
+    {
+        return totalUnspilledBytes.get();
+    }
+
+    @Managed
+    public long getTotalUnspillTimeNanos()
+    {
+        return totalUnspillTimeNanos.get();
+    }
+
+    /**
+     * Bytes read back from spill files per second spent reading and deserializing them
+     */
+    @Managed
+    public double getUnspillThroughputBytesPerSecond()
+    {
+        long nanos = totalUnspillTimeNanos.get();
+        if (nanos == 0) {
+            return 0;
+        }
+        return totalUnspilledBytes.get() * (double) SECONDS.toNanos(1) / nanos;
+    }
+
+    public void addToTotalUnspilledBytes(long bytes, long nanos)
+    {
+        totalUnspilledBytes.addAndGet(bytes);
+        totalUnspillTimeNanos.addAndGet(nanos);
+    }
 }
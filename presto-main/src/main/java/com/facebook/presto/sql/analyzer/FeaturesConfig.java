@@ -16,6 +16,7 @@ package com.facebook.presto.sql.analyzer;
 import com.facebook.airlift.configuration.Config;
 import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.configuration.DefunctConfig;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
 import com.facebook.presto.operator.aggregation.arrayagg.ArrayAggGroupImplementation;
 import com.facebook.presto.operator.aggregation.histogram.HistogramGroupImplementation;
 import com.facebook.presto.operator.aggregation.multimapagg.MultimapAggGroupImplementation;
@@ -29,6 +30,7 @@ import io.airlift.units.MaxDataSize;
 import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
@@ -36,6 +38,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
+import static com.facebook.presto.execution.buffer.PagesSerdeFactory.DEFAULT_ZSTD_COMPRESSION_LEVEL;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.AggregationPartitioningMergingStrategy.LEGACY;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType.PARTITIONED;
 import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinReorderingStrategy.ELIMINATE_CROSS_JOINS;
@@ -67,6 +70,7 @@ public class FeaturesConfig
     private boolean distributedIndexJoinsEnabled;
     private JoinDistributionType joinDistributionType = PARTITIONED;
     private DataSize joinMaxBroadcastTableSize;
+    private DataSize joinMaxBroadcastBuildSize;
     private boolean colocatedJoinsEnabled = true;
     private boolean groupedExecutionForAggregationEnabled;
     private boolean groupedExecutionForEligibleTableScansEnabled;
@@ -89,6 +93,8 @@ public class FeaturesConfig
     private boolean enableIntermediateAggregations;
     private boolean pushTableWriteThroughUnion = true;
     private boolean exchangeCompressionEnabled;
+    private PageCompressionCodec exchangeCompressionCodec = PageCompressionCodec.LZ4;
+    private int exchangeZstdCompressionLevel = DEFAULT_ZSTD_COMPRESSION_LEVEL;
     private boolean legacyArrayAgg;
     private boolean legacyLogFunction;
     private boolean groupByUsesEqualTo;
@@ -114,6 +120,8 @@ public class FeaturesConfig
     private List<Path> spillerSpillPaths = ImmutableList.of();
     private int spillerThreads = 4;
     private double spillMaxUsedSpaceThreshold = 0.9;
+    private Duration spillPathQuarantineDuration = new Duration(1, MINUTES);
+    private double spillSlowPathLatencyRatio = 4.0;
     private boolean iterativeOptimizerEnabled = true;
     private boolean enableStatsCalculator = true;
     private boolean ignoreStatsCalculatorFailures = true;
@@ -151,6 +159,18 @@ public class FeaturesConfig
     private boolean experimentalFunctionsEnabled;
     private boolean useLegacyScheduler = true;
     private boolean optimizeCommonSubExpressions = true;
+    private boolean enableDynamicFiltering;
+    private int dynamicFilteringMaxPerDriverValueCount = 10_000;
+    private boolean orderBySpillEnabled = true;
+    private boolean windowSpillEnabled = true;
+    private boolean adaptivePartialAggregationEnabled;
+    private double adaptivePartialAggregationUniqueRowsRatioThreshold = 0.8;
+    private boolean fragmentResultCachingEnabled;
+    private boolean semiJoinSpillEnabled = true;
+    private int skewedJoinSaltFactor = 8;
+    private boolean topNRowNumberSpillEnabled = true;
+    private boolean optimizeFilterProjectionCommonSubExpressions;
+    private int tableScanSplitPrefetchCount;
 
     private PartitioningPrecisionStrategy partitioningPrecisionStrategy = PartitioningPrecisionStrategy.AUTOMATIC;
 
@@ -365,6 +385,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public DataSize getJoinMaxBroadcastBuildSize()
+    {
+        return joinMaxBroadcastBuildSize;
+    }
+
+    @Config("join-max-broadcast-build-size")
+    @ConfigDescription("Maximum actual size of the build side of a broadcast join on a single task, checked during execution")
+    public FeaturesConfig setJoinMaxBroadcastBuildSize(DataSize joinMaxBroadcastBuildSize)
+    {
+        this.joinMaxBroadcastBuildSize = joinMaxBroadcastBuildSize;
+        return this;
+    }
+
     public boolean isGroupedExecutionForAggregationEnabled()
     {
         return groupedExecutionForAggregationEnabled;
@@ -891,6 +924,34 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public Duration getSpillPathQuarantineDuration()
+    {
+        return spillPathQuarantineDuration;
+    }
+
+    @Config("experimental.spiller-path-quarantine-duration")
+    @ConfigDescription("How long a spill path is avoided after spilling to it fails")
+    public FeaturesConfig setSpillPathQuarantineDuration(Duration spillPathQuarantineDuration)
+    {
+        this.spillPathQuarantineDuration = spillPathQuarantineDuration;
+        return this;
+    }
+
+    @DecimalMin("1.0")
+    public double getSpillSlowPathLatencyRatio()
+    {
+        return spillSlowPathLatencyRatio;
+    }
+
+    @Config("experimental.spiller-slow-path-latency-ratio")
+    @ConfigDescription("Spill paths with a write latency this many times higher than the fastest path are used only when no other path is available")
+    public FeaturesConfig setSpillSlowPathLatencyRatio(double spillSlowPathLatencyRatio)
+    {
+        this.spillSlowPathLatencyRatio = spillSlowPathLatencyRatio;
+        return this;
+    }
+
     public boolean isOptimizeMixedDistinctAggregations()
     {
         return optimizeMixedDistinctAggregations;
@@ -915,6 +976,35 @@ public class FeaturesConfig
         return this;
     }
 
+    @NotNull
+    public PageCompressionCodec getExchangeCompressionCodec()
+    {
+        return exchangeCompressionCodec;
+    }
+
+    @Config("exchange.compression-codec")
+    @ConfigDescription("Codec used to compress exchanged pages when exchange compression is enabled")
+    public FeaturesConfig setExchangeCompressionCodec(PageCompressionCodec exchangeCompressionCodec)
+    {
+        this.exchangeCompressionCodec = exchangeCompressionCodec;
+        return this;
+    }
+
+    @Min(1)
+    @Max(22)
+    public int getExchangeZstdCompressionLevel()
+    {
+        return exchangeZstdCompressionLevel;
+    }
+
+    @Config("exchange.zstd-compression-level")
+    @ConfigDescription("Compression level used when exchanged pages are compressed with ZSTD")
+    public FeaturesConfig setExchangeZstdCompressionLevel(int exchangeZstdCompressionLevel)
+    {
+        this.exchangeZstdCompressionLevel = exchangeZstdCompressionLevel;
+        return this;
+    }
+
     public boolean isEnableIntermediateAggregations()
     {
         return enableIntermediateAggregations;
@@ -1237,4 +1327,164 @@ public class FeaturesConfig
         this.optimizeCommonSubExpressions = optimizeCommonSubExpressions;
         return this;
     }
+
+    public boolean isEnableDynamicFiltering()
+    {
+        return enableDynamicFiltering;
+    }
+
+    @Config("experimental.enable-dynamic-filtering")
+    @ConfigDescription("Prune probe side table scans using the build side values of hash joins")
+    public FeaturesConfig setEnableDynamicFiltering(boolean enableDynamicFiltering)
+    {
+        this.enableDynamicFiltering = enableDynamicFiltering;
+        return this;
+    }
+
+    public int getDynamicFilteringMaxPerDriverValueCount()
+    {
+        return dynamicFilteringMaxPerDriverValueCount;
+    }
+
+    @Config("experimental.dynamic-filtering-max-per-driver-value-count")
+    @ConfigDescription("Maximum number of distinct build side values collected per driver before a dynamic filter degrades to a range")
+    public FeaturesConfig setDynamicFilteringMaxPerDriverValueCount(int dynamicFilteringMaxPerDriverValueCount)
+    {
+        this.dynamicFilteringMaxPerDriverValueCount = dynamicFilteringMaxPerDriverValueCount;
+        return this;
+    }
+
+    public boolean isOrderBySpillEnabled()
+    {
+        return orderBySpillEnabled;
+    }
+
+    @Config("experimental.order-by-spill-enabled")
+    @ConfigDescription("Spill ORDER BY to disk when spill is enabled")
+    public FeaturesConfig setOrderBySpillEnabled(boolean orderBySpillEnabled)
+    {
+        this.orderBySpillEnabled = orderBySpillEnabled;
+        return this;
+    }
+
+    public boolean isWindowSpillEnabled()
+    {
+        return windowSpillEnabled;
+    }
+
+    @Config("experimental.window-spill-enabled")
+    @ConfigDescription("Spill window function input to disk when spill is enabled")
+    public FeaturesConfig setWindowSpillEnabled(boolean windowSpillEnabled)
+    {
+        this.windowSpillEnabled = windowSpillEnabled;
+        return this;
+    }
+
+    public boolean isAdaptivePartialAggregationEnabled()
+    {
+        return adaptivePartialAggregationEnabled;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation")
+    @ConfigDescription("Bypass partial aggregation when it does not reduce the number of rows")
+    public FeaturesConfig setAdaptivePartialAggregationEnabled(boolean adaptivePartialAggregationEnabled)
+    {
+        this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getAdaptivePartialAggregationUniqueRowsRatioThreshold()
+    {
+        return adaptivePartialAggregationUniqueRowsRatioThreshold;
+    }
+
+    @Config("experimental.adaptive-partial-aggregation-unique-rows-ratio-threshold")
+    @ConfigDescription("Ratio of unique groups to input rows above which partial aggregation is bypassed")
+    public FeaturesConfig setAdaptivePartialAggregationUniqueRowsRatioThreshold(double adaptivePartialAggregationUniqueRowsRatioThreshold)
+    {
+        this.adaptivePartialAggregationUniqueRowsRatioThreshold = adaptivePartialAggregationUniqueRowsRatioThreshold;
+        return this;
+    }
+
+    public boolean isFragmentResultCachingEnabled()
+    {
+        return fragmentResultCachingEnabled;
+    }
+
+    @Config("experimental.fragment-result-caching-enabled")
+    @ConfigDescription("Cache the results of leaf plan fragments per split and reuse them in later queries")
+    public FeaturesConfig setFragmentResultCachingEnabled(boolean fragmentResultCachingEnabled)
+    {
+        this.fragmentResultCachingEnabled = fragmentResultCachingEnabled;
+        return this;
+    }
+
+    public boolean isSemiJoinSpillEnabled()
+    {
+        return semiJoinSpillEnabled;
+    }
+
+    @Config("experimental.semi-join-spill-enabled")
+    @ConfigDescription("Spill the filtering source of semi joins to disk when spill is enabled")
+    public FeaturesConfig setSemiJoinSpillEnabled(boolean semiJoinSpillEnabled)
+    {
+        this.semiJoinSpillEnabled = semiJoinSpillEnabled;
+        return this;
+    }
+
+    @Min(2)
+    public int getSkewedJoinSaltFactor()
+    {
+        return skewedJoinSaltFactor;
+    }
+
+    @Config("optimizer.skewed-join-salt-factor")
+    @ConfigDescription("Number of partitions the rows of each hot join key are spread across in partitioned joins")
+    public FeaturesConfig setSkewedJoinSaltFactor(int skewedJoinSaltFactor)
+    {
+        this.skewedJoinSaltFactor = skewedJoinSaltFactor;
+        return this;
+    }
+
+    public boolean isTopNRowNumberSpillEnabled()
+    {
+        return topNRowNumberSpillEnabled;
+    }
+
+    @Config("experimental.topn-row-number-spill-enabled")
+    @ConfigDescription("Spill the per partition heaps of top N row number to disk when spill is enabled")
+    public FeaturesConfig setTopNRowNumberSpillEnabled(boolean topNRowNumberSpillEnabled)
+    {
+        this.topNRowNumberSpillEnabled = topNRowNumberSpillEnabled;
+        return this;
+    }
+
+    public boolean isOptimizeFilterProjectionCommonSubExpressions()
+    {
+        return optimizeFilterProjectionCommonSubExpressions;
+    }
+
+    @Config("optimize-filter-projection-common-sub-expressions")
+    @ConfigDescription("Evaluate sub-expressions shared by a filter and its projections only once per page")
+    public FeaturesConfig setOptimizeFilterProjectionCommonSubExpressions(boolean optimizeFilterProjectionCommonSubExpressions)
+    {
+        this.optimizeFilterProjectionCommonSubExpressions = optimizeFilterProjectionCommonSubExpressions;
+        return this;
+    }
+
+    public int getTableScanSplitPrefetchCount()
+    {
+        return tableScanSplitPrefetchCount;
+    }
+
+    @Config("table-scan-split-prefetch-count")
+    @Min(0)
+    @ConfigDescription("Number of queued table scan splits whose page sources are opened ahead of time")
+    public FeaturesConfig setTableScanSplitPrefetchCount(int tableScanSplitPrefetchCount)
+    {
+        this.tableScanSplitPrefetchCount = tableScanSplitPrefetchCount;
+        return this;
+    }
 }
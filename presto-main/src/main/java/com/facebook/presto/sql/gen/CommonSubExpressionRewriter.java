@@ -13,6 +13,9 @@
  */
 package com.facebook.presto.sql.gen;
 
+import com.facebook.presto.metadata.FunctionManager;
+import com.facebook.presto.operator.scalar.BuiltInScalarFunctionImplementation;
+import com.facebook.presto.operator.scalar.BuiltInScalarFunctionImplementation.ArgumentProperty;
 import com.facebook.presto.spi.relation.CallExpression;
 import com.facebook.presto.spi.relation.ConstantExpression;
 import com.facebook.presto.spi.relation.InputReferenceExpression;
@@ -24,13 +27,17 @@ import com.facebook.presto.spi.relation.VariableReferenceExpression;
 import com.facebook.presto.sql.planner.PlanVariableAllocator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.facebook.presto.operator.scalar.BuiltInScalarFunctionImplementation.ArgumentType.VALUE_TYPE;
+import static com.facebook.presto.operator.scalar.BuiltInScalarFunctionImplementation.NullConvention.RETURN_NULL_ON_NULL;
 import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.WHEN;
 import static com.facebook.presto.sql.relational.Expressions.subExpressions;
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -94,6 +101,76 @@ public class CommonSubExpressionRewriter
         return expressions.stream().filter(expression -> expression.accept(subExpressionChecker, null)).collect(toImmutableList());
     }
 
+    /**
+     * Returns the largest calls that the filter evaluates for every position and that the projections use as well.
+     * Computing them for all positions of a page up front cannot fail for a position the filter would not fail on.
+     */
+    public static List<RowExpression> getFilterAndProjectionCommonSubExpressions(FunctionManager functionManager, RowExpression filter, List<? extends RowExpression> projections)
+    {
+        if (projections.isEmpty()) {
+            return ImmutableList.of();
+        }
+        Set<RowExpression> projectionSubExpressions = ImmutableSet.copyOf(subExpressions(ImmutableList.copyOf(projections)));
+        Set<RowExpression> commonSubExpressions = new LinkedHashSet<>();
+        collectFilterAndProjectionCommonSubExpressions(functionManager, filter, projectionSubExpressions, commonSubExpressions);
+        return ImmutableList.copyOf(commonSubExpressions);
+    }
+
+    private static void collectFilterAndProjectionCommonSubExpressions(FunctionManager functionManager, RowExpression expression, Set<RowExpression> projectionSubExpressions, Set<RowExpression> commonSubExpressions)
+    {
+        if (expression instanceof CallExpression) {
+            CallExpression call = (CallExpression) expression;
+            if (!call.getArguments().isEmpty() && projectionSubExpressions.contains(call) && isIndependentOfLambdas(call)) {
+                commonSubExpressions.add(call);
+                return;
+            }
+            List<RowExpression> arguments = call.getArguments();
+            for (int i = 0; i < arguments.size(); i++) {
+                collectFilterAndProjectionCommonSubExpressions(functionManager, arguments.get(i), projectionSubExpressions, commonSubExpressions);
+                // the generated call skips the remaining arguments once an argument that cannot be null is null
+                if (!isEvaluatedOnNull(functionManager, call, i)) {
+                    break;
+                }
+            }
+        }
+        else if (expression instanceof SpecialFormExpression) {
+            SpecialFormExpression specialForm = (SpecialFormExpression) expression;
+            switch (specialForm.getForm()) {
+                case IS_NULL:
+                case DEREFERENCE:
+                case ROW_CONSTRUCTOR:
+                    specialForm.getArguments().forEach(argument -> collectFilterAndProjectionCommonSubExpressions(functionManager, argument, projectionSubExpressions, commonSubExpressions));
+                    break;
+                default:
+                    // only the first argument of conditional forms is evaluated for every position
+                    if (!specialForm.getArguments().isEmpty()) {
+                        collectFilterAndProjectionCommonSubExpressions(functionManager, specialForm.getArguments().get(0), projectionSubExpressions, commonSubExpressions);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Whether the arguments after the given one are evaluated when it is null, for every implementation of the function.
+     */
+    private static boolean isEvaluatedOnNull(FunctionManager functionManager, CallExpression call, int argumentIndex)
+    {
+        BuiltInScalarFunctionImplementation function = functionManager.getBuiltInScalarFunctionImplementation(call.getFunctionHandle());
+        for (BuiltInScalarFunctionImplementation.ScalarImplementationChoice choice : function.getAllChoices()) {
+            ArgumentProperty argumentProperty = choice.getArgumentProperty(argumentIndex);
+            if (argumentProperty.getArgumentType() != VALUE_TYPE || argumentProperty.getNullConvention() == RETURN_NULL_ON_NULL) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIndependentOfLambdas(RowExpression expression)
+    {
+        return subExpressions(expression).stream()
+                .noneMatch(subExpression -> subExpression instanceof LambdaDefinitionExpression || subExpression instanceof VariableReferenceExpression);
+    }
+
     public static RowExpression rewriteExpressionWithCSE(RowExpression expression, Map<RowExpression, VariableReferenceExpression> rewriteWith)
     {
         ExpressionRewriter rewriter = new ExpressionRewriter(rewriteWith);
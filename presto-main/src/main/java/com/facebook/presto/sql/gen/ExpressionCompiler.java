@@ -15,25 +15,33 @@ package com.facebook.presto.sql.gen;
 
 import com.facebook.presto.bytecode.ClassDefinition;
 import com.facebook.presto.bytecode.CompilationException;
+import com.facebook.presto.metadata.FunctionManager;
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.operator.project.CommonSubExpressionChannels;
 import com.facebook.presto.operator.project.CursorProcessor;
 import com.facebook.presto.operator.project.PageFilter;
 import com.facebook.presto.operator.project.PageProcessor;
+import com.facebook.presto.operator.project.PageProjection;
 import com.facebook.presto.operator.project.PageProjectionWithOutputs;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.function.SqlFunctionProperties;
+import com.facebook.presto.spi.relation.DeterminismEvaluator;
+import com.facebook.presto.spi.relation.InputReferenceExpression;
 import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.sql.relational.RowExpressionDeterminismEvaluator;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
 import javax.inject.Inject;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -43,10 +51,14 @@ import static com.facebook.presto.bytecode.Access.FINAL;
 import static com.facebook.presto.bytecode.Access.PUBLIC;
 import static com.facebook.presto.bytecode.Access.a;
 import static com.facebook.presto.bytecode.ParameterizedType.type;
+import static com.facebook.presto.expressions.RowExpressionNodeInliner.replaceExpression;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.sql.gen.BytecodeUtils.invoke;
+import static com.facebook.presto.sql.gen.CommonSubExpressionRewriter.getFilterAndProjectionCommonSubExpressions;
 import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.sql.relational.Expressions.subExpressions;
 import static com.facebook.presto.util.CompilerUtils.defineClass;
 import static com.facebook.presto.util.CompilerUtils.makeClassName;
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -55,7 +67,9 @@ import static java.util.Objects.requireNonNull;
 
 public class ExpressionCompiler
 {
+    private final FunctionManager functionManager;
     private final PageFunctionCompiler pageFunctionCompiler;
+    private final DeterminismEvaluator determinismEvaluator;
     private final LoadingCache<CacheKey, Class<? extends CursorProcessor>> cursorProcessors;
     private final CacheStatsMBean cacheStatsMBean;
 
@@ -63,7 +77,9 @@ public class ExpressionCompiler
     public ExpressionCompiler(Metadata metadata, PageFunctionCompiler pageFunctionCompiler)
     {
         requireNonNull(metadata, "metadata is null");
+        this.functionManager = metadata.getFunctionManager();
         this.pageFunctionCompiler = requireNonNull(pageFunctionCompiler, "pageFunctionCompiler is null");
+        this.determinismEvaluator = new RowExpressionDeterminismEvaluator(metadata.getFunctionManager());
         this.cursorProcessors = CacheBuilder.newBuilder()
                 .recordStats()
                 .maximumSize(1000)
@@ -93,7 +109,18 @@ public class ExpressionCompiler
 
     public Supplier<PageProcessor> compilePageProcessor(SqlFunctionProperties sqlFunctionProperties, Optional<RowExpression> filter, List<? extends RowExpression> projections, boolean isOptimizeCommonSubExpression, Optional<String> classNameSuffix)
     {
-        return compilePageProcessor(sqlFunctionProperties, filter, projections, isOptimizeCommonSubExpression, classNameSuffix, OptionalInt.empty());
+        return compilePageProcessor(sqlFunctionProperties, filter, projections, isOptimizeCommonSubExpression, false, classNameSuffix, OptionalInt.empty());
+    }
+
+    public Supplier<PageProcessor> compilePageProcessor(
+            SqlFunctionProperties sqlFunctionProperties,
+            Optional<RowExpression> filter,
+            List<? extends RowExpression> projections,
+            boolean isOptimizeCommonSubExpression,
+            boolean isOptimizeFilterProjectionCommonSubExpression,
+            Optional<String> classNameSuffix)
+    {
+        return compilePageProcessor(sqlFunctionProperties, filter, projections, isOptimizeCommonSubExpression, isOptimizeFilterProjectionCommonSubExpression, classNameSuffix, OptionalInt.empty());
     }
 
     private Supplier<PageProcessor> compilePageProcessor(
@@ -101,9 +128,19 @@ public class ExpressionCompiler
             Optional<RowExpression> filter,
             List<? extends RowExpression> projections,
             boolean isOptimizeCommonSubExpression,
+            boolean isOptimizeFilterProjectionCommonSubExpression,
             Optional<String> classNameSuffix,
             OptionalInt initialBatchSize)
     {
+        if (isOptimizeFilterProjectionCommonSubExpression && filter.isPresent()) {
+            List<RowExpression> commonSubExpressions = getFilterAndProjectionCommonSubExpressions(functionManager, filter.get(), projections).stream()
+                    .filter(determinismEvaluator::isDeterministic)
+                    .collect(toImmutableList());
+            if (!commonSubExpressions.isEmpty()) {
+                return compilePageProcessorWithCommonSubExpressions(sqlFunctionProperties, filter.get(), projections, commonSubExpressions, isOptimizeCommonSubExpression, classNameSuffix, initialBatchSize);
+            }
+        }
+
         Optional<Supplier<PageFilter>> filterFunctionSupplier = filter.map(expression -> pageFunctionCompiler.compileFilter(sqlFunctionProperties, expression, isOptimizeCommonSubExpression, classNameSuffix));
         List<Supplier<PageProjectionWithOutputs>> pageProjectionSuppliers = pageFunctionCompiler.compileProjections(sqlFunctionProperties, projections, isOptimizeCommonSubExpression, classNameSuffix);
 
@@ -116,6 +153,58 @@ public class ExpressionCompiler
         };
     }
 
+    /**
+     * Computes the sub-expressions shared by the filter and the projections once per page into extra channels
+     * that both the filter and the projections read instead of evaluating the sub-expressions themselves.
+     */
+    private Supplier<PageProcessor> compilePageProcessorWithCommonSubExpressions(
+            SqlFunctionProperties sqlFunctionProperties,
+            RowExpression filter,
+            List<? extends RowExpression> projections,
+            List<RowExpression> commonSubExpressions,
+            boolean isOptimizeCommonSubExpression,
+            Optional<String> classNameSuffix,
+            OptionalInt initialBatchSize)
+    {
+        // the sub-expressions are appended right after the last channel the expressions read
+        int firstChannel = subExpressions(ImmutableList.<RowExpression>builder().add(filter).addAll(projections).build()).stream()
+                .filter(InputReferenceExpression.class::isInstance)
+                .mapToInt(expression -> ((InputReferenceExpression) expression).getField())
+                .max()
+                .orElse(-1) + 1;
+
+        ImmutableMap.Builder<RowExpression, RowExpression> channels = ImmutableMap.builder();
+        for (int i = 0; i < commonSubExpressions.size(); i++) {
+            RowExpression commonSubExpression = commonSubExpressions.get(i);
+            channels.put(commonSubExpression, field(firstChannel + i, commonSubExpression.getType()));
+        }
+        Map<RowExpression, RowExpression> commonSubExpressionChannels = channels.build();
+        RowExpression rewrittenFilter = replaceExpression(filter, commonSubExpressionChannels);
+        List<RowExpression> rewrittenProjections = projections.stream()
+                .map(projection -> replaceExpression(projection, commonSubExpressionChannels))
+                .collect(toImmutableList());
+
+        List<Supplier<PageProjection>> commonSubExpressionSuppliers = commonSubExpressions.stream()
+                .map(expression -> pageFunctionCompiler.compileProjection(sqlFunctionProperties, expression, classNameSuffix))
+                .collect(toImmutableList());
+        Supplier<PageFilter> filterFunctionSupplier = pageFunctionCompiler.compileFilter(sqlFunctionProperties, rewrittenFilter, isOptimizeCommonSubExpression, classNameSuffix);
+        List<Supplier<PageProjectionWithOutputs>> pageProjectionSuppliers = pageFunctionCompiler.compileProjections(sqlFunctionProperties, rewrittenProjections, isOptimizeCommonSubExpression, classNameSuffix);
+
+        return () -> {
+            List<PageProjection> commonSubExpressionProjections = commonSubExpressionSuppliers.stream()
+                    .map(Supplier::get)
+                    .collect(toImmutableList());
+            List<PageProjectionWithOutputs> pageProjections = pageProjectionSuppliers.stream()
+                    .map(Supplier::get)
+                    .collect(toImmutableList());
+            return new PageProcessor(
+                    Optional.of(filterFunctionSupplier.get()),
+                    Optional.of(new CommonSubExpressionChannels(commonSubExpressionProjections, firstChannel)),
+                    pageProjections,
+                    initialBatchSize);
+        };
+    }
+
     @VisibleForTesting
     public Supplier<PageProcessor> compilePageProcessor(SqlFunctionProperties sqlFunctionProperties, Optional<RowExpression> filter, List<? extends RowExpression> projections)
     {
@@ -125,7 +214,7 @@ public class ExpressionCompiler
     @VisibleForTesting
     public Supplier<PageProcessor> compilePageProcessor(SqlFunctionProperties sqlFunctionProperties, Optional<RowExpression> filter, List<? extends RowExpression> projections, boolean isOptimizeCommonSubExpression, int initialBatchSize)
     {
-        return compilePageProcessor(sqlFunctionProperties, filter, projections, isOptimizeCommonSubExpression, Optional.empty(), OptionalInt.of(initialBatchSize));
+        return compilePageProcessor(sqlFunctionProperties, filter, projections, isOptimizeCommonSubExpression, false, Optional.empty(), OptionalInt.of(initialBatchSize));
     }
 
     private <T> Class<? extends T> compile(SqlFunctionProperties sqlFunctionProperties, Optional<RowExpression> filter, List<RowExpression> projections, BodyCompiler bodyCompiler, Class<? extends T> superType)
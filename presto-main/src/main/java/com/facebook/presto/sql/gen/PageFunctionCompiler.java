@@ -26,6 +26,7 @@ import com.facebook.presto.bytecode.control.ForLoop;
 import com.facebook.presto.bytecode.control.IfStatement;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.operator.Work;
+import com.facebook.presto.operator.project.ConstantComparisonPageFilter;
 import com.facebook.presto.operator.project.ConstantPageProjection;
 import com.facebook.presto.operator.project.GeneratedPageProjection;
 import com.facebook.presto.operator.project.InputChannels;
@@ -39,6 +40,7 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.function.OperatorType;
 import com.facebook.presto.spi.function.SqlFunctionProperties;
 import com.facebook.presto.spi.relation.CallExpression;
 import com.facebook.presto.spi.relation.ConstantExpression;
@@ -49,6 +51,7 @@ import com.facebook.presto.spi.relation.RowExpression;
 import com.facebook.presto.spi.relation.RowExpressionVisitor;
 import com.facebook.presto.spi.relation.SpecialFormExpression;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.gen.LambdaBytecodeGenerator.CompiledLambda;
 import com.facebook.presto.sql.planner.CompilerConfig;
 import com.facebook.presto.sql.relational.RowExpressionDeterminismEvaluator;
@@ -94,6 +97,12 @@ import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newArr
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.not;
 import static com.facebook.presto.operator.project.PageFieldsToInputParametersRewriter.rewritePageFieldsToInputParameters;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
+import static com.facebook.presto.spi.function.OperatorType.EQUAL;
+import static com.facebook.presto.spi.function.OperatorType.GREATER_THAN;
+import static com.facebook.presto.spi.function.OperatorType.GREATER_THAN_OR_EQUAL;
+import static com.facebook.presto.spi.function.OperatorType.LESS_THAN;
+import static com.facebook.presto.spi.function.OperatorType.LESS_THAN_OR_EQUAL;
+import static com.facebook.presto.spi.function.OperatorType.NOT_EQUAL;
 import static com.facebook.presto.sql.gen.BytecodeUtils.boxPrimitiveIfNecessary;
 import static com.facebook.presto.sql.gen.BytecodeUtils.invoke;
 import static com.facebook.presto.sql.gen.BytecodeUtils.unboxPrimitiveIfNecessary;
@@ -524,13 +533,71 @@ public class PageFunctionCompiler
 
     public Supplier<PageFilter> compileFilter(SqlFunctionProperties sqlFunctionProperties, RowExpression filter, boolean isOptimizeCommonSubExpression, Optional<String> classNameSuffix)
     {
+        Optional<Supplier<PageFilter>> constantComparisonFilter = createConstantComparisonFilter(filter);
+        if (constantComparisonFilter.isPresent()) {
+            return constantComparisonFilter.get();
+        }
+
         if (filterCache == null) {
             return compileFilterInternal(sqlFunctionProperties, filter, isOptimizeCommonSubExpression, classNameSuffix);
         }
         return filterCache.getUnchecked(new CacheKey(sqlFunctionProperties, ImmutableList.of(filter), isOptimizeCommonSubExpression));
     }
 
-    private Supplier<PageFilter> compileFilterInternal(SqlFunctionProperties sqlFunctionProperties, RowExpression filter, boolean isOptimizeCommonSubExpression, Optional<String> classNameSuffix)
+    private Optional<Supplier<PageFilter>> createConstantComparisonFilter(RowExpression filter)
+    {
+        if (!(filter instanceof CallExpression) || ((CallExpression) filter).getArguments().size() != 2) {
+            return Optional.empty();
+        }
+
+        CallExpression call = (CallExpression) filter;
+        Optional<OperatorType> operatorType = metadata.getFunctionManager().getFunctionMetadata(call.getFunctionHandle()).getOperatorType();
+        RowExpression left = call.getArguments().get(0);
+        RowExpression right = call.getArguments().get(1);
+        if (!operatorType.isPresent() || !ConstantComparisonPageFilter.isSupported(operatorType.get(), left.getType()) || !left.getType().equals(right.getType())) {
+            return Optional.empty();
+        }
+
+        OperatorType comparison = operatorType.get();
+        if (left instanceof ConstantExpression && right instanceof InputReferenceExpression) {
+            RowExpression swapped = left;
+            left = right;
+            right = swapped;
+            comparison = flip(comparison);
+        }
+        if (!(left instanceof InputReferenceExpression) || !(right instanceof ConstantExpression) || ((ConstantExpression) right).isNull()) {
+            return Optional.empty();
+        }
+
+        int field = ((InputReferenceExpression) left).getField();
+        OperatorType operator = comparison;
+        Type type = left.getType();
+        Object value = ((ConstantExpression) right).getValue();
+        return Optional.of(() -> new ConstantComparisonPageFilter(field, operator, type, value));
+    }
+
+    private static OperatorType flip(OperatorType operatorType)
+    {
+        switch (operatorType) {
+            case EQUAL:
+                return EQUAL;
+            case NOT_EQUAL:
+                return NOT_EQUAL;
+            case LESS_THAN:
+                return GREATER_THAN;
+            case LESS_THAN_OR_EQUAL:
+                return GREATER_THAN_OR_EQUAL;
+            case GREATER_THAN:
+                return LESS_THAN;
+            case GREATER_THAN_OR_EQUAL:
+                return LESS_THAN_OR_EQUAL;
+            default:
+                throw new IllegalArgumentException("Unsupported comparison: " + operatorType);
+        }
+    }
+
+    @VisibleForTesting
+    Supplier<PageFilter> compileFilterInternal(SqlFunctionProperties sqlFunctionProperties, RowExpression filter, boolean isOptimizeCommonSubExpression, Optional<String> classNameSuffix)
     {
         requireNonNull(filter, "filter is null");
 
@@ -14,6 +14,7 @@
 package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.operator.ExchangeOperator.ExchangeOperatorFactory;
 import com.facebook.presto.operator.MergeOperator.MergeOperatorFactory;
@@ -27,7 +28,8 @@ import com.facebook.presto.sql.gen.OrderingCompiler;
 
 import java.util.List;
 
-import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
+import static com.facebook.presto.SystemSessionProperties.getExchangeCompressionCodec;
+import static com.facebook.presto.SystemSessionProperties.getExchangeZstdCompressionLevel;
 import static java.util.Objects.requireNonNull;
 
 public class HttpRemoteSourceFactory
@@ -36,12 +38,18 @@ public class HttpRemoteSourceFactory
     private final BlockEncodingSerde blockEncodingSerde;
     private final TaskExchangeClientManager taskExchangeClientManager;
     private final OrderingCompiler orderingCompiler;
+    private final PageCompressionStats pageCompressionStats;
 
-    public HttpRemoteSourceFactory(BlockEncodingSerde blockEncodingSerde, TaskExchangeClientManager taskExchangeClientManager, OrderingCompiler orderingCompiler)
+    public HttpRemoteSourceFactory(
+            BlockEncodingSerde blockEncodingSerde,
+            TaskExchangeClientManager taskExchangeClientManager,
+            OrderingCompiler orderingCompiler,
+            PageCompressionStats pageCompressionStats)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         this.taskExchangeClientManager = requireNonNull(taskExchangeClientManager, "taskExchangeClientManager is null");
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
+        this.pageCompressionStats = requireNonNull(pageCompressionStats, "pageCompressionStats is null");
     }
 
     @Override
@@ -51,7 +59,7 @@ public class HttpRemoteSourceFactory
                 operatorId,
                 planNodeId,
                 taskExchangeClientManager,
-                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)));
+                createPagesSerdeFactory(session));
     }
 
     @Override
@@ -68,11 +76,16 @@ public class HttpRemoteSourceFactory
                 operatorId,
                 planNodeId,
                 taskExchangeClientManager,
-                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session)),
+                createPagesSerdeFactory(session),
                 orderingCompiler,
                 types,
                 outputChannels,
                 sortChannels,
                 sortOrder);
     }
+
+    private PagesSerdeFactory createPagesSerdeFactory(Session session)
+    {
+        return new PagesSerdeFactory(blockEncodingSerde, getExchangeCompressionCodec(session), getExchangeZstdCompressionLevel(session), pageCompressionStats);
+    }
 }
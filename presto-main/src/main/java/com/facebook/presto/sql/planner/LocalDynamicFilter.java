@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Combines the build side value summaries produced by every build driver of a
+ * hash join into a single predicate on the probe side table scan columns.
+ * The predicate becomes available once all build partitions have reported.
+ */
+@ThreadSafe
+public class LocalDynamicFilter
+{
+    // probe side column filtered by each build channel, in build channel order
+    private final List<ColumnHandle> probeColumns;
+    private final SettableFuture<TupleDomain<ColumnHandle>> resultFuture = SettableFuture.create();
+
+    @GuardedBy("this")
+    private OptionalInt partitionCount = OptionalInt.empty();
+    @GuardedBy("this")
+    private int reportedPartitions;
+    @GuardedBy("this")
+    private TupleDomain<ColumnHandle> result = TupleDomain.none();
+
+    public LocalDynamicFilter(List<ColumnHandle> probeColumns)
+    {
+        this.probeColumns = ImmutableList.copyOf(requireNonNull(probeColumns, "probeColumns is null"));
+    }
+
+    public List<ColumnHandle> getProbeColumns()
+    {
+        return probeColumns;
+    }
+
+    /**
+     * The number of build partitions is only known once the build side has been planned,
+     * which happens after the probe side table scan has been bound to this filter.
+     */
+    public void setPartitionCount(int partitionCount)
+    {
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        synchronized (this) {
+            checkState(!this.partitionCount.isPresent(), "partitionCount is already set");
+            this.partitionCount = OptionalInt.of(partitionCount);
+        }
+        completeIfDone();
+    }
+
+    public Consumer<List<Domain>> getPartitionConsumer()
+    {
+        return this::addPartition;
+    }
+
+    /**
+     * Returns the current probe side predicate: {@code TupleDomain.all()} until
+     * every build partition has reported, the combined predicate afterwards.
+     */
+    public Supplier<TupleDomain<ColumnHandle>> getPredicateSupplier()
+    {
+        return () -> resultFuture.isDone() ? getFutureValue(resultFuture) : TupleDomain.all();
+    }
+
+    public ListenableFuture<TupleDomain<ColumnHandle>> getResultFuture()
+    {
+        return resultFuture;
+    }
+
+    private void addPartition(List<Domain> domains)
+    {
+        requireNonNull(domains, "domains is null");
+        checkArgument(domains.size() == probeColumns.size(), "expected %s domains, but got %s", probeColumns.size(), domains.size());
+
+        // the same probe column may be constrained by several build channels
+        TupleDomain<ColumnHandle> partitionPredicate = TupleDomain.all();
+        for (int i = 0; i < domains.size(); i++) {
+            partitionPredicate = partitionPredicate.intersect(TupleDomain.withColumnDomains(ImmutableMap.of(probeColumns.get(i), domains.get(i))));
+        }
+
+        synchronized (this) {
+            checkState(!partitionCount.isPresent() || reportedPartitions < partitionCount.getAsInt(), "All partitions have already been reported");
+            result = TupleDomain.columnWiseUnion(result, partitionPredicate);
+            reportedPartitions++;
+        }
+        completeIfDone();
+    }
+
+    private void completeIfDone()
+    {
+        TupleDomain<ColumnHandle> completed;
+        synchronized (this) {
+            if (!partitionCount.isPresent() || reportedPartitions < partitionCount.getAsInt()) {
+                return;
+            }
+            completed = result;
+        }
+        resultFuture.set(completed);
+    }
+
+    /**
+     * Combines the predicates of several dynamic filters targeting the same table scan.
+     */
+    public static Supplier<TupleDomain<ColumnHandle>> intersectPredicates(List<LocalDynamicFilter> dynamicFilters)
+    {
+        List<Supplier<TupleDomain<ColumnHandle>>> suppliers = dynamicFilters.stream()
+                .map(LocalDynamicFilter::getPredicateSupplier)
+                .collect(toImmutableList());
+        return () -> {
+            TupleDomain<ColumnHandle> predicate = TupleDomain.all();
+            for (Supplier<TupleDomain<ColumnHandle>> supplier : suppliers) {
+                predicate = predicate.intersect(supplier.get());
+            }
+            return predicate;
+        };
+    }
+}
@@ -18,8 +18,11 @@ import com.facebook.presto.Session;
 import com.facebook.presto.SystemSessionProperties;
 import com.facebook.presto.execution.ExplainAnalyzeContext;
 import com.facebook.presto.execution.StageExecutionId;
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.TaskManagerConfig;
+import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.execution.buffer.OutputBuffer;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.execution.scheduler.ExecutionWriterTarget;
 import com.facebook.presto.execution.scheduler.ExecutionWriterTarget.CreateHandle;
@@ -27,7 +30,9 @@ import com.facebook.presto.execution.scheduler.ExecutionWriterTarget.DeleteHandl
 import com.facebook.presto.execution.scheduler.ExecutionWriterTarget.InsertHandle;
 import com.facebook.presto.execution.scheduler.TableWriteInfo;
 import com.facebook.presto.execution.scheduler.TableWriteInfo.DeleteScanInfo;
+import com.facebook.presto.expressions.DefaultRowExpressionTraversalVisitor;
 import com.facebook.presto.index.IndexManager;
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
 import com.facebook.presto.metadata.AnalyzeTableHandle;
 import com.facebook.presto.metadata.FunctionManager;
 import com.facebook.presto.metadata.Metadata;
@@ -36,9 +41,13 @@ import com.facebook.presto.operator.AssignUniqueIdOperator;
 import com.facebook.presto.operator.DeleteOperator.DeleteOperatorFactory;
 import com.facebook.presto.operator.DevNullOperator.DevNullOperatorFactory;
 import com.facebook.presto.operator.DriverFactory;
+import com.facebook.presto.operator.DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory;
 import com.facebook.presto.operator.EnforceSingleRowOperator;
 import com.facebook.presto.operator.ExplainAnalyzeOperator.ExplainAnalyzeOperatorFactory;
 import com.facebook.presto.operator.FilterAndProjectOperator;
+import com.facebook.presto.operator.ForSplitPrefetch;
+import com.facebook.presto.operator.FragmentResultCacheContext;
+import com.facebook.presto.operator.FragmentResultCacheManager;
 import com.facebook.presto.operator.GroupIdOperator;
 import com.facebook.presto.operator.HashAggregationOperator.HashAggregationOperatorFactory;
 import com.facebook.presto.operator.HashBuilderOperator.HashBuilderOperatorFactory;
@@ -61,6 +70,7 @@ import com.facebook.presto.operator.OutputFactory;
 import com.facebook.presto.operator.PageSinkCommitStrategy;
 import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.PagesSpatialIndexFactory;
+import com.facebook.presto.operator.PartialAggregationController;
 import com.facebook.presto.operator.PartitionFunction;
 import com.facebook.presto.operator.PartitionedLookupSourceFactory;
 import com.facebook.presto.operator.PipelineExecutionStrategy;
@@ -72,11 +82,13 @@ import com.facebook.presto.operator.SourceOperatorFactory;
 import com.facebook.presto.operator.SpatialIndexBuilderOperator.SpatialIndexBuilderOperatorFactory;
 import com.facebook.presto.operator.SpatialIndexBuilderOperator.SpatialPredicate;
 import com.facebook.presto.operator.SpatialJoinOperator.SpatialJoinOperatorFactory;
+import com.facebook.presto.operator.SplitPrefetcher;
 import com.facebook.presto.operator.StageExecutionDescriptor;
 import com.facebook.presto.operator.StatisticsWriterOperator.StatisticsWriterOperatorFactory;
 import com.facebook.presto.operator.StreamingAggregationOperator.StreamingAggregationOperatorFactory;
 import com.facebook.presto.operator.TableCommitContext;
 import com.facebook.presto.operator.TableFinishOperator.PageSinkCommitter;
+import com.facebook.presto.operator.TableScanOperator;
 import com.facebook.presto.operator.TableScanOperator.TableScanOperatorFactory;
 import com.facebook.presto.operator.TableWriterMergeOperator.TableWriterMergeOperatorFactory;
 import com.facebook.presto.operator.TaskContext;
@@ -135,6 +147,7 @@ import com.facebook.presto.spi.plan.TableScanNode;
 import com.facebook.presto.spi.plan.TopNNode;
 import com.facebook.presto.spi.plan.UnionNode;
 import com.facebook.presto.spi.plan.ValuesNode;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.relation.CallExpression;
 import com.facebook.presto.spi.relation.ConstantExpression;
 import com.facebook.presto.spi.relation.InputReferenceExpression;
@@ -155,6 +168,7 @@ import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
 import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.sql.gen.PageFunctionCompiler;
+import com.facebook.presto.sql.planner.optimizations.DynamicFilterUtils.DynamicFilterTarget;
 import com.facebook.presto.sql.planner.optimizations.IndexJoinOptimizer;
 import com.facebook.presto.sql.planner.plan.AssignUniqueId;
 import com.facebook.presto.sql.planner.plan.DeleteNode;
@@ -184,6 +198,7 @@ import com.facebook.presto.sql.planner.plan.TopNRowNumberNode;
 import com.facebook.presto.sql.planner.plan.UnnestNode;
 import com.facebook.presto.sql.planner.plan.WindowNode;
 import com.facebook.presto.sql.planner.plan.WindowNode.Frame;
+import com.facebook.presto.sql.relational.RowExpressionDeterminismEvaluator;
 import com.facebook.presto.sql.relational.VariableToChannelTranslator;
 import com.facebook.presto.sql.tree.SymbolReference;
 import com.google.common.annotations.VisibleForTesting;
@@ -206,6 +221,7 @@ import io.airlift.units.DataSize;
 import javax.inject.Inject;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -215,6 +231,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -222,17 +239,30 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static com.facebook.presto.SystemSessionProperties.getAdaptivePartialAggregationUniqueRowsRatioThreshold;
 import static com.facebook.presto.SystemSessionProperties.getAggregationOperatorUnspillMemoryLimit;
+import static com.facebook.presto.SystemSessionProperties.getDynamicFilteringMaxPerDriverValueCount;
+import static com.facebook.presto.SystemSessionProperties.getExchangeCompressionCodec;
+import static com.facebook.presto.SystemSessionProperties.getExchangeZstdCompressionLevel;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageRowCount;
 import static com.facebook.presto.SystemSessionProperties.getFilterAndProjectMinOutputPageSize;
 import static com.facebook.presto.SystemSessionProperties.getIndexLoaderTimeout;
+import static com.facebook.presto.SystemSessionProperties.getJoinMaxBroadcastBuildSize;
+import static com.facebook.presto.SystemSessionProperties.getTableScanSplitPrefetchCount;
 import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
 import static com.facebook.presto.SystemSessionProperties.getTaskPartitionedWriterCount;
 import static com.facebook.presto.SystemSessionProperties.getTaskWriterCount;
-import static com.facebook.presto.SystemSessionProperties.isExchangeCompressionEnabled;
+import static com.facebook.presto.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isEnableDynamicFiltering;
+import static com.facebook.presto.SystemSessionProperties.isFragmentResultCachingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isOptimizeCommonSubExpressions;
+import static com.facebook.presto.SystemSessionProperties.isOptimizeFilterProjectionCommonSubExpressions;
 import static com.facebook.presto.SystemSessionProperties.isOptimizedRepartitioningEnabled;
+import static com.facebook.presto.SystemSessionProperties.isOrderBySpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSemiJoinSpillEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isTopNRowNumberSpillEnabled;
+import static com.facebook.presto.SystemSessionProperties.isWindowSpillEnabled;
 import static com.facebook.presto.expressions.LogicalRowExpressions.TRUE_CONSTANT;
 import static com.facebook.presto.expressions.RowExpressionNodeInliner.replaceExpression;
 import static com.facebook.presto.geospatial.SphericalGeographyUtils.sphericalDistance;
@@ -269,7 +299,9 @@ import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_ARB
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SCALED_WRITER_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.optimizations.DynamicFilterUtils.findDynamicFilterTarget;
 import static com.facebook.presto.sql.planner.plan.AssignmentUtils.identityAssignments;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.FULL;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
 import static com.facebook.presto.sql.planner.plan.JoinNode.Type.RIGHT;
@@ -325,8 +357,14 @@ public class LocalExecutionPlanner
     private final LookupJoinOperators lookupJoinOperators;
     private final OrderingCompiler orderingCompiler;
     private final JsonCodec<TableCommitContext> tableCommitContextCodec;
+    private final FragmentResultCacheManager fragmentResultCacheManager;
+    private final JsonCodec<PlanNode> planCodec;
+    private final PageCompressionStats pageCompressionStats;
+    private final Executor splitPrefetchExecutor;
 
     private static final TypeSignature SPHERICAL_GEOGRAPHY_TYPE_SIGNATURE = parseTypeSignature("SphericalGeography");
+    // functions returning the start time of the session produce a different result in every query
+    private static final Set<String> SESSION_START_TIME_FUNCTIONS = ImmutableSet.of("current_date", "current_time", "current_timestamp", "now", "localtime", "localtimestamp");
 
     @Inject
     public LocalExecutionPlanner(
@@ -350,7 +388,11 @@ public class LocalExecutionPlanner
             JoinCompiler joinCompiler,
             LookupJoinOperators lookupJoinOperators,
             OrderingCompiler orderingCompiler,
-            JsonCodec<TableCommitContext> tableCommitContextCodec)
+            JsonCodec<TableCommitContext> tableCommitContextCodec,
+            FragmentResultCacheManager fragmentResultCacheManager,
+            JsonCodec<PlanNode> planCodec,
+            PageCompressionStats pageCompressionStats,
+            @ForSplitPrefetch Executor splitPrefetchExecutor)
     {
         this.explainAnalyzeContext = requireNonNull(explainAnalyzeContext, "explainAnalyzeContext is null");
         this.pageSourceProvider = requireNonNull(pageSourceProvider, "pageSourceProvider is null");
@@ -377,6 +419,10 @@ public class LocalExecutionPlanner
         this.lookupJoinOperators = requireNonNull(lookupJoinOperators, "lookupJoinOperators is null");
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         this.tableCommitContextCodec = requireNonNull(tableCommitContextCodec, "tableCommitContextCodec is null");
+        this.fragmentResultCacheManager = requireNonNull(fragmentResultCacheManager, "fragmentResultCacheManager is null");
+        this.planCodec = requireNonNull(planCodec, "planCodec is null");
+        this.pageCompressionStats = requireNonNull(pageCompressionStats, "pageCompressionStats is null");
+        this.splitPrefetchExecutor = requireNonNull(splitPrefetchExecutor, "splitPrefetchExecutor is null");
     }
 
     public LocalExecutionPlan plan(
@@ -525,6 +571,12 @@ public class LocalExecutionPlanner
                 .map(VariableReferenceExpression::getType)
                 .collect(toImmutableList());
 
+        Optional<FragmentResultCacheContext> fragmentResultCacheContext = Optional.empty();
+        if (isFragmentResultCachingEnabled(session) && context.getDriverFactories().isEmpty() && isFragmentResultCachingSupported(plan)) {
+            String planFingerprint = FragmentResultCacheContext.computePlanFingerprint(planCodec, plan, outputLayout, session);
+            fragmentResultCacheContext = Optional.of(new FragmentResultCacheContext(fragmentResultCacheManager, planFingerprint));
+        }
+
         context.addDriverFactory(
                 context.isInputDriver(),
                 true,
@@ -536,10 +588,11 @@ public class LocalExecutionPlanner
                                 outputTypes,
                                 pagePreprocessor,
                                 outputPartitioning,
-                                new PagesSerdeFactory(blockEncodingSerde, isExchangeCompressionEnabled(session))))
+                                new PagesSerdeFactory(blockEncodingSerde, getExchangeCompressionCodec(session), getExchangeZstdCompressionLevel(session), pageCompressionStats)))
                         .build(),
                 context.getDriverInstanceCount(),
-                physicalOperation.getPipelineExecutionStrategy());
+                physicalOperation.getPipelineExecutionStrategy(),
+                fragmentResultCacheContext);
 
         addLookupOuterDrivers(context);
 
@@ -554,6 +607,56 @@ public class LocalExecutionPlanner
         return new LocalExecutionPlan(context.getDriverFactories(), partitionedSourceOrder, stageExecutionDescriptor);
     }
 
+    // the result of a fragment is only cached if it is a single pipeline reading from a table,
+    // so that the result of a driver depends on nothing but its split
+    private boolean isFragmentResultCachingSupported(PlanNode node)
+    {
+        if (node instanceof TableScanNode) {
+            return true;
+        }
+        List<RowExpression> expressions;
+        if (node instanceof FilterNode) {
+            expressions = ImmutableList.of(((FilterNode) node).getPredicate());
+        }
+        else if (node instanceof ProjectNode) {
+            expressions = ImmutableList.copyOf(((ProjectNode) node).getAssignments().getExpressions());
+        }
+        else if (node instanceof AggregationNode && ((AggregationNode) node).getStep() == PARTIAL) {
+            expressions = ((AggregationNode) node).getAggregations().values().stream()
+                    .map(AggregationNode.Aggregation::getCall)
+                    .collect(toImmutableList());
+        }
+        else {
+            return false;
+        }
+        return expressions.stream().allMatch(this::isCacheable) && isFragmentResultCachingSupported(getOnlyElement(node.getSources()));
+    }
+
+    // the result of an expression must not change between queries reading the same split
+    private boolean isCacheable(RowExpression expression)
+    {
+        if (!new RowExpressionDeterminismEvaluator(metadata.getFunctionManager()).isDeterministic(expression)) {
+            return false;
+        }
+        ImmutableSet.Builder<String> functionNames = ImmutableSet.builder();
+        expression.accept(new DefaultRowExpressionTraversalVisitor<ImmutableSet.Builder<String>>()
+        {
+            @Override
+            public Void visitCall(CallExpression call, ImmutableSet.Builder<String> context)
+            {
+                context.add(call.getDisplayName());
+                return super.visitCall(call, context);
+            }
+
+            @Override
+            public Void visitLambda(LambdaDefinitionExpression lambda, ImmutableSet.Builder<String> context)
+            {
+                return lambda.getBody().accept(this, context);
+            }
+        }, functionNames);
+        return Collections.disjoint(functionNames.build(), SESSION_START_TIME_FUNCTIONS);
+    }
+
     private static void addLookupOuterDrivers(LocalExecutionPlanContext context)
     {
         // For an outer join on the lookup side (RIGHT or FULL) add an additional
@@ -593,6 +696,7 @@ public class LocalExecutionPlanner
         // this is shared with all subContexts
         private final AtomicInteger nextPipelineId;
         private final TableWriteInfo tableWriteInfo;
+        private final Map<PlanNodeId, List<LocalDynamicFilter>> dynamicFiltersByTableScan;
 
         private int nextOperatorId;
         private boolean inputDriver = true;
@@ -600,7 +704,7 @@ public class LocalExecutionPlanner
 
         public LocalExecutionPlanContext(TaskContext taskContext, TableWriteInfo tableWriteInfo)
         {
-            this(taskContext, new ArrayList<>(), Optional.empty(), new AtomicInteger(0), tableWriteInfo);
+            this(taskContext, new ArrayList<>(), Optional.empty(), new AtomicInteger(0), tableWriteInfo, new HashMap<>());
         }
 
         private LocalExecutionPlanContext(
@@ -608,16 +712,29 @@ public class LocalExecutionPlanner
                 List<DriverFactory> driverFactories,
                 Optional<IndexSourceContext> indexSourceContext,
                 AtomicInteger nextPipelineId,
-                TableWriteInfo tableWriteInfo)
+                TableWriteInfo tableWriteInfo,
+                Map<PlanNodeId, List<LocalDynamicFilter>> dynamicFiltersByTableScan)
         {
             this.taskContext = taskContext;
             this.driverFactories = driverFactories;
             this.indexSourceContext = indexSourceContext;
             this.nextPipelineId = nextPipelineId;
             this.tableWriteInfo = tableWriteInfo;
+            this.dynamicFiltersByTableScan = dynamicFiltersByTableScan;
         }
 
         public void addDriverFactory(boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories, OptionalInt driverInstances, PipelineExecutionStrategy pipelineExecutionStrategy)
+        {
+            addDriverFactory(inputDriver, outputDriver, operatorFactories, driverInstances, pipelineExecutionStrategy, Optional.empty());
+        }
+
+        public void addDriverFactory(
+                boolean inputDriver,
+                boolean outputDriver,
+                List<OperatorFactory> operatorFactories,
+                OptionalInt driverInstances,
+                PipelineExecutionStrategy pipelineExecutionStrategy,
+                Optional<FragmentResultCacheContext> fragmentResultCacheContext)
         {
             if (pipelineExecutionStrategy == GROUPED_EXECUTION) {
                 OperatorFactory firstOperatorFactory = operatorFactories.get(0);
@@ -628,7 +745,7 @@ public class LocalExecutionPlanner
                     checkArgument(firstOperatorFactory instanceof LocalExchangeSourceOperatorFactory || firstOperatorFactory instanceof LookupOuterOperatorFactory);
                 }
             }
-            driverFactories.add(new DriverFactory(getNextPipelineId(), inputDriver, outputDriver, operatorFactories, driverInstances, pipelineExecutionStrategy));
+            driverFactories.add(new DriverFactory(getNextPipelineId(), inputDriver, outputDriver, operatorFactories, driverInstances, pipelineExecutionStrategy, fragmentResultCacheContext));
         }
 
         private List<DriverFactory> getDriverFactories()
@@ -676,15 +793,44 @@ public class LocalExecutionPlanner
             return tableWriteInfo;
         }
 
+        public void addDynamicFilter(PlanNodeId tableScanId, LocalDynamicFilter dynamicFilter)
+        {
+            dynamicFiltersByTableScan.computeIfAbsent(tableScanId, id -> new ArrayList<>()).add(dynamicFilter);
+        }
+
+        public boolean hasDynamicFilter(PlanNodeId tableScanId)
+        {
+            return dynamicFiltersByTableScan.containsKey(tableScanId);
+        }
+
+        public void addTaskStateChangeListener(StateChangeListener<TaskState> stateChangeListener)
+        {
+            taskContext.addStateChangeListener(stateChangeListener);
+        }
+
+        public AggregatedMemoryContext newTaskSystemMemoryContext()
+        {
+            return taskContext.getTaskMemoryContext().newAggregateSystemMemoryContext();
+        }
+
+        public Supplier<TupleDomain<ColumnHandle>> getDynamicFilter(PlanNodeId tableScanId)
+        {
+            List<LocalDynamicFilter> dynamicFilters = dynamicFiltersByTableScan.get(tableScanId);
+            if (dynamicFilters == null) {
+                return TupleDomain::all;
+            }
+            return LocalDynamicFilter.intersectPredicates(dynamicFilters);
+        }
+
         public LocalExecutionPlanContext createSubContext()
         {
             checkState(!indexSourceContext.isPresent(), "index build plan can not have sub-contexts");
-            return new LocalExecutionPlanContext(taskContext, driverFactories, indexSourceContext, nextPipelineId, tableWriteInfo);
+            return new LocalExecutionPlanContext(taskContext, driverFactories, indexSourceContext, nextPipelineId, tableWriteInfo, dynamicFiltersByTableScan);
         }
 
         public LocalExecutionPlanContext createIndexSourceSubContext(IndexSourceContext indexSourceContext)
         {
-            return new LocalExecutionPlanContext(taskContext, driverFactories, Optional.of(indexSourceContext), nextPipelineId, tableWriteInfo);
+            return new LocalExecutionPlanContext(taskContext, driverFactories, Optional.of(indexSourceContext), nextPipelineId, tableWriteInfo, dynamicFiltersByTableScan);
         }
 
         public OptionalInt getDriverInstanceCount()
@@ -924,7 +1070,9 @@ public class LocalExecutionPlanner
                     node.isPartial(),
                     hashChannel,
                     1000,
-                    joinCompiler);
+                    joinCompiler,
+                    isTopNRowNumberSpillEnabled(context.getSession()),
+                    Optional.of(spillerFactory));
 
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, source);
         }
@@ -1010,7 +1158,10 @@ public class LocalExecutionPlanner
                     sortOrder,
                     node.getPreSortedOrderPrefix(),
                     10_000,
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    isWindowSpillEnabled(context.getSession()),
+                    Optional.of(spillerFactory),
+                    orderingCompiler);
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), context, source);
         }
@@ -1059,6 +1210,8 @@ public class LocalExecutionPlanner
                 outputChannels.add(i);
             }
 
+            boolean spillEnabled = isOrderBySpillEnabled(context.getSession());
+
             OperatorFactory operator = new OrderByOperatorFactory(
                     context.getNextOperatorId(),
                     node.getId(),
@@ -1067,7 +1220,10 @@ public class LocalExecutionPlanner
                     10_000,
                     orderByChannels,
                     sortOrder.build(),
-                    pagesIndexFactory);
+                    pagesIndexFactory,
+                    spillEnabled,
+                    Optional.of(spillerFactory),
+                    orderingCompiler);
 
             return new PhysicalOperation(operator, source.getLayout(), context, source);
         }
@@ -1282,7 +1438,8 @@ public class LocalExecutionPlanner
             try {
                 if (columns != null) {
                     Supplier<CursorProcessor> cursorProcessor = expressionCompiler.compileCursorProcessor(session.getSqlFunctionProperties(), filterExpression, projections, sourceNode.getId());
-                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(session.getSqlFunctionProperties(), filterExpression, projections, isOptimizeCommonSubExpressions(session), Optional.of(context.getStageExecutionId() + "_" + planNodeId));
+                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(session.getSqlFunctionProperties(), filterExpression, projections, isOptimizeCommonSubExpressions(session), isOptimizeFilterProjectionCommonSubExpressions(session), Optional.of(context.getStageExecutionId() + "_" + planNodeId));
+                    Supplier<TupleDomain<ColumnHandle>> dynamicFilter = context.getDynamicFilter(sourceNode.getId());
 
                     SourceOperatorFactory operatorFactory = new ScanFilterAndProjectOperatorFactory(
                             context.getNextOperatorId(),
@@ -1295,12 +1452,14 @@ public class LocalExecutionPlanner
                             columns,
                             projections.stream().map(RowExpression::getType).collect(toImmutableList()),
                             getFilterAndProjectMinOutputPageSize(session),
-                            getFilterAndProjectMinOutputPageRowCount(session));
+                            getFilterAndProjectMinOutputPageRowCount(session),
+                            dynamicFilter,
+                            createSplitPrefetcher((TableScanNode) sourceNode, table, columns, dynamicFilter, context));
 
                     return new PhysicalOperation(operatorFactory, outputMappings, context, stageExecutionDescriptor.isScanGroupedExecution(sourceNode.getId()) ? GROUPED_EXECUTION : UNGROUPED_EXECUTION);
                 }
                 else {
-                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(session.getSqlFunctionProperties(), filterExpression, projections, isOptimizeCommonSubExpressions(session), Optional.of(context.getStageExecutionId() + "_" + planNodeId));
+                    Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(session.getSqlFunctionProperties(), filterExpression, projections, isOptimizeCommonSubExpressions(session), isOptimizeFilterProjectionCommonSubExpressions(session), Optional.of(context.getStageExecutionId() + "_" + planNodeId));
 
                     OperatorFactory operatorFactory = new FilterAndProjectOperator.FilterAndProjectOperatorFactory(
                             context.getNextOperatorId(),
@@ -1336,6 +1495,32 @@ public class LocalExecutionPlanner
             return expression;
         }
 
+        private Optional<SplitPrefetcher> createSplitPrefetcher(
+                TableScanNode node,
+                TableHandle tableHandle,
+                List<ColumnHandle> columns,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter,
+                LocalExecutionPlanContext context)
+        {
+            int prefetchCount = getTableScanSplitPrefetchCount(session);
+            // opening a split before the dynamic filter is collected would give up the filter
+            if (prefetchCount == 0 || context.hasDynamicFilter(node.getId())) {
+                return Optional.empty();
+            }
+            List<ColumnHandle> prefetchColumns = ImmutableList.copyOf(columns);
+            SplitPrefetcher splitPrefetcher = new SplitPrefetcher(
+                    prefetchCount,
+                    splitPrefetchExecutor,
+                    split -> TableScanOperator.createPageSource(session, pageSourceProvider, split, tableHandle, prefetchColumns, dynamicFilter),
+                    context.newTaskSystemMemoryContext());
+            context.addTaskStateChangeListener(state -> {
+                if (state.isDone()) {
+                    splitPrefetcher.close();
+                }
+            });
+            return Optional.of(splitPrefetcher);
+        }
+
         @Override
         public PhysicalOperation visitTableScan(TableScanNode node, LocalExecutionPlanContext context)
         {
@@ -1352,7 +1537,15 @@ public class LocalExecutionPlanner
             else {
                 tableHandle = node.getTable();
             }
-            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(), node.getId(), pageSourceProvider, tableHandle, columns);
+            Supplier<TupleDomain<ColumnHandle>> dynamicFilter = context.getDynamicFilter(node.getId());
+            OperatorFactory operatorFactory = new TableScanOperatorFactory(
+                    context.getNextOperatorId(),
+                    node.getId(),
+                    pageSourceProvider,
+                    tableHandle,
+                    columns,
+                    dynamicFilter,
+                    createSplitPrefetcher(node, tableHandle, columns, dynamicFilter, context));
             return new PhysicalOperation(operatorFactory, makeLayout(node), context, stageExecutionDescriptor.isScanGroupedExecution(node.getId()) ? GROUPED_EXECUTION : UNGROUPED_EXECUTION);
         }
 
@@ -2024,12 +2217,20 @@ public class LocalExecutionPlanner
                 Optional<VariableReferenceExpression> buildHashVariable,
                 LocalExecutionPlanContext context)
         {
+            // Register the dynamic filter before planning the probe, so the probe side table scan can pick it up
+            Optional<DynamicFilterTarget> dynamicFilterTarget = getDynamicFilterTarget(node, context);
+            Optional<LocalDynamicFilter> dynamicFilter = dynamicFilterTarget.map(target -> {
+                LocalDynamicFilter filter = new LocalDynamicFilter(target.getProbeColumns());
+                context.addDynamicFilter(target.getTableScan().getId(), filter);
+                return filter;
+            });
+
             // Plan probe
             PhysicalOperation probeSource = probeNode.accept(this, context);
 
             // Plan build
             JoinBridgeManager<PartitionedLookupSourceFactory> lookupSourceFactory =
-                    createLookupSourceFactory(node, buildNode, buildVariables, buildHashVariable, probeSource, context);
+                    createLookupSourceFactory(node, buildNode, buildVariables, buildHashVariable, probeSource, dynamicFilterTarget, dynamicFilter, context);
 
             OperatorFactory operator = createLookupJoin(node, probeSource, probeVariables, probeHashVariable, lookupSourceFactory, context);
 
@@ -2042,12 +2243,24 @@ public class LocalExecutionPlanner
             return new PhysicalOperation(operator, outputMappings.build(), context, probeSource);
         }
 
+        private Optional<DynamicFilterTarget> getDynamicFilterTarget(JoinNode node, LocalExecutionPlanContext context)
+        {
+            if (!isEnableDynamicFiltering(context.getSession()) || context.getIndexSourceContext().isPresent()) {
+                return Optional.empty();
+            }
+            // join bridges are created per lifespan in grouped execution, which the filter does not track
+            return findDynamicFilterTarget(node)
+                    .filter(target -> !stageExecutionDescriptor.isScanGroupedExecution(target.getTableScan().getId()));
+        }
+
         private JoinBridgeManager<PartitionedLookupSourceFactory> createLookupSourceFactory(
                 JoinNode node,
                 PlanNode buildNode,
                 List<VariableReferenceExpression> buildVariables,
                 Optional<VariableReferenceExpression> buildHashVariable,
                 PhysicalOperation probeSource,
+                Optional<DynamicFilterTarget> dynamicFilterTarget,
+                Optional<LocalDynamicFilter> dynamicFilter,
                 LocalExecutionPlanContext context)
         {
             LocalExecutionPlanContext buildContext = context.createSubContext();
@@ -2115,6 +2328,25 @@ public class LocalExecutionPlanner
                             buildSource.getLayout(),
                             buildOuter),
                     buildOutputTypes);
+
+            ImmutableList.Builder<OperatorFactory> factoriesBuilder = ImmutableList.<OperatorFactory>builder()
+                    .addAll(buildSource.getOperatorFactories());
+            if (dynamicFilter.isPresent()) {
+                List<VariableReferenceExpression> filterVariables = dynamicFilterTarget.get().getClauses().stream()
+                        .map(JoinNode.EquiJoinClause::getRight)
+                        .collect(toImmutableList());
+                dynamicFilter.get().setPartitionCount(partitionCount);
+                factoriesBuilder.add(new DynamicFilterSourceOperatorFactory(
+                        buildContext.getNextOperatorId(),
+                        node.getId(),
+                        dynamicFilter.get().getPartitionConsumer(),
+                        getChannelsForVariables(filterVariables, buildSource.getLayout()),
+                        filterVariables.stream()
+                                .map(VariableReferenceExpression::getType)
+                                .collect(toImmutableList()),
+                        getDynamicFilteringMaxPerDriverValueCount(context.getSession())));
+            }
+
             HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
                     buildContext.getNextOperatorId(),
                     node.getId(),
@@ -2128,13 +2360,13 @@ public class LocalExecutionPlanner
                     10_000,
                     pagesIndexFactory,
                     spillEnabled && !buildOuter && partitionCount > 1,
-                    singleStreamSpillerFactory);
+                    singleStreamSpillerFactory,
+                    getMaxBroadcastBuildSize(context.getSession(), node.getDistributionType()));
 
             context.addDriverFactory(
                     buildContext.isInputDriver(),
                     false,
-                    ImmutableList.<OperatorFactory>builder()
-                            .addAll(buildSource.getOperatorFactories())
+                    factoriesBuilder
                             .add(hashBuilderOperatorFactory)
                             .build(),
                     buildContext.getDriverInstanceCount(),
@@ -2232,6 +2464,12 @@ public class LocalExecutionPlanner
 
             Optional<Integer> buildHashChannel = node.getFilteringSourceHashVariable().map(variableChannelGetter(buildSource));
 
+            // Spilled partitions of the set are consumed by all probe operators together, so their number must be known upfront
+            OptionalInt probeOperatorsCount = OptionalInt.empty();
+            if (isSemiJoinSpillEnabled(session) && probeSource.getPipelineExecutionStrategy() == UNGROUPED_EXECUTION) {
+                probeOperatorsCount = context.getDriverInstanceCount();
+            }
+
             SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(
                     buildContext.getNextOperatorId(),
                     node.getId(),
@@ -2239,7 +2477,9 @@ public class LocalExecutionPlanner
                     buildChannel,
                     buildHashChannel,
                     10_000,
-                    joinCompiler);
+                    joinCompiler,
+                    probeOperatorsCount,
+                    partitioningSpillerFactory);
             SetSupplier setProvider = setBuilderOperatorFactory.getSetProvider();
             context.addDriverFactory(
                     buildContext.isInputDriver(),
@@ -2257,7 +2497,7 @@ public class LocalExecutionPlanner
                     .put(node.getSemiJoinOutput(), probeSource.getLayout().size())
                     .build();
 
-            HashSemiJoinOperatorFactory operator = new HashSemiJoinOperatorFactory(context.getNextOperatorId(), node.getId(), setProvider, probeSource.getTypes(), probeChannel);
+            HashSemiJoinOperatorFactory operator = new HashSemiJoinOperatorFactory(context.getNextOperatorId(), node.getId(), setProvider, probeSource.getTypes(), probeChannel, partitioningSpillerFactory);
             return new PhysicalOperation(operator, outputMappings, context, probeSource);
         }
 
@@ -2888,6 +3128,10 @@ public class LocalExecutionPlanner
             }
             else {
                 Optional<Integer> hashChannel = hashVariable.map(variableChannelGetter(source));
+                Optional<PartialAggregationController> partialAggregationController = Optional.empty();
+                if (step == PARTIAL && !groupByChannels.isEmpty() && isAdaptivePartialAggregationEnabled(context.getSession())) {
+                    partialAggregationController = Optional.of(new PartialAggregationController(getAdaptivePartialAggregationUniqueRowsRatioThreshold(context.getSession())));
+                }
                 return new HashAggregationOperatorFactory(
                         context.getNextOperatorId(),
                         planNodeId,
@@ -2901,6 +3145,7 @@ public class LocalExecutionPlanner
                         groupIdChannel,
                         expectedGroups,
                         maxPartialAggregationMemorySize,
+                        partialAggregationController,
                         spillEnabled,
                         unspillMemoryLimit,
                         spillerFactory,
@@ -2910,6 +3155,17 @@ public class LocalExecutionPlanner
         }
     }
 
+    /**
+     * Only a replicated build side is built in full by every task, so a partitioned build is not limited.
+     */
+    @VisibleForTesting
+    static Optional<DataSize> getMaxBroadcastBuildSize(Session session, Optional<JoinNode.DistributionType> distributionType)
+    {
+        return distributionType
+                .filter(REPLICATED::equals)
+                .flatMap(type -> getJoinMaxBroadcastBuildSize(session));
+    }
+
     private static TableFinisher createTableFinisher(Session session, Metadata metadata, ExecutionWriterTarget target)
     {
         return (fragments, statistics) -> {
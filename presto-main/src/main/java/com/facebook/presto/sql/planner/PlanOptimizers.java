@@ -118,6 +118,7 @@ import com.facebook.presto.sql.planner.optimizations.PruneUnreferencedOutputs;
 import com.facebook.presto.sql.planner.optimizations.PushdownSubfields;
 import com.facebook.presto.sql.planner.optimizations.ReplicateSemiJoinInDelete;
 import com.facebook.presto.sql.planner.optimizations.RowExpressionPredicatePushDown;
+import com.facebook.presto.sql.planner.optimizations.SaltSkewedJoinKeys;
 import com.facebook.presto.sql.planner.optimizations.SetFlatteningOptimizer;
 import com.facebook.presto.sql.planner.optimizations.StatsRecordingPlanOptimizer;
 import com.facebook.presto.sql.planner.optimizations.TransformQuantifiedComparisonApplyToLateralJoin;
@@ -482,6 +483,7 @@ public class PlanOptimizers
                             // Must run before AddExchanges and after ReplicateSemiJoinInDelete
                             // to avoid temporarily having an invalid plan
                             new DetermineSemiJoinDistributionType(costComparator, taskCountEstimator)))));
+            builder.add(new SaltSkewedJoinKeys(metadata.getFunctionManager())); // Must run after DetermineJoinDistributionType and before AddExchanges
             builder.add(
                     new IterativeOptimizer(
                             ruleStats,
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.plan.FilterNode;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.ProjectNode;
+import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.JoinNode.EquiJoinClause;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.LEFT;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.RIGHT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+public final class DynamicFilterUtils
+{
+    private DynamicFilterUtils() {}
+
+    /**
+     * Finds the table scan on the probe (left) side of a lookup join whose rows can be pruned
+     * using the values of the build (right) side join keys. The scan must be reachable from the
+     * join through nodes that are planned into the same pipeline and do not change the value of
+     * the join key, i.e. filters, identity projections and the probe side of other inner or
+     * left joins.
+     */
+    public static Optional<DynamicFilterTarget> findDynamicFilterTarget(JoinNode node)
+    {
+        // probe rows without a match are only dropped for inner and right joins
+        if (node.getType() != INNER && node.getType() != RIGHT) {
+            return Optional.empty();
+        }
+
+        TableScanNode tableScan = null;
+        ImmutableList.Builder<EquiJoinClause> clauses = ImmutableList.builder();
+        ImmutableList.Builder<ColumnHandle> columns = ImmutableList.builder();
+        for (EquiJoinClause clause : node.getCriteria()) {
+            if (!clause.getLeft().getType().equals(clause.getRight().getType())) {
+                continue;
+            }
+            Optional<ProbeColumn> probeColumn = traceToTableScan(node.getLeft(), clause.getLeft());
+            if (!probeColumn.isPresent()) {
+                continue;
+            }
+            if (tableScan != null && !tableScan.getId().equals(probeColumn.get().getTableScan().getId())) {
+                continue;
+            }
+            tableScan = probeColumn.get().getTableScan();
+            clauses.add(clause);
+            columns.add(probeColumn.get().getColumn());
+        }
+
+        if (tableScan == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new DynamicFilterTarget(tableScan, clauses.build(), columns.build()));
+    }
+
+    private static Optional<ProbeColumn> traceToTableScan(PlanNode node, VariableReferenceExpression variable)
+    {
+        if (node instanceof TableScanNode) {
+            TableScanNode tableScan = (TableScanNode) node;
+            return Optional.ofNullable(tableScan.getAssignments().get(variable))
+                    .map(column -> new ProbeColumn(tableScan, column));
+        }
+        if (node instanceof FilterNode) {
+            return traceToTableScan(((FilterNode) node).getSource(), variable);
+        }
+        if (node instanceof ProjectNode) {
+            ProjectNode project = (ProjectNode) node;
+            RowExpression expression = project.getAssignments().get(variable);
+            if (expression instanceof VariableReferenceExpression) {
+                return traceToTableScan(project.getSource(), (VariableReferenceExpression) expression);
+            }
+            return Optional.empty();
+        }
+        if (node instanceof JoinNode) {
+            JoinNode join = (JoinNode) node;
+            if ((join.getType() == INNER || join.getType() == LEFT) && !join.isCrossJoin() && join.getLeft().getOutputVariables().contains(variable)) {
+                return traceToTableScan(join.getLeft(), variable);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static class DynamicFilterTarget
+    {
+        private final TableScanNode tableScan;
+        private final List<EquiJoinClause> clauses;
+        private final List<ColumnHandle> probeColumns;
+
+        public DynamicFilterTarget(TableScanNode tableScan, List<EquiJoinClause> clauses, List<ColumnHandle> probeColumns)
+        {
+            this.tableScan = requireNonNull(tableScan, "tableScan is null");
+            this.clauses = ImmutableList.copyOf(requireNonNull(clauses, "clauses is null"));
+            this.probeColumns = ImmutableList.copyOf(requireNonNull(probeColumns, "probeColumns is null"));
+            checkArgument(clauses.size() == probeColumns.size(), "clauses and probeColumns must have the same size");
+        }
+
+        public TableScanNode getTableScan()
+        {
+            return tableScan;
+        }
+
+        /**
+         * Join clauses whose build side values filter the table scan, in the same order as {@link #getProbeColumns()}.
+         */
+        public List<EquiJoinClause> getClauses()
+        {
+            return clauses;
+        }
+
+        public List<ColumnHandle> getProbeColumns()
+        {
+            return probeColumns;
+        }
+    }
+
+    private static class ProbeColumn
+    {
+        private final TableScanNode tableScan;
+        private final ColumnHandle column;
+
+        private ProbeColumn(TableScanNode tableScan, ColumnHandle column)
+        {
+            this.tableScan = requireNonNull(tableScan, "tableScan is null");
+            this.column = requireNonNull(column, "column is null");
+        }
+
+        public TableScanNode getTableScan()
+        {
+            return tableScan;
+        }
+
+        public ColumnHandle getColumn()
+        {
+            return column;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.execution.warnings.WarningCollector;
+import com.facebook.presto.metadata.FunctionManager;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.plan.Assignments;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeIdAllocator;
+import com.facebook.presto.spi.plan.ProjectNode;
+import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.spi.type.ArrayType;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.PlanVariableAllocator;
+import com.facebook.presto.sql.planner.TypeProvider;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.JoinNode.EquiJoinClause;
+import com.facebook.presto.sql.planner.plan.SimplePlanRewriter;
+import com.facebook.presto.sql.planner.plan.UnnestNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.SystemSessionProperties.getSkewedJoinHotKeys;
+import static com.facebook.presto.SystemSessionProperties.getSkewedJoinSaltFactor;
+import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.IF;
+import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.IN;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.facebook.presto.spi.type.Varchars.isVarcharType;
+import static com.facebook.presto.sql.planner.plan.AssignmentUtils.identityAssignments;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.PARTITIONED;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.INNER;
+import static com.facebook.presto.sql.planner.plan.JoinNode.Type.LEFT;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.specialForm;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Spreads the rows of hot join keys, listed in the skewed_join_hot_keys session property, across several partitions
+ * of a partitioned join. Transforms:
+ * <pre>
+ * - Join (partitioned, probe.k = build.k)
+ *     - probe
+ *     - build
+ * </pre>
+ * Into:
+ * <pre>
+ * - Join (partitioned, probe.k = build.k AND probe_salt = build_salt)
+ *     - Project (probe_salt := IF(k IN (hot keys), random(n), 0))
+ *         - probe
+ *     - Unnest (build_salts -> build_salt)
+ *         - Project (build_salts := IF(k IN (hot keys), ARRAY[0, ..., n - 1], ARRAY[0]))
+ *             - build
+ * </pre>
+ * Each probe row of a hot key goes to one of n partitions, and the build rows of the hot key are copied to all of them.
+ * Only the first join key is salted. Inner and left joins are supported, because a right or full join
+ * would emit the unmatched copies of a build row more than once.
+ */
+public class SaltSkewedJoinKeys
+        implements PlanOptimizer
+{
+    private final FunctionManager functionManager;
+
+    public SaltSkewedJoinKeys(FunctionManager functionManager)
+    {
+        this.functionManager = requireNonNull(functionManager, "functionManager is null");
+    }
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, TypeProvider types, PlanVariableAllocator variableAllocator, PlanNodeIdAllocator idAllocator, WarningCollector warningCollector)
+    {
+        requireNonNull(plan, "plan is null");
+        List<String> hotKeys = getSkewedJoinHotKeys(session);
+        int saltFactor = getSkewedJoinSaltFactor(session);
+        if (hotKeys.isEmpty() || saltFactor < 2) {
+            return plan;
+        }
+        return SimplePlanRewriter.rewriteWith(new Rewriter(functionManager, variableAllocator, idAllocator, hotKeys, saltFactor), plan);
+    }
+
+    private static class Rewriter
+            extends SimplePlanRewriter<Void>
+    {
+        private final FunctionManager functionManager;
+        private final PlanVariableAllocator variableAllocator;
+        private final PlanNodeIdAllocator idAllocator;
+        private final List<String> hotKeys;
+        private final int saltFactor;
+
+        private Rewriter(FunctionManager functionManager, PlanVariableAllocator variableAllocator, PlanNodeIdAllocator idAllocator, List<String> hotKeys, int saltFactor)
+        {
+            this.functionManager = functionManager;
+            this.variableAllocator = variableAllocator;
+            this.idAllocator = idAllocator;
+            this.hotKeys = hotKeys;
+            this.saltFactor = saltFactor;
+        }
+
+        @Override
+        public PlanNode visitJoin(JoinNode node, RewriteContext<Void> context)
+        {
+            JoinNode join = (JoinNode) context.defaultRewrite(node);
+            if (!join.getDistributionType().equals(Optional.of(PARTITIONED))
+                    || (join.getType() != INNER && join.getType() != LEFT)
+                    || join.getCriteria().isEmpty()) {
+                return join;
+            }
+
+            EquiJoinClause clause = join.getCriteria().get(0);
+            List<RowExpression> probeHotKeys = toConstants(clause.getLeft().getType());
+            List<RowExpression> buildHotKeys = toConstants(clause.getRight().getType());
+            if (probeHotKeys.isEmpty() || buildHotKeys.isEmpty()) {
+                return join;
+            }
+
+            VariableReferenceExpression probeSalt = variableAllocator.newVariable("probe_salt", BIGINT);
+            PlanNode probe = new ProjectNode(
+                    idAllocator.getNextId(),
+                    join.getLeft(),
+                    Assignments.builder()
+                            .putAll(identityAssignments(join.getLeft().getOutputVariables()))
+                            .put(probeSalt, specialForm(
+                                    IF,
+                                    BIGINT,
+                                    isHotKey(clause.getLeft(), probeHotKeys),
+                                    call(functionManager, "random", BIGINT, constant((long) saltFactor, BIGINT)),
+                                    constant(0L, BIGINT)))
+                            .build());
+
+            ArrayType saltsType = new ArrayType(BIGINT);
+            VariableReferenceExpression buildSalts = variableAllocator.newVariable("build_salts", saltsType);
+            VariableReferenceExpression buildSalt = variableAllocator.newVariable("build_salt", BIGINT);
+            List<VariableReferenceExpression> buildVariables = join.getRight().getOutputVariables();
+            PlanNode build = new ProjectNode(
+                    idAllocator.getNextId(),
+                    join.getRight(),
+                    Assignments.builder()
+                            .putAll(identityAssignments(buildVariables))
+                            .put(buildSalts, specialForm(
+                                    IF,
+                                    saltsType,
+                                    isHotKey(clause.getRight(), buildHotKeys),
+                                    constant(salts(saltFactor), saltsType),
+                                    constant(salts(1), saltsType)))
+                            .build());
+            build = new UnnestNode(
+                    idAllocator.getNextId(),
+                    build,
+                    buildVariables,
+                    ImmutableMap.of(buildSalts, ImmutableList.of(buildSalt)),
+                    Optional.empty());
+
+            return new JoinNode(
+                    join.getId(),
+                    join.getType(),
+                    probe,
+                    build,
+                    ImmutableList.<EquiJoinClause>builder()
+                            .addAll(join.getCriteria())
+                            .add(new EquiJoinClause(probeSalt, buildSalt))
+                            .build(),
+                    join.getOutputVariables(),
+                    join.getFilter(),
+                    join.getLeftHashVariable(),
+                    join.getRightHashVariable(),
+                    join.getDistributionType());
+        }
+
+        private List<RowExpression> toConstants(Type type)
+        {
+            ImmutableList.Builder<RowExpression> constants = ImmutableList.builder();
+            for (String hotKey : hotKeys) {
+                if (isVarcharType(type)) {
+                    constants.add(constant(utf8Slice(hotKey), type));
+                }
+                else if (type.equals(BIGINT) || type.equals(INTEGER) || type.equals(SMALLINT) || type.equals(TINYINT)) {
+                    try {
+                        constants.add(constant(Long.parseLong(hotKey), type));
+                    }
+                    catch (NumberFormatException e) {
+                        // not a key of this join
+                    }
+                }
+            }
+            return constants.build();
+        }
+
+        private static RowExpression isHotKey(VariableReferenceExpression key, List<RowExpression> hotKeys)
+        {
+            return specialForm(IN, BOOLEAN, ImmutableList.<RowExpression>builder()
+                    .add(key)
+                    .addAll(hotKeys)
+                    .build());
+        }
+
+        private static Block salts(int count)
+        {
+            BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, count);
+            for (int salt = 0; salt < count; salt++) {
+                BIGINT.writeLong(blockBuilder, salt);
+            }
+            return blockBuilder.build();
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class HashCollisionPlanNodeStats
         extends PlanNodeStats
 {
     private final Map<String, OperatorHashCollisionsStats> operatorHashCollisionsStats;
+    private final long partialAggregationPassThroughPositions;
 
     public HashCollisionPlanNodeStats(
             PlanNodeId planNodeId,
@@ -41,10 +42,12 @@ public class HashCollisionPlanNodeStats
             long planNodeOutputPositions,
             DataSize planNodeOutputDataSize,
             Map<String, OperatorInputStats> operatorInputStats,
-            Map<String, OperatorHashCollisionsStats> operatorHashCollisionsStats)
+            Map<String, OperatorHashCollisionsStats> operatorHashCollisionsStats,
+            long partialAggregationPassThroughPositions)
     {
         super(planNodeId, planNodeScheduledTime, planNodeCpuTime, planNodeInputPositions, planNodeInputDataSize, planNodeRawInputPositions, planNodeRawInputDataSize, planNodeOutputPositions, planNodeOutputDataSize, operatorInputStats);
         this.operatorHashCollisionsStats = requireNonNull(operatorHashCollisionsStats, "operatorHashCollisionsStats is null");
+        this.partialAggregationPassThroughPositions = partialAggregationPassThroughPositions;
     }
 
     public Map<String, Double> getOperatorHashCollisionsAverages()
@@ -82,6 +85,14 @@ public class HashCollisionPlanNodeStats
                         entry -> entry.getValue().getWeightedExpectedHashCollisions() / operatorInputStats.get(entry.getKey()).getInputPositions()));
     }
 
+    /**
+     * Number of input rows that were emitted without being aggregated because adaptive partial aggregation bypassed the hash table.
+     */
+    public long getPartialAggregationPassThroughPositions()
+    {
+        return partialAggregationPassThroughPositions;
+    }
+
     @Override
     public PlanNodeStats mergeWith(PlanNodeStats other)
     {
@@ -99,6 +110,7 @@ public class HashCollisionPlanNodeStats
                 merged.getPlanNodeOutputPositions(),
                 merged.getPlanNodeOutputDataSize(),
                 merged.operatorInputStats,
-                operatorHashCollisionsStats);
+                operatorHashCollisionsStats,
+                partialAggregationPassThroughPositions + ((HashCollisionPlanNodeStats) other).getPartialAggregationPassThroughPositions());
     }
 }
@@ -15,7 +15,9 @@ package com.facebook.presto.sql.planner.planPrinter;
 
 import com.facebook.presto.execution.StageInfo;
 import com.facebook.presto.execution.TaskInfo;
+import com.facebook.presto.operator.HashAggregationInfo;
 import com.facebook.presto.operator.HashCollisionsInfo;
+import com.facebook.presto.operator.OperatorInfo;
 import com.facebook.presto.operator.OperatorStats;
 import com.facebook.presto.operator.PipelineStats;
 import com.facebook.presto.operator.TaskStats;
@@ -83,6 +85,7 @@ public class PlanNodeStatsSummarizer
 
         Map<PlanNodeId, Map<String, OperatorInputStats>> operatorInputStats = new HashMap<>();
         Map<PlanNodeId, Map<String, OperatorHashCollisionsStats>> operatorHashCollisionsStats = new HashMap<>();
+        Map<PlanNodeId, Long> planNodePassThroughPositions = new HashMap<>();
         Map<PlanNodeId, WindowOperatorStats> windowNodeStats = new HashMap<>();
 
         for (PipelineStats pipelineStats : taskStats.getPipelines()) {
@@ -123,8 +126,15 @@ public class PlanNodeStatsSummarizer
                                         operatorStats.getSumSquaredInputPositions())),
                         (map1, map2) -> mergeMaps(map1, map2, OperatorInputStats::merge));
 
-                if (operatorStats.getInfo() instanceof HashCollisionsInfo) {
-                    HashCollisionsInfo hashCollisionsInfo = (HashCollisionsInfo) operatorStats.getInfo();
+                OperatorInfo operatorInfo = operatorStats.getInfo();
+                if (operatorInfo instanceof HashAggregationInfo) {
+                    HashAggregationInfo hashAggregationInfo = (HashAggregationInfo) operatorInfo;
+                    planNodePassThroughPositions.merge(planNodeId, hashAggregationInfo.getPassThroughPositions(), Long::sum);
+                    operatorInfo = hashAggregationInfo.getHashCollisionsInfo();
+                }
+
+                if (operatorInfo instanceof HashCollisionsInfo) {
+                    HashCollisionsInfo hashCollisionsInfo = (HashCollisionsInfo) operatorInfo;
                     operatorHashCollisionsStats.merge(planNodeId,
                             ImmutableMap.of(
                                     operatorStats.getOperatorType(),
@@ -195,7 +205,8 @@ public class PlanNodeStatsSummarizer
                         outputPositions,
                         succinctDataSize(planNodeOutputBytes.getOrDefault(planNodeId, 0L), BYTE),
                         operatorInputStats.get(planNodeId),
-                        operatorHashCollisionsStats.get(planNodeId));
+                        operatorHashCollisionsStats.get(planNodeId),
+                        planNodePassThroughPositions.getOrDefault(planNodeId, 0L));
             }
             else if (windowNodeStats.containsKey(planNodeId)) {
                 nodeStats = new WindowPlanNodeStats(
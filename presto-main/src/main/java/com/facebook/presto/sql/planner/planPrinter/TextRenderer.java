@@ -117,6 +117,13 @@ public class TextRenderer
 
         printDistributions(output, nodeStats);
 
+        if (nodeStats instanceof HashCollisionPlanNodeStats) {
+            long passThroughPositions = ((HashCollisionPlanNodeStats) nodeStats).getPartialAggregationPassThroughPositions();
+            if (passThroughPositions > 0) {
+                output.append(format("Partial aggregation bypassed: %s\n", formatPositions(passThroughPositions)));
+            }
+        }
+
         if (nodeStats instanceof WindowPlanNodeStats) {
             printWindowOperatorStats(output, ((WindowPlanNodeStats) nodeStats).getWindowOperatorStats());
         }
@@ -19,6 +19,7 @@ import com.facebook.airlift.stats.TestingGcMonitor;
 import com.facebook.presto.Session;
 import com.facebook.presto.block.BlockEncodingManager;
 import com.facebook.presto.execution.TestSqlTaskManager.MockExchangeClientSupplier;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
 import com.facebook.presto.execution.executor.TaskExecutor;
 import com.facebook.presto.memory.MemoryPool;
 import com.facebook.presto.memory.QueryContext;
@@ -104,7 +105,8 @@ public class TestMemoryRevokingScheduler
                 new BlockEncodingManager(new TypeRegistry()),
                 new OrderingCompiler(),
                 createTestSplitMonitor(),
-                new TaskManagerConfig());
+                new TaskManagerConfig(),
+                new PageCompressionStats());
 
         allOperatorContexts = null;
     }
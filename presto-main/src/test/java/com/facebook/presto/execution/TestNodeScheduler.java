@@ -327,7 +327,8 @@ public class TestNodeScheduler
                 .setIncludeCoordinator(false)
                 .setMaxPendingSplitsPerTask(10);
 
-        NodeScheduler nodeScheduler = new NodeScheduler(new LegacyNetworkTopology(), nodeManager, new NodeSelectionStats(), nodeSchedulerConfig, nodeTaskMap);
+        NodeSelectionStats nodeSelectionStats = new NodeSelectionStats();
+        NodeScheduler nodeScheduler = new NodeScheduler(new LegacyNetworkTopology(), nodeManager, nodeSelectionStats, nodeSchedulerConfig, nodeTaskMap);
         NodeSelector nodeSelector = nodeScheduler.createNodeSelector(CONNECTOR_ID, 3);
 
         Set<Split> splits = new HashSet<>();
@@ -353,6 +354,10 @@ public class TestNodeScheduler
         splits.add(new Split(CONNECTOR_ID, transactionHandle, new TestAffinitySplitRemote(3)));
         splitPlacementResult = nodeSelector.computeAssignments(splits, getRemoteTableScanTask(splitPlacementResult));
         assertEquals(splitPlacementResult.getAssignments().keySet().size(), 3);
+
+        // none of the nodes is busy, so every split lands on its preferred node
+        assertEquals(nodeSelectionStats.getNonPreferredNodeSelectedCount().getTotalCount(), 0);
+        assertEquals(nodeSelectionStats.getPreferredNodeSelectedRate(), 1.0);
     }
 
     @Test
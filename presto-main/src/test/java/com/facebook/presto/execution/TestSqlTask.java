@@ -21,6 +21,7 @@ import com.facebook.presto.execution.buffer.BufferResult;
 import com.facebook.presto.execution.buffer.BufferState;
 import com.facebook.presto.execution.buffer.OutputBuffers;
 import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
 import com.facebook.presto.execution.executor.TaskExecutor;
 import com.facebook.presto.execution.scheduler.TableWriteInfo;
 import com.facebook.presto.memory.MemoryPool;
@@ -99,7 +100,8 @@ public class TestSqlTask
                 new BlockEncodingManager(new TypeRegistry()),
                 new OrderingCompiler(),
                 createTestSplitMonitor(),
-                new TaskManagerConfig());
+                new TaskManagerConfig(),
+                new PageCompressionStats());
     }
 
     @AfterClass(alwaysRun = true)
@@ -13,10 +13,15 @@
  */
 package com.facebook.presto.execution.buffer;
 
+import com.facebook.presto.block.BlockEncodingManager;
+import com.facebook.presto.execution.buffer.PageCompressionStats.CodecStats;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.page.PageCodecMarker;
 import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.facebook.presto.spi.type.TestingTypeManager;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import io.airlift.slice.DynamicSliceOutput;
@@ -26,13 +31,18 @@ import org.testng.annotations.Test;
 import java.util.Iterator;
 import java.util.List;
 
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.LZ4;
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.NONE;
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.ZSTD;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.readPages;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writePages;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestPagesSerde
 {
@@ -60,6 +70,49 @@ public class TestPagesSerde
         assertFalse(pageIterator.hasNext());
     }
 
+    @Test
+    public void testCompressionCodecs()
+    {
+        Page page = createCompressiblePage();
+        List<Type> types = ImmutableList.of(VARCHAR);
+        for (PageCompressionCodec codec : PageCompressionCodec.values()) {
+            PageCompressionStats stats = new PageCompressionStats();
+            PagesSerde serde = new PagesSerdeFactory(new BlockEncodingManager(new TestingTypeManager()), codec, 1, stats).createPagesSerde();
+
+            SerializedPage serializedPage = serde.serialize(page);
+            assertEquals(COMPRESSED.isSet(serializedPage.getPageCodecMarkers()), codec != NONE);
+            assertEquals(PageCodecMarker.codecMarkers(serializedPage.getPageCodecMarkers()), codec.getCodecMarkers());
+            assertPageEquals(types, serde.deserialize(serializedPage), page);
+
+            if (codec != NONE) {
+                CodecStats codecStats = stats.getCodecStats(codec);
+                assertEquals(codecStats.getCompressedPages(), 1);
+                assertEquals(codecStats.getCompressionInputBytes(), serializedPage.getUncompressedSizeInBytes());
+                assertEquals(codecStats.getCompressionOutputBytes(), serializedPage.getSizeInBytes());
+                assertTrue(codecStats.getCompressionRatio() < 1);
+                assertEquals(codecStats.getDecompressedPages(), 1);
+                assertEquals(codecStats.getDecompressionOutputBytes(), serializedPage.getUncompressedSizeInBytes());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "Page is compressed with codec ZSTD, but decompressor is for codec LZ4")
+    public void testCompressionCodecMismatch()
+    {
+        PagesSerde zstdSerde = new PagesSerdeFactory(new BlockEncodingManager(new TestingTypeManager()), ZSTD, 1, new PageCompressionStats()).createPagesSerde();
+        PagesSerde lz4Serde = new PagesSerdeFactory(new BlockEncodingManager(new TestingTypeManager()), LZ4, 1, new PageCompressionStats()).createPagesSerde();
+        lz4Serde.deserialize(zstdSerde.serialize(createCompressiblePage()));
+    }
+
+    private static Page createCompressiblePage()
+    {
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, 1000);
+        for (int i = 0; i < 1000; i++) {
+            VARCHAR.writeString(blockBuilder, "value" + (i % 10));
+        }
+        return new Page(blockBuilder.build());
+    }
+
     @Test
     public void testBigintSerializedSize()
     {
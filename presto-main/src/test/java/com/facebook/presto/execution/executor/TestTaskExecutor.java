@@ -40,6 +40,7 @@ import static com.facebook.presto.execution.executor.MultilevelSplitQueue.LEVEL_
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -335,12 +336,87 @@ public class TestTaskExecutor
         }
     }
 
+    @Test(timeOut = 30_000)
+    public void testQueryStats()
+            throws Exception
+    {
+        TestingTicker ticker = new TestingTicker();
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8, 3, 4, QUERY_FAIR, ticker);
+        taskExecutor.start();
+
+        try {
+            TaskId taskId = new TaskId("test", 0, 0, 0);
+            // one driver at a time, so a queued leaf split only starts once the previous one has been accounted for
+            TaskHandle taskHandle = taskExecutor.addTask(taskId, () -> 0, 10, new Duration(1, MILLISECONDS), OptionalInt.of(1));
+
+            Phaser beginFirst = new Phaser(1);
+            Phaser endFirst = new Phaser(1);
+            Phaser beginSecond = new Phaser(1);
+            Phaser endSecond = new Phaser(1);
+            TestingJob first = new TestingJob(ticker, new Phaser(1), beginFirst, endFirst, 1, 0);
+            TestingJob second = new TestingJob(ticker, new Phaser(1), beginSecond, endSecond, 1, 0);
+            List<ListenableFuture<?>> futures = taskExecutor.enqueueSplits(taskHandle, false, ImmutableList.of(first, second));
+
+            // the first split runs for 10 seconds while the second one is queued
+            beginFirst.arriveAndAwaitAdvance();
+            assertQueryStats(taskExecutor, taskId, 1, 1, 0, 0, 0, 0);
+            ticker.increment(10, SECONDS);
+            endFirst.arriveAndAwaitAdvance();
+
+            // handing out the last queued split starts the tail of the task
+            beginSecond.arriveAndAwaitAdvance();
+            assertQueryStats(taskExecutor, taskId, 0, 1, 10, 0, 10, 0.25);
+            ticker.increment(30, SECONDS);
+            assertQueryStats(taskExecutor, taskId, 0, 1, 10, 30, 10, 0.0625);
+            endSecond.arriveAndAwaitAdvance();
+
+            // a new split ends the tail, and the task is in its tail again once that split is running
+            Phaser beginThird = new Phaser(1);
+            Phaser endThird = new Phaser(1);
+            TestingJob third = new TestingJob(ticker, new Phaser(1), beginThird, endThird, 1, 0);
+            ListenableFuture<?> thirdFuture = getOnlyElement(taskExecutor.enqueueSplits(taskHandle, false, ImmutableList.of(third)));
+            beginThird.arriveAndAwaitAdvance();
+            assertQueryStats(taskExecutor, taskId, 0, 1, 40, 30, 30, 0.25);
+            endThird.arriveAndAwaitAdvance();
+
+            for (ListenableFuture<?> future : futures) {
+                future.get(1, SECONDS);
+            }
+            thirdFuture.get(1, SECONDS);
+        }
+        finally {
+            taskExecutor.stop();
+        }
+    }
+
+    private static void assertQueryStats(
+            TaskExecutor taskExecutor,
+            TaskId taskId,
+            int queuedLeafSplits,
+            int runningLeafSplits,
+            long scheduledSeconds,
+            long leafSplitTailSeconds,
+            long maxLeafSplitScheduledSeconds,
+            double coreUtilization)
+    {
+        TaskExecutorQueryStats queryStats = getOnlyElement(taskExecutor.getQueryStats());
+        assertEquals(queryStats.getQueryId(), taskId.getQueryId());
+        assertEquals(queryStats.getTasks(), 1);
+        assertEquals(queryStats.getQueuedLeafSplits(), queuedLeafSplits);
+        assertEquals(queryStats.getRunningLeafSplits(), runningLeafSplits);
+        assertEquals(queryStats.getScheduledTime().roundTo(NANOSECONDS), SECONDS.toNanos(scheduledSeconds));
+        assertEquals(queryStats.getLeafSplitTailTime().roundTo(NANOSECONDS), SECONDS.toNanos(leafSplitTailSeconds));
+        assertEquals(queryStats.getMaxLeafSplitScheduledTime().roundTo(NANOSECONDS), SECONDS.toNanos(maxLeafSplitScheduledSeconds));
+        // scheduled time divided by the elapsed time since the task was created and by the 4 runner threads
+        assertEquals(queryStats.getCoreUtilization(), coreUtilization);
+    }
+
     @Test
     public void testLevelContributionCap()
     {
         MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2);
-        TaskHandle handle0 = new TaskHandle(new TaskId("test0", 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty());
-        TaskHandle handle1 = new TaskHandle(new TaskId("test1", 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty());
+        TaskHandle handle0 = new TaskHandle(new TaskId("test0", 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty(), new TestingTicker());
+        TaskHandle handle1 = new TaskHandle(new TaskId("test1", 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty(), new TestingTicker());
 
         for (int i = 0; i < (LEVEL_THRESHOLD_SECONDS.length - 1); i++) {
             long levelAdvanceTime = SECONDS.toNanos(LEVEL_THRESHOLD_SECONDS[i + 1] - LEVEL_THRESHOLD_SECONDS[i]);
@@ -359,7 +435,7 @@ public class TestTaskExecutor
     public void testUpdateLevelWithCap()
     {
         MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2);
-        TaskHandle handle0 = new TaskHandle(new TaskId("test0", 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty());
+        TaskHandle handle0 = new TaskHandle(new TaskId("test0", 0, 0, 0), new TaskPriorityTracker(splitQueue), () -> 1, 1, new Duration(1, SECONDS), OptionalInt.empty(), new TestingTicker());
 
         long quantaNanos = MINUTES.toNanos(10);
         handle0.addScheduledNanos(quantaNanos);
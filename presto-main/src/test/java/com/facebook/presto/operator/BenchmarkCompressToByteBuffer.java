@@ -13,8 +13,19 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.block.BlockEncodingManager;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
+import com.facebook.presto.execution.buffer.PagesSerdeFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.facebook.presto.type.TypeRegistry;
 import io.airlift.compress.Compressor;
 import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.snappy.SnappyCompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -23,6 +34,7 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -36,6 +48,8 @@ import org.openjdk.jmh.runner.options.VerboseMode;
 import java.nio.ByteBuffer;
 import java.util.Random;
 
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -51,33 +65,65 @@ public class BenchmarkCompressToByteBuffer
     public void compressToByteBuffer(BenchmarkData data)
     {
         data.byteBuffer.mark();
-        data.COMPRESSOR.compress(data.slice.toByteBuffer(), data.byteBuffer);
+        data.compressor.compress(data.slice.toByteBuffer(), data.byteBuffer);
         data.byteBuffer.reset();
     }
 
     @Benchmark
     public void compressToByteArray(BenchmarkData data)
     {
-        data.COMPRESSOR.compress((byte[]) data.slice.getBase(), 0, data.slice.length(), data.bytes, 0, data.MAX_COMPRESSED_SIZE);
+        data.compressor.compress((byte[]) data.slice.getBase(), 0, data.slice.length(), data.bytes, 0, data.maxCompressedSize);
+    }
+
+    @Benchmark
+    public SerializedPage serializePage(PageBenchmarkData data)
+    {
+        return data.pagesSerde.serialize(data.page);
+    }
+
+    @Benchmark
+    public Page deserializePage(PageBenchmarkData data)
+    {
+        return data.pagesSerde.deserialize(data.serializedPage);
     }
 
     @State(Scope.Thread)
     public static class BenchmarkData
     {
         private static final Random RANDOM = new Random(0);
-        private static final Compressor COMPRESSOR = new Lz4Compressor();
         private static final int UNCOMPRESSED_SIZE = 1_000_000;
-        private static final int MAX_COMPRESSED_SIZE = COMPRESSOR.maxCompressedLength(UNCOMPRESSED_SIZE);
+
+        @Param({"LZ4", "SNAPPY", "ZSTD"})
+        private String codec = "LZ4";
 
         private final byte[] byteValues = new byte[UNCOMPRESSED_SIZE];
         private final Slice slice = Slices.wrappedBuffer(byteValues);
 
-        private final byte[] bytes = new byte[MAX_COMPRESSED_SIZE];
-        private final ByteBuffer byteBuffer = ByteBuffer.allocate(MAX_COMPRESSED_SIZE);
+        private Compressor compressor;
+        private int maxCompressedSize;
+        private byte[] bytes;
+        private ByteBuffer byteBuffer;
 
         @Setup
         public void setup()
         {
+            switch (codec) {
+                case "LZ4":
+                    compressor = new Lz4Compressor();
+                    break;
+                case "SNAPPY":
+                    compressor = new SnappyCompressor();
+                    break;
+                case "ZSTD":
+                    compressor = new ZstdCompressor();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported codec: " + codec);
+            }
+            maxCompressedSize = compressor.maxCompressedLength(UNCOMPRESSED_SIZE);
+            bytes = new byte[maxCompressedSize];
+            byteBuffer = ByteBuffer.allocate(maxCompressedSize);
+
             // Generate discontinuous runs of random values and 0's to avoid LZ4 enters uncompressible fast-path
             int runLength = UNCOMPRESSED_SIZE / 10;
             byte[] randomBytes = new byte[runLength];
@@ -88,6 +134,47 @@ public class BenchmarkCompressToByteBuffer
         }
     }
 
+    @State(Scope.Thread)
+    public static class PageBenchmarkData
+    {
+        private static final int POSITION_COUNT = 10_000;
+        private static final String[] STATUSES = {"OPEN", "SHIPPED", "RETURNED", "CANCELLED"};
+
+        @Param({"NONE", "LZ4", "SNAPPY", "ZSTD"})
+        private String codec = "LZ4";
+
+        @Param({"1", "3", "9"})
+        private int zstdCompressionLevel = 3;
+
+        private PagesSerde pagesSerde;
+        private Page page;
+        private SerializedPage serializedPage;
+
+        @Setup
+        public void setup()
+        {
+            pagesSerde = new PagesSerdeFactory(
+                    new BlockEncodingManager(new TypeRegistry()),
+                    PageCompressionCodec.valueOf(codec),
+                    zstdCompressionLevel,
+                    new PageCompressionStats())
+                    .createPagesSerde();
+
+            // a shuffle page of an order key, a low cardinality status and a comment like string
+            Random random = new Random(0);
+            BlockBuilder keyBuilder = BIGINT.createBlockBuilder(null, POSITION_COUNT);
+            BlockBuilder statusBuilder = VARCHAR.createBlockBuilder(null, POSITION_COUNT);
+            BlockBuilder commentBuilder = VARCHAR.createBlockBuilder(null, POSITION_COUNT);
+            for (int position = 0; position < POSITION_COUNT; position++) {
+                BIGINT.writeLong(keyBuilder, position * 4L + random.nextInt(4));
+                VARCHAR.writeString(statusBuilder, STATUSES[random.nextInt(STATUSES.length)]);
+                VARCHAR.writeString(commentBuilder, "comment " + random.nextInt(1000) + " about order " + random.nextInt(100_000));
+            }
+            page = new Page(keyBuilder.build(), statusBuilder.build(), commentBuilder.build());
+            serializedPage = pagesSerde.serialize(page);
+        }
+    }
+
     public static void main(String[] args)
             throws RunnerException
     {
@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Random;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+
+/**
+ * Compares looking up the probe positions of a page one at a time with the batched lookup of {@link JoinProbe}.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(NANOSECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(3)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10, time = 2, timeUnit = SECONDS)
+public class BenchmarkJoinProbe
+{
+    private static final int ROWS_PER_PAGE = 1024;
+    private static final int PROBE_PAGES = 100;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int buildRows = 1_000_000;
+
+    @Param({"0.1", "0.9"})
+    private double matchRate = 0.9;
+
+    private LookupSource lookupSource;
+    private List<Page> probePages;
+    private JoinProbeFactory joinProbeFactory;
+
+    @Setup
+    public void setup()
+    {
+        BlockBuilder buildBlockBuilder = BIGINT.createBlockBuilder(null, buildRows);
+        for (int i = 0; i < buildRows; i++) {
+            BIGINT.writeLong(buildBlockBuilder, i);
+        }
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), buildRows);
+        pagesIndex.addPage(new Page(buildBlockBuilder.build()));
+        lookupSource = pagesIndex.createLookupSourceSupplier(TEST_SESSION, ImmutableList.of(0), OptionalInt.empty(), Optional.empty(), Optional.empty(), ImmutableList.of()).get();
+
+        Random random = new Random(42);
+        long keyRange = (long) (buildRows / matchRate);
+        probePages = random.longs(PROBE_PAGES)
+                .mapToObj(seed -> createProbePage(new Random(seed), keyRange))
+                .collect(toImmutableList());
+        joinProbeFactory = new JoinProbeFactory(new int[] {0}, ImmutableList.of(0), OptionalInt.empty());
+    }
+
+    private static Page createProbePage(Random random, long keyRange)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, ROWS_PER_PAGE);
+        for (int i = 0; i < ROWS_PER_PAGE; i++) {
+            BIGINT.writeLong(blockBuilder, Math.floorMod(random.nextLong(), keyRange));
+        }
+        return new Page(blockBuilder.build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_PAGE * PROBE_PAGES)
+    public long lookupSinglePositions()
+    {
+        long result = 0;
+        for (Page page : probePages) {
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                result += lookupSource.getJoinPosition(position, page, page);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_PAGE * PROBE_PAGES)
+    public long lookupBatches()
+    {
+        long result = 0;
+        for (Page page : probePages) {
+            JoinProbe probe = joinProbeFactory.createJoinProbe(page);
+            while (probe.advanceNextPosition()) {
+                result += probe.getCurrentJoinPosition(lookupSource);
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkJoinProbe.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
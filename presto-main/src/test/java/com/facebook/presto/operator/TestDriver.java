@@ -30,6 +30,7 @@ import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.schedule.NodeSelectionStrategy;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.PageSourceProvider;
@@ -47,7 +48,11 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -58,6 +63,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
@@ -192,7 +198,8 @@ public class TestDriver
                     }
                 },
                 TESTING_TABLE_HANDLE,
-                ImmutableList.of());
+                ImmutableList.of(),
+                TupleDomain::all);
 
         PageConsumerOperator sink = createSinkOperator(types);
         Driver driver = Driver.createDriver(driverContext, source, sink);
@@ -213,6 +220,58 @@ public class TestDriver
         assertTrue(source.isFinished());
     }
 
+    @Test
+    public void testFragmentResultCache()
+    {
+        PlanNodeId sourceId = new PlanNodeId("source");
+        List<Type> types = ImmutableList.of(VARCHAR, BIGINT, BIGINT);
+        TestingFragmentResultCacheManager cacheManager = new TestingFragmentResultCacheManager();
+        Optional<FragmentResultCacheContext> cacheContext = Optional.of(new FragmentResultCacheContext(cacheManager, "fingerprint"));
+
+        // the first driver processes the split and caches its result
+        TableScanOperator source = new TableScanOperator(driverContext.addOperatorContext(99, new PlanNodeId("test"), "values"),
+                sourceId,
+                (session, split, table, columns) -> new FixedPageSource(rowPagesBuilder(types)
+                        .addSequencePage(10, 20, 30, 40)
+                        .build()),
+                TESTING_TABLE_HANDLE,
+                ImmutableList.of(),
+                TupleDomain::all);
+        List<Page> output = new ArrayList<>();
+        Operator sink = new PageConsumerOperator(driverContext.addOperatorContext(1, new PlanNodeId("test"), "sink"), output::add, Function.identity());
+        Driver driver = Driver.createDriver(driverContext, ImmutableList.of(source, sink), cacheContext);
+
+        driver.updateSource(new TaskSource(sourceId, ImmutableSet.of(new ScheduledSplit(0, sourceId, newMockSplit())), true));
+        assertTrue(driver.processFor(new Duration(1, TimeUnit.SECONDS)).isDone());
+        assertTrue(driver.isFinished());
+        assertEquals(output.size(), 1);
+        assertEquals(cacheManager.getPuts(), 1);
+
+        // the second driver replays the cached result without reading the split
+        DriverContext secondDriverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext();
+        TableScanOperator secondSource = new TableScanOperator(secondDriverContext.addOperatorContext(99, new PlanNodeId("test"), "values"),
+                sourceId,
+                (session, split, table, columns) -> {
+                    throw new AssertionError("split should not be read");
+                },
+                TESTING_TABLE_HANDLE,
+                ImmutableList.of(),
+                TupleDomain::all);
+        List<Page> secondOutput = new ArrayList<>();
+        Operator secondSink = new PageConsumerOperator(secondDriverContext.addOperatorContext(1, new PlanNodeId("test"), "sink"), secondOutput::add, Function.identity());
+        Driver secondDriver = Driver.createDriver(secondDriverContext, ImmutableList.of(secondSource, secondSink), cacheContext);
+
+        secondDriver.updateSource(new TaskSource(sourceId, ImmutableSet.of(new ScheduledSplit(0, sourceId, newMockSplit())), true));
+        assertTrue(secondDriver.processFor(new Duration(1, TimeUnit.SECONDS)).isDone());
+        assertTrue(secondDriver.isFinished());
+        assertTrue(secondSink.isFinished());
+        assertEquals(secondOutput.size(), 1);
+        assertEquals(secondOutput.get(0).getPositionCount(), 10);
+        assertEquals(cacheManager.getPuts(), 1);
+    }
+
     @Test
     public void testBrokenOperatorCloseWhileProcessing()
             throws Exception
@@ -291,7 +350,8 @@ public class TestDriver
                     }
                 },
                 TESTING_TABLE_HANDLE,
-                ImmutableList.of());
+                ImmutableList.of(),
+                TupleDomain::all);
 
         Driver driver = Driver.createDriver(driverContext, source, createSinkOperator(types));
         // the table scan operator will request memory revocation with requestMemoryRevoking()
@@ -320,7 +380,8 @@ public class TestDriver
                     }
                 },
                 TESTING_TABLE_HANDLE,
-                ImmutableList.of());
+                ImmutableList.of(),
+                TupleDomain::all);
 
         BrokenOperator brokenOperator = new BrokenOperator(driverContext.addOperatorContext(0, new PlanNodeId("test"), "source"));
         final Driver driver = Driver.createDriver(driverContext, source, brokenOperator);
@@ -498,9 +559,10 @@ public class TestDriver
                 PlanNodeId planNodeId,
                 PageSourceProvider pageSourceProvider,
                 TableHandle table,
-                Iterable<ColumnHandle> columns)
+                Iterable<ColumnHandle> columns,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
         {
-            super(operatorContext, planNodeId, pageSourceProvider, table, columns);
+            super(operatorContext, planNodeId, pageSourceProvider, table, columns, dynamicFilter);
         }
 
         @Override
@@ -523,9 +585,10 @@ public class TestDriver
                 PlanNodeId planNodeId,
                 PageSourceProvider pageSourceProvider,
                 TableHandle table,
-                Iterable<ColumnHandle> columns)
+                Iterable<ColumnHandle> columns,
+                Supplier<TupleDomain<ColumnHandle>> dynamicFilter)
         {
-            super(operatorContext, planNodeId, pageSourceProvider, table, columns);
+            super(operatorContext, planNodeId, pageSourceProvider, table, columns, dynamicFilter);
         }
 
         @Override
@@ -555,5 +618,43 @@ public class TestDriver
         {
             return null;
         }
+
+        @Override
+        public Optional<Object> getSplitIdentifier()
+        {
+            return Optional.of("mock");
+        }
+    }
+
+    private static class TestingFragmentResultCacheManager
+            implements FragmentResultCacheManager
+    {
+        private final Map<List<Object>, List<Page>> cache = new HashMap<>();
+        private int puts;
+
+        @Override
+        public Optional<Iterator<Page>> get(String planFingerprint, Split split)
+        {
+            return Optional.ofNullable(cache.get(ImmutableList.of(planFingerprint, split.getConnectorSplit().getSplitIdentifier().get())))
+                    .map(List::iterator);
+        }
+
+        @Override
+        public void put(String planFingerprint, Split split, List<Page> result)
+        {
+            cache.put(ImmutableList.of(planFingerprint, split.getConnectorSplit().getSplitIdentifier().get()), ImmutableList.copyOf(result));
+            puts++;
+        }
+
+        @Override
+        public long getMaxCachedEntrySize()
+        {
+            return Long.MAX_VALUE;
+        }
+
+        public int getPuts()
+        {
+            return puts;
+        }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.operator.OperatorAssertion.toPages;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+
+@Test(singleThreaded = true)
+public class TestDynamicFilterSourceOperator
+{
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private DriverContext driverContext;
+    private List<List<Domain>> partitions;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+        driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION)
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext();
+        partitions = new ArrayList<>();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testCollectDistinctValues()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, VARCHAR)
+                .row(1L, "a")
+                .row(3L, "b")
+                .pageBreak()
+                .row(1L, null)
+                .row(null, "a")
+                .build();
+
+        List<Page> output = toPages(createOperatorFactory(ImmutableList.of(0, 1), ImmutableList.of(BIGINT, VARCHAR), 10), driverContext, input);
+
+        // the operator does not change its input
+        assertEquals(output, input);
+        assertEquals(partitions, ImmutableList.of(ImmutableList.of(
+                Domain.multipleValues(BIGINT, ImmutableList.of(1L, 3L)),
+                Domain.multipleValues(VARCHAR, ImmutableList.of(utf8Slice("a"), utf8Slice("b"))))));
+    }
+
+    @Test
+    public void testFallbackToRange()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .addSequencePage(100, 20)
+                .build();
+
+        toPages(createOperatorFactory(ImmutableList.of(0), ImmutableList.of(BIGINT), 10), driverContext, input);
+
+        assertEquals(partitions, ImmutableList.of(ImmutableList.of(
+                Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 20L, true, 119L, true)), false))));
+    }
+
+    @Test
+    public void testEmptyInput()
+    {
+        toPages(createOperatorFactory(ImmutableList.of(0), ImmutableList.of(BIGINT), 10), driverContext, ImmutableList.of());
+
+        assertEquals(partitions, ImmutableList.of(ImmutableList.of(Domain.none(BIGINT))));
+    }
+
+    @Test
+    public void testUnsupportedType()
+    {
+        List<Page> input = rowPagesBuilder(DOUBLE)
+                .row(1.0)
+                .build();
+
+        toPages(createOperatorFactory(ImmutableList.of(0), ImmutableList.of(DOUBLE), 10), driverContext, input);
+
+        assertEquals(partitions, ImmutableList.of(ImmutableList.of(Domain.all(DOUBLE))));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class, expectedExceptionsMessageRegExp = "Dynamic filter source can not be duplicated")
+    public void testDuplicate()
+    {
+        createOperatorFactory(ImmutableList.of(0), ImmutableList.of(BIGINT), 10).duplicate();
+    }
+
+    private OperatorFactory createOperatorFactory(List<Integer> channels, List<Type> types, int maxDistinctValues)
+    {
+        return new DynamicFilterSourceOperatorFactory(0, new PlanNodeId("test"), partitions::add, channels, types, maxDistinctValues);
+    }
+}
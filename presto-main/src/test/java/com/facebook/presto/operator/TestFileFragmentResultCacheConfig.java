@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static com.facebook.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.HOURS;
+
+public class TestFileFragmentResultCacheConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(FileFragmentResultCacheConfig.class)
+                .setCachingEnabled(false)
+                .setBaseDirectory(null)
+                .setMaxCacheSize(new DataSize(10, GIGABYTE))
+                .setMaxCachedEntrySize(new DataSize(10, MEGABYTE))
+                .setCacheTtl(new Duration(2, DAYS))
+                .setWriterThreads(1));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("fragment-result-cache.enabled", "true")
+                .put("fragment-result-cache.base-directory", "/tmp/fragment-result-cache")
+                .put("fragment-result-cache.max-cache-size", "1GB")
+                .put("fragment-result-cache.max-cached-entry-size", "1MB")
+                .put("fragment-result-cache.cache-ttl", "6h")
+                .put("fragment-result-cache.writer-threads", "4")
+                .build();
+
+        FileFragmentResultCacheConfig expected = new FileFragmentResultCacheConfig()
+                .setCachingEnabled(true)
+                .setBaseDirectory("/tmp/fragment-result-cache")
+                .setMaxCacheSize(new DataSize(1, GIGABYTE))
+                .setMaxCachedEntrySize(new DataSize(1, MEGABYTE))
+                .setCacheTtl(new Duration(6, HOURS))
+                .setWriterThreads(4);
+
+        assertFullMapping(properties, expected);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.block.BlockEncodingManager;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.HostAddress;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.schedule.NodeSelectionStrategy;
+import com.facebook.presto.spi.type.TestingTypeManager;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.testing.TestingTransactionHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.NO_PREFERENCE;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestFileFragmentResultCacheManager
+{
+    private static final List<Type> TYPES = ImmutableList.of(BIGINT, DOUBLE);
+    private static final String PLAN_FINGERPRINT = "plan";
+
+    private final File cacheDirectory = Files.createTempDir();
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        deleteRecursively(cacheDirectory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testPutAndGet()
+    {
+        FragmentResultCacheStats stats = new FragmentResultCacheStats();
+        FileFragmentResultCacheManager cacheManager = createCacheManager(stats);
+        Split split = createSplit(Optional.of("split"));
+        List<Page> pages = ImmutableList.of(createSequencePage(TYPES, 10), createSequencePage(TYPES, 5, 10, 20));
+
+        assertFalse(cacheManager.get(PLAN_FINGERPRINT, split).isPresent());
+        cacheManager.put(PLAN_FINGERPRINT, split, pages);
+
+        Optional<Iterator<Page>> result = cacheManager.get(PLAN_FINGERPRINT, split);
+        assertTrue(result.isPresent());
+        List<Page> cachedPages = ImmutableList.copyOf(result.get());
+        assertEquals(cachedPages.size(), pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertPageEquals(TYPES, cachedPages.get(i), pages.get(i));
+        }
+
+        // same split, but a different plan
+        assertFalse(cacheManager.get("other plan", split).isPresent());
+        // same plan, but a different split
+        assertFalse(cacheManager.get(PLAN_FINGERPRINT, createSplit(Optional.of("other split"))).isPresent());
+
+        assertEquals(stats.getCacheHit(), 1);
+        assertEquals(stats.getCacheMiss(), 3);
+        assertEquals(stats.getCacheEntries(), 1);
+        assertTrue(stats.getCacheSizeInBytes() > 0);
+    }
+
+    @Test
+    public void testSplitWithoutIdentifierIsNotCached()
+    {
+        FileFragmentResultCacheManager cacheManager = createCacheManager(new FragmentResultCacheStats());
+        Split split = createSplit(Optional.empty());
+
+        cacheManager.put(PLAN_FINGERPRINT, split, ImmutableList.of(createSequencePage(TYPES, 10)));
+        assertFalse(cacheManager.get(PLAN_FINGERPRINT, split).isPresent());
+    }
+
+    private FileFragmentResultCacheManager createCacheManager(FragmentResultCacheStats stats)
+    {
+        FileFragmentResultCacheConfig config = new FileFragmentResultCacheConfig()
+                .setCachingEnabled(true)
+                .setBaseDirectory(new File(cacheDirectory, String.valueOf(System.nanoTime())).getAbsolutePath());
+        return new FileFragmentResultCacheManager(config, new BlockEncodingManager(new TestingTypeManager()), stats, newDirectExecutorService());
+    }
+
+    private static Split createSplit(Optional<Object> splitIdentifier)
+    {
+        return new Split(new ConnectorId("test"), TestingTransactionHandle.create(), new TestingIdentifiedSplit(splitIdentifier));
+    }
+
+    private static class TestingIdentifiedSplit
+            implements ConnectorSplit
+    {
+        private final Optional<Object> splitIdentifier;
+
+        public TestingIdentifiedSplit(Optional<Object> splitIdentifier)
+        {
+            this.splitIdentifier = splitIdentifier;
+        }
+
+        @Override
+        public NodeSelectionStrategy getNodeSelectionStrategy()
+        {
+            return NO_PREFERENCE;
+        }
+
+        @Override
+        public List<HostAddress> getPreferredNodes(List<HostAddress> sortedCandidates)
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public Object getInfo()
+        {
+            return this;
+        }
+
+        @Override
+        public Optional<Object> getSplitIdentifier()
+        {
+            return splitIdentifier;
+        }
+    }
+}
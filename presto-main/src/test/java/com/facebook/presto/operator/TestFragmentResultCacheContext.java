@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.airlift.json.JsonCodec;
+import com.facebook.presto.Session;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.plan.ValuesNode;
+import com.facebook.presto.spi.security.Identity;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static com.facebook.airlift.json.JsonCodec.jsonCodec;
+import static com.facebook.presto.SystemSessionProperties.HASH_PARTITION_COUNT;
+import static com.facebook.presto.operator.FragmentResultCacheContext.computePlanFingerprint;
+import static com.facebook.presto.spi.type.TimeZoneKey.getTimeZoneKey;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+public class TestFragmentResultCacheContext
+{
+    private static final JsonCodec<PlanNode> PLAN_CODEC = jsonCodec(PlanNode.class);
+    private static final PlanNode PLAN = new ValuesNode(new PlanNodeId("values"), ImmutableList.of(), ImmutableList.of());
+
+    @Test
+    public void testFingerprintDependsOnSession()
+    {
+        String fingerprint = getFingerprint(testSessionBuilder().build());
+
+        // another query with the same session settings shares the cached results
+        assertEquals(getFingerprint(testSessionBuilder().build()), fingerprint);
+
+        assertNotEquals(getFingerprint(testSessionBuilder().setTimeZoneKey(getTimeZoneKey("Asia/Kathmandu")).build()), fingerprint);
+        assertNotEquals(getFingerprint(testSessionBuilder().setIdentity(new Identity("other_user", Optional.empty())).build()), fingerprint);
+        assertNotEquals(getFingerprint(testSessionBuilder().setSystemProperty(HASH_PARTITION_COUNT, "7").build()), fingerprint);
+    }
+
+    private static String getFingerprint(Session session)
+    {
+        return computePlanFingerprint(PLAN_CODEC, PLAN, ImmutableList.of(), session);
+    }
+}
@@ -19,8 +19,10 @@ import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.block.DictionaryBlock;
 import com.facebook.presto.spi.block.DictionaryId;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.sql.gen.JoinCompiler;
@@ -39,11 +41,15 @@ import java.util.stream.IntStream;
 
 import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
 import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.block.BlockAssertions.createRLEBlock;
 import static com.facebook.presto.block.BlockAssertions.createStringSequenceBlock;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.operator.UpdateMemory.NOOP;
 import static com.facebook.presto.spi.block.DictionaryId.randomDictionaryId;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.type.TypeUtils.getHashBlock;
 import static com.google.common.math.DoubleMath.log2;
@@ -232,6 +238,86 @@ public class TestGroupByHash
         assertTrue(groupByHash.contains(0, new Page(testValuesBlock, testStringValuesBlock, testHashBlock), hashChannels));
     }
 
+    @Test
+    public void testFixedWidthMultipleColumns()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, INTEGER);
+        int[] hashChannels = {0, 1};
+        Page page = createFixedWidthPage(1000);
+
+        GroupByHash groupByHash = createGroupByHash(TEST_SESSION, types, hashChannels, Optional.empty(), 4, JOIN_COMPILER);
+        assertTrue(groupByHash instanceof FlatGroupByHash);
+        GroupByHash expectedGroupByHash = new MultiChannelGroupByHash(types, hashChannels, Optional.empty(), 4, false, JOIN_COMPILER, NOOP);
+
+        Work<GroupByIdBlock> work = groupByHash.getGroupIds(page);
+        work.process();
+        GroupByIdBlock groupIds = work.getResult();
+        Work<GroupByIdBlock> expectedWork = expectedGroupByHash.getGroupIds(page);
+        expectedWork.process();
+        GroupByIdBlock expectedGroupIds = expectedWork.getResult();
+
+        // both hashes assign group ids in the order in which the groups are first seen
+        assertEquals(groupByHash.getGroupCount(), expectedGroupByHash.getGroupCount());
+        assertEquals(groupIds.getPositionCount(), page.getPositionCount());
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            assertEquals(groupIds.getGroupId(position), expectedGroupIds.getGroupId(position));
+            assertTrue(groupByHash.contains(position, page, hashChannels));
+        }
+
+        PageBuilder pageBuilder = new PageBuilder(types);
+        PageBuilder expectedPageBuilder = new PageBuilder(types);
+        for (int groupId = 0; groupId < groupByHash.getGroupCount(); groupId++) {
+            pageBuilder.declarePosition();
+            groupByHash.appendValuesTo(groupId, pageBuilder, 0);
+            expectedPageBuilder.declarePosition();
+            expectedGroupByHash.appendValuesTo(groupId, expectedPageBuilder, 0);
+        }
+        assertPageEquals(types, pageBuilder.build(), expectedPageBuilder.build());
+
+        Page missingPage = new Page(BlockAssertions.createLongsBlock(100L), BlockAssertions.createIntsBlock(1));
+        assertFalse(groupByHash.contains(0, missingPage, hashChannels));
+    }
+
+    @Test
+    public void testFixedWidthRunLengthEncoded()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, INTEGER);
+        int[] hashChannels = {0, 1};
+        Page page = new Page(createRLEBlock(5L, 100), new RunLengthEncodedBlock(BlockAssertions.createIntsBlock(7), 100));
+
+        GroupByHash groupByHash = createGroupByHash(TEST_SESSION, types, hashChannels, Optional.empty(), 100, JOIN_COMPILER);
+        Work<GroupByIdBlock> work = groupByHash.getGroupIds(page);
+        work.process();
+        GroupByIdBlock groupIds = work.getResult();
+        assertEquals(groupByHash.getGroupCount(), 1);
+        assertEquals(groupIds.getPositionCount(), 100);
+        assertEquals(groupIds.getGroupId(99), 0);
+
+        groupByHash.addPage(page).process();
+        assertEquals(groupByHash.getGroupCount(), 1);
+    }
+
+    private static Page createFixedWidthPage(int positionCount)
+    {
+        BlockBuilder bigintBlockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        BlockBuilder integerBlockBuilder = INTEGER.createBlockBuilder(null, positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            if (position % 13 == 0) {
+                bigintBlockBuilder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(bigintBlockBuilder, position % 10);
+            }
+            if (position % 17 == 0) {
+                integerBlockBuilder.appendNull();
+            }
+            else {
+                INTEGER.writeLong(integerBlockBuilder, position % 7);
+            }
+        }
+        return new Page(bigintBlockBuilder.build(), integerBlockBuilder.build());
+    }
+
     @Test
     public void testForceRehash()
     {
@@ -79,7 +79,6 @@ import static com.google.common.base.Strings.nullToEmpty;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
-import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
@@ -91,6 +90,7 @@ import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -565,6 +565,74 @@ public class TestHashAggregationOperator
         assertEquals(driverContext.getMemoryUsage(), 0);
     }
 
+    @Test
+    public void testAdaptivePartialAggregation()
+    {
+        PartialAggregationController partialAggregationController = new PartialAggregationController(0.8, 10);
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                ImmutableList.of(),
+                Step.PARTIAL,
+                false,
+                ImmutableList.of(LONG_SUM.bind(ImmutableList.of(0), Optional.empty())),
+                Optional.empty(),
+                Optional.empty(),
+                100,
+                Optional.of(new DataSize(16, MEGABYTE)),
+                Optional.of(partialAggregationController),
+                false,
+                new DataSize(16, MEGABYTE),
+                spillerFactory,
+                joinCompiler,
+                false);
+
+        // all rows are distinct, so the first flush disables partial aggregation
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .addSequencePage(10, 0)
+                .build();
+        MaterializedResult expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT)
+                .pages(rowPagesBuilder(BIGINT, BIGINT).addSequencePage(10, 0, 0).build())
+                .build();
+        assertOperatorEqualsIgnoreOrder(operatorFactory, createDriverContext(), input, expected);
+        assertTrue(partialAggregationController.isPartialAggregationDisabled());
+
+        // subsequent operators emit every input row as its own group
+        input = rowPagesBuilder(BIGINT)
+                .row(1L)
+                .row(1L)
+                .row(2L)
+                .build();
+        expected = resultBuilder(TEST_SESSION, BIGINT, BIGINT)
+                .row(1L, 1L)
+                .row(1L, 1L)
+                .row(2L, 2L)
+                .build();
+        try (Operator operator = operatorFactory.createOperator(createDriverContext())) {
+            List<Page> outputPages = toPages(operator, input.iterator());
+            MaterializedResult actual = toMaterializedResult(operator.getOperatorContext().getSession(), expected.getTypes(), outputPages);
+            assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+
+            HashAggregationInfo info = (HashAggregationInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+            assertEquals(info.getPassThroughPositions(), 3);
+        }
+    }
+
+    @Test
+    public void testAdaptivePartialAggregationKeepsReducingAggregation()
+    {
+        PartialAggregationController partialAggregationController = new PartialAggregationController(0.8, 10);
+        partialAggregationController.onFlush(5, 5);
+        // not enough rows to decide yet
+        assertFalse(partialAggregationController.isPartialAggregationDisabled());
+        partialAggregationController.onFlush(100, 10);
+        assertFalse(partialAggregationController.isPartialAggregationDisabled());
+        partialAggregationController.onFlush(1000, 1000);
+        assertTrue(partialAggregationController.isPartialAggregationDisabled());
+    }
+
     @Test
     public void testMergeWithMemorySpill()
     {
@@ -782,47 +850,6 @@ public class TestHashAggregationOperator
         return functionManager.getAggregateFunctionImplementation(functionManager.lookupFunction(name, fromTypes(arguments)));
     }
 
-    private static class DummySpillerFactory
-            implements SpillerFactory
-    {
-        private long spillsCount;
-
-        @Override
-        public Spiller create(List<Type> types, SpillContext spillContext, AggregatedMemoryContext memoryContext)
-        {
-            return new Spiller()
-            {
-                private final List<Iterable<Page>> spills = new ArrayList<>();
-
-                @Override
-                public ListenableFuture<?> spill(Iterator<Page> pageIterator)
-                {
-                    spillsCount++;
-                    spills.add(ImmutableList.copyOf(pageIterator));
-                    return immediateFuture(null);
-                }
-
-                @Override
-                public List<Iterator<Page>> getSpills()
-                {
-                    return spills.stream()
-                            .map(Iterable::iterator)
-                            .collect(toImmutableList());
-                }
-
-                @Override
-                public void close()
-                {
-                }
-            };
-        }
-
-        public long getSpillsCount()
-        {
-            return spillsCount;
-        }
-    }
-
     private static class FailingSpillerFactory
             implements SpillerFactory
     {
@@ -1033,6 +1033,21 @@ public class TestHashJoinOperator
         buildLookupSource(buildSideSetup);
     }
 
+    @Test(expectedExceptions = ExceededMemoryLimitException.class, expectedExceptionsMessageRegExp = "Query exceeded broadcast join build side limit of 100B.*", dataProvider = "testMemoryLimitProvider")
+    public void testBroadcastBuildSizeLimit(boolean parallelBuild, boolean buildHashEnabled)
+    {
+        TaskContext taskContext = createTaskContext();
+
+        RowPagesBuilder buildPages = rowPagesBuilder(buildHashEnabled, Ints.asList(0), ImmutableList.of(VARCHAR, BIGINT, BIGINT))
+                .addSequencePage(10, 20, 30, 40)
+                .addSequencePage(10, 30, 40, 50);
+        BuildSideSetup buildSideSetup = setupBuildSide(parallelBuild, taskContext, Ints.asList(0), buildPages, Optional.empty(), false, SINGLE_STREAM_SPILLER_FACTORY, Optional.of(new DataSize(100, BYTE)));
+        instantiateBuildDrivers(buildSideSetup, taskContext);
+        // the limit is held by the operators once all of them are created
+        assertEquals(buildSideSetup.getBuildOperatorFactory().getTrackedBroadcastBuildSizeLimitCount(), 0);
+        buildLookupSource(buildSideSetup);
+    }
+
     @Test(dataProvider = "hashJoinTestValues")
     public void testInnerJoinWithEmptyLookupSource(boolean parallelBuild, boolean probeHashEnabled, boolean buildHashEnabled)
     {
@@ -1297,6 +1312,19 @@ public class TestHashJoinOperator
             Optional<InternalJoinFilterFunction> filterFunction,
             boolean spillEnabled,
             SingleStreamSpillerFactory singleStreamSpillerFactory)
+    {
+        return setupBuildSide(parallelBuild, taskContext, hashChannels, buildPages, filterFunction, spillEnabled, singleStreamSpillerFactory, Optional.empty());
+    }
+
+    private BuildSideSetup setupBuildSide(
+            boolean parallelBuild,
+            TaskContext taskContext,
+            List<Integer> hashChannels,
+            RowPagesBuilder buildPages,
+            Optional<InternalJoinFilterFunction> filterFunction,
+            boolean spillEnabled,
+            SingleStreamSpillerFactory singleStreamSpillerFactory,
+            Optional<DataSize> maxBroadcastBuildSize)
     {
         Optional<JoinFilterFunctionFactory> filterFunctionFactory = filterFunction
                 .map(function -> (session, addresses, pages) -> new StandardJoinFilterFunction(function, addresses, pages));
@@ -1357,7 +1385,8 @@ public class TestHashJoinOperator
                 100,
                 new PagesIndex.TestingFactory(false),
                 spillEnabled,
-                singleStreamSpillerFactory);
+                singleStreamSpillerFactory,
+                maxBroadcastBuildSize);
         return new BuildSideSetup(lookupSourceFactoryManager, buildOperatorFactory, sourceOperatorFactory, partitionCount);
     }
 
@@ -15,28 +15,40 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.HashSemiJoinOperator.HashSemiJoinOperatorFactory;
 import com.facebook.presto.operator.SetBuilderOperator.SetBuilderOperatorFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.GenericPartitioningSpillerFactory;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
+import com.facebook.presto.spiller.SingleStreamSpiller;
+import com.facebook.presto.spiller.SingleStreamSpillerFactory;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.testing.Assertions.assertEqualsIgnoreOrder;
 import static com.facebook.airlift.testing.Assertions.assertGreaterThan;
 import static com.facebook.airlift.testing.Assertions.assertGreaterThanOrEqual;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
@@ -44,16 +56,20 @@ import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.createPagesWithDistinctHashKeys;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.finishOperatorWithYieldingGroupByHash;
+import static com.facebook.presto.operator.OperatorAssertion.dropChannel;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static com.google.common.collect.Iterables.concat;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestHashSemiJoinOperator
@@ -151,6 +167,100 @@ public class TestHashSemiJoinOperator
         OperatorAssertion.assertOperatorEquals(joinOperatorFactory, driverContext, probeInput, expected, hashEnabled, ImmutableList.of(probeTypes.size()));
     }
 
+    @Test(dataProvider = "hashEnabledValues")
+    public void testSemiJoinWithSpilledSet(boolean hashEnabled)
+    {
+        DriverContext driverContext = taskContext.addPipelineContext(0, true, true, false).addDriverContext();
+        PartitioningSpillerFactory partitioningSpillerFactory = new GenericPartitioningSpillerFactory(new InMemorySingleStreamSpillerFactory());
+
+        // build
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT);
+        List<Page> buildInput = rowPagesBuilder
+                .row(10L)
+                .row(30L)
+                .row(30L)
+                .row(35L)
+                .pageBreak()
+                .row(36L)
+                .row(37L)
+                .row(50L)
+                .build();
+        SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(
+                1,
+                new PlanNodeId("test"),
+                rowPagesBuilder.getTypes().get(0),
+                0,
+                rowPagesBuilder.getHashChannel(),
+                10,
+                new JoinCompiler(createTestMetadataManager(), new FeaturesConfig()),
+                OptionalInt.of(1),
+                partitioningSpillerFactory);
+        SetBuilderOperator setBuilderOperator = (SetBuilderOperator) setBuilderOperatorFactory.createOperator(driverContext);
+
+        // revoke the set built from the first page, the second page is spilled as it arrives
+        setBuilderOperator.addInput(buildInput.get(0));
+        getFutureValue(setBuilderOperator.startMemoryRevoke());
+        setBuilderOperator.finishMemoryRevoke();
+        assertEquals(setBuilderOperator.getState(), SetBuilderOperator.State.SPILLING_INPUT);
+        setBuilderOperator.addInput(buildInput.get(1));
+        setBuilderOperator.finish();
+        assertEquals(setBuilderOperator.getState(), SetBuilderOperator.State.INPUT_SPILLED);
+
+        // probe
+        List<Type> probeTypes = ImmutableList.of(BIGINT, BIGINT);
+        RowPagesBuilder rowPagesBuilderProbe = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT, BIGINT);
+        List<Page> probeInput = rowPagesBuilderProbe
+                .addSequencePage(10, 30, 0)
+                .build();
+        HashSemiJoinOperatorFactory joinOperatorFactory = new HashSemiJoinOperatorFactory(
+                2,
+                new PlanNodeId("test"),
+                setBuilderOperatorFactory.getSetProvider(),
+                rowPagesBuilderProbe.getTypes(),
+                0,
+                partitioningSpillerFactory);
+        Operator joinOperator = joinOperatorFactory.createOperator(driverContext);
+        for (Page page : probeInput) {
+            assertTrue(joinOperator.needsInput());
+            joinOperator.addInput(page);
+        }
+        joinOperator.finish();
+
+        // the probe operator requests the partitions of the set one by one and the set builder unspills them
+        ImmutableList.Builder<Page> output = ImmutableList.builder();
+        while (!joinOperator.isFinished()) {
+            setBuilderOperator.finish();
+            Page page = joinOperator.getOutput();
+            if (page != null) {
+                output.add(page);
+            }
+        }
+        joinOperator.close();
+        setBuilderOperator.finish();
+        assertTrue(setBuilderOperator.isFinished());
+
+        // expected
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), concat(probeTypes, ImmutableList.of(BOOLEAN)))
+                .row(30L, 0L, true)
+                .row(31L, 1L, false)
+                .row(32L, 2L, false)
+                .row(33L, 3L, false)
+                .row(34L, 4L, false)
+                .row(35L, 5L, true)
+                .row(36L, 6L, true)
+                .row(37L, 7L, true)
+                .row(38L, 8L, false)
+                .row(39L, 9L, false)
+                .build();
+
+        List<Page> pages = output.build();
+        if (hashEnabled) {
+            pages = dropChannel(pages, ImmutableList.of(probeTypes.size()));
+        }
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), expected.getTypes(), pages);
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
     @Test(dataProvider = "dataType")
     public void testSemiJoinMemoryReservationYield(Type type)
     {
@@ -377,4 +487,49 @@ public class TestHashSemiJoinOperator
             driver.process();
         }
     }
+
+    private static class InMemorySingleStreamSpillerFactory
+            implements SingleStreamSpillerFactory
+    {
+        @Override
+        public SingleStreamSpiller create(List<Type> types, SpillContext spillContext, LocalMemoryContext memoryContext)
+        {
+            return new SingleStreamSpiller()
+            {
+                private final List<Page> spills = new ArrayList<>();
+
+                @Override
+                public ListenableFuture<?> spill(Iterator<Page> pageIterator)
+                {
+                    Iterators.addAll(spills, pageIterator);
+                    return immediateFuture(null);
+                }
+
+                @Override
+                public Iterator<Page> getSpilledPages()
+                {
+                    return ImmutableList.copyOf(spills).iterator();
+                }
+
+                @Override
+                public long getSpilledPagesInMemorySize()
+                {
+                    return spills.stream()
+                            .mapToLong(Page::getSizeInBytes)
+                            .sum();
+                }
+
+                @Override
+                public ListenableFuture<List<Page>> getAllSpilledPages()
+                {
+                    return immediateFuture(ImmutableList.copyOf(spills));
+                }
+
+                @Override
+                public void close()
+                {
+                }
+            };
+        }
+    }
 }
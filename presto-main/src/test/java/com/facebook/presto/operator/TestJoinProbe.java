@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.operator.JoinProbe.JoinProbeFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.operator.PartitionedLookupSource.createPartitionedLookupSourceSupplier;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestJoinProbe
+{
+    @Test
+    public void testBatchedLookup()
+    {
+        LookupSource lookupSource = createLookupSource();
+        assertBatchedLookupMatchesSingleLookups(lookupSource);
+    }
+
+    @Test
+    public void testBatchedLookupPartitioned()
+    {
+        Supplier<LookupSource> partition = TestJoinProbe::createLookupSource;
+        LookupSource lookupSource = createPartitionedLookupSourceSupplier(ImmutableList.of(partition, partition, partition, partition), ImmutableList.of(BIGINT), false).get();
+        assertBatchedLookupMatchesSingleLookups(lookupSource);
+    }
+
+    private static void assertBatchedLookupMatchesSingleLookups(LookupSource lookupSource)
+    {
+        Page probePage = createProbePage();
+        Page probeKeys = new Page(probePage.getBlock(0));
+        JoinProbe probe = new JoinProbeFactory(new int[] {0}, ImmutableList.of(0), OptionalInt.empty()).createJoinProbe(probePage);
+
+        int matches = 0;
+        while (probe.advanceNextPosition()) {
+            int position = probe.getPosition();
+            long expected = probePage.getBlock(0).isNull(position) ? -1 : lookupSource.getJoinPosition(position, probeKeys, probePage);
+            assertEquals(probe.getCurrentJoinPosition(lookupSource), expected);
+            if (expected >= 0) {
+                matches++;
+            }
+        }
+        assertTrue(matches > 0);
+        assertFalse(probe.advanceNextPosition());
+    }
+
+    private static LookupSource createLookupSource()
+    {
+        // every key is present twice in the build side
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 200);
+        for (int i = 0; i < 200; i++) {
+            BIGINT.writeLong(blockBuilder, i % 100);
+        }
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false).newPagesIndex(ImmutableList.of(BIGINT), 200);
+        pagesIndex.addPage(new Page(blockBuilder.build()));
+        return pagesIndex.createLookupSourceSupplier(TEST_SESSION, ImmutableList.of(0), OptionalInt.empty(), Optional.empty(), Optional.empty(), ImmutableList.of()).get();
+    }
+
+    private static Page createProbePage()
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 300);
+        for (int i = 0; i < 300; i++) {
+            if (i % 7 == 0) {
+                blockBuilder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(blockBuilder, i % 150);
+            }
+        }
+        Block block = blockBuilder.build();
+        return new Page(block);
+    }
+}
@@ -17,8 +17,10 @@ import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.operator.OrderByOperator.OrderByOperatorFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
@@ -26,6 +28,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -33,6 +36,7 @@ import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.spi.block.SortOrder.ASC_NULLS_LAST;
 import static com.facebook.presto.spi.block.SortOrder.DESC_NULLS_LAST;
@@ -43,6 +47,10 @@ import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestOrderByOperator
@@ -87,7 +95,10 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(ASC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                false,
+                Optional.empty(),
+                new OrderingCompiler());
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE)
                 .row(-0.1)
@@ -118,7 +129,10 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0, 1),
                 ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                false,
+                Optional.empty(),
+                new OrderingCompiler());
 
         MaterializedResult expected = MaterializedResult.resultBuilder(driverContext.getSession(), VARCHAR, BIGINT)
                 .row("a", 4L)
@@ -130,6 +144,47 @@ public class TestOrderByOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
+    @Test
+    public void testSpill()
+    {
+        List<Page> input = rowPagesBuilder(VARCHAR, BIGINT)
+                .row("b", 2L)
+                .row("a", 1L)
+                .pageBreak()
+                .row("c", 3L)
+                .row("a", 4L)
+                .pageBreak()
+                .row(null, 5L)
+                .row("b", 6L)
+                .build();
+
+        DummySpillerFactory spillerFactory = new DummySpillerFactory();
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(VARCHAR, BIGINT),
+                ImmutableList.of(0, 1),
+                10,
+                ImmutableList.of(0, 1),
+                ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                true,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT)
+                .row("a", 4L)
+                .row("a", 1L)
+                .row("b", 6L)
+                .row("b", 2L)
+                .row("c", 3L)
+                .row(null, 5L)
+                .build();
+
+        assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertTrue(spillerFactory.getSpillsCount() > 0, "Expected the operator to spill");
+    }
+
     @Test
     public void testReverseOrder()
     {
@@ -149,7 +204,10 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(DESC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                false,
+                Optional.empty(),
+                new OrderingCompiler());
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT)
                 .row(4L)
@@ -184,8 +242,65 @@ public class TestOrderByOperator
                 10,
                 ImmutableList.of(0),
                 ImmutableList.of(ASC_NULLS_LAST),
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                false,
+                Optional.empty(),
+                new OrderingCompiler());
 
         toPages(operatorFactory, driverContext, input);
     }
+
+    @Test
+    public void testSpillWhenFinishing()
+    {
+        // the input does not fit in user memory when the operator finishes, so it is spilled first
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .addSequencePage(100_000, 300_000)
+                .addSequencePage(100_000, 200_000)
+                .addSequencePage(100_000, 100_000)
+                .addSequencePage(100_000, 0)
+                .build();
+
+        DriverContext driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION, new DataSize(2, Unit.MEGABYTE))
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext();
+
+        SettableFuture<?> spillFuture = SettableFuture.create();
+        DummySpillerFactory spillerFactory = new DummySpillerFactory(spillFuture);
+
+        OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                10,
+                ImmutableList.of(0),
+                ImmutableList.of(ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory(false),
+                true,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+        for (Page page : input) {
+            operator.addInput(page);
+        }
+
+        // the driver is blocked on the spill instead of waiting for it in finish
+        operator.finish();
+        assertEquals(spillerFactory.getSpillsCount(), 1);
+        assertFalse(operator.isBlocked().isDone());
+        assertFalse(operator.isFinished());
+        assertNull(operator.getOutput());
+
+        spillFuture.set(null);
+        long expected = 0;
+        for (Page page : finishOperator(operator)) {
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                assertEquals(BIGINT.getLong(page.getBlock(0), position), expected);
+                expected++;
+            }
+        }
+        assertEquals(expected, 400_000);
+    }
 }
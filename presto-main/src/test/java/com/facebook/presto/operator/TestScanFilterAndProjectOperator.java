@@ -43,6 +43,7 @@ import com.facebook.presto.spi.relation.RowExpression;
 import com.facebook.presto.sql.gen.ExpressionCompiler;
 import com.facebook.presto.sql.gen.PageFunctionCompiler;
 import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
 import com.facebook.presto.testing.TestingSplit;
 import com.facebook.presto.testing.TestingTransactionHandle;
 import com.google.common.collect.ImmutableList;
@@ -276,6 +277,58 @@ public class TestScanFilterAndProjectOperator
         assertEquals(operator.getOperatorContext().getOperatorStats().getInputPositions(), expected.getRowCount());
     }
 
+    @Test
+    public void testPageSourceLazyBlockLoadedColumns()
+    {
+        // Tests that only the filtered column is loaded for pages without selected positions, and that the loads are reported per column.
+        DriverContext driverContext = newDriverContext();
+        RowExpression filter = call(
+                EQUAL.name(),
+                createTestMetadataManager().getFunctionManager().resolveOperator(EQUAL, fromTypes(BIGINT, BIGINT)),
+                BOOLEAN,
+                field(0, BIGINT),
+                constant(10L, BIGINT));
+        List<RowExpression> projections = ImmutableList.of(field(1, BIGINT));
+        Supplier<CursorProcessor> cursorProcessor = expressionCompiler.compileCursorProcessor(driverContext.getSession().getSqlFunctionProperties(), Optional.of(filter), projections, "key");
+        Supplier<PageProcessor> pageProcessor = expressionCompiler.compilePageProcessor(driverContext.getSession().getSqlFunctionProperties(), Optional.of(filter), projections);
+
+        List<Page> input = rowPagesBuilder(BIGINT, BIGINT)
+                .addSequencePage(100, 0, 1000)
+                .addSequencePage(100, 100, 1100)
+                .build();
+        CountingLazyPageSource pageSource = new CountingLazyPageSource(input);
+
+        ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory factory = new ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                new PlanNodeId("0"),
+                (session, split, table, columns) -> pageSource,
+                cursorProcessor,
+                pageProcessor,
+                TESTING_TABLE_HANDLE,
+                ImmutableList.of(new TestingColumnHandle("a"), new TestingColumnHandle("b")),
+                ImmutableList.of(BIGINT),
+                new DataSize(0, BYTE),
+                0);
+
+        SourceOperator operator = factory.createOperator(driverContext);
+        operator.addSplit(new Split(new ConnectorId("test"), TestingTransactionHandle.create(), TestingSplit.createLocalSplit()));
+        operator.noMoreSplits();
+
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), ImmutableList.of(BIGINT), toPages(operator));
+        assertEquals(actual.getMaterializedRows().size(), 1);
+        assertEquals(actual.getMaterializedRows().get(0).getField(0), 1010L);
+
+        ScanFilterAndProjectInfo info = (ScanFilterAndProjectInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+        assertEquals(info.getColumnInputPositions(), ImmutableList.of(200L, 200L));
+        // the second page has no position passing the filter, so its projected column is never loaded
+        assertEquals(info.getColumnLoadedPositions(), ImmutableList.of(200L, 100L));
+        assertEquals(info.getColumnLoadedBytes(), ImmutableList.of(
+                input.get(0).getBlock(0).getSizeInBytes() + input.get(1).getBlock(0).getSizeInBytes(),
+                input.get(0).getBlock(1).getSizeInBytes()));
+        assertEquals(pageSource.getCompletedBytes(), info.getColumnLoadedBytes().get(0) + info.getColumnLoadedBytes().get(1));
+    }
+
     @Test
     public void testRecordCursorSource()
     {
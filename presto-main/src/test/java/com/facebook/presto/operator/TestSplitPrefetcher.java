@@ -0,0 +1,337 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.memory.context.AggregatedMemoryContext;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.operator.ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory;
+import com.facebook.presto.operator.SplitPrefetcher.PrefetchedPageSource;
+import com.facebook.presto.operator.TableScanOperator.TableScanOperatorFactory;
+import com.facebook.presto.operator.project.InputPageProjection;
+import com.facebook.presto.operator.project.PageProcessor;
+import com.facebook.presto.operator.project.PageProjectionWithOutputs;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.ConnectorTableHandle;
+import com.facebook.presto.spi.FixedPageSource;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.testing.TestingSplit;
+import com.facebook.presto.testing.TestingTransactionHandle;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestSplitPrefetcher
+{
+    private static final TableHandle TESTING_TABLE_HANDLE = new TableHandle(
+            new ConnectorId("test"),
+            new ConnectorTableHandle() {},
+            new ConnectorTransactionHandle() {},
+            Optional.empty());
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-executor-%s"));
+        scheduledExecutor = newScheduledThreadPool(2, daemonThreadsNamed("test-scheduledExecutor-%s"));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduledExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testPrefetchLimit()
+    {
+        Queue<Runnable> prefetches = new ArrayDeque<>();
+        List<TestingPageSource> pageSources = new ArrayList<>();
+        SplitPrefetcher prefetcher = new SplitPrefetcher(2, prefetches::add, split -> {
+            TestingPageSource pageSource = new TestingPageSource();
+            pageSources.add(pageSource);
+            return pageSource;
+        }, newSimpleAggregatedMemoryContext());
+
+        Split first = createSplit();
+        Split second = createSplit();
+        Split third = createSplit();
+        prefetcher.splitQueued(first);
+        prefetcher.splitQueued(second);
+        prefetcher.splitQueued(third);
+        assertEquals(prefetches.size(), 2);
+
+        prefetches.poll().run();
+        Optional<PrefetchedPageSource> prefetched = prefetcher.claim(first);
+        assertTrue(prefetched.isPresent());
+        assertSame(getFutureValue(prefetched.get().getPageSource()), pageSources.get(0));
+        assertTrue(pageSources.get(0).isPrefetched());
+
+        // claiming a split frees a slot for the next queued one
+        assertEquals(prefetches.size(), 2);
+        prefetches.forEach(Runnable::run);
+        assertTrue(prefetcher.claim(second).isPresent());
+        assertTrue(prefetcher.claim(third).isPresent());
+        assertFalse(prefetcher.claim(createSplit()).isPresent());
+    }
+
+    @Test
+    public void testClaimBeforePrefetch()
+    {
+        Queue<Runnable> prefetches = new ArrayDeque<>();
+        SplitPrefetcher prefetcher = new SplitPrefetcher(1, prefetches::add, split -> new TestingPageSource(), newSimpleAggregatedMemoryContext());
+
+        Split first = createSplit();
+        Split second = createSplit();
+        Split third = createSplit();
+        prefetcher.splitQueued(first);
+        prefetcher.splitQueued(second);
+        prefetcher.splitQueued(third);
+        assertEquals(prefetches.size(), 1);
+
+        // the second split is read by an operator before its prefetch started, so it is skipped
+        assertFalse(prefetcher.claim(second).isPresent());
+        assertTrue(prefetcher.claim(first).isPresent());
+        assertEquals(prefetches.size(), 2);
+        prefetches.forEach(Runnable::run);
+        assertTrue(prefetcher.claim(third).isPresent());
+    }
+
+    @Test
+    public void testCloseUnclaimed()
+    {
+        Queue<Runnable> prefetches = new ArrayDeque<>();
+        List<TestingPageSource> pageSources = new ArrayList<>();
+        SplitPrefetcher prefetcher = new SplitPrefetcher(2, prefetches::add, split -> {
+            TestingPageSource pageSource = new TestingPageSource();
+            pageSources.add(pageSource);
+            return pageSource;
+        }, newSimpleAggregatedMemoryContext());
+
+        prefetcher.splitQueued(createSplit());
+        prefetcher.splitQueued(createSplit());
+        prefetches.poll().run();
+        prefetcher.close();
+        assertTrue(pageSources.get(0).isClosed());
+
+        // a page source opened after the prefetcher is closed is closed right away
+        prefetches.poll().run();
+        assertTrue(pageSources.get(1).isClosed());
+
+        prefetcher.splitQueued(createSplit());
+        assertTrue(prefetches.isEmpty());
+    }
+
+    @Test
+    public void testMemoryAccounting()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .addSequencePage(10, 0)
+                .build();
+        Queue<Runnable> prefetches = new ArrayDeque<>();
+        AggregatedMemoryContext memoryContext = newSimpleAggregatedMemoryContext();
+        SplitPrefetcher prefetcher = new SplitPrefetcher(2, prefetches::add, split -> new TestingPageSource(input), memoryContext);
+
+        Split first = createSplit();
+        Split second = createSplit();
+        prefetcher.splitQueued(first);
+        prefetcher.splitQueued(second);
+        prefetches.forEach(Runnable::run);
+        long pageSourceMemory = new TestingPageSource(input).getSystemMemoryUsage();
+        assertTrue(pageSourceMemory > 0);
+        assertEquals(memoryContext.getBytes(), 2 * pageSourceMemory);
+
+        // the page source is accounted by the operator once taken
+        prefetcher.claim(first).get().takePageSource();
+        assertEquals(memoryContext.getBytes(), pageSourceMemory);
+
+        prefetcher.close();
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    @Test
+    public void testTableScanReadsPrefetchedPageSource()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .addSequencePage(10, 0)
+                .build();
+        Queue<Runnable> prefetches = new ArrayDeque<>();
+        TestingPageSource pageSource = new TestingPageSource(input);
+        SplitPrefetcher prefetcher = new SplitPrefetcher(1, prefetches::add, split -> pageSource, newSimpleAggregatedMemoryContext());
+        TableScanOperatorFactory factory = new TableScanOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                (session, split, table, columns) -> {
+                    throw new AssertionError("page source should have been prefetched");
+                },
+                TESTING_TABLE_HANDLE,
+                ImmutableList.of(),
+                TupleDomain::all,
+                Optional.of(prefetcher));
+
+        Split split = createSplit();
+        factory.splitQueued(split);
+        SourceOperator operator = factory.createOperator(createTaskContext(executor, scheduledExecutor, TEST_SESSION)
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext());
+        operator.addSplit(split);
+        operator.noMoreSplits();
+
+        // the operator waits for the prefetch that is still queued
+        assertFalse(operator.isBlocked().isDone());
+        prefetches.poll().run();
+        assertTrue(operator.isBlocked().isDone());
+
+        Page page = operator.getOutput();
+        assertNotNull(page);
+        assertPageEquals(ImmutableList.of(BIGINT), page, input.get(0));
+        assertTrue(pageSource.isPrefetched());
+
+        TableScanInfo info = (TableScanInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+        assertEquals(info.getPrefetchedSplits(), 1);
+
+        operator.close();
+        factory.noMoreOperators();
+        assertTrue(pageSource.isClosed());
+    }
+
+    @Test
+    public void testScanFilterAndProjectReadsPrefetchedPageSource()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .addSequencePage(10, 0)
+                .build();
+        Queue<Runnable> prefetches = new ArrayDeque<>();
+        TestingPageSource pageSource = new TestingPageSource(input);
+        SplitPrefetcher prefetcher = new SplitPrefetcher(1, prefetches::add, split -> pageSource, newSimpleAggregatedMemoryContext());
+        ScanFilterAndProjectOperatorFactory factory = new ScanFilterAndProjectOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                new PlanNodeId("0"),
+                (session, split, table, columns) -> {
+                    throw new AssertionError("page source should have been prefetched");
+                },
+                () -> (properties, yieldSignal, cursor, pageBuilder) -> {
+                    throw new AssertionError("page source is not a record page source");
+                },
+                () -> new PageProcessor(Optional.empty(), ImmutableList.of(new PageProjectionWithOutputs(new InputPageProjection(0), new int[] {0}))),
+                TESTING_TABLE_HANDLE,
+                ImmutableList.of(),
+                ImmutableList.of(BIGINT),
+                new DataSize(0, BYTE),
+                0,
+                TupleDomain::all,
+                Optional.of(prefetcher));
+
+        Split split = createSplit();
+        factory.splitQueued(split);
+        SourceOperator operator = factory.createOperator(createTaskContext(executor, scheduledExecutor, TEST_SESSION)
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext());
+        operator.addSplit(split);
+        operator.noMoreSplits();
+
+        // the operator waits for the prefetch that is still queued
+        assertFalse(operator.isBlocked().isDone());
+        prefetches.poll().run();
+        assertTrue(operator.isBlocked().isDone());
+
+        Page page = operator.getOutput();
+        assertNotNull(page);
+        assertPageEquals(ImmutableList.of(BIGINT), page, input.get(0));
+        assertTrue(pageSource.isPrefetched());
+
+        operator.close();
+        factory.noMoreOperators();
+        assertTrue(pageSource.isClosed());
+    }
+
+    private static Split createSplit()
+    {
+        return new Split(new ConnectorId("test"), TestingTransactionHandle.create(), TestingSplit.createLocalSplit());
+    }
+
+    private static class TestingPageSource
+            extends FixedPageSource
+    {
+        private boolean prefetched;
+        private boolean closed;
+
+        public TestingPageSource()
+        {
+            this(ImmutableList.of());
+        }
+
+        public TestingPageSource(List<Page> pages)
+        {
+            super(pages);
+        }
+
+        @Override
+        public void prefetch()
+        {
+            prefetched = true;
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+
+        public boolean isPrefetched()
+        {
+            return prefetched;
+        }
+
+        public boolean isClosed()
+        {
+            return closed;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.SettableFuture;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -34,21 +35,30 @@ import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.testing.Assertions.assertEqualsIgnoreOrder;
 import static com.facebook.airlift.testing.Assertions.assertGreaterThan;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.createPagesWithDistinctHashKeys;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.finishOperatorWithYieldingGroupByHash;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.TopNRowNumberOperator.TopNRowNumberOperatorFactory;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestTopNRowNumberOperator
@@ -137,6 +147,140 @@ public class TestTopNRowNumberOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
+    @Test(dataProvider = "partial")
+    public void testPartitionedSpill(boolean partial)
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
+                .row(1L, 0.3)
+                .row(2L, 0.2)
+                .row(3L, 0.1)
+                .row(3L, 0.91)
+                .pageBreak()
+                .row(1L, 0.4)
+                .pageBreak()
+                .row(1L, 0.5)
+                .row(1L, 0.6)
+                .row(2L, 0.7)
+                .row(2L, 0.8)
+                .pageBreak()
+                .row(2L, 0.9)
+                .row(1L, 0.1)
+                .build();
+
+        DummySpillerFactory spillerFactory = new DummySpillerFactory();
+        TopNRowNumberOperatorFactory operatorFactory = new TopNRowNumberOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT, DOUBLE),
+                Ints.asList(1, 0),
+                Ints.asList(0),
+                ImmutableList.of(BIGINT),
+                Ints.asList(1),
+                ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                3,
+                partial,
+                Optional.empty(),
+                10,
+                joinCompiler,
+                true,
+                Optional.of(spillerFactory));
+
+        MaterializedResult expected;
+        if (partial) {
+            expected = resultBuilder(driverContext.getSession(), DOUBLE, BIGINT)
+                    .row(0.1, 1L)
+                    .row(0.3, 1L)
+                    .row(0.4, 1L)
+                    .row(0.2, 2L)
+                    .row(0.7, 2L)
+                    .row(0.8, 2L)
+                    .row(0.1, 3L)
+                    .row(0.91, 3L)
+                    .build();
+        }
+        else {
+            expected = resultBuilder(driverContext.getSession(), DOUBLE, BIGINT, BIGINT)
+                    .row(0.1, 1L, 1L)
+                    .row(0.3, 1L, 2L)
+                    .row(0.4, 1L, 3L)
+                    .row(0.2, 2L, 1L)
+                    .row(0.7, 2L, 2L)
+                    .row(0.8, 2L, 3L)
+                    .row(0.1, 3L, 1L)
+                    .row(0.91, 3L, 2L)
+                    .build();
+        }
+
+        // the partitions merged back from disk are produced in partition hash order
+        assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
+        assertTrue(spillerFactory.getSpillsCount() > 0, "Expected the operator to spill");
+    }
+
+    @Test
+    public void testSpillWhenFlushing()
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, DOUBLE)
+                .row(1L, 0.3)
+                .row(2L, 0.2)
+                .row(3L, 0.1)
+                .row(3L, 0.91)
+                .pageBreak()
+                .row(1L, 0.4)
+                .row(1L, 0.5)
+                .row(2L, 0.7)
+                .row(2L, 0.9)
+                .row(1L, 0.1)
+                .build();
+
+        SettableFuture<?> flushSpillFuture = SettableFuture.create();
+        DummySpillerFactory spillerFactory = new DummySpillerFactory(ImmutableList.of(immediateFuture(null), flushSpillFuture));
+        TopNRowNumberOperatorFactory operatorFactory = new TopNRowNumberOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                ImmutableList.of(BIGINT, DOUBLE),
+                Ints.asList(1, 0),
+                Ints.asList(0),
+                ImmutableList.of(BIGINT),
+                Ints.asList(1),
+                ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                3,
+                true,
+                Optional.empty(),
+                10,
+                joinCompiler,
+                true,
+                Optional.of(spillerFactory));
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+        operator.addInput(input.get(0));
+        getFutureValue(operator.startMemoryRevoke());
+        operator.finishMemoryRevoke();
+        assertEquals(spillerFactory.getSpillsCount(), 1);
+
+        // once anything was spilled, the remaining heaps are spilled when flushing and the driver is blocked on that spill
+        operator.addInput(input.get(1));
+        operator.finish();
+        assertNull(operator.getOutput());
+        assertEquals(spillerFactory.getSpillsCount(), 2);
+        assertFalse(operator.isBlocked().isDone());
+        assertFalse(operator.isFinished());
+        assertNull(operator.getOutput());
+
+        flushSpillFuture.set(null);
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), ImmutableList.of(DOUBLE, BIGINT), finishOperator(operator));
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), DOUBLE, BIGINT)
+                .row(0.1, 1L)
+                .row(0.3, 1L)
+                .row(0.4, 1L)
+                .row(0.2, 2L)
+                .row(0.7, 2L)
+                .row(0.9, 2L)
+                .row(0.1, 3L)
+                .row(0.91, 3L)
+                .build();
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
     @Test(dataProvider = "partial")
     public void testUnPartitioned(boolean partial)
     {
@@ -27,13 +27,16 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.List;
@@ -46,6 +49,7 @@ import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
+import static com.facebook.presto.operator.OperatorAssertion.finishOperator;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.WindowFunctionDefinition.window;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -60,6 +64,8 @@ import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 
 @Test(singleThreaded = true)
 public class TestWindowOperator
@@ -136,8 +142,14 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testRowNumberPartition()
+    @DataProvider
+    public static Object[][] spillEnabled()
+    {
+        return new Object[][] {{false}, {true}};
+    }
+
+    @Test(dataProvider = "spillEnabled")
+    public void testRowNumberPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(VARCHAR, BIGINT, DOUBLE, BOOLEAN)
                 .row("b", -1L, -0.1, true)
@@ -148,13 +160,18 @@ public class TestWindowOperator
                 .row("a", 6L, 0.1, true)
                 .build();
 
+        DummySpillerFactory spillerFactory = new DummySpillerFactory();
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
                 ImmutableList.of(VARCHAR, BIGINT, DOUBLE, BOOLEAN),
                 Ints.asList(0, 1, 2, 3),
                 ROW_NUMBER,
                 Ints.asList(0),
+                ImmutableList.of(),
                 Ints.asList(1),
-                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}));
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                0,
+                spillEnabled,
+                spillerFactory);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, DOUBLE, BOOLEAN, BIGINT)
                 .row("a", 2L, 0.3, false, 1L)
@@ -165,6 +182,7 @@ public class TestWindowOperator
                 .build();
 
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
     @Test
@@ -230,6 +248,60 @@ public class TestWindowOperator
         toPages(operatorFactory, driverContext, input);
     }
 
+    @Test
+    public void testSpillWhenGroupIsComplete()
+    {
+        // the group does not fit in user memory when it is complete, so it is spilled before it is output
+        List<Page> input = rowPagesBuilder(BIGINT, BIGINT)
+                .addSequencePage(100_000, 300_000, 0)
+                .addSequencePage(100_000, 200_000, 0)
+                .addSequencePage(100_000, 100_000, 0)
+                .addSequencePage(100_000, 0, 0)
+                .build();
+
+        DriverContext driverContext = createTaskContext(executor, scheduledExecutor, TEST_SESSION, new DataSize(2, Unit.MEGABYTE))
+                .addPipelineContext(0, true, true, false)
+                .addDriverContext();
+
+        SettableFuture<?> spillFuture = SettableFuture.create();
+        DummySpillerFactory spillerFactory = new DummySpillerFactory(spillFuture);
+        WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                ImmutableList.of(BIGINT, BIGINT),
+                Ints.asList(0),
+                ROW_NUMBER,
+                Ints.asList(0),
+                ImmutableList.of(),
+                Ints.asList(1),
+                ImmutableList.of(SortOrder.ASC_NULLS_LAST),
+                0,
+                true,
+                spillerFactory);
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+        for (Page page : input) {
+            operator.addInput(page);
+        }
+
+        // the driver is blocked on the spill instead of waiting for it in finish
+        operator.finish();
+        assertEquals(spillerFactory.getSpillsCount(), 1);
+        assertFalse(operator.isBlocked().isDone());
+        assertFalse(operator.isFinished());
+        assertNull(operator.getOutput());
+
+        spillFuture.set(null);
+        long expectedPartition = 0;
+        for (Page page : finishOperator(operator)) {
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                // every row is its own partition, and the partitions are read back in order
+                assertEquals(BIGINT.getLong(page.getBlock(0), position), expectedPartition);
+                assertEquals(BIGINT.getLong(page.getBlock(1), position), 1);
+                expectedPartition++;
+            }
+        }
+        assertEquals(expectedPartition, 400_000);
+    }
+
     @Test
     public void testFirstValuePartition()
     {
@@ -418,8 +490,8 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected);
     }
 
-    @Test
-    public void testPartiallyPreGroupedPartition()
+    @Test(dataProvider = "spillEnabled")
+    public void testPartiallyPreGroupedPartition(boolean spillEnabled)
     {
         List<Page> input = rowPagesBuilder(BIGINT, VARCHAR, BIGINT, VARCHAR)
                 .pageBreak()
@@ -434,6 +506,7 @@ public class TestWindowOperator
                 .pageBreak()
                 .build();
 
+        DummySpillerFactory spillerFactory = new DummySpillerFactory();
         WindowOperatorFactory operatorFactory = createFactoryUnbounded(
                 ImmutableList.of(BIGINT, VARCHAR, BIGINT, VARCHAR),
                 Ints.asList(0, 1, 2, 3),
@@ -442,7 +515,9 @@ public class TestWindowOperator
                 Ints.asList(1),
                 Ints.asList(3),
                 ImmutableList.of(SortOrder.ASC_NULLS_LAST),
-                0);
+                0,
+                spillEnabled,
+                spillerFactory);
 
         MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, VARCHAR, BIGINT)
                 .row(1L, "a", 100L, "A", 1L)
@@ -454,6 +529,7 @@ public class TestWindowOperator
                 .build();
 
         assertOperatorEqualsIgnoreOrder(operatorFactory, driverContext, input, expected);
+        assertEquals(spillerFactory.getSpillsCount() > 0, spillEnabled);
     }
 
     @Test
@@ -641,6 +717,31 @@ public class TestWindowOperator
             List<Integer> sortChannels,
             List<SortOrder> sortOrder,
             int preSortedChannelPrefix)
+    {
+        return createFactoryUnbounded(
+                sourceTypes,
+                outputChannels,
+                functions,
+                partitionChannels,
+                preGroupedChannels,
+                sortChannels,
+                sortOrder,
+                preSortedChannelPrefix,
+                false,
+                new DummySpillerFactory());
+    }
+
+    private static WindowOperatorFactory createFactoryUnbounded(
+            List<? extends Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<WindowFunctionDefinition> functions,
+            List<Integer> partitionChannels,
+            List<Integer> preGroupedChannels,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            int preSortedChannelPrefix,
+            boolean spillEnabled,
+            DummySpillerFactory spillerFactory)
     {
         return new WindowOperatorFactory(
                 0,
@@ -654,6 +755,9 @@ public class TestWindowOperator
                 sortOrder,
                 preSortedChannelPrefix,
                 10,
-                new PagesIndex.TestingFactory(false));
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                Optional.of(spillerFactory),
+                new OrderingCompiler());
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.IntArrayBlock;
+import com.facebook.presto.spi.block.LongArrayBlock;
+import com.facebook.presto.spi.block.VariableWidthBlock;
+import com.facebook.presto.spi.function.OperatorType;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static com.facebook.presto.block.BlockAssertions.createIntsBlock;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
+import static com.facebook.presto.spi.function.OperatorType.ADD;
+import static com.facebook.presto.spi.function.OperatorType.EQUAL;
+import static com.facebook.presto.spi.function.OperatorType.GREATER_THAN;
+import static com.facebook.presto.spi.function.OperatorType.GREATER_THAN_OR_EQUAL;
+import static com.facebook.presto.spi.function.OperatorType.IS_DISTINCT_FROM;
+import static com.facebook.presto.spi.function.OperatorType.LESS_THAN;
+import static com.facebook.presto.spi.function.OperatorType.LESS_THAN_OR_EQUAL;
+import static com.facebook.presto.spi.function.OperatorType.NOT_EQUAL;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestConstantComparisonPageFilter
+{
+    private static final List<OperatorType> COMPARISONS = ImmutableList.of(EQUAL, NOT_EQUAL, LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL);
+
+    @Test
+    public void testIsSupported()
+    {
+        assertTrue(ConstantComparisonPageFilter.isSupported(LESS_THAN, BIGINT));
+        assertTrue(ConstantComparisonPageFilter.isSupported(EQUAL, VARCHAR));
+        assertFalse(ConstantComparisonPageFilter.isSupported(LESS_THAN, DOUBLE));
+        assertFalse(ConstantComparisonPageFilter.isSupported(EQUAL, BOOLEAN));
+        assertFalse(ConstantComparisonPageFilter.isSupported(IS_DISTINCT_FROM, BIGINT));
+        assertFalse(ConstantComparisonPageFilter.isSupported(ADD, BIGINT));
+    }
+
+    @Test
+    public void testLongArrayBlock()
+    {
+        Long[] values = {5L, null, -3L, 7L, 5L, Long.MIN_VALUE, Long.MAX_VALUE, 0L};
+        Block block = createLongsBlock(values);
+        assertTrue(block instanceof LongArrayBlock);
+
+        for (long constant : new long[] {5L, 0L, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            for (OperatorType comparison : COMPARISONS) {
+                assertFilter(block, BIGINT, comparison, constant, position -> values[position] != null && compare(comparison, Long.compare(values[position], constant)));
+            }
+        }
+    }
+
+    @Test
+    public void testIntArrayBlock()
+    {
+        Integer[] values = {1, 2, null, 3, 2, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        Block block = createIntsBlock(values);
+        assertTrue(block instanceof IntArrayBlock);
+
+        for (long constant : new long[] {2L, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            for (OperatorType comparison : COMPARISONS) {
+                assertFilter(block, INTEGER, comparison, constant, position -> values[position] != null && compare(comparison, Long.compare(values[position], constant)));
+            }
+        }
+    }
+
+    @Test
+    public void testVariableWidthBlock()
+    {
+        String[] values = {"b", "a", null, "bb", "", "b", "c"};
+        Block block = createStringsBlock(values);
+        assertTrue(block instanceof VariableWidthBlock);
+
+        for (String constant : new String[] {"b", "", "z"}) {
+            for (OperatorType comparison : COMPARISONS) {
+                assertFilter(block, VARCHAR, comparison, utf8Slice(constant), position -> values[position] != null && compare(comparison, utf8Slice(values[position]).compareTo(utf8Slice(constant))));
+            }
+        }
+    }
+
+    @Test
+    public void testOtherBlocks()
+    {
+        Long[] dictionary = {3L, null, 1L};
+        int[] ids = {0, 1, 2, 2, 0, 1};
+        Block longs = new DictionaryBlock(createLongsBlock(dictionary), ids);
+        for (OperatorType comparison : COMPARISONS) {
+            assertFilter(longs, BIGINT, comparison, 2L, position -> dictionary[ids[position]] != null && compare(comparison, Long.compare(dictionary[ids[position]], 2L)));
+        }
+
+        String[] strings = {"x", null, "a"};
+        Block slices = new DictionaryBlock(createStringsBlock(strings), ids);
+        for (OperatorType comparison : COMPARISONS) {
+            assertFilter(slices, VARCHAR, comparison, utf8Slice("b"), position -> strings[ids[position]] != null && compare(comparison, utf8Slice(strings[ids[position]]).compareTo(utf8Slice("b"))));
+        }
+    }
+
+    @Test
+    public void testReuseAcrossPages()
+    {
+        ConstantComparisonPageFilter filter = new ConstantComparisonPageFilter(0, LESS_THAN, BIGINT, 3L);
+        SelectedPositions first = filter.filter(SESSION.getSqlFunctionProperties(), new Page(createLongsBlock(1L, 5L, 2L)));
+        SelectedPositions second = filter.filter(SESSION.getSqlFunctionProperties(), new Page(createLongsBlock(5L, 1L, 5L)));
+        assertEquals(toPositions(first), new int[] {0, 2});
+        assertEquals(toPositions(second), new int[] {1});
+    }
+
+    private static void assertFilter(Block block, Type type, OperatorType comparison, Object constant, IntPredicate expected)
+    {
+        ConstantComparisonPageFilter filter = new ConstantComparisonPageFilter(3, comparison, type, constant);
+        assertTrue(filter.isDeterministic());
+        assertEquals(filter.getInputChannels().getInputChannels(), ImmutableList.of(3));
+
+        SelectedPositions selectedPositions = filter.filter(SESSION.getSqlFunctionProperties(), new Page(block));
+        int[] expectedPositions = IntStream.range(0, block.getPositionCount())
+                .filter(expected)
+                .toArray();
+        assertEquals(toPositions(selectedPositions), expectedPositions, comparison + " " + constant);
+    }
+
+    private static boolean compare(OperatorType comparison, int compare)
+    {
+        switch (comparison) {
+            case EQUAL:
+                return compare == 0;
+            case NOT_EQUAL:
+                return compare != 0;
+            case LESS_THAN:
+                return compare < 0;
+            case LESS_THAN_OR_EQUAL:
+                return compare <= 0;
+            case GREATER_THAN:
+                return compare > 0;
+            case GREATER_THAN_OR_EQUAL:
+                return compare >= 0;
+            default:
+                throw new IllegalArgumentException("Unsupported comparison: " + comparison);
+        }
+    }
+
+    private static int[] toPositions(SelectedPositions selectedPositions)
+    {
+        if (selectedPositions.isList()) {
+            return Arrays.copyOfRange(selectedPositions.getPositions(), selectedPositions.getOffset(), selectedPositions.getOffset() + selectedPositions.size());
+        }
+        return IntStream.range(selectedPositions.getOffset(), selectedPositions.getOffset() + selectedPositions.size()).toArray();
+    }
+}
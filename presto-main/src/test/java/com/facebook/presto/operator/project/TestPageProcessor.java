@@ -383,6 +383,35 @@ public class TestPageProcessor
         assertFalse(output.hasNext());
     }
 
+    @Test
+    public void testYieldCommonSubExpression()
+    {
+        DriverYieldSignal yieldSignal = new DriverYieldSignal();
+        PageProcessor pageProcessor = new PageProcessor(
+                Optional.empty(),
+                Optional.of(new CommonSubExpressionChannels(ImmutableList.of(new InputPageProjection(0), new YieldUntilResetPageProjection(new InputPageProjection(0))), 1)),
+                ImmutableList.of(createInputPageProjectionWithOutputs(1, BIGINT, 0), createInputPageProjectionWithOutputs(2, BIGINT, 1)),
+                OptionalInt.of(MAX_BATCH_SIZE));
+
+        Page inputPage = new Page(createLongSequenceBlock(0, 100));
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext(PageProcessor.class.getSimpleName());
+
+        yieldSignal.forceYieldForTesting();
+        Iterator<Optional<Page>> output = pageProcessor.process(SESSION.getSqlFunctionProperties(), yieldSignal, memoryContext, inputPage);
+        assertTrue(output.hasNext());
+        assertNull(output.next().orElse(null));
+        // the first sub-expression is retained while the second one yields
+        assertEquals(memoryContext.getBytes(), inputPage.getBlock(0).getRetainedSizeInBytes());
+
+        yieldSignal.resetYieldForTesting();
+        assertTrue(output.hasNext());
+        Page actualPage = output.next().orElse(null);
+        assertNotNull(actualPage);
+        assertPageEquals(ImmutableList.of(BIGINT, BIGINT), actualPage, new Page(inputPage.getBlock(0), inputPage.getBlock(0)));
+        assertFalse(output.hasNext());
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
     @Test
     public void testExpressionProfiler()
     {
@@ -596,6 +625,38 @@ public class TestPageProcessor
         }
     }
 
+    /**
+     * Does not complete while the yield signal is set, like the compiled projections.
+     */
+    private static class YieldUntilResetPageProjection
+            extends InvocationCountPageProjection
+    {
+        public YieldUntilResetPageProjection(PageProjection delegate)
+        {
+            super(delegate);
+        }
+
+        @Override
+        public Work<List<Block>> project(SqlFunctionProperties properties, DriverYieldSignal yieldSignal, Page page, SelectedPositions selectedPositions)
+        {
+            Work<List<Block>> work = delegate.project(properties, yieldSignal, page, selectedPositions);
+            return new Work<List<Block>>()
+            {
+                @Override
+                public boolean process()
+                {
+                    return !yieldSignal.isSet() && work.process();
+                }
+
+                @Override
+                public List<Block> getResult()
+                {
+                    return work.getResult();
+                }
+            };
+        }
+    }
+
     public static class LazyPagePageProjection
             implements PageProjection
     {
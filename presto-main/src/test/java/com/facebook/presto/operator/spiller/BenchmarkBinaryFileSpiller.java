@@ -14,12 +14,14 @@
 package com.facebook.presto.operator.spiller;
 
 import com.facebook.presto.block.BlockEncodingManager;
+import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spiller.FileSingleStreamSpillerFactory;
 import com.facebook.presto.spiller.GenericSpillerFactory;
+import com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode;
 import com.facebook.presto.spiller.Spiller;
 import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.spiller.SpillerStats;
@@ -30,6 +32,7 @@ import io.airlift.tpch.LineItem;
 import io.airlift.tpch.LineItemGenerator;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Param;
@@ -63,6 +66,7 @@ public class BenchmarkBinaryFileSpiller
     private static final List<Type> TYPES = ImmutableList.of(BIGINT, BIGINT, DOUBLE, createUnboundedVarcharType(), DOUBLE);
     private static final BlockEncodingSerde BLOCK_ENCODING_MANAGER = new BlockEncodingManager(new TypeRegistry());
     private static final Path SPILL_PATH = Paths.get(System.getProperty("java.io.tmpdir"), "spills");
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
 
     @Benchmark
     public void write(BenchmarkData data)
@@ -74,7 +78,7 @@ public class BenchmarkBinaryFileSpiller
     }
 
     @Benchmark
-    public void read(BenchmarkData data)
+    public void read(ReadBenchmarkData data)
     {
         List<Iterator<Page>> spills = data.getReadSpiller().getSpills();
         for (Iterator<Page> spill : spills) {
@@ -102,8 +106,10 @@ public class BenchmarkBinaryFileSpiller
         @Param("false")
         private boolean encryptionEnabled;
 
+        @Param({"STREAM", "POSITIONAL", "MEMORY_MAPPED"})
+        private SpillReadMode readMode = SpillReadMode.STREAM;
+
         private List<Page> pages;
-        private Spiller readSpiller;
 
         private FileSingleStreamSpillerFactory singleStreamSpillerFactory;
         private SpillerFactory spillerFactory;
@@ -114,22 +120,20 @@ public class BenchmarkBinaryFileSpiller
         {
             singleStreamSpillerFactory = new FileSingleStreamSpillerFactory(
                     MoreExecutors.newDirectExecutorService(),
-                    BLOCK_ENCODING_MANAGER,
+                    new PagesSerdeFactory(BLOCK_ENCODING_MANAGER, compressionEnabled),
                     spillerStats,
                     ImmutableList.of(SPILL_PATH),
                     1.0,
-                    compressionEnabled,
-                    encryptionEnabled);
+                    encryptionEnabled,
+                    readMode,
+                    READ_BUFFER_SIZE);
             spillerFactory = new GenericSpillerFactory(singleStreamSpillerFactory);
             pages = createInputPages();
-            readSpiller = spillerFactory.create(TYPES, bytes -> {}, newSimpleAggregatedMemoryContext());
-            readSpiller.spill(pages.iterator()).get();
         }
 
         @TearDown
         public void tearDown()
         {
-            readSpiller.close();
             singleStreamSpillerFactory.destroy();
         }
 
@@ -163,14 +167,35 @@ public class BenchmarkBinaryFileSpiller
             return pages;
         }
 
-        public Spiller getReadSpiller()
+        public Spiller createSpiller()
         {
-            return readSpiller;
+            return spillerFactory.create(TYPES, bytes -> {}, newSimpleAggregatedMemoryContext());
         }
+    }
 
-        public Spiller createSpiller()
+    @State(Scope.Thread)
+    public static class ReadBenchmarkData
+    {
+        private Spiller readSpiller;
+
+        // spilled pages can be read only once
+        @Setup(Level.Invocation)
+        public void setup(BenchmarkData data)
+                throws ExecutionException, InterruptedException
         {
-            return spillerFactory.create(TYPES, bytes -> {}, newSimpleAggregatedMemoryContext());
+            readSpiller = data.createSpiller();
+            readSpiller.spill(data.getPages().iterator()).get();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown()
+        {
+            readSpiller.close();
+        }
+
+        public Spiller getReadSpiller()
+        {
+            return readSpiller;
         }
     }
 }
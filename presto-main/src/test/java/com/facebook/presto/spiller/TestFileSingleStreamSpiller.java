@@ -14,6 +14,9 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.presto.block.BlockEncodingManager;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
+import com.facebook.presto.execution.buffer.PageCompressionStats;
+import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.PageAssertions;
 import com.facebook.presto.spi.Page;
@@ -22,6 +25,7 @@ import com.facebook.presto.spi.page.PageCodecMarker;
 import com.facebook.presto.spi.page.PagesSerdeUtil;
 import com.facebook.presto.spi.page.SerializedPage;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode;
 import com.facebook.presto.type.TypeRegistry;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
@@ -36,14 +40,23 @@ import java.io.InputStream;
 import java.util.Iterator;
 import java.util.List;
 
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.LZ4;
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.NONE;
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.SNAPPY;
+import static com.facebook.presto.execution.buffer.PageCompressionCodec.ZSTD;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.MEMORY_MAPPED;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.POSITIONAL;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.STREAM;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.MoreFiles.listFiles;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
 import static java.lang.Double.doubleToLongBits;
 import static java.nio.file.Files.newInputStream;
 import static java.util.concurrent.Executors.newCachedThreadPool;
@@ -53,6 +66,9 @@ import static org.testng.Assert.assertTrue;
 public class TestFileSingleStreamSpiller
 {
     private static final List<Type> TYPES = ImmutableList.of(BIGINT, DOUBLE, VARBINARY);
+    // smaller than a page, so that positional reads have to grow the buffer
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int PAGE_HEADER_SIZE = SIZE_OF_INT + SIZE_OF_BYTE + SIZE_OF_INT + SIZE_OF_INT;
 
     private final ListeningExecutorService executor = listeningDecorator(newCachedThreadPool());
     private final File spillPath = Files.createTempDir();
@@ -94,17 +110,66 @@ public class TestFileSingleStreamSpiller
         assertSpill(true, true);
     }
 
+    @Test
+    public void testSpillSnappyCompression()
+            throws Exception
+    {
+        assertSpill(SNAPPY, false);
+    }
+
+    @Test
+    public void testSpillZstdCompression()
+            throws Exception
+    {
+        assertSpill(ZSTD, false);
+        assertSpill(ZSTD, true);
+    }
+
+    @Test
+    public void testPositionalRead()
+            throws Exception
+    {
+        assertSpill(NONE, false, POSITIONAL);
+        assertSpill(LZ4, false, POSITIONAL);
+        assertSpill(NONE, true, POSITIONAL);
+    }
+
+    @Test
+    public void testMemoryMappedRead()
+            throws Exception
+    {
+        assertSpill(NONE, false, MEMORY_MAPPED);
+        assertSpill(ZSTD, false, MEMORY_MAPPED);
+        assertSpill(NONE, true, MEMORY_MAPPED);
+    }
+
     private void assertSpill(boolean compression, boolean encryption)
             throws Exception
     {
+        assertSpill(compression ? LZ4 : NONE, encryption);
+    }
+
+    private void assertSpill(PageCompressionCodec compressionCodec, boolean encryption)
+            throws Exception
+    {
+        assertSpill(compressionCodec, encryption, STREAM);
+    }
+
+    private void assertSpill(PageCompressionCodec compressionCodec, boolean encryption, SpillReadMode readMode)
+            throws Exception
+    {
+        boolean compression = compressionCodec != NONE;
+        PageCompressionStats compressionStats = new PageCompressionStats();
+        SpillerStats spillerStats = new SpillerStats();
         FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
                 executor, // executor won't be closed, because we don't call destroy() on the spiller factory
-                new BlockEncodingManager(new TypeRegistry()),
-                new SpillerStats(),
+                new PagesSerdeFactory(new BlockEncodingManager(new TypeRegistry()), compressionCodec, 1, compressionStats),
+                spillerStats,
                 ImmutableList.of(spillPath.toPath()),
                 1.0,
-                compression,
-                encryption);
+                encryption,
+                readMode,
+                READ_BUFFER_SIZE);
         LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
         SingleStreamSpiller singleStreamSpiller = spillerFactory.create(TYPES, bytes -> {}, memoryContext);
         assertTrue(singleStreamSpiller instanceof FileSingleStreamSpiller);
@@ -125,6 +190,10 @@ public class TestFileSingleStreamSpiller
             byte markers = serializedPages.next().getPageCodecMarkers();
             assertEquals(PageCodecMarker.COMPRESSED.isSet(markers), compression);
             assertEquals(PageCodecMarker.ENCRYPTED.isSet(markers), encryption);
+            if (compression) {
+                assertEquals(PageCodecMarker.codecMarkers(markers), compressionCodec.getCodecMarkers());
+                assertEquals(compressionStats.getCodecStats(compressionCodec).getCompressedPages(), 4);
+            }
         }
 
         // The spillers release their memory reservations when they are closed, therefore at this point
@@ -132,8 +201,16 @@ public class TestFileSingleStreamSpiller
         // assertEquals(memoryContext.getBytes(), 0);
 
         Iterator<Page> spilledPagesIterator = spiller.getSpilledPages();
-        assertEquals(memoryContext.getBytes(), FileSingleStreamSpiller.BUFFER_SIZE);
+        long readBufferSize = getReadBufferSize(readMode);
+        assertEquals(memoryContext.getBytes(), readBufferSize);
         ImmutableList<Page> spilledPages = ImmutableList.copyOf(spilledPagesIterator);
+        if (readMode == POSITIONAL) {
+            // the buffer grows to fit the pages
+            assertTrue(memoryContext.getBytes() > READ_BUFFER_SIZE);
+        }
+        else {
+            assertEquals(memoryContext.getBytes(), readBufferSize);
+        }
         // The spillers release their memory reservations when they are closed, therefore at this point
         // they will have non-zero memory reservation.
         // assertEquals(memoryContext.getBytes(), 0);
@@ -143,11 +220,29 @@ public class TestFileSingleStreamSpiller
             PageAssertions.assertPageEquals(TYPES, page, spilledPages.get(i));
         }
 
+        if (compression) {
+            assertEquals(compressionStats.getCodecStats(compressionCodec).getDecompressedPages(), 4);
+        }
+        assertEquals(spillerStats.getTotalUnspilledBytes(), spillerStats.getTotalSpilledBytes() + 4 * PAGE_HEADER_SIZE);
+
         spiller.close();
         assertEquals(listFiles(spillPath.toPath()).size(), 0);
         assertEquals(memoryContext.getBytes(), 0);
     }
 
+    private static long getReadBufferSize(SpillReadMode readMode)
+    {
+        switch (readMode) {
+            case STREAM:
+                return FileSingleStreamSpiller.BUFFER_SIZE;
+            case POSITIONAL:
+                return READ_BUFFER_SIZE;
+            case MEMORY_MAPPED:
+                return 0;
+        }
+        throw new IllegalArgumentException("Unsupported read mode: " + readMode);
+    }
+
     private Page buildPage()
     {
         BlockBuilder col1 = BIGINT.createBlockBuilder(null, 1);
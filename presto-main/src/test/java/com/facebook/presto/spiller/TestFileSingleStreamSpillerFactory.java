@@ -14,6 +14,7 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.presto.block.BlockEncodingManager;
+import com.facebook.presto.execution.buffer.PagesSerdeFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
@@ -21,14 +22,15 @@ import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.type.TypeRegistry;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Closer;
-import com.google.common.io.Files;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import io.airlift.units.Duration;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,12 +40,18 @@ import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimp
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
 import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode.STREAM;
+import static com.google.common.io.Files.createTempDir;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.MoreFiles.listFiles;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static com.google.common.util.concurrent.Futures.getUnchecked;
 import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestFileSingleStreamSpillerFactory
@@ -58,9 +66,9 @@ public class TestFileSingleStreamSpillerFactory
     {
         executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
         closer.register(() -> executor.shutdownNow());
-        spillPath1 = Files.createTempDir();
+        spillPath1 = createTempDir();
         closer.register(() -> deleteRecursively(spillPath1.toPath(), ALLOW_INSECURE));
-        spillPath2 = Files.createTempDir();
+        spillPath2 = createTempDir();
         closer.register(() -> deleteRecursively(spillPath2.toPath(), ALLOW_INSECURE));
     }
 
@@ -105,6 +113,183 @@ public class TestFileSingleStreamSpillerFactory
         assertEquals(listFiles(spillPath2.toPath()).size(), 0);
     }
 
+    @Test
+    public void testAvoidsUnhealthyAndBusyPaths()
+            throws Exception
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                new BlockEncodingManager(new TypeRegistry()),
+                new SpillerStats(),
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0,
+                false,
+                false);
+        SpillPathStats pathStats1 = spillerFactory.getSpillPathStats().get(0);
+
+        List<SingleStreamSpiller> spillers = new ArrayList<>();
+        pathStats1.recordFailure();
+        assertTrue(pathStats1.isQuarantined());
+        for (int i = 0; i < 4; ++i) {
+            spillers.add(spillerFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test")));
+        }
+        assertEquals(listFiles(spillPath1.toPath()).size(), 0);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 4);
+        assertEquals(pathStats1.getWriteFailures(), 1);
+
+        // a path with queued writes is skipped while a less busy one is available
+        FileSingleStreamSpillerFactory busyFactory = new FileSingleStreamSpillerFactory(
+                executor,
+                new BlockEncodingManager(new TypeRegistry()),
+                new SpillerStats(),
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0,
+                false,
+                false);
+        busyFactory.getSpillPathStats().get(1).writeQueued();
+        for (int i = 0; i < 3; ++i) {
+            spillers.add(busyFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test")));
+        }
+        assertEquals(listFiles(spillPath1.toPath()).size(), 3);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 4);
+
+        spillers.forEach(SingleStreamSpiller::close);
+    }
+
+    @Test
+    public void testAvoidsSlowPaths()
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                new PagesSerdeFactory(new BlockEncodingManager(new TypeRegistry()), false),
+                new SpillerStats(),
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0,
+                false,
+                STREAM,
+                FileSingleStreamSpiller.BUFFER_SIZE,
+                new Duration(1, MINUTES),
+                2.0);
+        SpillPathStats pathStats1 = spillerFactory.getSpillPathStats().get(0);
+        SpillPathStats pathStats2 = spillerFactory.getSpillPathStats().get(1);
+
+        // the spillers below don't write, so the recorded latencies don't change
+        pathStats1.recordWrite(1024 * 1024, MILLISECONDS.toNanos(30));
+        pathStats2.recordWrite(1024 * 1024, MILLISECONDS.toNanos(10));
+        List<SingleStreamSpiller> spillers = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            spillers.add(spillerFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test")));
+        }
+        assertEquals(listFiles(spillPath1.toPath()).size(), 0);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 4);
+
+        // the latency decays towards the recent writes, so the path is used again once it is within the ratio
+        for (int i = 0; i < 5; ++i) {
+            pathStats1.recordWrite(1024 * 1024, MILLISECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 2; ++i) {
+            spillers.add(spillerFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test")));
+        }
+        assertEquals(listFiles(spillPath1.toPath()).size(), 1);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 5);
+
+        spillers.forEach(SingleStreamSpiller::close);
+    }
+
+    @Test
+    public void testSlowPathLatencyExpires()
+            throws Exception
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                new PagesSerdeFactory(new BlockEncodingManager(new TypeRegistry()), false),
+                new SpillerStats(),
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0,
+                false,
+                STREAM,
+                FileSingleStreamSpiller.BUFFER_SIZE,
+                new Duration(100, MILLISECONDS),
+                2.0);
+        SpillPathStats pathStats1 = spillerFactory.getSpillPathStats().get(0);
+        SpillPathStats pathStats2 = spillerFactory.getSpillPathStats().get(1);
+
+        pathStats1.recordWrite(1024 * 1024, MILLISECONDS.toNanos(30));
+        pathStats2.recordWrite(1024 * 1024, MILLISECONDS.toNanos(10));
+        MILLISECONDS.sleep(200);
+
+        // the slow path gets no writes, but its latency is forgotten and it is tried again
+        pathStats2.recordWrite(1024 * 1024, MILLISECONDS.toNanos(10));
+        assertEquals(pathStats1.getWriteLatencyNanosPerUnit(), 0.0);
+        List<SingleStreamSpiller> spillers = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            spillers.add(spillerFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test")));
+        }
+        assertEquals(listFiles(spillPath1.toPath()).size(), 1);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 1);
+
+        spillers.forEach(SingleStreamSpiller::close);
+    }
+
+    @Test
+    public void testRetriesOnOtherPathWhenFreeSpaceCannotBeDetermined()
+            throws Exception
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                new BlockEncodingManager(new TypeRegistry()),
+                new SpillerStats(),
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0,
+                false,
+                false);
+        // the file store of a missing path can't be determined
+        deleteRecursively(spillPath1.toPath(), ALLOW_INSECURE);
+
+        SingleStreamSpiller spiller = spillerFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"));
+        assertEquals(listFiles(spillPath2.toPath()).size(), 1);
+        SpillPathStats pathStats1 = spillerFactory.getSpillPathStats().get(0);
+        assertTrue(pathStats1.isQuarantined());
+        assertEquals(pathStats1.getWriteFailures(), 1);
+        spiller.close();
+        Files.createDirectory(spillPath1.toPath());
+    }
+
+    @Test
+    public void testRetriesOnOtherPathWhenSpillFileCannotBeCreated()
+            throws Exception
+    {
+        List<Type> types = ImmutableList.of(BIGINT);
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                new BlockEncodingManager(new TypeRegistry()),
+                new SpillerStats(),
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0,
+                false,
+                false);
+        // spill files can't be created in a regular file
+        deleteRecursively(spillPath1.toPath(), ALLOW_INSECURE);
+        Files.createFile(spillPath1.toPath());
+
+        SingleStreamSpiller spiller = spillerFactory.create(types, bytes -> {}, newSimpleAggregatedMemoryContext().newLocalMemoryContext("test"));
+        getUnchecked(spiller.spill(buildPage()));
+        assertEquals(listFiles(spillPath2.toPath()).size(), 1);
+
+        SpillPathStats pathStats1 = spillerFactory.getSpillPathStats().get(0);
+        SpillPathStats pathStats2 = spillerFactory.getSpillPathStats().get(1);
+        assertTrue(pathStats1.isQuarantined());
+        assertEquals(pathStats1.getWriteFailures(), 1);
+        assertFalse(pathStats2.isQuarantined());
+        assertEquals(pathStats2.getActiveWrites(), 0);
+        assertTrue(pathStats2.getBytesWritten() > 0);
+        spiller.close();
+    }
+
     private Page buildPage()
     {
         BlockBuilder col1 = BIGINT.createBlockBuilder(null, 1);
@@ -155,12 +340,12 @@ public class TestFileSingleStreamSpillerFactory
         spillPath1.mkdirs();
         spillPath2.mkdirs();
 
-        java.nio.file.Files.createTempFile(spillPath1.toPath(), SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
-        java.nio.file.Files.createTempFile(spillPath1.toPath(), SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
-        java.nio.file.Files.createTempFile(spillPath1.toPath(), SPILL_FILE_PREFIX, "blah");
-        java.nio.file.Files.createTempFile(spillPath2.toPath(), SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
-        java.nio.file.Files.createTempFile(spillPath2.toPath(), "blah", SPILL_FILE_SUFFIX);
-        java.nio.file.Files.createTempFile(spillPath2.toPath(), "blah", "blah");
+        Files.createTempFile(spillPath1.toPath(), SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+        Files.createTempFile(spillPath1.toPath(), SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+        Files.createTempFile(spillPath1.toPath(), SPILL_FILE_PREFIX, "blah");
+        Files.createTempFile(spillPath2.toPath(), SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+        Files.createTempFile(spillPath2.toPath(), "blah", SPILL_FILE_SUFFIX);
+        Files.createTempFile(spillPath2.toPath(), "blah", "blah");
 
         assertEquals(listFiles(spillPath1.toPath()).size(), 3);
         assertEquals(listFiles(spillPath2.toPath()).size(), 3);
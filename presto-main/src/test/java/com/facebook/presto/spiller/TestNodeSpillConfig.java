@@ -14,6 +14,8 @@
 package com.facebook.presto.spiller;
 
 import com.facebook.airlift.configuration.testing.ConfigAssertions;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
+import com.facebook.presto.spiller.NodeSpillConfig.SpillReadMode;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
@@ -23,6 +25,7 @@ import java.util.Map;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 public class TestNodeSpillConfig
@@ -34,7 +37,11 @@ public class TestNodeSpillConfig
                 .setMaxSpillPerNode(new DataSize(100, GIGABYTE))
                 .setQueryMaxSpillPerNode(new DataSize(100, GIGABYTE))
                 .setSpillCompressionEnabled(false)
-                .setSpillEncryptionEnabled(false));
+                .setSpillCompressionCodec(PageCompressionCodec.LZ4)
+                .setSpillZstdCompressionLevel(3)
+                .setSpillEncryptionEnabled(false)
+                .setSpillReadMode(SpillReadMode.STREAM)
+                .setSpillReadBufferSize(new DataSize(64, KILOBYTE)));
     }
 
     @Test
@@ -44,14 +51,22 @@ public class TestNodeSpillConfig
                 .put("experimental.max-spill-per-node", "10MB")
                 .put("experimental.query-max-spill-per-node", "15 MB")
                 .put("experimental.spill-compression-enabled", "true")
+                .put("experimental.spill-compression-codec", "ZSTD")
+                .put("experimental.spill-zstd-compression-level", "1")
                 .put("experimental.spill-encryption-enabled", "true")
+                .put("experimental.spill-read-mode", "MEMORY_MAPPED")
+                .put("experimental.spill-read-buffer-size", "1MB")
                 .build();
 
         NodeSpillConfig expected = new NodeSpillConfig()
                 .setMaxSpillPerNode(new DataSize(10, MEGABYTE))
                 .setQueryMaxSpillPerNode(new DataSize(15, MEGABYTE))
                 .setSpillCompressionEnabled(true)
-                .setSpillEncryptionEnabled(true);
+                .setSpillCompressionCodec(PageCompressionCodec.ZSTD)
+                .setSpillZstdCompressionLevel(1)
+                .setSpillEncryptionEnabled(true)
+                .setSpillReadMode(SpillReadMode.MEMORY_MAPPED)
+                .setSpillReadBufferSize(new DataSize(1, MEGABYTE));
 
         assertFullMapping(properties, expected);
     }
@@ -15,6 +15,7 @@ package com.facebook.presto.sql.analyzer;
 
 import com.facebook.airlift.configuration.ConfigurationFactory;
 import com.facebook.airlift.configuration.testing.ConfigAssertions;
+import com.facebook.presto.execution.buffer.PageCompressionCodec;
 import com.facebook.presto.operator.aggregation.arrayagg.ArrayAggGroupImplementation;
 import com.facebook.presto.operator.aggregation.histogram.HistogramGroupImplementation;
 import com.facebook.presto.operator.aggregation.multimapagg.MultimapAggGroupImplementation;
@@ -57,6 +58,7 @@ public class TestFeaturesConfig
                 .setDistributedIndexJoinsEnabled(false)
                 .setJoinDistributionType(PARTITIONED)
                 .setJoinMaxBroadcastTableSize(null)
+                .setJoinMaxBroadcastBuildSize(null)
                 .setGroupedExecutionForAggregationEnabled(false)
                 .setGroupedExecutionForEligibleTableScansEnabled(false)
                 .setDynamicScheduleForGroupedExecutionEnabled(false)
@@ -90,6 +92,8 @@ public class TestFeaturesConfig
                 .setSpillerSpillPaths("")
                 .setSpillerThreads(4)
                 .setSpillMaxUsedSpaceThreshold(0.9)
+                .setSpillPathQuarantineDuration(new Duration(1, MINUTES))
+                .setSpillSlowPathLatencyRatio(4.0)
                 .setMemoryRevokingThreshold(0.9)
                 .setMemoryRevokingTarget(0.5)
                 .setOptimizeMixedDistinctAggregations(false)
@@ -101,6 +105,8 @@ public class TestFeaturesConfig
                 .setPrintStatsForNonJoinQuery(false)
                 .setDefaultFilterFactorEnabled(false)
                 .setExchangeCompressionEnabled(false)
+                .setExchangeCompressionCodec(PageCompressionCodec.LZ4)
+                .setExchangeZstdCompressionLevel(3)
                 .setLegacyTimestamp(true)
                 .setLegacyRowFieldOrdinalAccess(false)
                 .setLegacyCharToVarcharCoercion(false)
@@ -132,7 +138,19 @@ public class TestFeaturesConfig
                 .setPartitioningPrecisionStrategy(PartitioningPrecisionStrategy.AUTOMATIC)
                 .setExperimentalFunctionsEnabled(false)
                 .setUseLegacyScheduler(true)
-                .setOptimizeCommonSubExpressions(true));
+                .setOptimizeCommonSubExpressions(true)
+                .setEnableDynamicFiltering(false)
+                .setDynamicFilteringMaxPerDriverValueCount(10_000)
+                .setOrderBySpillEnabled(true)
+                .setWindowSpillEnabled(true)
+                .setAdaptivePartialAggregationEnabled(false)
+                .setAdaptivePartialAggregationUniqueRowsRatioThreshold(0.8)
+                .setFragmentResultCachingEnabled(false)
+                .setSemiJoinSpillEnabled(true)
+                .setSkewedJoinSaltFactor(8)
+                .setTopNRowNumberSpillEnabled(true)
+                .setOptimizeFilterProjectionCommonSubExpressions(false)
+                .setTableScanSplitPrefetchCount(0));
     }
 
     @Test
@@ -157,6 +175,7 @@ public class TestFeaturesConfig
                 .put("distributed-index-joins-enabled", "true")
                 .put("join-distribution-type", "BROADCAST")
                 .put("join-max-broadcast-table-size", "42GB")
+                .put("join-max-broadcast-build-size", "2GB")
                 .put("grouped-execution-for-aggregation-enabled", "true")
                 .put("experimental.grouped-execution-for-eligible-table-scans-enabled", "true")
                 .put("dynamic-schedule-for-grouped-execution", "true")
@@ -189,9 +208,13 @@ public class TestFeaturesConfig
                 .put("experimental.spiller-spill-path", "/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .put("experimental.spiller-threads", "42")
                 .put("experimental.spiller-max-used-space-threshold", "0.8")
+                .put("experimental.spiller-path-quarantine-duration", "5m")
+                .put("experimental.spiller-slow-path-latency-ratio", "2.5")
                 .put("experimental.memory-revoking-threshold", "0.2")
                 .put("experimental.memory-revoking-target", "0.8")
                 .put("exchange.compression-enabled", "true")
+                .put("exchange.compression-codec", "ZSTD")
+                .put("exchange.zstd-compression-level", "9")
                 .put("deprecated.legacy-timestamp", "false")
                 .put("optimizer.enable-intermediate-aggregations", "true")
                 .put("parse-decimal-literals-as-double", "true")
@@ -221,6 +244,18 @@ public class TestFeaturesConfig
                 .put("experimental-functions-enabled", "true")
                 .put("use-legacy-scheduler", "false")
                 .put("optimize-common-sub-expressions", "false")
+                .put("experimental.enable-dynamic-filtering", "true")
+                .put("experimental.dynamic-filtering-max-per-driver-value-count", "256")
+                .put("experimental.order-by-spill-enabled", "false")
+                .put("experimental.window-spill-enabled", "false")
+                .put("experimental.adaptive-partial-aggregation", "true")
+                .put("experimental.adaptive-partial-aggregation-unique-rows-ratio-threshold", "0.5")
+                .put("experimental.fragment-result-caching-enabled", "true")
+                .put("experimental.semi-join-spill-enabled", "false")
+                .put("optimizer.skewed-join-salt-factor", "4")
+                .put("experimental.topn-row-number-spill-enabled", "false")
+                .put("optimize-filter-projection-common-sub-expressions", "true")
+                .put("table-scan-split-prefetch-count", "4")
                 .build();
 
         FeaturesConfig expected = new FeaturesConfig()
@@ -235,6 +270,7 @@ public class TestFeaturesConfig
                 .setDistributedIndexJoinsEnabled(true)
                 .setJoinDistributionType(BROADCAST)
                 .setJoinMaxBroadcastTableSize(new DataSize(42, GIGABYTE))
+                .setJoinMaxBroadcastBuildSize(new DataSize(2, GIGABYTE))
                 .setGroupedExecutionForAggregationEnabled(true)
                 .setGroupedExecutionForEligibleTableScansEnabled(true)
                 .setDynamicScheduleForGroupedExecutionEnabled(true)
@@ -270,10 +306,14 @@ public class TestFeaturesConfig
                 .setSpillerSpillPaths("/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .setSpillerThreads(42)
                 .setSpillMaxUsedSpaceThreshold(0.8)
+                .setSpillPathQuarantineDuration(new Duration(5, MINUTES))
+                .setSpillSlowPathLatencyRatio(2.5)
                 .setMemoryRevokingThreshold(0.2)
                 .setMemoryRevokingTarget(0.8)
                 .setLegacyLogFunction(true)
                 .setExchangeCompressionEnabled(true)
+                .setExchangeCompressionCodec(PageCompressionCodec.ZSTD)
+                .setExchangeZstdCompressionLevel(9)
                 .setLegacyTimestamp(false)
                 .setLegacyRowFieldOrdinalAccess(true)
                 .setLegacyCharToVarcharCoercion(true)
@@ -305,7 +345,19 @@ public class TestFeaturesConfig
                 .setPartitioningPrecisionStrategy(PartitioningPrecisionStrategy.PREFER_EXACT_PARTITIONING)
                 .setExperimentalFunctionsEnabled(true)
                 .setUseLegacyScheduler(false)
-                .setOptimizeCommonSubExpressions(false);
+                .setOptimizeCommonSubExpressions(false)
+                .setEnableDynamicFiltering(true)
+                .setDynamicFilteringMaxPerDriverValueCount(256)
+                .setOrderBySpillEnabled(false)
+                .setWindowSpillEnabled(false)
+                .setAdaptivePartialAggregationEnabled(true)
+                .setAdaptivePartialAggregationUniqueRowsRatioThreshold(0.5)
+                .setFragmentResultCachingEnabled(true)
+                .setSemiJoinSpillEnabled(false)
+                .setSkewedJoinSaltFactor(4)
+                .setTopNRowNumberSpillEnabled(false)
+                .setOptimizeFilterProjectionCommonSubExpressions(true)
+                .setTableScanSplitPrefetchCount(4);
         assertFullMapping(properties, expected);
     }
 
@@ -16,7 +16,9 @@ package com.facebook.presto.sql.gen;
 import com.facebook.presto.metadata.FunctionManager;
 import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.operator.DriverYieldSignal;
+import com.facebook.presto.operator.project.PageFilter;
 import com.facebook.presto.operator.project.PageProcessor;
+import com.facebook.presto.operator.project.SelectedPositions;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.Block;
@@ -52,6 +54,7 @@ import static com.facebook.presto.spi.function.OperatorType.LESS_THAN;
 import static com.facebook.presto.spi.function.OperatorType.LESS_THAN_OR_EQUAL;
 import static com.facebook.presto.spi.function.OperatorType.MULTIPLY;
 import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.AND;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.spi.type.DateType.DATE;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
@@ -82,6 +85,10 @@ public class BenchmarkPageProcessor
     private Page inputPage;
     private PageProcessor compiledProcessor;
 
+    private Page quantityPage;
+    private PageFilter constantComparisonFilter;
+    private PageFilter generatedComparisonFilter;
+
     @Setup
     public void setup()
     {
@@ -92,6 +99,18 @@ public class BenchmarkPageProcessor
         compiledProcessor = new ExpressionCompiler(metadata, new PageFunctionCompiler(metadata, 0))
                 .compilePageProcessor(TEST_SESSION.getSqlFunctionProperties(), Optional.of(createFilterExpression(functionManager)), ImmutableList.of(createProjectExpression(functionManager)))
                 .get();
+
+        // where quantity < 24
+        quantityPage = createQuantityPage();
+        PageFunctionCompiler pageFunctionCompiler = new PageFunctionCompiler(metadata, 0);
+        RowExpression quantityFilter = call(
+                LESS_THAN.name(),
+                functionManager.resolveOperator(LESS_THAN, fromTypes(BIGINT, BIGINT)),
+                BOOLEAN,
+                field(0, BIGINT),
+                constant(24L, BIGINT));
+        constantComparisonFilter = pageFunctionCompiler.compileFilter(TEST_SESSION.getSqlFunctionProperties(), quantityFilter, false, Optional.empty()).get();
+        generatedComparisonFilter = pageFunctionCompiler.compileFilterInternal(TEST_SESSION.getSqlFunctionProperties(), quantityFilter, false, Optional.empty()).get();
     }
 
     @Benchmark
@@ -114,6 +133,18 @@ public class BenchmarkPageProcessor
                         inputPage));
     }
 
+    @Benchmark
+    public SelectedPositions constantComparisonFilter()
+    {
+        return constantComparisonFilter.filter(TEST_SESSION.getSqlFunctionProperties(), quantityPage);
+    }
+
+    @Benchmark
+    public SelectedPositions generatedComparisonFilter()
+    {
+        return generatedComparisonFilter.filter(TEST_SESSION.getSqlFunctionProperties(), quantityPage);
+    }
+
     public static void main(String[] args)
             throws RunnerException
     {
@@ -144,6 +175,18 @@ public class BenchmarkPageProcessor
         return pageBuilder.build();
     }
 
+    private static Page createQuantityPage()
+    {
+        PageBuilder pageBuilder = new PageBuilder(ImmutableList.of(BIGINT));
+        LineItemGenerator lineItemGenerator = new LineItemGenerator(1, 1, 1);
+        Iterator<LineItem> iterator = lineItemGenerator.iterator();
+        for (int i = 0; i < 10_000; i++) {
+            pageBuilder.declarePosition();
+            BIGINT.writeLong(pageBuilder.getBlockBuilder(0), iterator.next().getQuantity());
+        }
+        return pageBuilder.build();
+    }
+
     private static final class Tpch1FilterAndProject
     {
         public static int process(Page page, int start, int end, PageBuilder pageBuilder)
@@ -17,6 +17,7 @@ import com.facebook.presto.metadata.FunctionManager;
 import com.facebook.presto.operator.DriverYieldSignal;
 import com.facebook.presto.operator.Work;
 import com.facebook.presto.operator.project.PageFilter;
+import com.facebook.presto.operator.project.PageProcessor;
 import com.facebook.presto.operator.project.PageProjection;
 import com.facebook.presto.operator.project.PageProjectionWithOutputs;
 import com.facebook.presto.operator.project.SelectedPositions;
@@ -25,28 +26,35 @@ import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.relation.CallExpression;
+import com.facebook.presto.spi.relation.RowExpression;
 import com.facebook.presto.spi.relation.SpecialFormExpression;
 import com.google.common.collect.ImmutableList;
 import org.testng.annotations.Test;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
 
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
 import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
 import static com.facebook.presto.spi.StandardErrorCode.NUMERIC_VALUE_OUT_OF_RANGE;
 import static com.facebook.presto.spi.function.OperatorType.ADD;
+import static com.facebook.presto.spi.function.OperatorType.DIVIDE;
 import static com.facebook.presto.spi.function.OperatorType.GREATER_THAN;
 import static com.facebook.presto.spi.function.OperatorType.LESS_THAN;
 import static com.facebook.presto.spi.relation.SpecialFormExpression.Form.AND;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.sql.analyzer.TypeSignatureProvider.fromTypes;
+import static com.facebook.presto.sql.gen.CommonSubExpressionRewriter.getFilterAndProjectionCommonSubExpressions;
 import static com.facebook.presto.sql.relational.Expressions.call;
 import static com.facebook.presto.sql.relational.Expressions.constant;
 import static com.facebook.presto.sql.relational.Expressions.field;
 import static com.facebook.presto.testing.TestingConnectorSession.SESSION;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
@@ -206,6 +214,60 @@ public class TestPageFunctionCompiler
         assertEquals(positions.getPositions(), new int[]{2, 3, 4});
     }
 
+    @Test
+    public void testCommonSubExpressionInFilterAndProjection()
+    {
+        RowExpression filter = new SpecialFormExpression(AND, BOOLEAN, ADD_X_Y_GREATER_THAN_2, ADD_X_Y_LESS_THAN_10);
+        List<RowExpression> projections = ImmutableList.of(ADD_X_Y, ADD_X_Y_Z);
+        // the second conjunct is not evaluated for every position, but x + y already is by the first one
+        assertEquals(getFilterAndProjectionCommonSubExpressions(FUNCTION_MANAGER, filter, projections), ImmutableList.of(ADD_X_Y));
+
+        ExpressionCompiler expressionCompiler = new ExpressionCompiler(createTestMetadataManager(), new PageFunctionCompiler(createTestMetadataManager(), 0));
+        PageProcessor sharedProcessor = expressionCompiler.compilePageProcessor(SESSION.getSqlFunctionProperties(), Optional.of(filter), projections, false, true, Optional.empty()).get();
+        PageProcessor processor = expressionCompiler.compilePageProcessor(SESSION.getSqlFunctionProperties(), Optional.of(filter), projections, false, false, Optional.empty()).get();
+
+        Page input = createLongBlockPage(3, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        Page sharedResult = process(sharedProcessor, input);
+        Page result = process(processor, input);
+        assertEquals(sharedResult.getPositionCount(), 3);
+        assertEquals(sharedResult.getChannelCount(), 2);
+        assertEquals(result.getChannelCount(), 2);
+        checkBlockEqual(sharedResult.getBlock(0), result.getBlock(0));
+        checkBlockEqual(sharedResult.getBlock(1), result.getBlock(1));
+    }
+
+    @Test
+    public void testCommonSubExpressionInSkippedArgument()
+    {
+        CallExpression divideYByZ = call(
+                DIVIDE.name(),
+                FUNCTION_MANAGER.resolveOperator(DIVIDE, fromTypes(BIGINT, BIGINT)),
+                BIGINT,
+                field(1, BIGINT),
+                field(2, BIGINT));
+        RowExpression filter = call(
+                GREATER_THAN.name(),
+                FUNCTION_MANAGER.resolveOperator(GREATER_THAN, fromTypes(BIGINT, BIGINT)),
+                BOOLEAN,
+                call(ADD.name(), FUNCTION_MANAGER.resolveOperator(ADD, fromTypes(BIGINT, BIGINT)), BIGINT, field(0, BIGINT), divideYByZ),
+                constant(0L, BIGINT));
+        List<RowExpression> projections = ImmutableList.of(divideYByZ);
+        // the filter does not evaluate y / z where x is null
+        assertEquals(getFilterAndProjectionCommonSubExpressions(FUNCTION_MANAGER, filter, projections), ImmutableList.of());
+
+        ExpressionCompiler expressionCompiler = new ExpressionCompiler(createTestMetadataManager(), new PageFunctionCompiler(createTestMetadataManager(), 0));
+        PageProcessor processor = expressionCompiler.compilePageProcessor(SESSION.getSqlFunctionProperties(), Optional.of(filter), projections, false, true, Optional.empty()).get();
+
+        // the first row would divide by zero, but is filtered out
+        Page input = new Page(
+                createLongsBlock(null, 1L, 2L),
+                createLongsBlock(1L, 4L, 6L),
+                createLongsBlock(0L, 2L, 3L));
+        Page result = process(processor, input);
+        assertEquals(result.getPositionCount(), 2);
+        checkBlockEqual(result.getBlock(0), createLongsBlock(2L, 2L));
+    }
+
     private void checkBlockEqual(Block a, Block b)
     {
         assertEquals(a.getPositionCount(), b.getPositionCount());
@@ -221,6 +283,15 @@ public class TestPageFunctionCompiler
         return work.getResult();
     }
 
+    private Page process(PageProcessor processor, Page page)
+    {
+        Iterator<Optional<Page>> output = processor.process(SESSION.getSqlFunctionProperties(), new DriverYieldSignal(), newSimpleAggregatedMemoryContext().newLocalMemoryContext(PageProcessor.class.getSimpleName()), page);
+        assertTrue(output.hasNext());
+        Page result = output.next().orElseThrow(() -> new AssertionError("expected output page"));
+        assertFalse(output.hasNext());
+        return result;
+    }
+
     private SelectedPositions filter(PageFilter filter, Page page)
     {
         return filter.filter(SESSION.getSqlFunctionProperties(), filter.getInputChannels().getInputChannels(page));
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.spi.ColumnHandle;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.TupleDomain;
+import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestLocalDynamicFilter
+{
+    private static final ColumnHandle COLUMN_A = new TestingColumnHandle("a");
+    private static final ColumnHandle COLUMN_B = new TestingColumnHandle("b");
+
+    @Test
+    public void testUnionOfPartitions()
+    {
+        LocalDynamicFilter filter = new LocalDynamicFilter(ImmutableList.of(COLUMN_A));
+        Consumer<List<Domain>> consumer = filter.getPartitionConsumer();
+
+        consumer.accept(ImmutableList.of(Domain.singleValue(BIGINT, 1L)));
+        consumer.accept(ImmutableList.of(Domain.none(BIGINT)));
+        assertFalse(filter.getResultFuture().isDone());
+
+        // partition count becomes known after some partitions already reported
+        filter.setPartitionCount(3);
+        assertFalse(filter.getResultFuture().isDone());
+        assertEquals(filter.getPredicateSupplier().get(), TupleDomain.all());
+
+        consumer.accept(ImmutableList.of(Domain.singleValue(BIGINT, 2L)));
+        assertTrue(filter.getResultFuture().isDone());
+        assertEquals(
+                filter.getPredicateSupplier().get(),
+                TupleDomain.withColumnDomains(ImmutableMap.of(COLUMN_A, Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L)))));
+    }
+
+    @Test
+    public void testEmptyBuildSide()
+    {
+        LocalDynamicFilter filter = new LocalDynamicFilter(ImmutableList.of(COLUMN_A));
+        filter.setPartitionCount(1);
+        filter.getPartitionConsumer().accept(ImmutableList.of(Domain.none(BIGINT)));
+
+        assertTrue(filter.getPredicateSupplier().get().isNone());
+    }
+
+    @Test
+    public void testIntersectPredicates()
+    {
+        LocalDynamicFilter first = new LocalDynamicFilter(ImmutableList.of(COLUMN_A, COLUMN_B));
+        LocalDynamicFilter second = new LocalDynamicFilter(ImmutableList.of(COLUMN_A));
+        first.setPartitionCount(1);
+        second.setPartitionCount(1);
+        first.getPartitionConsumer().accept(ImmutableList.of(Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L)), Domain.singleValue(BIGINT, 5L)));
+
+        // filters that are not complete yet do not restrict the scan
+        assertEquals(
+                LocalDynamicFilter.intersectPredicates(ImmutableList.of(first, second)).get(),
+                TupleDomain.withColumnDomains(ImmutableMap.of(
+                        COLUMN_A, Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L)),
+                        COLUMN_B, Domain.singleValue(BIGINT, 5L))));
+
+        second.getPartitionConsumer().accept(ImmutableList.of(Domain.multipleValues(BIGINT, ImmutableList.of(2L, 3L))));
+        assertEquals(
+                LocalDynamicFilter.intersectPredicates(ImmutableList.of(first, second)).get(),
+                TupleDomain.withColumnDomains(ImmutableMap.of(
+                        COLUMN_A, Domain.singleValue(BIGINT, 2L),
+                        COLUMN_B, Domain.singleValue(BIGINT, 5L))));
+    }
+}
@@ -13,18 +13,27 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.Session;
 import com.facebook.presto.spi.ErrorCodeSupplier;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.testing.LocalQueryRunner;
 import com.google.common.base.Joiner;
+import io.airlift.units.DataSize;
 import org.intellij.lang.annotations.Language;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.Optional;
+
 import static com.facebook.airlift.testing.Closeables.closeAllRuntimeException;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.SystemSessionProperties.JOIN_MAX_BROADCAST_BUILD_SIZE;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
+import static com.facebook.presto.sql.planner.LocalExecutionPlanner.getMaxBroadcastBuildSize;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.PARTITIONED;
+import static com.facebook.presto.sql.planner.plan.JoinNode.DistributionType.REPLICATED;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.Collections.nCopies;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
@@ -55,6 +64,20 @@ public class TestLocalExecutionPlanner
         assertFails("SELECT " + outer, COMPILER_ERROR);
     }
 
+    @Test
+    public void testMaxBroadcastBuildSizeAppliesOnlyToReplicatedJoins()
+    {
+        Session session = Session.builder(TEST_SESSION)
+                .setSystemProperty(JOIN_MAX_BROADCAST_BUILD_SIZE, "10MB")
+                .build();
+        assertEquals(getMaxBroadcastBuildSize(session, Optional.of(REPLICATED)), Optional.of(new DataSize(10, MEGABYTE)));
+        assertEquals(getMaxBroadcastBuildSize(session, Optional.of(PARTITIONED)), Optional.empty());
+        assertEquals(getMaxBroadcastBuildSize(session, Optional.empty()), Optional.empty());
+
+        // the limit is off by default
+        assertEquals(getMaxBroadcastBuildSize(TEST_SESSION, Optional.of(REPLICATED)), Optional.empty());
+    }
+
     private void assertFails(@Language("SQL") String sql, ErrorCodeSupplier supplier)
     {
         try {
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.sql.planner.Plan;
+import com.facebook.presto.sql.planner.assertions.BasePlanTest;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.UnnestNode;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
+import static com.facebook.presto.SystemSessionProperties.JOIN_REORDERING_STRATEGY;
+import static com.facebook.presto.SystemSessionProperties.SKEWED_JOIN_HOT_KEYS;
+import static com.facebook.presto.SystemSessionProperties.SKEWED_JOIN_SALT_FACTOR;
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType.BROADCAST;
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinDistributionType.PARTITIONED;
+import static com.facebook.presto.sql.analyzer.FeaturesConfig.JoinReorderingStrategy.NONE;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anyTree;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.node;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.tableScan;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.unnest;
+import static com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSaltSkewedJoinKeys
+        extends BasePlanTest
+{
+    private static final String QUERY = "SELECT o.orderkey, l.partkey FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey";
+
+    @Test
+    public void testSaltsHotKeysOfPartitionedJoin()
+    {
+        assertPlanWithSession(
+                QUERY,
+                session(PARTITIONED.name(), "1, 2"),
+                false,
+                anyTree(node(
+                        JoinNode.class,
+                        anyTree(tableScan("orders")),
+                        anyTree(unnest(anyTree(tableScan("lineitem")))))),
+                plan -> assertEquals(getJoin(plan).getCriteria().size(), 2));
+    }
+
+    @Test
+    public void testDoesNotSaltBroadcastJoin()
+    {
+        assertPlanWithSession(
+                QUERY,
+                session(BROADCAST.name(), "1, 2"),
+                false,
+                anyTree(node(
+                        JoinNode.class,
+                        anyTree(tableScan("orders")),
+                        anyTree(tableScan("lineitem")))),
+                TestSaltSkewedJoinKeys::assertNotSalted);
+    }
+
+    @Test
+    public void testIgnoresHotKeysOfOtherTypes()
+    {
+        assertPlanWithSession(
+                QUERY,
+                session(PARTITIONED.name(), "abc"),
+                false,
+                anyTree(node(
+                        JoinNode.class,
+                        anyTree(tableScan("orders")),
+                        anyTree(tableScan("lineitem")))),
+                TestSaltSkewedJoinKeys::assertNotSalted);
+    }
+
+    private Session session(String joinDistributionType, String hotKeys)
+    {
+        return Session.builder(getQueryRunner().getDefaultSession())
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, joinDistributionType)
+                .setSystemProperty(JOIN_REORDERING_STRATEGY, NONE.name())
+                .setSystemProperty(SKEWED_JOIN_HOT_KEYS, hotKeys)
+                .setSystemProperty(SKEWED_JOIN_SALT_FACTOR, "4")
+                .build();
+    }
+
+    private static JoinNode getJoin(Plan plan)
+    {
+        return searchFrom(plan.getRoot())
+                .where(JoinNode.class::isInstance)
+                .findOnlyElement();
+    }
+
+    private static void assertNotSalted(Plan plan)
+    {
+        assertEquals(getJoin(plan).getCriteria().size(), 1);
+        assertTrue(searchFrom(plan.getRoot()).where(UnnestNode.class::isInstance).findAll().isEmpty());
+    }
+}
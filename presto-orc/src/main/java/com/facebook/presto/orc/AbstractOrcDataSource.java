@@ -13,7 +13,10 @@
  */
 package com.facebook.presto.orc;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import io.airlift.slice.BasicSliceInput;
 import io.airlift.slice.ChunkedSliceInput;
 import io.airlift.slice.ChunkedSliceInput.BufferReference;
@@ -26,14 +29,22 @@ import io.airlift.units.DataSize;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import static com.facebook.presto.orc.OrcDataSourceUtils.getDiskRangeSlice;
 import static com.facebook.presto.orc.OrcDataSourceUtils.mergeAdjacentDiskRanges;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Futures.transform;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
@@ -65,6 +76,21 @@ public abstract class AbstractOrcDataSource
     protected abstract void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
             throws IOException;
 
+    /**
+     * Returns true if {@link #readInternal} may be called by several threads at once.
+     */
+    protected boolean isConcurrentReadSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Called when the coalesced reads issued by {@link #readFullyAsync} have completed.
+     */
+    protected void concurrentReadsCompleted(int readCount, long bytes, long wallNanos)
+    {
+    }
+
     @Override
     public OrcDataSourceId getId()
     {
@@ -145,6 +171,78 @@ public abstract class AbstractOrcDataSource
         return slices.build();
     }
 
+    @Override
+    public final <K> ListenableFuture<Map<K, OrcDataSourceInput>> readFullyAsync(Map<K, DiskRange> diskRanges, Executor executor, int maxConcurrentReads)
+    {
+        requireNonNull(diskRanges, "diskRanges is null");
+        requireNonNull(executor, "executor is null");
+        checkArgument(maxConcurrentReads > 0, "maxConcurrentReads must be at least 1");
+
+        if (!isConcurrentReadSupported() || maxConcurrentReads == 1) {
+            return OrcDataSource.super.readFullyAsync(diskRanges, executor, maxConcurrentReads);
+        }
+
+        // large ranges are still read lazily in chunks, while the small ranges are coalesced and
+        // read eagerly, since the point of reading concurrently is to not wait on each range in turn
+        long maxReadSizeBytes = maxBufferSize.toBytes();
+        ImmutableMap.Builder<K, DiskRange> smallRangesBuilder = ImmutableMap.builder();
+        ImmutableMap.Builder<K, DiskRange> largeRangesBuilder = ImmutableMap.builder();
+        for (Entry<K, DiskRange> entry : diskRanges.entrySet()) {
+            if (entry.getValue().getLength() <= maxReadSizeBytes) {
+                smallRangesBuilder.put(entry);
+            }
+            else {
+                largeRangesBuilder.put(entry);
+            }
+        }
+        Map<K, DiskRange> smallRanges = smallRangesBuilder.build();
+        Map<K, OrcDataSourceInput> largeInputs = readLargeDiskRanges(largeRangesBuilder.build());
+        if (smallRanges.isEmpty()) {
+            return immediateFuture(largeInputs);
+        }
+
+        List<DiskRange> mergedRanges = mergeAdjacentDiskRanges(smallRanges.values(), maxMergeDistance, maxBufferSize);
+        byte[][] buffers = new byte[mergedRanges.size()][];
+        AtomicInteger nextRange = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // each reader takes the next unread range until all are read, which bounds the reads in flight
+        ImmutableList.Builder<ListenableFuture<?>> readers = ImmutableList.builder();
+        for (int i = 0; i < min(maxConcurrentReads, mergedRanges.size()); i++) {
+            ListenableFutureTask<?> reader = ListenableFutureTask.create(() -> {
+                for (int range = nextRange.getAndIncrement(); range < mergedRanges.size(); range = nextRange.getAndIncrement()) {
+                    DiskRange mergedRange = mergedRanges.get(range);
+                    byte[] buffer = new byte[mergedRange.getLength()];
+                    readInternal(mergedRange.getOffset(), buffer, 0, buffer.length);
+                    buffers[range] = buffer;
+                }
+                return null;
+            });
+            executor.execute(reader);
+            readers.add(reader);
+        }
+
+        return transform(allAsList(readers.build()), ignored -> {
+            long readNanos = System.nanoTime() - start;
+            long bytes = 0;
+            Map<DiskRange, byte[]> mergedBuffers = new LinkedHashMap<>();
+            for (int range = 0; range < mergedRanges.size(); range++) {
+                mergedBuffers.put(mergedRanges.get(range), buffers[range]);
+                bytes += buffers[range].length;
+            }
+            readTimeNanos += readNanos;
+            readBytes += bytes;
+            concurrentReadsCompleted(mergedRanges.size(), bytes, readNanos);
+
+            ImmutableMap.Builder<K, OrcDataSourceInput> slices = ImmutableMap.builder();
+            for (Entry<K, DiskRange> entry : smallRanges.entrySet()) {
+                slices.put(entry.getKey(), new OrcDataSourceInput(getDiskRangeSlice(entry.getValue(), mergedBuffers).getInput(), entry.getValue().getLength()));
+            }
+            slices.putAll(largeInputs);
+            return slices.build();
+        }, directExecutor());
+    }
+
     private <K> Map<K, OrcDataSourceInput> readSmallDiskRanges(Map<K, DiskRange> diskRanges)
             throws IOException
     {
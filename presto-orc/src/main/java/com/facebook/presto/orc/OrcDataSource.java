@@ -13,9 +13,15 @@
  */
 package com.facebook.presto.orc;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 
 public interface OrcDataSource
         extends Closeable
@@ -37,6 +43,21 @@ public interface OrcDataSource
     <K> Map<K, OrcDataSourceInput> readFully(Map<K, DiskRange> diskRanges)
             throws IOException;
 
+    /**
+     * Reads the disk ranges like {@link #readFully(Map)}, but issues the coalesced reads on the
+     * executor with at most {@code maxConcurrentReads} of them in flight. Data sources that do
+     * not support concurrent reads read the ranges on the calling thread.
+     */
+    default <K> ListenableFuture<Map<K, OrcDataSourceInput>> readFullyAsync(Map<K, DiskRange> diskRanges, Executor executor, int maxConcurrentReads)
+    {
+        try {
+            return immediateFuture(readFully(diskRanges));
+        }
+        catch (IOException | RuntimeException e) {
+            return immediateFailedFuture(e);
+        }
+    }
+
     @Override
     default void close()
             throws IOException
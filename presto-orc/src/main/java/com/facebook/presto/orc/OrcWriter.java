@@ -30,6 +30,7 @@ import com.facebook.presto.orc.metadata.statistics.ColumnStatistics;
 import com.facebook.presto.orc.metadata.statistics.StripeStatistics;
 import com.facebook.presto.orc.stream.DataOutput;
 import com.facebook.presto.orc.stream.StreamDataOutput;
+import com.facebook.presto.orc.writer.BloomFilterColumnWriter;
 import com.facebook.presto.orc.writer.ColumnWriter;
 import com.facebook.presto.orc.writer.SliceDictionaryColumnWriter;
 import com.facebook.presto.spi.Page;
@@ -56,6 +57,7 @@ import java.util.Map.Entry;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static com.facebook.presto.orc.OrcEncoding.DWRF;
 import static com.facebook.presto.orc.OrcReader.validateFile;
 import static com.facebook.presto.orc.OrcWriterStats.FlushReason.CLOSED;
 import static com.facebook.presto.orc.OrcWriterStats.FlushReason.DICTIONARY_FULL;
@@ -64,6 +66,7 @@ import static com.facebook.presto.orc.OrcWriterStats.FlushReason.MAX_ROWS;
 import static com.facebook.presto.orc.metadata.ColumnEncoding.ColumnEncodingKind.DIRECT;
 import static com.facebook.presto.orc.metadata.PostScript.MAGIC;
 import static com.facebook.presto.orc.stream.DataOutput.createDataOutput;
+import static com.facebook.presto.orc.writer.BloomFilterColumnWriter.isBloomFilterSupported;
 import static com.facebook.presto.orc.writer.ColumnWriters.createColumnWriter;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -167,12 +170,17 @@ public class OrcWriter
         // create column writers
         OrcType rootType = orcTypes.get(0);
         checkArgument(rootType.getFieldCount() == types.size());
+        checkArgument(orcEncoding != DWRF || options.getBloomFilterColumns().isEmpty(), "DWRF does not support bloom filters");
         ImmutableList.Builder<ColumnWriter> columnWriters = ImmutableList.builder();
         ImmutableSet.Builder<SliceDictionaryColumnWriter> sliceColumnWriters = ImmutableSet.builder();
         for (int fieldId = 0; fieldId < types.size(); fieldId++) {
             int fieldColumnIndex = rootType.getFieldTypeIndex(fieldId);
             Type fieldType = types.get(fieldId);
             ColumnWriter columnWriter = createColumnWriter(fieldColumnIndex, orcTypes, fieldType, compression, maxCompressionBufferSize, orcEncoding, hiveStorageTimeZone, options.getMaxStringStatisticsLimit());
+            // bloom filters are skipped for types the reader cannot prune with
+            if (options.getBloomFilterColumns().contains(columnNames.get(fieldId)) && isBloomFilterSupported(fieldType)) {
+                columnWriter = new BloomFilterColumnWriter(fieldColumnIndex, fieldType, columnWriter, rowGroupMaxRowCount, options.getBloomFilterFpp());
+            }
             columnWriters.add(columnWriter);
 
             if (columnWriter instanceof SliceDictionaryColumnWriter) {
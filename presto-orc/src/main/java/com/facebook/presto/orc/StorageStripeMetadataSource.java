@@ -19,11 +19,39 @@ import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
 
 public class StorageStripeMetadataSource
         implements StripeMetadataSource
 {
+    private final Executor readExecutor;
+    private final int maxConcurrentReads;
+
+    public StorageStripeMetadataSource()
+    {
+        this(directExecutor(), 1);
+    }
+
+    /**
+     * Reads the streams of a stripe with up to {@code maxConcurrentReads} coalesced reads in flight on the executor.
+     */
+    public StorageStripeMetadataSource(Executor readExecutor, int maxConcurrentReads)
+    {
+        checkArgument(maxConcurrentReads > 0, "maxConcurrentReads must be at least 1");
+        this.readExecutor = requireNonNull(readExecutor, "readExecutor is null");
+        this.maxConcurrentReads = maxConcurrentReads;
+    }
+
     @Override
     public Slice getStripeFooterSlice(OrcDataSource orcDataSource, StripeId stripeId, long footerOffset, int footerLength, boolean cacheable)
             throws IOException
@@ -50,6 +78,28 @@ public class StorageStripeMetadataSource
         diskRanges = diskRangesBuilder.build();
 
         // read ranges
-        return orcDataSource.readFully(diskRanges);
+        if (maxConcurrentReads == 1) {
+            return orcDataSource.readFully(diskRanges);
+        }
+        return getReadResult(orcDataSource.readFullyAsync(diskRanges, readExecutor, maxConcurrentReads));
+    }
+
+    private static <T> T getReadResult(Future<T> future)
+            throws IOException
+    {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading stripe streams");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throwIfInstanceOf(cause, IOException.class);
+            throwIfUnchecked(cause);
+            throw new IOException(cause);
+        }
     }
 }
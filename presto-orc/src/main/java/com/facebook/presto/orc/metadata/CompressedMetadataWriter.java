@@ -14,12 +14,14 @@
 package com.facebook.presto.orc.metadata;
 
 import com.facebook.presto.orc.OrcOutputBuffer;
+import com.facebook.presto.orc.metadata.statistics.HiveBloomFilter;
 import io.airlift.slice.DynamicSliceOutput;
 import io.airlift.slice.Slice;
 
 import java.io.IOException;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.toIntExact;
 
 public class CompressedMetadataWriter
@@ -75,6 +77,15 @@ public class CompressedMetadataWriter
         return getSliceOutput();
     }
 
+    public Slice writeBloomFilters(List<HiveBloomFilter> bloomFilters)
+            throws IOException
+    {
+        // DWRF has no bloom filter index
+        checkState(metadataWriter instanceof OrcMetadataWriter, "Bloom filters are only supported for ORC");
+        ((OrcMetadataWriter) metadataWriter).writeBloomFilters(buffer, bloomFilters);
+        return getSliceOutput();
+    }
+
     private Slice getSliceOutput()
     {
         buffer.close();
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc.writer;
+
+import com.facebook.presto.orc.metadata.ColumnEncoding;
+import com.facebook.presto.orc.metadata.CompressedMetadataWriter;
+import com.facebook.presto.orc.metadata.Stream;
+import com.facebook.presto.orc.metadata.Stream.StreamKind;
+import com.facebook.presto.orc.metadata.statistics.ColumnStatistics;
+import com.facebook.presto.orc.metadata.statistics.HiveBloomFilter;
+import com.facebook.presto.orc.stream.StreamDataOutput;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.VarbinaryType;
+import com.facebook.presto.spi.type.VarcharType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.Slice;
+import org.apache.hive.common.util.BloomFilter;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.IntegerType.INTEGER;
+import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
+import static com.facebook.presto.spi.type.TinyintType.TINYINT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Adds a bloom filter per row group to the statistics of a primitive column, and writes
+ * them in a BLOOM_FILTER index stream after the index streams of the wrapped writer.
+ */
+public class BloomFilterColumnWriter
+        implements ColumnWriter
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(BloomFilterColumnWriter.class).instanceSize();
+
+    private final int column;
+    private final Type type;
+    private final ColumnWriter delegate;
+    private final int expectedEntries;
+    private final double fpp;
+
+    private final List<HiveBloomFilter> rowGroupBloomFilters = new ArrayList<>();
+    private long bloomFiltersRetainedSizeInBytes;
+    private long bloomFiltersSizeInBytes;
+
+    private BloomFilter bloomFilter;
+
+    public BloomFilterColumnWriter(int column, Type type, ColumnWriter delegate, int expectedEntries, double fpp)
+    {
+        checkArgument(column >= 0, "column is negative");
+        checkArgument(isBloomFilterSupported(type), "Bloom filters are not supported for %s", type);
+        checkArgument(expectedEntries > 0, "expectedEntries must be positive");
+        this.column = column;
+        this.type = type;
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.expectedEntries = expectedEntries;
+        this.fpp = fpp;
+        this.bloomFilter = new BloomFilter(expectedEntries, fpp);
+    }
+
+    /**
+     * Returns true for the types {@link com.facebook.presto.orc.TupleDomainOrcPredicate} can test against a bloom filter.
+     */
+    public static boolean isBloomFilterSupported(Type type)
+    {
+        return type == TINYINT || type == SMALLINT || type == INTEGER || type == BIGINT || type == DOUBLE || type instanceof VarcharType || type instanceof VarbinaryType;
+    }
+
+    @Override
+    public List<ColumnWriter> getNestedColumnWriters()
+    {
+        return ImmutableList.<ColumnWriter>builder()
+                .add(delegate)
+                .addAll(delegate.getNestedColumnWriters())
+                .build();
+    }
+
+    @Override
+    public Map<Integer, ColumnEncoding> getColumnEncodings()
+    {
+        return delegate.getColumnEncodings();
+    }
+
+    @Override
+    public void beginRowGroup()
+    {
+        delegate.beginRowGroup();
+    }
+
+    @Override
+    public void writeBlock(Block block)
+    {
+        delegate.writeBlock(block);
+
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            if (block.isNull(position)) {
+                continue;
+            }
+            if (type == DOUBLE) {
+                bloomFilter.addDouble(type.getDouble(block, position));
+            }
+            else if (type instanceof VarcharType || type instanceof VarbinaryType) {
+                Slice value = type.getSlice(block, position);
+                if (value.hasByteArray()) {
+                    bloomFilter.addBytes(value.byteArray(), value.byteArrayOffset(), value.length());
+                }
+                else {
+                    bloomFilter.add(value.getBytes());
+                }
+            }
+            else {
+                bloomFilter.addLong(type.getLong(block, position));
+            }
+        }
+    }
+
+    @Override
+    public Map<Integer, ColumnStatistics> finishRowGroup()
+    {
+        Map<Integer, ColumnStatistics> columnStatistics = delegate.finishRowGroup();
+        checkState(columnStatistics.size() == 1 && columnStatistics.containsKey(column), "expected statistics of column %s only", column);
+
+        HiveBloomFilter rowGroupBloomFilter = new HiveBloomFilter(bloomFilter);
+        rowGroupBloomFilters.add(rowGroupBloomFilter);
+        bloomFiltersRetainedSizeInBytes += rowGroupBloomFilter.getRetainedSizeInBytes();
+        bloomFiltersSizeInBytes += rowGroupBloomFilter.getBitSize() / Byte.SIZE;
+        bloomFilter = new BloomFilter(expectedEntries, fpp);
+
+        return ImmutableMap.of(column, columnStatistics.get(column).withBloomFilter(rowGroupBloomFilter));
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+
+    @Override
+    public Map<Integer, ColumnStatistics> getColumnStripeStatistics()
+    {
+        // bloom filters are only written for row groups
+        return delegate.getColumnStripeStatistics();
+    }
+
+    @Override
+    public List<StreamDataOutput> getIndexStreams(CompressedMetadataWriter metadataWriter)
+            throws IOException
+    {
+        List<StreamDataOutput> indexStreams = delegate.getIndexStreams(metadataWriter);
+
+        Slice slice = metadataWriter.writeBloomFilters(rowGroupBloomFilters);
+        Stream stream = new Stream(column, StreamKind.BLOOM_FILTER, slice.length(), false);
+        return ImmutableList.<StreamDataOutput>builder()
+                .addAll(indexStreams)
+                .add(new StreamDataOutput(slice, stream))
+                .build();
+    }
+
+    @Override
+    public List<StreamDataOutput> getDataStreams()
+    {
+        return delegate.getDataStreams();
+    }
+
+    @Override
+    public long getBufferedBytes()
+    {
+        return delegate.getBufferedBytes() + bloomFiltersSizeInBytes;
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        return INSTANCE_SIZE + delegate.getRetainedBytes() + bloomFiltersRetainedSizeInBytes + sizeOf(bloomFilter.getBitSet());
+    }
+
+    @Override
+    public void reset()
+    {
+        delegate.reset();
+        rowGroupBloomFilters.clear();
+        bloomFiltersRetainedSizeInBytes = 0;
+        bloomFiltersSizeInBytes = 0;
+        bloomFilter = new BloomFilter(expectedEntries, fpp);
+    }
+}
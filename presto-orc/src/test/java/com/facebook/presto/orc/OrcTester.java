@@ -1327,11 +1327,23 @@ public class OrcTester
     public static void writeOrcColumnPresto(File outputFile, Format format, CompressionKind compression, Type type, List<?> values)
             throws Exception
     {
-        writeOrcColumnsPresto(outputFile, format, compression, ImmutableList.of(type), ImmutableList.of(values), new OrcWriterStats());
+        writeOrcColumnPresto(outputFile, format, compression, type, values, new OrcWriterOptions());
+    }
+
+    public static void writeOrcColumnPresto(File outputFile, Format format, CompressionKind compression, Type type, List<?> values, OrcWriterOptions options)
+            throws Exception
+    {
+        writeOrcColumnsPresto(outputFile, format, compression, ImmutableList.of(type), ImmutableList.of(values), options, new OrcWriterStats());
     }
 
     private static void writeOrcColumnsPresto(File outputFile, Format format, CompressionKind compression, List<Type> types, List<List<?>> values, OrcWriterStats stats)
             throws Exception
+    {
+        writeOrcColumnsPresto(outputFile, format, compression, types, values, new OrcWriterOptions(), stats);
+    }
+
+    private static void writeOrcColumnsPresto(File outputFile, Format format, CompressionKind compression, List<Type> types, List<List<?>> values, OrcWriterOptions options, OrcWriterStats stats)
+            throws Exception
     {
         List<String> columnNames = makeColumnNames(types.size());
 
@@ -1345,7 +1357,7 @@ public class OrcTester
                 types,
                 format.getOrcEncoding(),
                 compression,
-                new OrcWriterOptions(),
+                options,
                 ImmutableMap.of(),
                 HIVE_STORAGE_TIME_ZONE,
                 true,
@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.orc;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.Slice;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+
+public class TestAbstractOrcDataSource
+{
+    private static final Map<String, DiskRange> DISK_RANGES = ImmutableMap.<String, DiskRange>builder()
+            .put("a", new DiskRange(0, 10))
+            .put("b", new DiskRange(12, 8))
+            .put("c", new DiskRange(100, 20))
+            .put("d", new DiskRange(200, 30))
+            .put("e", new DiskRange(300, 200))
+            .build();
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadFullyAsync()
+            throws IOException
+    {
+        TestingByteArrayOrcDataSource expectedSource = new TestingByteArrayOrcDataSource(true);
+        Map<String, OrcDataSourceInput> expected = expectedSource.readFully(DISK_RANGES);
+
+        TestingByteArrayOrcDataSource dataSource = new TestingByteArrayOrcDataSource(true);
+        Map<String, OrcDataSourceInput> actual = getUnchecked(dataSource.readFullyAsync(DISK_RANGES, executor, 2));
+
+        // "a" and "b" are coalesced, and "e" is larger than the max buffer size and is read lazily
+        assertEquals(dataSource.getConcurrentReadCount(), 3);
+        assertEquals(dataSource.getReadCount(), 3);
+        assertEquals(dataSource.getReadBytes(), 20 + 20 + 30);
+
+        assertInputsEqual(actual, expected);
+    }
+
+    @Test
+    public void testReadFullyAsyncWithoutConcurrentReads()
+    {
+        TestingByteArrayOrcDataSource dataSource = new TestingByteArrayOrcDataSource(false);
+        Map<String, OrcDataSourceInput> actual = getUnchecked(dataSource.readFullyAsync(DISK_RANGES, command -> {
+            throw new AssertionError("reads should not be issued on the executor");
+        }, 4));
+        assertEquals(actual.keySet(), DISK_RANGES.keySet());
+        assertEquals(dataSource.getConcurrentReadCount(), 0);
+    }
+
+    private static void assertInputsEqual(Map<String, OrcDataSourceInput> actual, Map<String, OrcDataSourceInput> expected)
+    {
+        assertEquals(actual.keySet(), expected.keySet());
+        for (String key : expected.keySet()) {
+            int length = DISK_RANGES.get(key).getLength();
+            Slice actualSlice = actual.get(key).getInput().readSlice(length);
+            Slice expectedSlice = expected.get(key).getInput().readSlice(length);
+            assertEquals(actualSlice, expectedSlice);
+            assertEquals(actualSlice.getByte(0), (byte) DISK_RANGES.get(key).getOffset());
+        }
+    }
+
+    private static class TestingByteArrayOrcDataSource
+            extends AbstractOrcDataSource
+    {
+        private final boolean concurrentReadSupported;
+        private final AtomicInteger readCount = new AtomicInteger();
+        private int concurrentReadCount;
+
+        public TestingByteArrayOrcDataSource(boolean concurrentReadSupported)
+        {
+            super(new OrcDataSourceId("test"), 1000, new DataSize(5, BYTE), new DataSize(100, BYTE), new DataSize(64, BYTE), false);
+            this.concurrentReadSupported = concurrentReadSupported;
+        }
+
+        @Override
+        protected void readInternal(long position, byte[] buffer, int bufferOffset, int bufferLength)
+        {
+            readCount.incrementAndGet();
+            for (int i = 0; i < bufferLength; i++) {
+                buffer[bufferOffset + i] = (byte) (position + i);
+            }
+        }
+
+        @Override
+        protected boolean isConcurrentReadSupported()
+        {
+            return concurrentReadSupported;
+        }
+
+        @Override
+        protected void concurrentReadsCompleted(int readCount, long bytes, long wallNanos)
+        {
+            concurrentReadCount += readCount;
+        }
+
+        public int getReadCount()
+        {
+            return readCount.get();
+        }
+
+        public int getConcurrentReadCount()
+        {
+            return concurrentReadCount;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.facebook.presto.spi.type.SqlVarbinary;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
 
@@ -32,6 +33,7 @@ import static com.facebook.presto.orc.OrcReader.MAX_BATCH_SIZE;
 import static com.facebook.presto.orc.OrcTester.Format.ORC_12;
 import static com.facebook.presto.orc.OrcTester.HIVE_STORAGE_TIME_ZONE;
 import static com.facebook.presto.orc.OrcTester.writeOrcColumnHive;
+import static com.facebook.presto.orc.OrcTester.writeOrcColumnPresto;
 import static com.facebook.presto.orc.TupleDomainOrcPredicate.ColumnReference;
 import static com.facebook.presto.orc.metadata.CompressionKind.SNAPPY;
 import static com.facebook.presto.spi.predicate.TupleDomain.fromFixedValues;
@@ -70,40 +72,70 @@ public class TestReadBloomFilter
         // Bloom filters are not supported for DECIMAL, FLOAT, DATE, TIMESTAMP, and CHAR
     }
 
+    @Test
+    public void testPrestoWriter()
+            throws Exception
+    {
+        testPrestoWriterType(TINYINT, ImmutableList.of(1L, 50L, 100L), 50L, 77L);
+        testPrestoWriterType(SMALLINT, ImmutableList.of(1L, 5000L, 10_000L), 5000L, 7777L);
+        testPrestoWriterType(INTEGER, ImmutableList.of(1L, 500_000L, 1_000_000L), 500_000L, 777_777L);
+        testPrestoWriterType(BIGINT, ImmutableList.of(1L, 500_000L, 1_000_000L), 500_000L, 777_777L);
+        testPrestoWriterType(DOUBLE, ImmutableList.of(1.11, 500_000.55, 1_000_000.99), 500_000.55, 777_777.77);
+
+        testPrestoWriterType(VARCHAR, ImmutableList.of("a", "o", "z"), utf8Slice("o"), utf8Slice("w"));
+        testPrestoWriterType(VARBINARY,
+                ImmutableList.of(new SqlVarbinary("a".getBytes(UTF_8)), new SqlVarbinary("o".getBytes(UTF_8)), new SqlVarbinary("z".getBytes(UTF_8))),
+                utf8Slice("o"),
+                utf8Slice("w"));
+    }
+
     private static <T> void testType(Type type, List<T> uniqueValues, T inBloomFilter, T notInBloomFilter)
             throws Exception
     {
-        List<T> writeValues = newArrayList(limit(cycle(uniqueValues), 30_000));
+        try (TempFile tempFile = new TempFile()) {
+            writeOrcColumnHive(tempFile.getFile(), ORC_12, SNAPPY, type, newArrayList(limit(cycle(uniqueValues), 30_000)));
+            assertBloomFilterPruning(tempFile, type, inBloomFilter, notInBloomFilter);
+        }
+    }
 
+    private static <T> void testPrestoWriterType(Type type, List<T> uniqueValues, T inBloomFilter, T notInBloomFilter)
+            throws Exception
+    {
+        OrcWriterOptions options = new OrcWriterOptions().withBloomFilterColumns(ImmutableSet.of("test"));
         try (TempFile tempFile = new TempFile()) {
-            writeOrcColumnHive(tempFile.getFile(), ORC_12, SNAPPY, type, writeValues);
-
-            // no predicate
-            try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.empty(), true)) {
-                assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
-            }
-
-            try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.empty(), false)) {
-                assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
-            }
-
-            // predicate for non-matching value
-            try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(notInBloomFilter), true)) {
-                assertEquals(recordReader.nextBatch(), -1);
-            }
-
-            try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(notInBloomFilter), false)) {
-                assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
-            }
-
-            // predicate for matching value
-            try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(inBloomFilter), true)) {
-                assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
-            }
-
-            try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(inBloomFilter), false)) {
-                assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
-            }
+            writeOrcColumnPresto(tempFile.getFile(), ORC_12, SNAPPY, type, newArrayList(limit(cycle(uniqueValues), 30_000)), options);
+            assertBloomFilterPruning(tempFile, type, inBloomFilter, notInBloomFilter);
+        }
+    }
+
+    private static <T> void assertBloomFilterPruning(TempFile tempFile, Type type, T inBloomFilter, T notInBloomFilter)
+            throws IOException
+    {
+        // no predicate
+        try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.empty(), true)) {
+            assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
+        }
+
+        try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.empty(), false)) {
+            assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
+        }
+
+        // predicate for non-matching value
+        try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(notInBloomFilter), true)) {
+            assertEquals(recordReader.nextBatch(), -1);
+        }
+
+        try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(notInBloomFilter), false)) {
+            assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
+        }
+
+        // predicate for matching value
+        try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(inBloomFilter), true)) {
+            assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
+        }
+
+        try (OrcBatchRecordReader recordReader = createCustomOrcRecordReader(tempFile, type, Optional.of(inBloomFilter), false)) {
+            assertEquals(recordReader.nextBatch(), MAX_BATCH_SIZE);
         }
     }
 
@@ -16,8 +16,13 @@ package com.facebook.presto.parquet.predicate;
 import com.facebook.presto.parquet.DictionaryPage;
 import com.facebook.presto.parquet.ParquetCorruptionException;
 import com.facebook.presto.parquet.ParquetDataSource;
+import com.facebook.presto.parquet.ParquetDataSourceId;
 import com.facebook.presto.parquet.ParquetEncoding;
 import com.facebook.presto.parquet.RichColumnDescriptor;
+import com.facebook.presto.parquet.reader.PageIndexReference;
+import com.facebook.presto.parquet.reader.ParquetFileMetadata;
+import com.facebook.presto.parquet.reader.RowRanges;
+import com.facebook.presto.spi.predicate.Domain;
 import com.facebook.presto.spi.predicate.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.annotations.VisibleForTesting;
@@ -30,8 +35,11 @@ import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.column.Encoding;
 import org.apache.parquet.column.EncodingStats;
 import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.format.ColumnIndex;
 import org.apache.parquet.format.DictionaryPageHeader;
+import org.apache.parquet.format.OffsetIndex;
 import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageLocation;
 import org.apache.parquet.format.PageType;
 import org.apache.parquet.format.Util;
 import org.apache.parquet.hadoop.metadata.BlockMetaData;
@@ -41,6 +49,7 @@ import org.apache.parquet.schema.MessageType;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +58,9 @@ import java.util.Set;
 
 import static com.facebook.presto.parquet.ParquetCompressionUtils.decompress;
 import static com.facebook.presto.parquet.ParquetTypeUtils.getParquetEncoding;
+import static com.facebook.presto.parquet.predicate.TupleDomainParquetPredicate.getDomain;
+import static com.facebook.presto.parquet.reader.MetadataReader.readColumnIndex;
+import static com.facebook.presto.parquet.reader.MetadataReader.readOffsetIndex;
 import static com.facebook.presto.spi.type.IntegerType.INTEGER;
 import static com.facebook.presto.spi.type.SmallintType.SMALLINT;
 import static com.facebook.presto.spi.type.TinyintType.TINYINT;
@@ -97,6 +109,115 @@ public final class PredicateUtils
         return dictionaryPredicatesMatch(parquetPredicate, block, dataSource, descriptorsByPath, parquetTupleDomain);
     }
 
+    /**
+     * Returns the rows of the block that may match the predicate according to the page indexes of the
+     * predicate columns. All rows are returned for columns without a column index and offset index.
+     */
+    public static RowRanges getMatchingRowRanges(
+            BlockMetaData block,
+            ParquetFileMetadata fileMetadata,
+            ParquetDataSource dataSource,
+            Map<List<String>, RichColumnDescriptor> descriptorsByPath,
+            TupleDomain<ColumnDescriptor> parquetTupleDomain,
+            boolean failOnCorruptedParquetStatistics)
+            throws IOException
+    {
+        RowRanges rowRanges = RowRanges.all(block.getRowCount());
+        if (!fileMetadata.hasPageIndexes() || !parquetTupleDomain.getDomains().isPresent()) {
+            return rowRanges;
+        }
+
+        Map<ColumnDescriptor, Domain> domains = parquetTupleDomain.getDomains().get();
+        for (ColumnChunkMetaData columnMetaData : block.getColumns()) {
+            RichColumnDescriptor descriptor = descriptorsByPath.get(Arrays.asList(columnMetaData.getPath().toArray()));
+            // page boundaries of repeated columns are not aligned with rows
+            if (descriptor == null || descriptor.getMaxRepetitionLevel() > 0 || !domains.containsKey(descriptor)) {
+                continue;
+            }
+            Optional<PageIndexReference> reference = fileMetadata.getPageIndexReference(columnMetaData);
+            if (!reference.isPresent()) {
+                continue;
+            }
+            ColumnIndex columnIndex = readColumnIndex(dataSource, reference.get());
+            OffsetIndex offsetIndex = readOffsetIndex(dataSource, reference.get());
+            rowRanges = rowRanges.intersect(getMatchingRowRanges(
+                    domains.get(descriptor),
+                    descriptor,
+                    columnIndex,
+                    offsetIndex,
+                    block.getRowCount(),
+                    dataSource.getId(),
+                    failOnCorruptedParquetStatistics));
+            if (rowRanges.isEmpty()) {
+                break;
+            }
+        }
+        return rowRanges;
+    }
+
+    @VisibleForTesting
+    public static RowRanges getMatchingRowRanges(
+            Domain effectivePredicateDomain,
+            RichColumnDescriptor descriptor,
+            ColumnIndex columnIndex,
+            OffsetIndex offsetIndex,
+            long rowCount,
+            ParquetDataSourceId id,
+            boolean failOnCorruptedParquetStatistics)
+            throws ParquetCorruptionException
+    {
+        List<PageLocation> pageLocations = offsetIndex.getPage_locations();
+        List<Boolean> nullPages = columnIndex.getNull_pages();
+        List<ByteBuffer> minValues = columnIndex.getMin_values();
+        List<ByteBuffer> maxValues = columnIndex.getMax_values();
+        int pageCount = pageLocations.size();
+        if (nullPages.size() != pageCount || minValues.size() != pageCount || maxValues.size() != pageCount
+                || (columnIndex.isSetNull_counts() && columnIndex.getNull_counts().size() != pageCount)) {
+            if (failOnCorruptedParquetStatistics) {
+                throw new ParquetCorruptionException("Page index of column \"%s\" in Parquet file \"%s\" does not match the %s pages in the offset index", descriptor, id, pageCount);
+            }
+            return RowRanges.all(rowCount);
+        }
+
+        Type type = effectivePredicateDomain.getType();
+        RowRanges.Builder matchingRows = RowRanges.builder();
+        for (int page = 0; page < pageCount; page++) {
+            long firstRow = pageLocations.get(page).getFirst_row_index();
+            long lastRow = page + 1 < pageCount ? pageLocations.get(page + 1).getFirst_row_index() : rowCount;
+            if (firstRow >= lastRow) {
+                continue;
+            }
+
+            Domain pageDomain;
+            if (nullPages.get(page)) {
+                pageDomain = Domain.onlyNull(type);
+            }
+            else {
+                Statistics<?> statistics = Statistics.getStatsBasedOnType(descriptor.getType());
+                statistics.setMinMaxFromBytes(getBytes(minValues.get(page)), getBytes(maxValues.get(page)));
+                if (columnIndex.isSetNull_counts()) {
+                    statistics.setNumNulls(columnIndex.getNull_counts().get(page));
+                }
+                pageDomain = getDomain(type, lastRow - firstRow, statistics, id, descriptor.toString(), failOnCorruptedParquetStatistics);
+                if (!columnIndex.isSetNull_counts()) {
+                    pageDomain = pageDomain.union(Domain.onlyNull(type));
+                }
+            }
+
+            if (!effectivePredicateDomain.intersect(pageDomain).isNone()) {
+                matchingRows.add(firstRow, lastRow);
+            }
+        }
+        return matchingRows.build();
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
     private static Map<ColumnDescriptor, Statistics<?>> getStatistics(BlockMetaData blockMetadata, Map<List<String>, RichColumnDescriptor> descriptorsByPath)
     {
         ImmutableMap.Builder<ColumnDescriptor, Statistics<?>> statistics = ImmutableMap.builder();
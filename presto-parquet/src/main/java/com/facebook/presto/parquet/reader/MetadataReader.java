@@ -13,19 +13,23 @@
  */
 package com.facebook.presto.parquet.reader;
 
+import com.facebook.presto.parquet.ParquetDataSource;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.format.ColumnChunk;
+import org.apache.parquet.format.ColumnIndex;
 import org.apache.parquet.format.ColumnMetaData;
 import org.apache.parquet.format.ConvertedType;
 import org.apache.parquet.format.Encoding;
 import org.apache.parquet.format.FileMetaData;
 import org.apache.parquet.format.KeyValue;
+import org.apache.parquet.format.OffsetIndex;
 import org.apache.parquet.format.RowGroup;
 import org.apache.parquet.format.SchemaElement;
 import org.apache.parquet.format.Statistics;
 import org.apache.parquet.format.Type;
+import org.apache.parquet.format.Util;
 import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
@@ -52,6 +56,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.facebook.presto.parquet.ParquetValidationUtils.validateParquet;
@@ -76,7 +81,12 @@ public final class MetadataReader
 
     public static ParquetMetadata readFooter(FSDataInputStream inputStream, Path file, long fileSize)
             throws IOException
+    {
+        return readFileMetadata(inputStream, file, fileSize).getParquetMetadata();
+    }
 
+    public static ParquetFileMetadata readFileMetadata(FSDataInputStream inputStream, Path file, long fileSize)
+            throws IOException
     {
         // Parquet File Layout:
         //
@@ -109,6 +119,7 @@ public final class MetadataReader
 
         MessageType messageType = readParquetSchema(schema);
         List<BlockMetaData> blocks = new ArrayList<>();
+        Map<Long, PageIndexReference> pageIndexReferences = new HashMap<>();
         List<RowGroup> rowGroups = fileMetaData.getRow_groups();
         if (rowGroups != null) {
             for (RowGroup rowGroup : rowGroups) {
@@ -144,6 +155,7 @@ public final class MetadataReader
                             metaData.total_compressed_size,
                             metaData.total_uncompressed_size);
                     blockMetaData.addColumn(column);
+                    readPageIndexReference(columnChunk).ifPresent(reference -> pageIndexReferences.put(column.getStartingPos(), reference));
                 }
                 blockMetaData.setPath(filePath);
                 blocks.add(blockMetaData);
@@ -157,7 +169,41 @@ public final class MetadataReader
                 keyValueMetaData.put(keyValue.key, keyValue.value);
             }
         }
-        return new ParquetMetadata(new org.apache.parquet.hadoop.metadata.FileMetaData(messageType, keyValueMetaData, fileMetaData.getCreated_by()), blocks);
+        ParquetMetadata parquetMetadata = new ParquetMetadata(new org.apache.parquet.hadoop.metadata.FileMetaData(messageType, keyValueMetaData, fileMetaData.getCreated_by()), blocks);
+        return new ParquetFileMetadata(parquetMetadata, pageIndexReferences);
+    }
+
+    public static ColumnIndex readColumnIndex(ParquetDataSource dataSource, PageIndexReference reference)
+            throws IOException
+    {
+        byte[] buffer = new byte[reference.getColumnIndexLength()];
+        dataSource.readFully(reference.getColumnIndexOffset(), buffer);
+        return Util.readColumnIndex(new ByteArrayInputStream(buffer));
+    }
+
+    public static OffsetIndex readOffsetIndex(ParquetDataSource dataSource, PageIndexReference reference)
+            throws IOException
+    {
+        byte[] buffer = new byte[reference.getOffsetIndexLength()];
+        dataSource.readFully(reference.getOffsetIndexOffset(), buffer);
+        return Util.readOffsetIndex(new ByteArrayInputStream(buffer));
+    }
+
+    private static Optional<PageIndexReference> readPageIndexReference(ColumnChunk columnChunk)
+    {
+        // the page index is optional and only written by newer Parquet writers
+        if (!columnChunk.isSetColumn_index_offset() || !columnChunk.isSetColumn_index_length()
+                || !columnChunk.isSetOffset_index_offset() || !columnChunk.isSetOffset_index_length()) {
+            return Optional.empty();
+        }
+        if (columnChunk.getColumn_index_length() <= 0 || columnChunk.getOffset_index_length() <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new PageIndexReference(
+                columnChunk.getColumn_index_offset(),
+                columnChunk.getColumn_index_length(),
+                columnChunk.getOffset_index_offset(),
+                columnChunk.getOffset_index_length()));
     }
 
     private static MessageType readParquetSchema(List<SchemaElement> schema)
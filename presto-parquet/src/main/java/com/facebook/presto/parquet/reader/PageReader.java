@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import static com.facebook.presto.parquet.ParquetCompressionUtils.decompress;
+import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.toIntExact;
 
 public class PageReader
@@ -33,6 +34,8 @@ public class PageReader
     private final List<DataPage> compressedPages;
     private final DictionaryPage compressedDictionaryPage;
 
+    private int skippedPageCount;
+
     public PageReader(CompressionCodecName codec,
             List<DataPage> compressedPages,
             DictionaryPage compressedDictionaryPage)
@@ -52,6 +55,32 @@ public class PageReader
         return valueCount;
     }
 
+    public int getSkippedPageCount()
+    {
+        return skippedPageCount;
+    }
+
+    /**
+     * Returns the number of values in the next page, or -1 if there are no more pages.
+     */
+    public int getNextPageValueCount()
+    {
+        if (compressedPages.isEmpty()) {
+            return -1;
+        }
+        return compressedPages.get(0).getValueCount();
+    }
+
+    /**
+     * Drops the next page without decompressing it.
+     */
+    public void skipPage()
+    {
+        checkState(!compressedPages.isEmpty(), "No more pages to skip");
+        compressedPages.remove(0);
+        skippedPageCount++;
+    }
+
     public DataPage readPage()
     {
         if (compressedPages.isEmpty()) {
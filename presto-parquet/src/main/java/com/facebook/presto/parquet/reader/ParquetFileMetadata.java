@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.reader;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The footer of a Parquet file together with the page index locations, which
+ * are not part of {@link ParquetMetadata} in the Parquet version we depend on.
+ */
+public class ParquetFileMetadata
+{
+    private final ParquetMetadata parquetMetadata;
+    // keyed by the starting position of the column chunk, which is unique within a file
+    private final Map<Long, PageIndexReference> pageIndexReferences;
+
+    public ParquetFileMetadata(ParquetMetadata parquetMetadata, Map<Long, PageIndexReference> pageIndexReferences)
+    {
+        this.parquetMetadata = requireNonNull(parquetMetadata, "parquetMetadata is null");
+        this.pageIndexReferences = ImmutableMap.copyOf(requireNonNull(pageIndexReferences, "pageIndexReferences is null"));
+    }
+
+    public ParquetMetadata getParquetMetadata()
+    {
+        return parquetMetadata;
+    }
+
+    public Optional<PageIndexReference> getPageIndexReference(ColumnChunkMetaData columnChunk)
+    {
+        return Optional.ofNullable(pageIndexReferences.get(columnChunk.getStartingPos()));
+    }
+
+    public boolean hasPageIndexes()
+    {
+        return !pageIndexReferences.isEmpty();
+    }
+}
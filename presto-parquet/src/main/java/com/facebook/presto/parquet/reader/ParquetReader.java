@@ -28,6 +28,7 @@ import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.type.MapType;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeSignatureParameter;
+import com.google.common.collect.ImmutableList;
 import io.airlift.units.DataSize;
 import it.unimi.dsi.fastutil.booleans.BooleanArrayList;
 import it.unimi.dsi.fastutil.booleans.BooleanList;
@@ -42,7 +43,6 @@ import org.apache.parquet.io.PrimitiveColumnIO;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -52,6 +52,7 @@ import static com.facebook.presto.spi.type.StandardTypes.ARRAY;
 import static com.facebook.presto.spi.type.StandardTypes.MAP;
 import static com.facebook.presto.spi.type.StandardTypes.ROW;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
@@ -65,6 +66,7 @@ public class ParquetReader
     private static final int BATCH_SIZE_GROWTH_FACTOR = 2;
 
     private final List<BlockMetaData> blocks;
+    private final List<RowRanges> blockRowRanges;
     private final List<PrimitiveColumnIO> columns;
     private final ParquetDataSource dataSource;
     private final AggregatedMemoryContext systemMemoryContext;
@@ -72,8 +74,9 @@ public class ParquetReader
     private int currentBlock;
     private BlockMetaData currentBlockMetadata;
     private long currentPosition;
-    private long currentGroupRowCount;
     private long nextRowInGroup;
+    private RowRanges currentGroupRowRanges = RowRanges.EMPTY;
+    private int currentRange;
     private int batchSize;
     private int nextBatchSize = INITIAL_BATCH_SIZE;
     private final PrimitiveColumnReader[] columnReaders;
@@ -81,6 +84,7 @@ public class ParquetReader
     private long maxCombinedBytesPerRow;
     private final long maxReadBlockBytes;
     private int maxBatchSize = MAX_VECTOR_LENGTH;
+    private long skippedPageCount;
 
     private AggregatedMemoryContext currentRowGroupMemoryContext;
 
@@ -90,8 +94,31 @@ public class ParquetReader
             ParquetDataSource dataSource,
             AggregatedMemoryContext systemMemoryContext,
             DataSize maxReadBlockSize)
+    {
+        this(messageColumnIO,
+                blocks,
+                blocks.stream()
+                        .map(block -> RowRanges.all(block.getRowCount()))
+                        .collect(toImmutableList()),
+                dataSource,
+                systemMemoryContext,
+                maxReadBlockSize);
+    }
+
+    /**
+     * @param blockRowRanges the rows to read from each of the blocks; pages that only contain
+     * rows outside of these ranges are skipped without being decompressed
+     */
+    public ParquetReader(MessageColumnIO messageColumnIO,
+            List<BlockMetaData> blocks,
+            List<RowRanges> blockRowRanges,
+            ParquetDataSource dataSource,
+            AggregatedMemoryContext systemMemoryContext,
+            DataSize maxReadBlockSize)
     {
         this.blocks = blocks;
+        this.blockRowRanges = ImmutableList.copyOf(requireNonNull(blockRowRanges, "blockRowRanges is null"));
+        checkArgument(blocks.size() == blockRowRanges.size(), "blocks and blockRowRanges must have the same size");
         this.dataSource = requireNonNull(dataSource, "dataSource is null");
         this.systemMemoryContext = requireNonNull(systemMemoryContext, "systemMemoryContext is null");
         this.currentRowGroupMemoryContext = systemMemoryContext.newAggregatedMemoryContext();
@@ -105,6 +132,7 @@ public class ParquetReader
     public void close()
             throws IOException
     {
+        collectSkippedPageCounts();
         currentRowGroupMemoryContext.close();
         dataSource.close();
     }
@@ -114,20 +142,40 @@ public class ParquetReader
         return currentPosition;
     }
 
+    /**
+     * Returns the number of data pages that were skipped without being decompressed.
+     */
+    public long getSkippedPageCount()
+    {
+        return skippedPageCount;
+    }
+
     public int nextBatch()
     {
-        if (nextRowInGroup >= currentGroupRowCount && !advanceToNextRowGroup()) {
-            return -1;
+        while (currentRange >= currentGroupRowRanges.getRangeCount()) {
+            if (!advanceToNextRowGroup()) {
+                return -1;
+            }
         }
 
+        // batches never span the gap between two ranges, the rows in the gap are skipped by the column readers
+        long rangeStart = currentGroupRowRanges.getRangeStart(currentRange);
+        long rangeEnd = currentGroupRowRanges.getRangeEnd(currentRange);
+        long rowsToSkip = max(0, rangeStart - nextRowInGroup);
+        nextRowInGroup += rowsToSkip;
+
         batchSize = toIntExact(min(nextBatchSize, maxBatchSize));
         nextBatchSize = min(batchSize * BATCH_SIZE_GROWTH_FACTOR, MAX_VECTOR_LENGTH);
-        batchSize = toIntExact(min(batchSize, currentGroupRowCount - nextRowInGroup));
+        batchSize = toIntExact(min(batchSize, rangeEnd - nextRowInGroup));
 
         nextRowInGroup += batchSize;
         currentPosition += batchSize;
-        Arrays.stream(columnReaders)
-                .forEach(reader -> reader.prepareNextRead(batchSize));
+        if (nextRowInGroup == rangeEnd) {
+            currentRange++;
+        }
+        for (PrimitiveColumnReader reader : columnReaders) {
+            reader.prepareNextRead(rowsToSkip, batchSize);
+        }
         return batchSize;
     }
 
@@ -140,10 +188,11 @@ public class ParquetReader
             return false;
         }
         currentBlockMetadata = blocks.get(currentBlock);
+        currentGroupRowRanges = blockRowRanges.get(currentBlock);
         currentBlock = currentBlock + 1;
 
         nextRowInGroup = 0L;
-        currentGroupRowCount = currentBlockMetadata.getRowCount();
+        currentRange = 0;
         initializeColumnReaders();
         return true;
     }
@@ -207,10 +256,17 @@ public class ParquetReader
 
     private ColumnChunk readPrimitive(PrimitiveField field)
             throws IOException
+    {
+        ColumnChunk columnChunk = getColumnReader(field).readPrimitive(field);
+        updateMaxBytesPerCell(field.getId(), columnChunk.getBlock(), batchSize);
+        return columnChunk;
+    }
+
+    private PrimitiveColumnReader getColumnReader(PrimitiveField field)
+            throws IOException
     {
         ColumnDescriptor columnDescriptor = field.getDescriptor();
-        int fieldId = field.getId();
-        PrimitiveColumnReader columnReader = columnReaders[fieldId];
+        PrimitiveColumnReader columnReader = columnReaders[field.getId()];
         if (columnReader.getPageReader() == null) {
             validateParquet(currentBlockMetadata.getRowCount() > 0, "Row group has 0 rows");
             ColumnChunkMetaData metadata = getColumnChunkMetaData(columnDescriptor);
@@ -222,17 +278,22 @@ public class ParquetReader
             ParquetColumnChunk columnChunk = new ParquetColumnChunk(descriptor, buffer, 0);
             columnReader.setPageReader(columnChunk.readAllPages());
         }
-        ColumnChunk columnChunk = columnReader.readPrimitive(field);
+        return columnReader;
+    }
 
+    private void updateMaxBytesPerCell(int fieldId, Block block, int positionCount)
+    {
+        if (positionCount == 0) {
+            return;
+        }
         // update max size per primitive column chunk
-        long bytesPerCell = columnChunk.getBlock().getSizeInBytes() / batchSize;
+        long bytesPerCell = block.getSizeInBytes() / positionCount;
         if (maxBytesPerCell[fieldId] < bytesPerCell) {
             // update batch size
             maxCombinedBytesPerRow = maxCombinedBytesPerRow - maxBytesPerCell[fieldId] + bytesPerCell;
             maxBatchSize = toIntExact(min(maxBatchSize, max(1, maxReadBlockBytes / maxCombinedBytesPerRow)));
             maxBytesPerCell[fieldId] = bytesPerCell;
         }
-        return columnChunk;
     }
 
     private byte[] allocateBlock(int length)
@@ -256,18 +317,48 @@ public class ParquetReader
 
     private void initializeColumnReaders()
     {
+        collectSkippedPageCounts();
         for (PrimitiveColumnIO columnIO : columns) {
             RichColumnDescriptor column = new RichColumnDescriptor(columnIO.getColumnDescriptor(), columnIO.getType().asPrimitiveType());
             columnReaders[columnIO.getId()] = PrimitiveColumnReader.createReader(column);
         }
     }
 
+    private void collectSkippedPageCounts()
+    {
+        for (int i = 0; i < columnReaders.length; i++) {
+            PrimitiveColumnReader columnReader = columnReaders[i];
+            if (columnReader != null && columnReader.getPageReader() != null) {
+                skippedPageCount += columnReader.getPageReader().getSkippedPageCount();
+            }
+            columnReaders[i] = null;
+        }
+    }
+
     public Block readBlock(Field field)
             throws IOException
     {
         return readColumnChunk(field).getBlock();
     }
 
+    /**
+     * Reads only the given positions of the current batch of a field. Non-repeated primitive fields
+     * decode just the values at these positions; other fields are read whole and then filtered.
+     *
+     * @param positions the positions to read, sorted in increasing order
+     */
+    public Block readBlock(Field field, int[] positions, int positionCount)
+            throws IOException
+    {
+        if (field instanceof PrimitiveField && ((PrimitiveField) field).getDescriptor().getMaxRepetitionLevel() == 0) {
+            PrimitiveField primitiveField = (PrimitiveField) field;
+            Block block = getColumnReader(primitiveField).readPrimitive(primitiveField, positions, positionCount);
+            updateMaxBytesPerCell(primitiveField.getId(), block, positionCount);
+            return block;
+        }
+        return readBlock(field).getPositions(positions, 0, positionCount);
+    }
+
     private ColumnChunk readColumnChunk(Field field)
             throws IOException
     {
@@ -23,6 +23,7 @@ import com.facebook.presto.parquet.ParquetTypeUtils;
 import com.facebook.presto.parquet.RichColumnDescriptor;
 import com.facebook.presto.parquet.dictionary.Dictionary;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.type.DecimalType;
 import com.facebook.presto.spi.type.Type;
@@ -47,6 +48,7 @@ import static com.facebook.presto.parquet.ValuesType.VALUES;
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
+import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
 public abstract class PrimitiveColumnReader
@@ -146,7 +148,16 @@ public abstract class PrimitiveColumnReader
 
     public void prepareNextRead(int batchSize)
     {
-        readOffset = readOffset + nextBatchSize;
+        prepareNextRead(0, batchSize);
+    }
+
+    /**
+     * Prepares the next read of {@code batchSize} rows, which start {@code rowsToSkip} rows
+     * after the end of the previous batch.
+     */
+    public void prepareNextRead(long rowsToSkip, int batchSize)
+    {
+        readOffset = toIntExact(readOffset + nextBatchSize + rowsToSkip);
         nextBatchSize = batchSize;
     }
 
@@ -200,6 +211,13 @@ public abstract class PrimitiveColumnReader
                 valueCount++;
                 if (valueCount == remainingValueCountInPage) {
                     updateValueCounts(valueCount);
+                    if (isFlat()) {
+                        // callers never ask for more values than are left in the page, so this is the last
+                        // value; leave the next page compressed until it is needed, it may be skipped
+                        definitionLevel = EMPTY_LEVEL_VALUE;
+                        repetitionLevel = EMPTY_LEVEL_VALUE;
+                        return;
+                    }
                     if (!readNextPage()) {
                         return;
                     }
@@ -213,22 +231,84 @@ public abstract class PrimitiveColumnReader
         updateValueCounts(valueCount);
     }
 
+    /**
+     * Reads the values at the given positions of the prepared batch of a non-repeated column. The values
+     * in between are skipped without being materialized, and pages that only contain skipped values are
+     * not decompressed.
+     *
+     * @param positions the positions to read, sorted in increasing order and smaller than the batch size
+     */
+    public Block readPrimitive(Field field, int[] positions, int positionCount)
+    {
+        checkArgument(isFlat(), "Positional reads are only supported for non-repeated columns: %s", columnDescriptor);
+        seek();
+        Type type = field.getType();
+        BlockBuilder blockBuilder = type.createBlockBuilder(null, positionCount);
+        int nextPosition = 0;
+        int i = 0;
+        while (i < positionCount) {
+            int runStart = positions[i];
+            checkArgument(runStart >= nextPosition && runStart < nextBatchSize, "Positions must be sorted and within the batch");
+            int runLength = 1;
+            while (i + runLength < positionCount && positions[i + runLength] == runStart + runLength) {
+                runLength++;
+            }
+            skipRows(runStart - nextPosition);
+            readRows(blockBuilder, runLength, type);
+            nextPosition = runStart + runLength;
+            i += runLength;
+        }
+
+        // the rows after the last position are skipped lazily by the next read
+        readOffset = nextBatchSize - nextPosition;
+        nextBatchSize = 0;
+        return blockBuilder.build();
+    }
+
+    private void readRows(BlockBuilder blockBuilder, int rowCount, Type type)
+    {
+        int rowsRead = 0;
+        while (rowsRead < rowCount) {
+            if (page == null) {
+                readNextPage();
+            }
+            int valuesToRead = Math.min(remainingValueCountInPage, rowCount - rowsRead);
+            processValues(valuesToRead, ignored -> readValue(blockBuilder, type));
+            rowsRead += valuesToRead;
+        }
+    }
+
     private void seek()
     {
         checkArgument(currentValueCount <= totalValueCount, "Already read all values in column chunk");
-        if (readOffset == 0) {
-            return;
-        }
+        skipRows(readOffset);
+    }
+
+    private void skipRows(int rowCount)
+    {
         int valuePosition = 0;
-        while (valuePosition < readOffset) {
+        while (valuePosition < rowCount) {
             if (page == null) {
+                int pageValueCount = pageReader.getNextPageValueCount();
+                if (isFlat() && pageValueCount > 0 && pageValueCount <= rowCount - valuePosition) {
+                    // every value is a row, so a page that is skipped entirely does not need to be decompressed
+                    pageReader.skipPage();
+                    currentValueCount += pageValueCount;
+                    valuePosition += pageValueCount;
+                    continue;
+                }
                 readNextPage();
             }
-            int offset = Math.min(remainingValueCountInPage, readOffset - valuePosition);
+            int offset = Math.min(remainingValueCountInPage, rowCount - valuePosition);
             skipValues(offset);
             valuePosition = valuePosition + offset;
         }
-        checkArgument(valuePosition == readOffset, "valuePosition %s must be equal to readOffset %s", valuePosition, readOffset);
+        checkArgument(valuePosition == rowCount, "valuePosition %s must be equal to rowCount %s", valuePosition, rowCount);
+    }
+
+    private boolean isFlat()
+    {
+        return columnDescriptor.getMaxRepetitionLevel() == 0;
     }
 
     private boolean readNextPage()
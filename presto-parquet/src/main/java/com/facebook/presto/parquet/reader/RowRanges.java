@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.reader;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.Arrays;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Sorted, non-overlapping ranges of row indexes within a row group. Each range
+ * includes its start and excludes its end.
+ */
+public final class RowRanges
+{
+    public static final RowRanges EMPTY = new RowRanges(new long[0], new long[0]);
+
+    private final long[] starts;
+    private final long[] ends;
+
+    private RowRanges(long[] starts, long[] ends)
+    {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static RowRanges all(long rowCount)
+    {
+        checkArgument(rowCount >= 0, "rowCount is negative");
+        if (rowCount == 0) {
+            return EMPTY;
+        }
+        return new RowRanges(new long[] {0}, new long[] {rowCount});
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public int getRangeCount()
+    {
+        return starts.length;
+    }
+
+    public long getRangeStart(int range)
+    {
+        return starts[range];
+    }
+
+    public long getRangeEnd(int range)
+    {
+        return ends[range];
+    }
+
+    public long getRowCount()
+    {
+        long rowCount = 0;
+        for (int range = 0; range < starts.length; range++) {
+            rowCount += ends[range] - starts[range];
+        }
+        return rowCount;
+    }
+
+    public boolean isEmpty()
+    {
+        return starts.length == 0;
+    }
+
+    public RowRanges intersect(RowRanges other)
+    {
+        Builder builder = builder();
+        int left = 0;
+        int right = 0;
+        while (left < starts.length && right < other.starts.length) {
+            long start = max(starts[left], other.starts[right]);
+            long end = min(ends[left], other.ends[right]);
+            if (start < end) {
+                builder.add(start, end);
+            }
+            if (ends[left] < other.ends[right]) {
+                left++;
+            }
+            else {
+                right++;
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RowRanges other = (RowRanges) obj;
+        return Arrays.equals(starts, other.starts) && Arrays.equals(ends, other.ends);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder ranges = new StringBuilder("[");
+        for (int range = 0; range < starts.length; range++) {
+            if (range > 0) {
+                ranges.append(", ");
+            }
+            ranges.append('[').append(starts[range]).append(", ").append(ends[range]).append(')');
+        }
+        return toStringHelper(this)
+                .add("ranges", ranges.append(']'))
+                .toString();
+    }
+
+    public static class Builder
+    {
+        private final LongArrayList starts = new LongArrayList();
+        private final LongArrayList ends = new LongArrayList();
+
+        private Builder() {}
+
+        /**
+         * Adds a range that starts at or after the end of the previously added range.
+         * Adjacent ranges are merged.
+         */
+        public Builder add(long start, long end)
+        {
+            checkArgument(start < end, "start must be less than end");
+            if (!ends.isEmpty()) {
+                long lastEnd = ends.getLong(ends.size() - 1);
+                checkArgument(start >= lastEnd, "ranges must be added in order");
+                if (start == lastEnd) {
+                    ends.set(ends.size() - 1, end);
+                    return this;
+                }
+            }
+            starts.add(start);
+            ends.add(end);
+            return this;
+        }
+
+        public RowRanges build()
+        {
+            if (starts.isEmpty()) {
+                return EMPTY;
+            }
+            return new RowRanges(starts.toLongArray(), ends.toLongArray());
+        }
+    }
+}
@@ -13,17 +13,35 @@
  */
 package com.facebook.presto.parquet.predicate;
 
+import com.facebook.presto.parquet.ParquetCorruptionException;
+import com.facebook.presto.parquet.ParquetDataSourceId;
+import com.facebook.presto.parquet.RichColumnDescriptor;
+import com.facebook.presto.parquet.reader.RowRanges;
+import com.facebook.presto.spi.predicate.Domain;
+import com.facebook.presto.spi.predicate.Range;
+import com.facebook.presto.spi.predicate.ValueSet;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.column.Encoding;
 import org.apache.parquet.column.EncodingStats;
 import org.apache.parquet.column.statistics.BinaryStatistics;
+import org.apache.parquet.format.BoundaryOrder;
+import org.apache.parquet.format.ColumnIndex;
+import org.apache.parquet.format.OffsetIndex;
+import org.apache.parquet.format.PageLocation;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.schema.PrimitiveType;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 
+import static com.facebook.presto.parquet.predicate.PredicateUtils.getMatchingRowRanges;
 import static com.facebook.presto.parquet.predicate.PredicateUtils.isOnlyDictionaryEncodingPages;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.collect.Sets.union;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static org.apache.parquet.column.Encoding.BIT_PACKED;
 import static org.apache.parquet.column.Encoding.PLAIN;
 import static org.apache.parquet.column.Encoding.PLAIN_DICTIONARY;
@@ -32,11 +50,16 @@ import static org.apache.parquet.column.Encoding.RLE_DICTIONARY;
 import static org.apache.parquet.hadoop.metadata.ColumnPath.fromDotString;
 import static org.apache.parquet.hadoop.metadata.CompressionCodecName.UNCOMPRESSED;
 import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+import static org.apache.parquet.schema.Type.Repetition.OPTIONAL;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class TestPredicateUtils
 {
+    private static final ParquetDataSourceId ID = new ParquetDataSourceId("testFile");
+
     @Test
     @SuppressWarnings("deprecation")
     public void testDictionaryEncodingV1()
@@ -72,6 +95,66 @@ public class TestPredicateUtils
         assertFalse(isOnlyDictionaryEncodingPages(createColumnMetaDataV2(RLE_DICTIONARY, PLAIN)));
     }
 
+    @Test
+    public void testColumnIndexRowRanges()
+            throws Exception
+    {
+        RichColumnDescriptor column = new RichColumnDescriptor(
+                new ColumnDescriptor(new String[] {"path"}, INT64, 0, 1),
+                new PrimitiveType(OPTIONAL, INT64, "Test column"));
+        ColumnIndex columnIndex = new ColumnIndex(
+                ImmutableList.of(false, false, true, false),
+                ImmutableList.of(longValue(0), longValue(100), ByteBuffer.allocate(0), longValue(300)),
+                ImmutableList.of(longValue(99), longValue(199), ByteBuffer.allocate(0), longValue(399)),
+                BoundaryOrder.ASCENDING);
+        OffsetIndex offsetIndex = new OffsetIndex(ImmutableList.of(
+                new PageLocation(4, 100, 0),
+                new PageLocation(104, 100, 100),
+                new PageLocation(204, 10, 200),
+                new PageLocation(214, 100, 250)));
+
+        Domain range = Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 150L, true, 320L, true)), false);
+        assertEquals(
+                getMatchingRowRanges(range, column, columnIndex, offsetIndex, 300, ID, true),
+                RowRanges.builder().add(100, 200).add(250, 300).build());
+        assertEquals(
+                getMatchingRowRanges(Domain.singleValue(BIGINT, 1000L), column, columnIndex, offsetIndex, 300, ID, true),
+                RowRanges.EMPTY);
+
+        // without null counts, every page may contain nulls
+        assertEquals(
+                getMatchingRowRanges(Domain.onlyNull(BIGINT), column, columnIndex, offsetIndex, 300, ID, true),
+                RowRanges.all(300));
+        columnIndex.setNull_counts(ImmutableList.of(0L, 0L, 50L, 0L));
+        assertEquals(
+                getMatchingRowRanges(Domain.onlyNull(BIGINT), column, columnIndex, offsetIndex, 300, ID, true),
+                RowRanges.builder().add(200, 250).build());
+        assertEquals(
+                getMatchingRowRanges(Domain.notNull(BIGINT), column, columnIndex, offsetIndex, 300, ID, true),
+                RowRanges.builder().add(0, 200).add(250, 300).build());
+    }
+
+    @Test(expectedExceptions = ParquetCorruptionException.class)
+    public void testColumnIndexPageCountMismatch()
+            throws Exception
+    {
+        RichColumnDescriptor column = new RichColumnDescriptor(
+                new ColumnDescriptor(new String[] {"path"}, INT64, 0, 1),
+                new PrimitiveType(OPTIONAL, INT64, "Test column"));
+        ColumnIndex columnIndex = new ColumnIndex(
+                ImmutableList.of(false),
+                ImmutableList.of(longValue(0)),
+                ImmutableList.of(longValue(99)),
+                BoundaryOrder.ASCENDING);
+        OffsetIndex offsetIndex = new OffsetIndex(ImmutableList.of(new PageLocation(4, 100, 0), new PageLocation(104, 100, 100)));
+        getMatchingRowRanges(Domain.singleValue(BIGINT, 1L), column, columnIndex, offsetIndex, 200, ID, true);
+    }
+
+    private static ByteBuffer longValue(long value)
+    {
+        return ByteBuffer.allocate(Long.BYTES).order(LITTLE_ENDIAN).putLong(0, value);
+    }
+
     private ColumnChunkMetaData createColumnMetaDataV2(Encoding... dataEncodings)
     {
         EncodingStats encodingStats = new EncodingStats.Builder()
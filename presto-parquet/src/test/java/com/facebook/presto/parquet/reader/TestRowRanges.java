@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.reader;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestRowRanges
+{
+    @Test
+    public void testBuilderMergesAdjacentRanges()
+    {
+        RowRanges rowRanges = RowRanges.builder()
+                .add(0, 10)
+                .add(10, 20)
+                .add(30, 40)
+                .build();
+        assertEquals(rowRanges.getRangeCount(), 2);
+        assertEquals(rowRanges.getRangeStart(0), 0);
+        assertEquals(rowRanges.getRangeEnd(0), 20);
+        assertEquals(rowRanges.getRangeStart(1), 30);
+        assertEquals(rowRanges.getRangeEnd(1), 40);
+        assertEquals(rowRanges.getRowCount(), 30);
+    }
+
+    @Test
+    public void testIntersect()
+    {
+        RowRanges left = RowRanges.builder()
+                .add(0, 10)
+                .add(20, 30)
+                .add(40, 50)
+                .build();
+        RowRanges right = RowRanges.builder()
+                .add(5, 25)
+                .add(45, 60)
+                .build();
+        RowRanges expected = RowRanges.builder()
+                .add(5, 10)
+                .add(20, 25)
+                .add(45, 50)
+                .build();
+        assertEquals(left.intersect(right), expected);
+        assertEquals(right.intersect(left), expected);
+        assertEquals(left.intersect(RowRanges.all(100)), left);
+        assertTrue(left.intersect(RowRanges.EMPTY).isEmpty());
+        assertTrue(left.intersect(RowRanges.builder().add(10, 20).build()).isEmpty());
+    }
+
+    @Test
+    public void testAll()
+    {
+        assertEquals(RowRanges.all(100).getRowCount(), 100);
+        assertEquals(RowRanges.all(100).getRangeCount(), 1);
+        assertTrue(RowRanges.all(0).isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRangesOutOfOrder()
+    {
+        RowRanges.builder()
+                .add(10, 20)
+                .add(0, 5);
+    }
+}
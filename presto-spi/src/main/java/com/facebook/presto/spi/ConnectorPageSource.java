@@ -74,4 +74,14 @@ public interface ConnectorPageSource
     {
         return NOT_BLOCKED;
     }
+
+    /**
+     * Starts reading the data needed for the first page, such as file footers and the first
+     * stripes, so that the first call to {@link #getNextPage()} does not wait on storage.
+     * Presto calls this method at most once, before the first call to {@code getNextPage},
+     * from an I/O thread that is allowed to block.
+     */
+    default void prefetch()
+    {
+    }
 }
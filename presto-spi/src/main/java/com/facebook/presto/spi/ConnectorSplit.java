@@ -16,6 +16,7 @@ package com.facebook.presto.spi;
 import com.facebook.presto.spi.schedule.NodeSelectionStrategy;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ConnectorSplit
 {
@@ -37,4 +38,15 @@ public interface ConnectorSplit
     List<HostAddress> getPreferredNodes(List<HostAddress> sortedCandidates);
 
     Object getInfo();
+
+    /**
+     * Identifies the data read by this split, so that results computed from it can be cached.
+     * The identifier must implement {@code equals} and {@code hashCode}, and must change whenever
+     * the data read by the split changes (e.g. include the file modification time).
+     * Splits that return empty are never cached.
+     */
+    default Optional<Object> getSplitIdentifier()
+    {
+        return Optional.empty();
+    }
 }
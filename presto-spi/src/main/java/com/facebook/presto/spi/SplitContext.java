@@ -13,20 +13,31 @@
  */
 package com.facebook.presto.spi;
 
+import com.facebook.presto.spi.predicate.TupleDomain;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import static java.util.Objects.requireNonNull;
+
 // TODO: Use builder pattern for SplitContext if we are to add optional field
 public class SplitContext
 {
     public static final SplitContext NON_CACHEABLE = new SplitContext(false);
 
     private final boolean cacheable;
+    // Dynamic filter is computed and consumed on the worker, so it is not serialized
+    private final TupleDomain<ColumnHandle> dynamicFilterPredicate;
 
     @JsonCreator
     public SplitContext(@JsonProperty boolean cacheable)
+    {
+        this(cacheable, TupleDomain.all());
+    }
+
+    public SplitContext(boolean cacheable, TupleDomain<ColumnHandle> dynamicFilterPredicate)
     {
         this.cacheable = cacheable;
+        this.dynamicFilterPredicate = requireNonNull(dynamicFilterPredicate, "dynamicFilterPredicate is null");
     }
 
     @JsonProperty
@@ -34,4 +45,13 @@ public class SplitContext
     {
         return cacheable;
     }
+
+    /**
+     * Predicate on the columns of the split derived from the build side of a join at runtime.
+     * Connectors may use it to skip data that cannot produce join matches.
+     */
+    public TupleDomain<ColumnHandle> getDynamicFilterPredicate()
+    {
+        return dynamicFilterPredicate;
+    }
 }
@@ -106,6 +106,7 @@ public enum StandardErrorCode
     EXCEEDED_SPILL_LIMIT(0x0002_0006, INSUFFICIENT_RESOURCES),
     EXCEEDED_LOCAL_MEMORY_LIMIT(0x0002_0007, INSUFFICIENT_RESOURCES),
     ADMINISTRATIVELY_PREEMPTED(0x0002_0008, INSUFFICIENT_RESOURCES),
+    EXCEEDED_BROADCAST_MEMORY_LIMIT(0x0002_0009, INSUFFICIENT_RESOURCES),
     /**/;
 
     // Connectors can use error codes starting at the range 0x0100_0000
@@ -25,7 +25,17 @@ import static java.lang.String.format;
 public enum PageCodecMarker
 {
     COMPRESSED(1),
-    ENCRYPTED(2);
+    ENCRYPTED(2),
+    /**
+     * Set together with {@link #COMPRESSED} when the page is compressed with Snappy
+     */
+    SNAPPY(3),
+    /**
+     * Set together with {@link #COMPRESSED} when the page is compressed with Zstd
+     */
+    ZSTD(4);
+
+    private static final int CODEC_MASK = SNAPPY.mask | ZSTD.mask;
 
     private final int mask;
 
@@ -58,6 +68,15 @@ public enum PageCodecMarker
         return 0;
     }
 
+    /**
+     * Returns only the markers identifying the compression codec of a page. Pages compressed
+     * with LZ4 have no codec markers set.
+     */
+    public static byte codecMarkers(byte value)
+    {
+        return (byte) (Byte.toUnsignedInt(value) & CODEC_MASK);
+    }
+
     public static String toSummaryString(byte markers)
     {
         if (markers == none()) {
@@ -28,4 +28,13 @@ public interface PageCompressor
             int maxOutputLength);
 
     void compress(ByteBuffer input, ByteBuffer output);
+
+    /**
+     * The {@link PageCodecMarker} values identifying the codec of pages compressed by this instance,
+     * set in addition to {@link PageCodecMarker#COMPRESSED}
+     */
+    default byte getCodecMarkers()
+    {
+        return PageCodecMarker.none();
+    }
 }
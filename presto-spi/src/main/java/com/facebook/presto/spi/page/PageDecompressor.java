@@ -26,4 +26,13 @@ public interface PageDecompressor
             int maxOutputLength);
 
     void decompress(ByteBuffer input, ByteBuffer output);
+
+    /**
+     * The {@link PageCodecMarker} values identifying the codec of pages decompressed by this instance,
+     * set in addition to {@link PageCodecMarker#COMPRESSED}
+     */
+    default byte getCodecMarkers()
+    {
+        return PageCodecMarker.none();
+    }
 }
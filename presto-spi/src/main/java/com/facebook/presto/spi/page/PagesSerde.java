@@ -28,10 +28,12 @@ import java.util.Optional;
 
 import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
 import static com.facebook.presto.spi.page.PageCodecMarker.ENCRYPTED;
+import static com.facebook.presto.spi.page.PageCodecMarker.codecMarkers;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.readRawPage;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writeRawPage;
 import static io.airlift.slice.SizeOf.sizeOf;
 import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
 
@@ -84,6 +86,13 @@ public class PagesSerde
 
         if (COMPRESSED.isSet(serializedPage.getPageCodecMarkers())) {
             checkState(decompressor.isPresent(), "Page is compressed, but decompressor is missing");
+            byte codecMarkers = codecMarkers(serializedPage.getPageCodecMarkers());
+            if (codecMarkers != decompressor.get().getCodecMarkers()) {
+                throw new IllegalStateException(format(
+                        "Page is compressed with codec %s, but decompressor is for codec %s",
+                        toCodecString(codecMarkers),
+                        toCodecString(decompressor.get().getCodecMarkers())));
+            }
 
             int uncompressedSize = serializedPage.getUncompressedSizeInBytes();
             ByteBuffer decompressionBuffer = ByteBuffer.allocate(uncompressedSize);
@@ -126,7 +135,7 @@ public class PagesSerde
 
             if (compressedSize / (double) uncompressedSize <= MINIMUM_COMPRESSION_RATIO) {
                 slice = Slices.copyOf(Slices.wrappedBuffer(compressionBuffer, 0, compressedSize));
-                markers = COMPRESSED.set(markers);
+                markers = (byte) (COMPRESSED.set(markers) | compressor.get().getCodecMarkers());
             }
         }
 
@@ -141,6 +150,11 @@ public class PagesSerde
         return new SerializedPage(slice, markers, positionCount, uncompressedSize);
     }
 
+    private static String toCodecString(byte codecMarkers)
+    {
+        return codecMarkers == PageCodecMarker.none() ? "LZ4" : PageCodecMarker.toSummaryString(codecMarkers);
+    }
+
     private static void checkArgument(boolean condition, String message)
     {
         if (!condition) {
@@ -28,12 +28,16 @@ import com.facebook.presto.testing.MaterializedResult;
 import com.facebook.presto.tpch.TpchConnectorFactory;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import org.intellij.lang.annotations.Language;
 import org.testng.annotations.Test;
 
 import java.util.Optional;
 
 import static com.facebook.airlift.json.JsonCodec.jsonCodec;
+import static com.facebook.presto.SystemSessionProperties.JOIN_DISTRIBUTION_TYPE;
 import static com.facebook.presto.SystemSessionProperties.PUSH_PARTIAL_AGGREGATION_THROUGH_JOIN;
+import static com.facebook.presto.SystemSessionProperties.SKEWED_JOIN_HOT_KEYS;
+import static com.facebook.presto.SystemSessionProperties.SKEWED_JOIN_SALT_FACTOR;
 import static com.facebook.presto.spi.predicate.Marker.Bound.EXACTLY;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
@@ -42,8 +46,10 @@ import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingSession.TESTING_CATALOG;
 import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
 import static com.facebook.presto.testing.assertions.Assert.assertEquals;
+import static com.facebook.presto.tests.QueryAssertions.assertEqualsIgnoreOrder;
 import static com.facebook.presto.tpch.TpchMetadata.TINY_SCHEMA_NAME;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.testng.Assert.assertTrue;
 
 public class TestLocalQueries
         extends AbstractTestQueries
@@ -115,6 +121,37 @@ public class TestLocalQueries
         assertQuery("SELECT 0.1", "SELECT CAST('0.1' AS DECIMAL)");
     }
 
+    @Test
+    public void testSaltedSkewedJoin()
+    {
+        @Language("SQL") String probe = "(VALUES (1, 'a'), (1, 'b'), (1, 'c'), (1, 'd'), (2, 'e'), (3, 'f'), (3, 'g'), (NULL, 'h')) probe(k, v)";
+        @Language("SQL") String build = "(VALUES (1, 'x'), (1, 'y'), (2, 'z'), (4, 'w'), (NULL, 'n')) build(k, w)";
+
+        // key 3 is hot, but has no build rows
+        assertSaltedJoinResult("1,3", "SELECT probe.v, build.w FROM " + probe + " JOIN " + build + " ON probe.k = build.k");
+        assertSaltedJoinResult("1,3", "SELECT probe.v, build.w FROM " + probe + " LEFT JOIN " + build + " ON probe.k = build.k");
+        assertSaltedJoinResult("1,3", "SELECT probe.v, build.w FROM " + probe + " LEFT JOIN " + build + " ON probe.k = build.k AND build.w <> 'y'");
+
+        // customers whose key is a multiple of 3 have no orders
+        assertSaltedJoinResult("1,3,4", "SELECT c.custkey, o.orderkey FROM customer c JOIN orders o ON c.custkey = o.custkey");
+        assertSaltedJoinResult("1,3,4", "SELECT c.custkey, o.orderkey FROM customer c LEFT JOIN orders o ON c.custkey = o.custkey");
+    }
+
+    private void assertSaltedJoinResult(String hotKeys, @Language("SQL") String query)
+    {
+        Session unsalted = Session.builder(getSession())
+                .setSystemProperty(JOIN_DISTRIBUTION_TYPE, "PARTITIONED")
+                .build();
+        Session salted = Session.builder(unsalted)
+                .setSystemProperty(SKEWED_JOIN_HOT_KEYS, hotKeys)
+                .setSystemProperty(SKEWED_JOIN_SALT_FACTOR, "4")
+                .build();
+
+        String plan = (String) computeActual(salted, "EXPLAIN " + query).getOnlyValue();
+        assertTrue(plan.contains("build_salt"), "join is not salted: " + plan);
+        assertEqualsIgnoreOrder(computeActual(salted, query).getMaterializedRows(), computeActual(unsalted, query).getMaterializedRows());
+    }
+
     @Test
     public void testIOExplain()
     {